@@ -0,0 +1,211 @@
+package cli;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import models.Astar;
+import models.Cell;
+import models.FringeSearch;
+import models.Grid;
+import models.GridFile;
+import models.IterativeDeepeningAstar;
+import models.Pathfinding;
+
+// compares the memory-light searches with a*: how many more cells they expand, how long they
+// take and how much memory they hold at most
+//
+//   java -p out/core -m Path.visualiser.core/cli.BoundedSearchBenchmark \
+//        [--grid FILE | --rows 500 --cols 750 --walls 0.2] [--queries 50] [--max-distance N]
+//        [--algos astar,fringe,ida,ida-plain] [--table-limit N] [--seed N]
+//
+// queries are random connected pairs, at most --max-distance apart (manhattan) when given,
+// since ida* on a weighted grid gets expensive fast with distance. "ida" is ida* with the
+// transposition table and controlled bound growth, "ida-plain" raises the bound the classic
+// way. every cost is checked against a*
+public class BoundedSearchBenchmark {
+
+    private Path gridPath;
+    private int rows = 500;
+    private int cols = 750;
+    private double walls = 0.2;
+    private int queries = 50;
+    private int maxDistance;  // 0 = any distance
+    private final List<String> algos = new ArrayList<>(Arrays.asList("astar", "fringe", "ida", "ida-plain"));
+    private int tableLimit = IterativeDeepeningAstar.DEFAULT_TABLE_LIMIT;
+    private long seed = 42;
+
+    public static void main(String[] args) {
+        BoundedSearchBenchmark benchmark = new BoundedSearchBenchmark();
+        try {
+            benchmark.parseArgs(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("error: " + e.getMessage());
+            System.err.println("usage: BoundedSearchBenchmark [--grid FILE | --rows N --cols N --walls FRACTION] [--queries N]"
+                    + " [--max-distance N] [--algos NAME[,NAME...]] [--table-limit N] [--seed N]");
+            System.exit(2);
+        }
+        try {
+            benchmark.run();
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private void parseArgs(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (i + 1 >= args.length) throw new IllegalArgumentException(option + " needs a value");
+            String value = args[++i];
+            try {
+                switch (option) {
+                    case "--grid":         gridPath = Path.of(value); break;
+                    case "--rows":         rows = Integer.parseInt(value); break;
+                    case "--cols":         cols = Integer.parseInt(value); break;
+                    case "--walls":        walls = Double.parseDouble(value); break;
+                    case "--queries":      queries = Integer.parseInt(value); break;
+                    case "--max-distance": maxDistance = Integer.parseInt(value); break;
+                    case "--table-limit":  tableLimit = Integer.parseInt(value); break;
+                    case "--seed":         seed = Long.parseLong(value); break;
+                    case "--algos":
+                        algos.clear();
+                        for (String name : value.split(",")) {
+                            if (!Arrays.asList("astar", "fringe", "ida", "ida-plain").contains(name)) {
+                                throw new IllegalArgumentException("unknown algorithm '" + name + "', expected astar, fringe, ida or ida-plain");
+                            }
+                            algos.add(name);
+                        }
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown option " + option);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("bad number for " + option + ": " + value);
+            }
+        }
+        if (rows < 1 || cols < 1 || queries < 1) throw new IllegalArgumentException("rows, cols and queries have to be positive");
+        if (maxDistance < 0 || tableLimit < 0) throw new IllegalArgumentException("--max-distance and --table-limit can't be negative");
+    }
+
+    private void run() throws IOException {
+        Grid grid = gridPath != null ? GridFile.read(gridPath) : randomGrid();
+        Cell[][] pairs = pickQueries(grid);
+        double[] astarCosts = new double[queries];
+        long astarExpansions = 0;
+
+        System.out.printf(Locale.ROOT, "%dx%d, %d queries%s%n", grid.getRows(), grid.getCols(), queries,
+                maxDistance > 0 ? ", at most " + maxDistance + " apart" : "");
+        System.out.printf(Locale.ROOT, "%-10s %9s %14s %10s %14s %8s%n", "algorithm", "ms", "expansions", "vs astar",
+                "peak bytes", "wrong");
+
+        for (String name : algos) {
+            // a* goes first whatever the order, everything is checked against it
+            if (astarExpansions == 0 && !name.equals("astar")) {
+                astarExpansions = runAstar(grid, pairs, astarCosts);
+            }
+            long begin = System.nanoTime();
+            long expansions = 0;
+            long peak = 0;
+            int wrong = 0;
+            for (int q = 0; q < queries; q++) {
+                Pathfinding search = create(name);
+                search.init(grid, pairs[q][0], pairs[q][1]);
+                while (!search.step()) {
+                    // runs to the end
+                }
+                double cost = search.getCompactPath().cost(search.getState().getGrid());
+                if (name.equals("astar")) {
+                    astarCosts[q] = cost;
+                } else if (cost != astarCosts[q]) {
+                    wrong++;
+                }
+                expansions += expansions(search);
+                peak = Math.max(peak, memory(search));
+            }
+            double ms = (System.nanoTime() - begin) / 1e6;
+            if (name.equals("astar")) astarExpansions = expansions;
+            System.out.printf(Locale.ROOT, "%-10s %9.1f %,14d %9.1fx %,14d %8d%n", name, ms, expansions,
+                    (double) expansions / astarExpansions, peak, wrong);
+        }
+    }
+
+    private long runAstar(Grid grid, Cell[][] pairs, double[] costs) {
+        long expansions = 0;
+        for (int q = 0; q < queries; q++) {
+            Astar astar = new Astar();
+            astar.init(grid, pairs[q][0], pairs[q][1]);
+            while (!astar.step()) {
+                expansions++;
+            }
+            costs[q] = astar.getCompactPath().cost(astar.getState().getGrid());
+        }
+        return expansions;
+    }
+
+    private Pathfinding create(String name) {
+        switch (name) {
+            case "astar":  return new Astar();
+            case "fringe": return new FringeSearch();
+            default:
+                IterativeDeepeningAstar ida = new IterativeDeepeningAstar();
+                ida.setTableLimit(tableLimit);
+                ida.setControlledGrowth(name.equals("ida"));
+                return ida;
+        }
+    }
+
+    private static long expansions(Pathfinding search) {
+        if (search instanceof FringeSearch) return ((FringeSearch) search).getExpansions();
+        if (search instanceof IterativeDeepeningAstar) return ((IterativeDeepeningAstar) search).getExpansions();
+        return search.getState().getClosedCount();
+    }
+
+    private static long memory(Pathfinding search) {
+        if (search instanceof FringeSearch) return ((FringeSearch) search).getMemoryBytes();
+        if (search instanceof IterativeDeepeningAstar) return ((IterativeDeepeningAstar) search).getPeakMemoryBytes();
+        return ((Astar) search).getMemoryBytes();
+    }
+
+    // random open start and goal cells in the same region, close enough when --max-distance is set
+    private Cell[][] pickQueries(Grid grid) {
+        Random random = new Random(seed + 1);
+        Cell[][] pairs = new Cell[queries][];
+        for (int q = 0; q < queries; q++) {
+            int attempts = 0;
+            while (true) {
+                if (++attempts > 100_000) throw new IllegalArgumentException("can't find " + queries + " connected queries");
+                Cell start = grid.getCell(random.nextInt(grid.getRows()), random.nextInt(grid.getCols()));
+                Cell goal;
+                if (maxDistance > 0) {
+                    int row = start.getRow() + random.nextInt(2 * maxDistance + 1) - maxDistance;
+                    int col = start.getCol() + random.nextInt(2 * maxDistance + 1) - maxDistance;
+                    goal = grid.getCell(row, col);
+                    if (goal == null || Math.abs(row - start.getRow()) + Math.abs(col - start.getCol()) > maxDistance) continue;
+                } else {
+                    goal = grid.getCell(random.nextInt(grid.getRows()), random.nextInt(grid.getCols()));
+                }
+                if (start.isWall() || goal.isWall() || start == goal) continue;
+                if (!grid.getComponents().isConnected(start, goal)) continue;
+                pairs[q] = new Cell[]{start, goal};
+                break;
+            }
+        }
+        return pairs;
+    }
+
+    private Grid randomGrid() {
+        Grid grid = new Grid(rows, cols, seed);
+        Random random = new Random(seed);
+        byte[] terrain = new byte[rows * cols];
+        for (int i = 0; i < terrain.length; i++) {
+            if (random.nextDouble() < walls) terrain[i] = (byte) Cell.TerrainType.WALL.ordinal();
+        }
+        grid.applyTerrain(terrain);
+        return grid;
+    }
+}
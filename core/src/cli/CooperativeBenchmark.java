@@ -0,0 +1,206 @@
+package cli;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import models.Cell;
+import models.CooperativePlanner;
+import models.Grid;
+import models.GridFile;
+import models.LongIntMap;
+import models.ResumableDistance;
+
+// plans a crowd of agents with CooperativePlanner and compares it with every agent taking its
+// own shortest path
+//
+//   java -p out/core -m Path.visualiser.core/cli.CooperativeBenchmark \
+//        [--grid FILE | --rows 200 --cols 300 --walls 0.2] [--agents 500] [--window 16]
+//        [--batches 1,8] [--seed N] [--vanish]
+//
+// agents get random distinct start and goal cells that are connected. every batch size in
+// --batches plans the same agents (1 is strictly one agent after the other, bigger batches
+// search that many agents in parallel), prints agents per second and checks the plan for
+// collisions. "independent" is the same agents each on its shortest path with nobody else
+// around, the collisions it gets are what cooperative planning is for
+public class CooperativeBenchmark {
+
+    private Path gridPath;
+    private int rows = 200;
+    private int cols = 300;
+    private double walls = 0.2;
+    private int agents = 500;
+    private int window = CooperativePlanner.DEFAULT_WINDOW;
+    private final List<Integer> batches = new ArrayList<>(Arrays.asList(1, 8));
+    private long seed = 42;
+    private boolean vanish;
+
+    public static void main(String[] args) {
+        CooperativeBenchmark benchmark = new CooperativeBenchmark();
+        try {
+            benchmark.parseArgs(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("error: " + e.getMessage());
+            System.err.println("usage: CooperativeBenchmark [--grid FILE | --rows N --cols N --walls FRACTION] [--agents N]"
+                    + " [--window N] [--batches N[,N...]] [--seed N] [--vanish]");
+            System.exit(2);
+        }
+        try {
+            benchmark.run();
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private void parseArgs(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (option.equals("--vanish")) {
+                vanish = true;
+                continue;
+            }
+            if (i + 1 >= args.length) throw new IllegalArgumentException(option + " needs a value");
+            String value = args[++i];
+            try {
+                switch (option) {
+                    case "--grid":    gridPath = Path.of(value); break;
+                    case "--rows":    rows = Integer.parseInt(value); break;
+                    case "--cols":    cols = Integer.parseInt(value); break;
+                    case "--walls":   walls = Double.parseDouble(value); break;
+                    case "--agents":  agents = Integer.parseInt(value); break;
+                    case "--window":  window = Integer.parseInt(value); break;
+                    case "--seed":    seed = Long.parseLong(value); break;
+                    case "--batches":
+                        batches.clear();
+                        for (String size : value.split(",")) {
+                            batches.add(Integer.parseInt(size));
+                        }
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown option " + option);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("bad number for " + option + ": " + value);
+            }
+        }
+        if (rows < 1 || cols < 1 || agents < 1) throw new IllegalArgumentException("rows, cols and agents have to be positive");
+        for (int size : batches) {
+            if (size < 1) throw new IllegalArgumentException("batch sizes have to be positive");
+        }
+    }
+
+    private void run() throws IOException {
+        Grid grid = gridPath != null ? GridFile.read(gridPath) : randomGrid();
+        int[] starts = new int[agents];
+        int[] goals = new int[agents];
+        pickAgents(grid, starts, goals);
+
+        System.out.printf(Locale.ROOT, "%dx%d, %d agents, window %d%s%n", grid.getRows(), grid.getCols(), agents, window,
+                vanish ? ", agents leave at their goal" : "");
+        System.out.printf(Locale.ROOT, "%-12s %9s %11s %9s %10s %8s %6s %9s %12s %10s%n", "planner", "ms", "agents/s",
+                "searches", "expanded", "retries", "stuck", "makespan", "sum of costs", "collisions");
+
+        // the independent baseline shares the distances to each goal the same way the planner does
+        long begin = System.nanoTime();
+        int[][] independent = new int[agents][];
+        double independentCost = 0;
+        LongIntMap seen = new LongIntMap();
+        List<ResumableDistance> distances = new ArrayList<>();
+        for (int k = 0; k < agents; k++) {
+            int known = seen.get(goals[k], -1);
+            if (known < 0) {
+                known = distances.size();
+                seen.put(goals[k], known);
+                distances.add(new ResumableDistance(grid, goals[k], starts[k]));
+            }
+            ResumableDistance toGoal = distances.get(known);
+            independent[k] = descend(grid, toGoal, starts[k], goals[k]);
+            independentCost += toGoal.distance(starts[k]);
+        }
+        double ms = (System.nanoTime() - begin) / 1e6;
+        int makespan = 0;
+        for (int[] path : independent) {
+            makespan = Math.max(makespan, path.length - 1);
+        }
+        System.out.printf(Locale.ROOT, "%-12s %9.1f %11.0f %9d %10s %8s %6s %9d %12.0f %10d%n", "independent", ms,
+                agents / (ms / 1e3), agents, "-", "-", "-", makespan, independentCost,
+                CooperativePlanner.countCollisions(grid, independent, !vanish));
+
+        for (int size : batches) {
+            CooperativePlanner planner = new CooperativePlanner();
+            planner.setWindow(window);
+            planner.setParkAtGoal(!vanish);
+            planner.setBatchSize(size);
+            planner.plan(grid, starts, goals);  // warm-up
+            CooperativePlanner.Result result = planner.plan(grid, starts, goals);
+            System.out.printf(Locale.ROOT, "%-12s %9.1f %11.0f %9d %10d %8d %6d %9d %12.0f %10d%s%n", "batch " + size,
+                    result.getNanos() / 1e6, result.getAgentsPerSecond(), result.getSearches(), result.getExpansions(),
+                    result.getRetries(), result.getStuckWindows(), result.getMakespan(), result.getSumOfCosts(),
+                    result.countCollisions(), result.isComplete() ? "" : "  (not everyone arrived)");
+        }
+    }
+
+    // each agent's own shortest path, going downhill on the distances to its goal
+    private static int[] descend(Grid grid, ResumableDistance toGoal, int start, int goal) {
+        List<Integer> path = new ArrayList<>();
+        int at = start;
+        path.add(at);
+        while (at != goal) {
+            Cell cell = grid.cellAt(at);
+            int best = -1;
+            double bestCost = Double.POSITIVE_INFINITY;
+            for (int dir = 0; dir < Grid.DIRECTIONS; dir++) {
+                Cell neighbor = grid.getNeighbor(cell, dir);
+                if (neighbor == null || neighbor.isWall()) continue;
+                double cost = grid.getWeight(cell, dir) + toGoal.distance(grid.indexOf(neighbor));
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    best = grid.indexOf(neighbor);
+                }
+            }
+            at = best;
+            path.add(at);
+        }
+        return path.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // distinct starts, distinct goals (unless agents vanish), each goal reachable from its start
+    private void pickAgents(Grid grid, int[] starts, int[] goals) {
+        Random random = new Random(seed + 1);
+        LongIntMap usedStarts = new LongIntMap(agents);
+        LongIntMap usedGoals = new LongIntMap(agents);
+        int size = grid.getIndexSize();
+        for (int k = 0; k < agents; k++) {
+            int attempts = 0;
+            while (true) {
+                if (++attempts > 10_000) throw new IllegalArgumentException("can't find room for " + agents + " agents");
+                int start = random.nextInt(size);
+                int goal = random.nextInt(size);
+                if (start == goal || grid.cellAt(start).isWall() || grid.cellAt(goal).isWall()) continue;
+                if (usedStarts.containsKey(start) || (!vanish && usedGoals.containsKey(goal))) continue;
+                if (!grid.getComponents().isConnected(grid.cellAt(start), grid.cellAt(goal))) continue;
+                starts[k] = start;
+                goals[k] = goal;
+                usedStarts.put(start, k);
+                usedGoals.put(goal, k);
+                break;
+            }
+        }
+    }
+
+    private Grid randomGrid() {
+        Grid grid = new Grid(rows, cols, seed);
+        Random random = new Random(seed);
+        byte[] terrain = new byte[rows * cols];
+        for (int i = 0; i < terrain.length; i++) {
+            if (random.nextDouble() < walls) terrain[i] = (byte) Cell.TerrainType.WALL.ordinal();
+        }
+        grid.applyTerrain(terrain);
+        return grid;
+    }
+}
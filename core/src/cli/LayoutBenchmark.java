@@ -0,0 +1,149 @@
+package cli;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import models.Cell;
+import models.CellLayout;
+import models.DistanceField;
+import models.Grid;
+import models.IndexHeap;
+import models.PackedGrid;
+
+// times full dijkstras over the same grid stored in different cell layouts
+//
+//   java -p out/core -m Path.visualiser.core/cli.LayoutBenchmark \
+//        [--rows 1000] [--cols 1500] [--walls 0.25] [--runs 5] [--seed N] [--layouts rows,morton,tiled]
+//
+// the grid gets random walls (and random terrain on a tenth of the cells), then every layout
+// runs the same source cells after one warm-up run. "objects" is DistanceField on the Cell
+// objects themselves, for reference. every layout's distances are checked against the
+// row-major ones, so a faster layout that gets a different answer shows up as an error
+public class LayoutBenchmark {
+
+    private int rows = 1000;
+    private int cols = 1500;
+    private double walls = 0.25;
+    private int runs = 5;
+    private long seed = 42;
+    private final List<String> layouts = new ArrayList<>(Arrays.asList("rows", "morton", "tiled"));
+
+    public static void main(String[] args) {
+        LayoutBenchmark benchmark = new LayoutBenchmark();
+        try {
+            benchmark.parseArgs(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("error: " + e.getMessage());
+            System.err.println("usage: LayoutBenchmark [--rows N] [--cols N] [--walls FRACTION] [--runs N] [--seed N]"
+                    + " [--layouts rows,morton,tiled,tiledN]");
+            System.exit(2);
+        }
+        benchmark.run();
+    }
+
+    private void parseArgs(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (i + 1 >= args.length) throw new IllegalArgumentException(option + " needs a value");
+            String value = args[++i];
+            try {
+                switch (option) {
+                    case "--rows":    rows = Integer.parseInt(value); break;
+                    case "--cols":    cols = Integer.parseInt(value); break;
+                    case "--walls":   walls = Double.parseDouble(value); break;
+                    case "--runs":    runs = Integer.parseInt(value); break;
+                    case "--seed":    seed = Long.parseLong(value); break;
+                    case "--layouts":
+                        layouts.clear();
+                        layouts.addAll(Arrays.asList(value.split(",")));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown option " + option);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("bad number for " + option + ": " + value);
+            }
+        }
+        if (rows < 1 || cols < 1 || runs < 1) throw new IllegalArgumentException("rows, cols and runs have to be positive");
+        if (!layouts.contains("rows")) layouts.add(0, "rows");  // the reference answer
+        for (String name : layouts) {
+            CellLayout.byName(name, 1, 1);
+        }
+    }
+
+    private void run() {
+        Grid grid = randomGrid();
+        Random random = new Random(seed + 1);
+        int[] sources = new int[runs + 1];  // the first one is the warm-up
+        for (int i = 0; i < sources.length; i++) {
+            do {
+                sources[i] = random.nextInt(rows * cols);
+            } while (grid.cellAt(sources[i]).isWall());
+        }
+
+        System.out.printf(Locale.ROOT, "%dx%d, %.0f%% walls, %d runs per layout%n", rows, cols, walls * 100, runs);
+        System.out.printf(Locale.ROOT, "%-8s %10s %10s %12s %8s%n", "layout", "build ms", "MB", "ms per run", "vs rows");
+
+        float[][] reference = null;
+        double rowsMs = 0;
+        for (String name : layouts) {
+            long begin = System.nanoTime();
+            PackedGrid packed = new PackedGrid(grid, CellLayout.byName(name, rows, cols));
+            double buildMs = (System.nanoTime() - begin) / 1e6;
+
+            IndexHeap heap = new IndexHeap(packed.getLayout().size());
+            float[][] results = new float[runs][];
+            packed.distances(sources[0] / cols, sources[0] % cols, heap);
+            begin = System.nanoTime();
+            for (int i = 1; i <= runs; i++) {
+                results[i - 1] = packed.distances(sources[i] / cols, sources[i] % cols, heap);
+            }
+            double ms = (System.nanoTime() - begin) / 1e6 / runs;
+
+            for (int i = 0; i < runs; i++) {
+                results[i] = packed.toGridOrder(results[i]);
+            }
+            if (reference == null) {
+                reference = results;
+                rowsMs = ms;
+            } else {
+                for (int i = 0; i < runs; i++) {
+                    if (!Arrays.equals(reference[i], results[i])) {
+                        System.err.println("error: " + name + " disagrees with rows on run " + (i + 1));
+                        System.exit(1);
+                    }
+                }
+            }
+            System.out.printf(Locale.ROOT, "%-8s %10.1f %10.1f %12.2f %7.2fx%n",
+                    name, buildMs, packed.getMemoryBytes() / 1e6, ms, rowsMs / ms);
+        }
+
+        // the same searches on the Cell objects
+        DistanceField.distances(grid, sources[0], false);
+        long begin = System.nanoTime();
+        for (int i = 1; i <= runs; i++) {
+            DistanceField.distances(grid, sources[i], false);
+        }
+        double ms = (System.nanoTime() - begin) / 1e6 / runs;
+        System.out.printf(Locale.ROOT, "%-8s %10s %10s %12.2f %7.2fx%n", "objects", "-", "-", ms, rowsMs / ms);
+    }
+
+    private Grid randomGrid() {
+        Grid grid = new Grid(rows, cols, seed);
+        Random random = new Random(seed);
+        byte[] terrain = new byte[rows * cols];
+        for (int i = 0; i < terrain.length; i++) {
+            double roll = random.nextDouble();
+            if (roll < walls) {
+                terrain[i] = (byte) Cell.TerrainType.WALL.ordinal();
+            } else if (roll < walls + 0.1) {
+                terrain[i] = (byte) (1 + random.nextInt(3));  // sand, water or mountain
+            }
+        }
+        grid.applyTerrain(terrain);
+        return grid;
+    }
+}
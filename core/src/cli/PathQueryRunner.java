@@ -0,0 +1,446 @@
+package cli;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import models.Algorithms;
+import models.ArtifactCache;
+import models.Cell;
+import models.CellLayout;
+import models.CompactPath;
+import models.DeadEndIndex;
+import models.DistanceMatrix;
+import models.GoalBounds;
+import models.Grid;
+import models.GridFile;
+import models.PathDatabase;
+import models.RealTimeSearch;
+import models.Pathfinding;
+import models.SearchProfile;
+import models.SearchResult;
+
+// runs path queries from the command line without starting javafx
+//
+//   java -p out/core -m Path.visualiser.core/cli.PathQueryRunner \
+//        --grid map.txt [--queries queries.txt] [--algo astar,dijkstra] [--format csv|json] [--no-path]
+//        [--trace DIR] [--goals FILE] [--goal-bounds [FILE]] [--dead-ends] [--path-db [FILE]]
+//        [--cache DIR] [--cache-mb N] [--lookahead N] [--profile FILE [--profile-every N]]
+//        [--layout rows|morton|tiled|tiledN]
+//
+// every query line is "startRow,startCol goalRow,goalCol" (blank lines and # comments are
+// skipped), read from the queries file or stdin. one result line per query and algorithm
+// goes to stdout as soon as it's done. with --trace every run is also recorded to
+// DIR/<query>-<algorithm>.trace, which PathApp can import and scrub through.
+// with --goals the file holds a set of "r,c" goal cells, one or more per line, and every
+// query line is one or more start cells instead; each query is then one pass to whichever
+// goal is nearest to any of its starts (dijkstra, astar and alt only).
+// --goal-bounds prunes dijkstra, astar and alt with precomputed goal bounding boxes kept in
+// FILE; they're built (one dijkstra per cell, so only for maps that are queried a lot) and
+// saved there if the file is missing or was made for a different grid. --dead-ends makes
+// them skip dead ends and single-door pockets the query doesn't start or end in.
+// --path-db answers every query from a compressed path database as well (algorithm "cpd"),
+// built and saved to FILE the same way as the goal bounds.
+// --cache keeps precomputed data in DIR by grid content (at most --cache-mb megabytes, least
+// recently used goes first): alt's landmark tables, and the goal bounds and path database
+// when those options are given without a FILE. a second run on the same map loads them.
+// "lrta" is real-time search: it expands --lookahead cells (64) per move and learns as it
+// goes, so repeated queries to the same goal get better routes. its path is the walked one.
+// --profile adds up how often every cell was expanded and relaxed over all the runs and
+// writes it to FILE as csv at the end (--profile-every N only counts every nth run).
+// --layout runs dijkstra on a packed copy of the grid with its cells in that memory order
+// (see CellLayout), which is faster on big maps. it can't be combined with --goals,
+// --goal-bounds or --dead-ends, which the packed search doesn't do
+public class PathQueryRunner {
+
+    private Path gridPath;
+    private Path queriesPath;  // null = stdin
+    private final List<String> algorithms = new ArrayList<>();
+    private boolean json;
+    private boolean includePath = true;
+    private Path traceDir;  // null = don't record traces
+    private Path goalsPath; // null = every query names its own goal
+    private boolean goalBounds;
+    private Path goalBoundsPath;  // null = in the cache
+    private boolean deadEnds;
+    private int lookahead = RealTimeSearch.DEFAULT_LOOKAHEAD;
+    private boolean pathDb;
+    private Path pathDbPath;      // null = in the cache
+    private Path cacheDir;        // null = no cache
+    private long cacheMb = 1024;
+    private Path profilePath;     // null = no profile
+    private int profileEvery = 1;
+    private String layout;        // null = dijkstra on the Cell objects
+
+    public static void main(String[] args) {
+        PathQueryRunner runner = new PathQueryRunner();
+        try {
+            runner.parseArgs(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("error: " + e.getMessage());
+            printUsage();
+            System.exit(2);
+        }
+
+        try {
+            runner.run();
+        } catch (IOException e) {
+            System.err.println("error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static void printUsage() {
+        System.err.println("usage: PathQueryRunner --grid FILE [--queries FILE|-] [--algo NAME[,NAME...]]"
+                + " [--format csv|json] [--no-path] [--trace DIR] [--goals FILE] [--goal-bounds [FILE]] [--dead-ends] [--path-db [FILE]]"
+                + " [--cache DIR] [--cache-mb N] [--lookahead N] [--profile FILE [--profile-every N]]"
+                + " [--layout rows|morton|tiled|tiledN]");
+        System.err.println("  algorithms: " + String.join(", ", Algorithms.NAMES));
+    }
+
+    private void parseArgs(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--grid":
+                    gridPath = Path.of(value(args, ++i, "--grid"));
+                    break;
+                case "--queries":
+                    String queries = value(args, ++i, "--queries");
+                    queriesPath = queries.equals("-") ? null : Path.of(queries);
+                    break;
+                case "--algo":
+                    for (String name : value(args, ++i, "--algo").split(",")) {
+                        if (!Algorithms.NAMES.contains(name.toLowerCase())) {
+                            throw new IllegalArgumentException("unknown algorithm '" + name + "'");
+                        }
+                        algorithms.add(name.toLowerCase());
+                    }
+                    break;
+                case "--format":
+                    String format = value(args, ++i, "--format");
+                    if (!format.equals("csv") && !format.equals("json")) {
+                        throw new IllegalArgumentException("format has to be csv or json");
+                    }
+                    json = format.equals("json");
+                    break;
+                case "--no-path":
+                    includePath = false;
+                    break;
+                case "--trace":
+                    traceDir = Path.of(value(args, ++i, "--trace"));
+                    break;
+                case "--goals":
+                    goalsPath = Path.of(value(args, ++i, "--goals"));
+                    break;
+                case "--goal-bounds":
+                    goalBounds = true;
+                    if (hasValue(args, i + 1)) goalBoundsPath = Path.of(args[++i]);
+                    break;
+                case "--dead-ends":
+                    deadEnds = true;
+                    break;
+                case "--lookahead":
+                    String cells = value(args, ++i, "--lookahead");
+                    try {
+                        lookahead = Integer.parseInt(cells);
+                    } catch (NumberFormatException e) {
+                        lookahead = 0;
+                    }
+                    if (lookahead < 1) throw new IllegalArgumentException("--lookahead needs a positive number");
+                    break;
+                case "--path-db":
+                    pathDb = true;
+                    if (hasValue(args, i + 1)) pathDbPath = Path.of(args[++i]);
+                    break;
+                case "--cache":
+                    cacheDir = Path.of(value(args, ++i, "--cache"));
+                    break;
+                case "--cache-mb":
+                    String mb = value(args, ++i, "--cache-mb");
+                    try {
+                        cacheMb = Long.parseLong(mb);
+                    } catch (NumberFormatException e) {
+                        cacheMb = 0;
+                    }
+                    if (cacheMb < 1) throw new IllegalArgumentException("--cache-mb needs a positive number");
+                    break;
+                case "--profile":
+                    profilePath = Path.of(value(args, ++i, "--profile"));
+                    break;
+                case "--profile-every":
+                    String every = value(args, ++i, "--profile-every");
+                    try {
+                        profileEvery = Integer.parseInt(every);
+                    } catch (NumberFormatException e) {
+                        profileEvery = 0;
+                    }
+                    if (profileEvery < 1) throw new IllegalArgumentException("--profile-every needs a positive number");
+                    break;
+                case "--layout":
+                    layout = value(args, ++i, "--layout");
+                    CellLayout.byName(layout, 1, 1);  // throws for a name it doesn't know
+                    break;
+                case "--help":
+                    printUsage();
+                    System.exit(0);
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown option " + args[i]);
+            }
+        }
+        if (gridPath == null) throw new IllegalArgumentException("--grid is required");
+        if (algorithms.isEmpty()) algorithms.add("astar");
+        if (cacheDir == null && ((goalBounds && goalBoundsPath == null) || (pathDb && pathDbPath == null))) {
+            throw new IllegalArgumentException("--goal-bounds and --path-db need a FILE unless --cache is given");
+        }
+        if (layout != null && (goalsPath != null || goalBounds || deadEnds)) {
+            throw new IllegalArgumentException("--layout can't be combined with --goals, --goal-bounds or --dead-ends");
+        }
+        if (goalsPath != null) {
+            if (traceDir != null) throw new IllegalArgumentException("--trace can't be combined with --goals");
+            if (pathDb) throw new IllegalArgumentException("--path-db can't be combined with --goals");
+            for (String name : algorithms) {
+                if (name.equals("bfs") || name.equals("dfs") || name.equals("lrta") || name.equals("ida") || name.equals("fringe")) {
+                    throw new IllegalArgumentException(name + " can't be used with --goals");
+                }
+            }
+        }
+    }
+
+    private static String value(String[] args, int i, String option) {
+        if (i >= args.length) throw new IllegalArgumentException(option + " needs a value");
+        return args[i];
+    }
+
+    // for options whose value can be left out
+    private static boolean hasValue(String[] args, int i) {
+        return i < args.length && !args[i].startsWith("--");
+    }
+
+    private void run() throws IOException {
+        Grid grid = GridFile.read(gridPath);
+        Algorithms factory = new Algorithms();
+        factory.setLookahead(lookahead);
+        factory.setLayout(layout);
+        ArtifactCache cache = cacheDir == null ? null : new ArtifactCache(cacheDir, cacheMb << 20);
+        factory.setCache(cache);
+        if (goalBounds) {
+            factory.setGoalBounds(goalBounds(grid, cache));
+        }
+        if (deadEnds) {
+            factory.setDeadEnds(new DeadEndIndex());
+        }
+        PathDatabase database = pathDb ? pathDatabase(grid, cache) : null;
+        List<Cell> goals = goalsPath == null ? null : readGoals(grid);
+        if (traceDir != null) {
+            Files.createDirectories(traceDir);
+        }
+        SearchProfile profile = null;
+        if (profilePath != null) {
+            profile = new SearchProfile(grid.getRows(), grid.getCols());
+            profile.setSampleEvery(profileEvery);
+        }
+
+        BufferedReader in = queriesPath == null
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(queriesPath, StandardCharsets.UTF_8);
+        PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16));
+
+        if (!json) {
+            out.println(ResultFormat.csvHeader(includePath));
+        }
+
+        try (in) {
+            int query = 0;
+            int lineNumber = 0;
+            String line;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) continue;
+
+                if (goals != null) {
+                    List<Cell> starts = parseCells(grid, trimmed);
+                    if (starts == null) {
+                        System.err.println("line " + lineNumber + ": skipping bad query '" + trimmed + "'");
+                        continue;
+                    }
+                    query++;
+                    for (String name : algorithms) {
+                        SearchResult result = Algorithms.runNearest(name, factory.createNearest(name), grid, starts, goals, profile);
+                        out.println(json
+                                ? ResultFormat.toJson(query, result, includePath)
+                                : ResultFormat.toCsv(query, result, includePath));
+                    }
+                    if (!in.ready()) out.flush();
+                    continue;
+                }
+
+                Cell[] endpoints = parseQuery(grid, trimmed);
+                if (endpoints == null) {
+                    System.err.println("line " + lineNumber + ": skipping bad query '" + trimmed + "'");
+                    continue;
+                }
+
+                query++;
+                for (String name : algorithms) {
+                    Pathfinding algorithm = factory.create(name);
+                    SearchResult result = Algorithms.run(name, algorithm, grid, endpoints[0], endpoints[1], traceDir != null, profile);
+                    if (traceDir != null) {
+                        result.getTrace().write(traceDir.resolve(query + "-" + name + ".trace"));
+                    }
+                    out.println(json
+                            ? ResultFormat.toJson(query, result, includePath)
+                            : ResultFormat.toCsv(query, result, includePath));
+                }
+                if (database != null) {
+                    SearchResult result = lookUp(database, grid, endpoints[0], endpoints[1]);
+                    out.println(json
+                            ? ResultFormat.toJson(query, result, includePath)
+                            : ResultFormat.toCsv(query, result, includePath));
+                }
+                // stream results out whenever we'd have to wait for more input anyway
+                if (!in.ready()) out.flush();
+            }
+        } finally {
+            out.flush();
+        }
+        if (profile != null) {
+            profile.writeCsv(profilePath);
+            reportProfile(profile);
+        }
+    }
+
+    // totals and the hottest cell to stderr, the whole thing is in the csv
+    private void reportProfile(SearchProfile profile) {
+        int[] expanded = profile.expansions();
+        int[] relaxed = profile.relaxations();
+        long expansions = 0;
+        long relaxations = 0;
+        int hottest = 0;
+        for (int i = 0; i < expanded.length; i++) {
+            expansions += expanded[i];
+            relaxations += relaxed[i];
+            if (expanded[i] > expanded[hottest]) hottest = i;
+        }
+        System.err.printf(Locale.ROOT, "profile: %d runs, %,d expansions, %,d relaxations, hottest cell %d,%d expanded %,d times, written to %s%n",
+                profile.getRuns(), expansions, relaxations, hottest / profile.getCols(), hottest % profile.getCols(),
+                expanded[hottest], profilePath);
+    }
+
+    // the bounds saved in --goal-bounds if they fit this grid, otherwise built and saved there.
+    // without a file they come from the cache
+    private GoalBounds goalBounds(Grid grid, ArtifactCache cache) throws IOException {
+        if (goalBoundsPath == null) {
+            return cache.get(grid, "goal-bounds", GoalBounds.FORMAT, GoalBounds::load, GoalBounds::save,
+                    PathQueryRunner::buildGoalBounds);
+        }
+        if (Files.exists(goalBoundsPath)) {
+            GoalBounds bounds = GoalBounds.load(goalBoundsPath);
+            if (bounds.isFor(grid)) return bounds;
+            System.err.println(goalBoundsPath + " was built for a different grid, rebuilding");
+        }
+        GoalBounds bounds = buildGoalBounds(grid);
+        bounds.save(goalBoundsPath);
+        return bounds;
+    }
+
+    private static GoalBounds buildGoalBounds(Grid grid) {
+        long begin = System.nanoTime();
+        GoalBounds bounds = GoalBounds.compute(grid, progress("goal bounds"), null);
+        System.err.printf(Locale.ROOT, "goal bounds: built in %.1f s, %,d bytes%n", (System.nanoTime() - begin) / 1e9, bounds.getMemoryBytes());
+        return bounds;
+    }
+
+    // same for the path database
+    private PathDatabase pathDatabase(Grid grid, ArtifactCache cache) throws IOException {
+        if (pathDbPath == null) {
+            return cache.get(grid, "path-db", PathDatabase.FORMAT, PathDatabase::load, PathDatabase::save,
+                    PathQueryRunner::buildPathDatabase);
+        }
+        if (Files.exists(pathDbPath)) {
+            PathDatabase database = PathDatabase.load(pathDbPath);
+            if (database.isFor(grid)) return database;
+            System.err.println(pathDbPath + " was built for a different grid, rebuilding");
+        }
+        PathDatabase database = buildPathDatabase(grid);
+        database.save(pathDbPath);
+        return database;
+    }
+
+    private static PathDatabase buildPathDatabase(Grid grid) {
+        long begin = System.nanoTime();
+        PathDatabase database = PathDatabase.compute(grid, progress("path database"), null);
+        System.err.printf(Locale.ROOT, "path database: built in %.1f s, %s%n", (System.nanoTime() - begin) / 1e9,
+                database.memoryReport());
+        return database;
+    }
+
+    // prints every tenth percent of a build to stderr
+    private static DistanceMatrix.Progress progress(String what) {
+        int[] lastPercent = {-1};
+        return (done, total) -> {
+            int percent = (int) (100L * done / total);
+            synchronized (lastPercent) {
+                if (percent / 10 > lastPercent[0] / 10) {
+                    lastPercent[0] = percent;
+                    System.err.println(what + ": " + percent + "%");
+                }
+            }
+        };
+    }
+
+    // one query answered by walking first moves, no expansions
+    private static SearchResult lookUp(PathDatabase database, Grid grid, Cell start, Cell goal) {
+        long begin = System.nanoTime();
+        CompactPath path = database.path(start.getRow(), start.getCol(), goal.getRow(), goal.getCol());
+        long nanos = System.nanoTime() - begin;
+        Grid snapshot = grid.snapshot();
+        return new SearchResult("cpd", start, goal, path, snapshot, path.cost(snapshot), 0, nanos);
+    }
+
+    private List<Cell> readGoals(Grid grid) throws IOException {
+        List<Cell> goals = new ArrayList<>();
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(goalsPath, StandardCharsets.UTF_8)) {
+            lineNumber++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) continue;
+            List<Cell> cells = parseCells(grid, trimmed);
+            if (cells == null) throw new IOException(goalsPath + " line " + lineNumber + ": bad cells '" + trimmed + "'");
+            goals.addAll(cells);
+        }
+        if (goals.isEmpty()) throw new IOException(goalsPath + " has no goal cells");
+        return goals;
+    }
+
+    private static List<Cell> parseCells(Grid grid, String line) {
+        int[] values = ResultFormat.parseCells(line);
+        if (values == null) return null;
+        List<Cell> cells = new ArrayList<>();
+        for (int i = 0; i < values.length; i += 2) {
+            Cell cell = grid.getCell(values[i], values[i + 1]);
+            if (cell == null) return null;
+            cells.add(cell);
+        }
+        return cells;
+    }
+
+    private static Cell[] parseQuery(Grid grid, String line) {
+        int[] values = ResultFormat.parseQuery(line);
+        if (values == null) return null;
+        Cell start = grid.getCell(values[0], values[1]);
+        Cell goal = grid.getCell(values[2], values[3]);
+        if (start == null || goal == null) return null;
+        return new Cell[]{start, goal};
+    }
+}
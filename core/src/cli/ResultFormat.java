@@ -0,0 +1,103 @@
+package cli;
+
+import java.util.Locale;
+
+import models.Cell;
+import models.SearchResult;
+
+// turns search results into csv or json lines, shared by the query runner and the server
+public final class ResultFormat {
+
+    private ResultFormat() {
+    }
+
+    public static String csvHeader(boolean includePath) {
+        return "query,algorithm,start,goal,found,cost,length,expansions,micros" + (includePath ? ",path" : "");
+    }
+
+    public static String toCsv(long query, SearchResult result, boolean includePath) {
+        StringBuilder line = new StringBuilder();
+        line.append(query).append(',')
+                .append(result.getAlgorithm()).append(',')
+                .append('"').append(coords(result.getStart())).append("\",")
+                .append('"').append(coords(result.getGoal())).append("\",")
+                .append(result.hasPath()).append(',')
+                .append(result.hasPath() ? formatCost(result.getCost()) : "").append(',')
+                .append(result.getLength()).append(',')
+                .append(result.getExpansions()).append(',')
+                .append(result.getNanos() / 1000);
+        if (includePath) {
+            line.append(",\"");
+            int mark = line.length();
+            result.getCompactPath().forEachCell((row, col) -> {
+                if (line.length() > mark) line.append(' ');
+                line.append(row).append(',').append(col);
+            });
+            line.append('"');
+        }
+        return line.toString();
+    }
+
+    public static String toJson(long query, SearchResult result, boolean includePath) {
+        StringBuilder line = new StringBuilder();
+        line.append("{\"query\":").append(query)
+                .append(",\"algorithm\":\"").append(result.getAlgorithm()).append('"')
+                .append(",\"start\":[").append(coords(result.getStart())).append(']')
+                .append(",\"goal\":[").append(coords(result.getGoal())).append(']')
+                .append(",\"found\":").append(result.hasPath())
+                .append(",\"cost\":").append(result.hasPath() ? formatCost(result.getCost()) : "null")
+                .append(",\"length\":").append(result.getLength())
+                .append(",\"expansions\":").append(result.getExpansions())
+                .append(",\"micros\":").append(result.getNanos() / 1000);
+        if (includePath) {
+            line.append(",\"path\":[");
+            int mark = line.length();
+            result.getCompactPath().forEachCell((row, col) -> {
+                if (line.length() > mark) line.append(',');
+                line.append('[').append(row).append(',').append(col).append(']');
+            });
+            line.append(']');
+        }
+        line.append('}');
+        return line.toString();
+    }
+
+    // "r,c r,c" (any mix of commas and spaces works) into {startRow, startCol, goalRow, goalCol},
+    // null if it doesn't make sense
+    public static int[] parseQuery(String line) {
+        String[] parts = line.trim().split("[\\s,]+");
+        if (parts.length != 4) return null;
+        try {
+            int[] values = new int[4];
+            for (int i = 0; i < 4; i++) {
+                values[i] = Integer.parseInt(parts[i]);
+            }
+            return values;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // any number of "r,c" pairs into {r0, c0, r1, c1, ...}, null if it doesn't make sense
+    public static int[] parseCells(String line) {
+        String[] parts = line.trim().split("[\\s,]+");
+        if (parts.length == 0 || parts.length % 2 != 0) return null;
+        try {
+            int[] values = new int[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                values[i] = Integer.parseInt(parts[i]);
+            }
+            return values;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String coords(Cell cell) {
+        return cell.getRow() + "," + cell.getCol();
+    }
+
+    private static String formatCost(double cost) {
+        return String.format(Locale.ROOT, "%.1f", cost);
+    }
+}
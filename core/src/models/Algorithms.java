@@ -0,0 +1,186 @@
+package models;
+
+import java.util.Arrays;
+import java.util.List;
+
+// makes pathfinding objects from their names, for code that picks them at runtime.
+// keeps one landmark heuristic around so "alt" only precomputes once per grid, and one
+// learned heuristic so every "lrta" trip to a goal walks a better route than the last
+public class Algorithms {
+    public static final List<String> NAMES = Arrays.asList("bfs", "dfs", "dijkstra", "astar", "alt", "lrta", "ida",
+            "fringe");
+
+    private LandmarkHeuristic landmarks;
+    private GoalBounds goalBounds;  // handed to dijkstra, astar and alt when set
+    private DeadEndIndex deadEnds;  // same
+    private LearnedHeuristic learned;
+    private int lookahead = RealTimeSearch.DEFAULT_LOOKAHEAD;
+    private ArtifactCache cache;    // where alt keeps its landmark tables between runs, can be null
+    private String layout;          // null = dijkstra walks the Cell objects, see setLayout()
+    private PackedGrid packed;      // last grid packed for that, reused until the grid changes
+
+    public Pathfinding create(String name) {
+        switch (name.toLowerCase()) {
+            case "bfs":      return new BFS();
+            case "dfs":      return new DFS();
+            case "dijkstra":
+                if (layout != null) return new PackedDijkstra(this::packedFor);
+                Dijkstra dijkstra = new Dijkstra();
+                dijkstra.setGoalBounds(goalBounds);
+                dijkstra.setDeadEnds(deadEnds);
+                return dijkstra;
+            case "astar":
+                Astar astar = new Astar();
+                astar.setGoalBounds(goalBounds);
+                astar.setDeadEnds(deadEnds);
+                return astar;
+            case "alt":
+                Astar alt = new Astar(getLandmarks());
+                alt.setGoalBounds(goalBounds);
+                alt.setDeadEnds(deadEnds);
+                return alt;
+            case "lrta":     return new RealTimeSearch(getLearned(), lookahead);
+            case "ida":      return new IterativeDeepeningAstar();
+            case "fringe":   return new FringeSearch();
+            default:
+                throw new IllegalArgumentException("unknown algorithm '" + name + "', expected one of " + NAMES);
+        }
+    }
+
+    // nearest-goal searches, only for the algorithms that handle weights
+    public MultiTargetSearch createNearest(String name) {
+        switch (name.toLowerCase()) {
+            case "dijkstra": return new MultiTargetSearch();
+            case "astar":    return new MultiTargetSearch(new ManhattanHeuristic());
+            case "alt":      return new MultiTargetSearch(getLandmarks());
+            default:
+                throw new IllegalArgumentException("'" + name + "' can't search for the nearest of several goals,"
+                        + " use dijkstra, astar or alt");
+        }
+    }
+
+    // precomputed pruning for the weighted searches made from here on, null turns it off
+    public void setGoalBounds(GoalBounds goalBounds) {
+        this.goalBounds = goalBounds;
+    }
+
+    // dead end skipping for the weighted searches made from here on, null turns it off
+    public void setDeadEnds(DeadEndIndex deadEnds) {
+        this.deadEnds = deadEnds;
+    }
+
+    // dijkstra made from here on runs on a packed copy of the grid in this CellLayout
+    // (rows, morton, tiled or tiledN), null goes back to the Cell objects. the copy is made
+    // once per grid version and shared by every search on it. goal bounds and dead ends
+    // don't apply to the packed search
+    public synchronized void setLayout(String layout) {
+        if (layout != null) CellLayout.byName(layout, 1, 1);  // unknown names fail here, not mid query
+        this.layout = layout;
+        packed = null;
+    }
+
+    private synchronized PackedGrid packedFor(Grid snapshot) {
+        if (packed == null || packed.getGrid() != snapshot) {
+            packed = new PackedGrid(snapshot, CellLayout.byName(layout, snapshot.getRows(), snapshot.getCols()));
+        }
+        return packed;
+    }
+
+    // cells lrta expands before each move, for the searches made from here on
+    public void setLookahead(int lookahead) {
+        if (lookahead < 1) throw new IllegalArgumentException("lookahead has to be at least 1");
+        this.lookahead = lookahead;
+    }
+
+    // landmark selections from here on are kept in (and taken from) the cache
+    public synchronized void setCache(ArtifactCache cache) {
+        this.cache = cache;
+        if (landmarks != null) landmarks.setCache(cache);
+    }
+
+    private synchronized LandmarkHeuristic getLandmarks() {
+        if (landmarks == null) {
+            landmarks = new LandmarkHeuristic(8);
+            landmarks.setCache(cache);
+        }
+        return landmarks;
+    }
+
+    private synchronized LearnedHeuristic getLearned() {
+        if (learned == null) {
+            learned = new LearnedHeuristic();
+        }
+        return learned;
+    }
+
+    // runs a search from start to finish without any animation
+    public static SearchResult run(String name, Pathfinding algorithm, Grid grid, Cell start, Cell goal) {
+        return run(name, algorithm, grid, start, goal, false);
+    }
+
+    // same, optionally recording a SearchTrace of the run (the time then includes recording)
+    public static SearchResult run(String name, Pathfinding algorithm, Grid grid, Cell start, Cell goal, boolean record) {
+        return run(name, algorithm, grid, start, goal, record, null);
+    }
+
+    // same, and the run's expansions and relaxations are added to profile when it isn't null
+    public static SearchResult run(String name, Pathfinding algorithm, Grid grid, Cell start, Cell goal, boolean record,
+                                   SearchProfile profile) {
+        long begin = System.nanoTime();
+        algorithm.init(grid, start, goal);
+        SearchTrace trace = record ? SearchTrace.record(name, algorithm, start, goal) : null;
+        SearchProfile.Run profiled = profile != null ? profile.record(algorithm.getState()) : null;
+        int expansions = 0;
+        boolean finished;
+        try {
+            do {
+                finished = algorithm.step();
+                if (trace != null) trace.endStep();
+                if (!finished) expansions++;
+            } while (!finished);
+        } finally {
+            if (profiled != null) profiled.finish();
+        }
+        long nanos = System.nanoTime() - begin;
+        if (algorithm instanceof RealTimeSearch) {
+            // a step there is a whole lookahead, count the cells it expanded instead
+            expansions = (int) Math.min(Integer.MAX_VALUE, ((RealTimeSearch) algorithm).getExpansions());
+        }
+
+        // cost on the snapshot the search actually ran on
+        Grid snapshot = algorithm.getState().getGrid();
+        CompactPath path = algorithm.getCompactPath();
+        double cost = path.cost(snapshot);
+        return new SearchResult(name, start, goal, path, snapshot, cost, expansions, nanos, trace);
+    }
+
+    // one pass from any of the starts to the nearest of the goals. the result's start and goal
+    // are the ones the path actually connects (the first of each when there is no path)
+    public static SearchResult runNearest(String name, MultiTargetSearch search, Grid grid,
+                                          List<Cell> starts, List<Cell> goals) {
+        return runNearest(name, search, grid, starts, goals, null);
+    }
+
+    // same, adding the run to profile when it isn't null
+    public static SearchResult runNearest(String name, MultiTargetSearch search, Grid grid,
+                                          List<Cell> starts, List<Cell> goals, SearchProfile profile) {
+        long begin = System.nanoTime();
+        search.init(grid, starts, goals);
+        SearchProfile.Run profiled = profile != null ? profile.record(search.getState()) : null;
+        int expansions = 0;
+        try {
+            while (!search.step()) {
+                expansions++;
+            }
+        } finally {
+            if (profiled != null) profiled.finish();
+        }
+        long nanos = System.nanoTime() - begin;
+
+        Grid snapshot = search.getState().getGrid();
+        CompactPath path = search.getCompactPath();
+        Cell start = path.isEmpty() ? starts.get(0) : snapshot.getCell(path.getStartRow(), path.getStartCol());
+        Cell goal = path.isEmpty() ? goals.get(0) : search.getReachedGoal();
+        return new SearchResult(name, start, goal, path, snapshot, path.cost(snapshot), expansions, nanos);
+    }
+}
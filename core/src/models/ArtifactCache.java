@@ -0,0 +1,227 @@
+package models;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// a directory of precomputed data (goal bounds, path databases, landmark tables ...) that
+// outlives the jvm. every file is named after what it is, its format and the content hash
+// of the grid it was built for, so a warm start on the same map finds its data again and
+// an edited map just doesn't. files are written next to their final name and renamed into
+// place, so a crash or a second process never sees half a file, and the readers memory map
+// them. when the directory grows past its limit the files used longest ago go first
+// (a hit bumps the modified time). nothing here is fatal: a file that can't be read or
+// written just means building the thing again
+public class ArtifactCache {
+    private static final String SUFFIX = ".bin";
+    private static final String TEMP_PREFIX = ".tmp-";
+    private static final long STALE_TEMP_MILLIS = 60 * 60 * 1000L;  // left behind by a crash
+
+    public interface Reader<T> {
+        T read(Path file) throws IOException;
+    }
+
+    public interface Writer<T> {
+        void write(T artifact, Path file) throws IOException;
+    }
+
+    private final Path directory;
+    private final long maxBytes;
+    // one lock per file name so two threads don't build the same thing at once
+    private final ConcurrentHashMap<String, Object> locks = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    public ArtifactCache(Path directory, long maxBytes) throws IOException {
+        if (maxBytes <= 0) throw new IllegalArgumentException("cache size has to be positive");
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(directory);
+        evict(null);  // the limit may have gone down since last time
+    }
+
+    // the cache in the user's home directory the app uses
+    public static ArtifactCache inHome(long maxBytes) throws IOException {
+        return new ArtifactCache(Path.of(System.getProperty("user.home"), ".path-visualiser", "cache"), maxBytes);
+    }
+
+    // the artifact of this type and format for the grid's current content: read from the
+    // cache if it's there, otherwise built on a snapshot and stored. build gets the exact
+    // snapshot the key was worked out on and can return null (cancelled), which isn't stored
+    public <T> T get(Grid grid, String type, int format, Reader<T> reader, Writer<T> writer, Function<Grid, T> build) {
+        Grid snapshot = grid.snapshot();
+        Path file = fileFor(snapshot.contentHash(), type, format);
+        synchronized (locks.computeIfAbsent(file.getFileName().toString(), name -> new Object())) {
+            if (Files.exists(file)) {
+                try {
+                    T artifact = reader.read(file);
+                    hits.incrementAndGet();
+                    touch(file);
+                    return artifact;
+                } catch (IOException | RuntimeException e) {
+                    // truncated, from an older build of the format or otherwise broken
+                    errors.incrementAndGet();
+                    delete(file);
+                }
+            }
+            misses.incrementAndGet();
+            T artifact = build.apply(snapshot);
+            if (artifact != null) {
+                store(artifact, writer, file);
+            }
+            return artifact;
+        }
+    }
+
+    // where the artifact for a grid with this content hash goes
+    public Path fileFor(long contentHash, String type, int format) {
+        if (!type.matches("[a-z0-9-]+")) {
+            throw new IllegalArgumentException("artifact type can only have a-z, 0-9 and '-': " + type);
+        }
+        return directory.resolve(String.format(Locale.ROOT, "%s-v%d-%016x%s", type, format, contentHash, SUFFIX));
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    // files that couldn't be read or written
+    public long getErrors() {
+        return errors.get();
+    }
+
+    // bytes the cached files take right now
+    public long getSizeBytes() {
+        long total = 0;
+        for (Entry entry : entries()) {
+            total += entry.bytes;
+        }
+        return total;
+    }
+
+    private <T> void store(T artifact, Writer<T> writer, Path file) {
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(directory, TEMP_PREFIX, SUFFIX);
+            writer.write(artifact, temp);
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            temp = null;
+            evict(file);
+        } catch (IOException e) {
+            // full disk, read-only directory ... the caller still has what it built
+            errors.incrementAndGet();
+        } finally {
+            if (temp != null) delete(temp);
+        }
+    }
+
+    // drops the least recently used files until the rest fit, never the one just written
+    // (one artifact bigger than the whole limit stays until something else comes along)
+    private synchronized void evict(Path keep) {
+        List<Entry> entries = entries();
+        long total = 0;
+        for (Entry entry : entries) {
+            total += entry.bytes;
+        }
+        entries.sort(Comparator.comparingLong(entry -> entry.lastUsed));
+        for (Entry entry : entries) {
+            if (total <= maxBytes) break;
+            if (entry.file.equals(keep)) continue;
+            if (delete(entry.file)) total -= entry.bytes;
+        }
+        removeStaleTemps();
+    }
+
+    private List<Entry> entries() {
+        List<Entry> entries = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                if (file.getFileName().toString().startsWith(TEMP_PREFIX)) continue;
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    entries.add(new Entry(file, attributes.size(), attributes.lastModifiedTime().toMillis()));
+                } catch (NoSuchFileException e) {
+                    // another process evicted it while we were listing
+                }
+            }
+        } catch (IOException e) {
+            errors.incrementAndGet();
+        }
+        return entries;
+    }
+
+    private void removeStaleTemps() {
+        long cutoff = System.currentTimeMillis() - STALE_TEMP_MILLIS;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, TEMP_PREFIX + "*")) {
+            for (Path file : files) {
+                try {
+                    if (Files.getLastModifiedTime(file).toMillis() < cutoff) delete(file);
+                } catch (IOException e) {
+                    // gone already
+                }
+            }
+        } catch (IOException e) {
+            errors.incrementAndGet();
+        }
+    }
+
+    private static void touch(Path file) {
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // only costs it some standing in the eviction order
+        }
+    }
+
+    // a file someone still has mapped can go too, the mapping keeps its pages
+    private static boolean delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static class Entry {
+        final Path file;
+        final long bytes;
+        final long lastUsed;
+
+        Entry(Path file, long bytes, long lastUsed) {
+            this.file = file;
+            this.bytes = bytes;
+            this.lastUsed = lastUsed;
+        }
+    }
+}
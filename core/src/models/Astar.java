@@ -0,0 +1,206 @@
+package models;
+
+import java.util.*;
+
+// a* algorithm - like dijkstra but smarter with a heuristic
+public class Astar implements Pathfinding {
+    private final Heuristic heuristic;
+    private Heuristic estimates;  // what heuristic.prepare() gave this search
+    private Grid grid;
+    private Cell startCell;
+    private Cell endCell;
+    private SearchState state;  // flags, parents and distances for this run only
+    
+    // manually sorting by f-score
+    private LinkedList<Cell> openSet;
+    // actual cost from start lives in the state's distances
+    private double[] fScore;  // g + estimated cost to goal, by cell index
+    private boolean finished;
+    private boolean pathFound;
+    private GoalBounds goalBounds;  // optional edge pruning, see setGoalBounds()
+    private GoalBounds pruning;     // goalBounds if it fits the grid of this run, else null
+    private DeadEndIndex deadEnds;  // optional, see setDeadEnds()
+    private DeadEndIndex.Query pockets;  // what this run may skip, null for nothing
+
+    public Astar() {
+        this(new ManhattanHeuristic());
+    }
+
+    public Astar(Heuristic heuristic) {
+        this.heuristic = heuristic;
+    }
+
+    // skip edges that can't start a shortest path to the goal. only used on a grid the
+    // bounds were built for, on any other grid the search runs as if they weren't there
+    public void setGoalBounds(GoalBounds goalBounds) {
+        this.goalBounds = goalBounds;
+    }
+
+    // skip dead ends and single-door pockets that have neither the start nor the goal in them
+    public void setDeadEnds(DeadEndIndex deadEnds) {
+        this.deadEnds = deadEnds;
+    }
+
+    @Override
+    public void init(Grid grid, Cell start, Cell goal) {
+        // pin the grid as it is right now, edits made while we run go to the next version
+        grid = grid.snapshot();
+        start = grid.getCell(start.getRow(), start.getCol());
+        goal = grid.getCell(goal.getRow(), goal.getCol());
+        this.grid = grid;
+        this.startCell = start;
+        this.endCell = goal;
+        this.state = new SearchState(grid);
+
+        openSet = new LinkedList<>();
+        fScore = new double[grid.getIndexSize()];
+        finished = false;
+        pathFound = false;
+        pruning = goalBounds != null && goalBounds.isFor(grid) ? goalBounds : null;
+        pockets = null;
+
+        // start and goal are walled off from each other, don't bother searching
+        if (!grid.getComponents().isConnected(start, goal)) {
+            finished = true;
+            return;
+        }
+        if (deadEnds != null) {
+            pockets = deadEnds.query(grid, start, goal);
+        }
+
+        estimates = heuristic.prepare(grid, goal);
+
+        // everything starts at infinity
+        Arrays.fill(fScore, Double.POSITIVE_INFINITY);
+
+        // start has 0 cost, f-score is just the heuristic
+        state.setDistance(startCell, 0.0);
+        fScore[grid.indexOf(startCell)] = estimates.estimate(startCell, endCell);
+        state.setInOpenSet(startCell, true);
+        openSet.add(startCell);
+    }
+
+    @Override
+    public boolean step() {
+        if (finished) return true;
+
+        if (openSet.isEmpty()) {
+            finished = true;
+            pathFound = false;
+            return true;
+        }
+
+        // get the most promising cell (lowest f-score)
+        Cell current = getMinFScoreCell();
+        if (current == null) {
+            finished = true;
+            pathFound = false;
+            return true;
+        }
+
+        // reached the goal?
+        if (current == endCell) {
+            finished = true;
+            pathFound = true;
+            markPath();
+            return true;
+        }
+
+        openSet.remove(current);
+        state.setInOpenSet(current, false);
+        state.setInClosedSet(current, true);
+        state.setVisited(current, true);
+
+        // Process all 4 directions from current cell
+        for (int dir = 0; dir < Grid.DIRECTIONS; dir++) {
+            Cell neighbor = grid.getNeighbor(current, dir);
+
+            if (neighbor == null || neighbor.isWall() || state.isInClosedSet(neighbor)) {
+                continue;
+            }
+            // no shortest path to the goal starts with this edge
+            if (pruning != null && !pruning.allows(grid.indexOf(current), dir, endCell.getRow(), endCell.getCol())) {
+                continue;
+            }
+            if (pockets != null && pockets.skips(grid.indexOf(neighbor))) {
+                continue;
+            }
+
+            // what would the cost be if we go through current?
+            double tentativeGScore = state.getDistance(current) + grid.getWeight(current, dir);
+
+            // is this path better than what we had before?
+            if (tentativeGScore < state.getDistance(neighbor)) {
+                // Update path
+                state.setParent(neighbor, current);
+                state.setDistance(neighbor, tentativeGScore);
+                fScore[grid.indexOf(neighbor)] = tentativeGScore + estimates.estimate(neighbor, endCell);
+
+                // Add to open set if not already there
+                if (!state.isInOpenSet(neighbor)) {
+                    state.setInOpenSet(neighbor, true);
+                    openSet.add(neighbor);
+                }
+            }
+        }
+
+        return false; // not finished yet
+    }
+
+    // finds cell with best f-score (lowest estimated total cost)
+    private Cell getMinFScoreCell() {
+        if (openSet.isEmpty()) return null;
+        
+        Cell minCell = openSet.getFirst();
+        double minF = fScore[grid.indexOf(minCell)];
+        
+        for (Cell cell : openSet) {
+            if (cell != null) {
+                double f = fScore[grid.indexOf(cell)];
+                if (f < minF) {
+                    minF = f;
+                    minCell = cell;
+                }
+            }
+        }
+        return minCell;
+    }
+
+    @Override
+    public boolean isFinished() {
+        return finished;
+    }
+
+    @Override
+    public boolean hasPath() {
+        return pathFound;
+    }
+
+    @Override
+    public List<Cell> getPath() {
+        if (!pathFound) return Collections.emptyList();
+
+        return state.pathTo(endCell);
+    }
+
+    @Override
+    public CompactPath getCompactPath() {
+        if (!pathFound) return CompactPath.NONE;
+
+        return state.compactPathTo(endCell);
+    }
+
+    @Override
+    public SearchState getState() {
+        return state;
+    }
+
+    // per cell arrays this run holds (state and f scores), the open list not counted
+    public long getMemoryBytes() {
+        return state.getMemoryBytes() + (long) fScore.length * Double.BYTES;
+    }
+
+    private void markPath() {
+        state.markPath(endCell);
+    }
+}
@@ -7,15 +7,21 @@ public class BFS implements Pathfinding{
     private Grid grid;
     private Cell startCell;
     private Cell endCell;
+    private SearchState state;  // flags, parents and distances for this run only
     LinkedList<Cell> queue;  // fifo queue for bfs
     private boolean finished;
     private boolean pathFound;
 
     @Override
     public void init(Grid grid, Cell start, Cell goal){
+        // pin the grid as it is right now, edits made while we run go to the next version
+        grid = grid.snapshot();
+        start = grid.getCell(start.getRow(), start.getCol());
+        goal = grid.getCell(goal.getRow(), goal.getCol());
         this.grid = grid;
         this.startCell = start;
         this.endCell = goal;
+        this.state = new SearchState(grid);
 
         queue=new LinkedList<>();
         queue.add(startCell);
@@ -23,8 +29,14 @@ public class BFS implements Pathfinding{
         finished = false;
         pathFound = false;
 
-        startCell.setVisited(true);
-        startCell.setInOpenSet(true);
+        // start and goal are walled off from each other, don't bother searching
+        if (!grid.getComponents().isConnected(start, goal)) {
+            finished = true;
+            return;
+        }
+
+        state.setVisited(startCell, true);
+        state.setInOpenSet(startCell, true);
 
     }
     @Override
@@ -40,8 +52,8 @@ public class BFS implements Pathfinding{
 
         // grab the next cell from front of queue
         Cell current = queue.removeFirst();
-        current.setInOpenSet(false);
-        current.setInClosedSet(true);
+        state.setInOpenSet(current, false);
+        state.setInClosedSet(current, true);
 
         // found it!
         if (current == endCell) {
@@ -52,10 +64,10 @@ public class BFS implements Pathfinding{
         }
 
         for (Cell neighbor : grid.getNeighbors(current)) {
-            if (!neighbor.isVisited() && !neighbor.isWall()) {
-                neighbor.setVisited(true);
-                neighbor.setInOpenSet(true);
-                neighbor.setParent(current);
+            if (!state.isVisited(neighbor) && !neighbor.isWall()) {
+                state.setVisited(neighbor, true);
+                state.setInOpenSet(neighbor, true);
+                state.setParent(neighbor, current);
                 queue.add(neighbor);
             }
         }
@@ -76,19 +88,22 @@ public class BFS implements Pathfinding{
     public List<Cell> getPath() {
         if (!pathFound) return Collections.emptyList();
 
-        List<Cell> path = new ArrayList<>();
-        Cell current = endCell;
-        while (current != null) {
-            path.add(current);
-            current = current.getParent();
-        }
-        Collections.reverse(path);
-        return path;
+        return state.pathTo(endCell);
+    }
+
+    @Override
+    public CompactPath getCompactPath() {
+        if (!pathFound) return CompactPath.NONE;
+
+        return state.compactPathTo(endCell);
+    }
+
+    @Override
+    public SearchState getState() {
+        return state;
     }
 
     private void markPath() {
-        for (Cell cell : getPath()) {
-            cell.setInPath(true);
-        }
+        state.markPath(endCell);
     }
 }
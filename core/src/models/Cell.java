@@ -0,0 +1,82 @@
+package models;
+
+// represents a single cell in the grid
+public class Cell {
+    // different terrain types with their movement costs
+    public enum TerrainType {
+        NORMAL(1.0),      // white, normal cost
+        SAND(2.0),        // yellowish, bit slower
+        WATER(5.0),       // blue, much slower
+        MOUNTAIN(10.0),   // brown, really slow
+        WALL(Double.POSITIVE_INFINITY);  // black, can't pass through
+
+        private final double cost;
+
+        TerrainType(double cost) {
+            this.cost = cost;
+        }
+
+        public double getCost() {
+            return cost;
+        }
+    }
+
+    private final int row;
+    private final int col;
+
+    private TerrainType terrain;
+    private boolean wall;  // is this cell a wall?
+
+    public Cell(int row, int col) {
+        this.row = row;
+        this.col = col;
+        this.terrain = TerrainType.NORMAL;  // start as normal terrain
+    }
+
+    // copy for the grid's copy-on-write, the original stays as it is in older snapshots
+    Cell(Cell other) {
+        this.row = other.row;
+        this.col = other.col;
+        this.terrain = other.terrain;
+        this.wall = other.wall;
+    }
+
+    public int getCol() {
+        return col;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public boolean isWall() {
+        return wall;
+    }
+
+    // only the grid changes cells (Grid.setWall), it has to copy shared rows first
+    void setWall(boolean wall) {
+        this.wall = wall;
+        if (wall) {
+            this.terrain = TerrainType.WALL;
+        }
+    }
+
+    public TerrainType getTerrain() {
+        return terrain;
+    }
+
+    void setTerrain(TerrainType terrain) {
+        this.terrain = terrain;
+        this.wall = (terrain == TerrainType.WALL);
+    }
+
+    public double getTerrainCost() {
+        return terrain.getCost();
+    }
+
+    // same position, whichever version of the grid the cells come from
+    public boolean isAt(Cell other) {
+        return other != null && row == other.row && col == other.col;
+    }
+
+}
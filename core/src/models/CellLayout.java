@@ -0,0 +1,167 @@
+package models;
+
+// where each cell of a grid goes in a flat array. Grid.indexOf() is plain row-major, which
+// puts the cells above and below a cell a whole row away, so on a wide grid every vertical
+// step of a search lands on another cache line (and often another page). the other layouts
+// keep square patches of cells together: neighbors in all four directions are usually in
+// the same patch, and a search that grows as a blob touches far fewer lines. a layout can
+// have more slots than the grid has cells, the slots past the edges are never used
+public abstract class CellLayout {
+    protected final int rows;
+    protected final int cols;
+
+    protected CellLayout(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    public static CellLayout rowMajor(int rows, int cols) {
+        return new RowMajor(rows, cols);
+    }
+
+    // 64x64 tiles in row-major order, the cells of a tile in morton (z) order. a global z-order
+    // curve would have to pad the grid to a power of two square, the tiles only pad to 64
+    public static CellLayout morton(int rows, int cols) {
+        return new Morton(rows, cols);
+    }
+
+    // tiles of tile x tile cells (a power of two) in row-major order, row-major inside a tile
+    public static CellLayout tiled(int rows, int cols, int tile) {
+        return new Tiled(rows, cols, tile);
+    }
+
+    // by name as the benchmark takes them: rows, morton, tiled (8x8) or tiledN
+    public static CellLayout byName(String name, int rows, int cols) {
+        if (name.equals("rows")) return rowMajor(rows, cols);
+        if (name.equals("morton")) return morton(rows, cols);
+        if (name.equals("tiled")) return tiled(rows, cols, 8);
+        if (name.startsWith("tiled")) {
+            try {
+                return tiled(rows, cols, Integer.parseInt(name.substring(5)));
+            } catch (NumberFormatException e) {
+                // falls through to the error below
+            }
+        }
+        throw new IllegalArgumentException("unknown layout '" + name + "', expected rows, morton, tiled or tiledN");
+    }
+
+    public abstract String getName();
+
+    // slot of the cell at (row, col), which has to be on the grid
+    public abstract int slot(int row, int col);
+
+    // how long an array indexed by slot() has to be
+    public abstract int size();
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+
+    private static class RowMajor extends CellLayout {
+        RowMajor(int rows, int cols) {
+            super(rows, cols);
+        }
+
+        @Override
+        public String getName() {
+            return "rows";
+        }
+
+        @Override
+        public int slot(int row, int col) {
+            return row * cols + col;
+        }
+
+        @Override
+        public int size() {
+            return rows * cols;
+        }
+    }
+
+    private static class Morton extends CellLayout {
+        private static final int SHIFT = 6;  // 64x64 tiles
+        private static final int TILE = 1 << SHIFT;
+        private static final int MASK = TILE - 1;
+        private final int tilesAcross;
+        private final int size;
+
+        Morton(int rows, int cols) {
+            super(rows, cols);
+            tilesAcross = (cols + MASK) >> SHIFT;
+            long slots = (long) ((rows + MASK) >> SHIFT) * tilesAcross << 2 * SHIFT;
+            if (slots > Integer.MAX_VALUE) throw new IllegalArgumentException(rows + "x" + cols + " is too big");
+            size = (int) slots;
+        }
+
+        @Override
+        public String getName() {
+            return "morton";
+        }
+
+        @Override
+        public int slot(int row, int col) {
+            int tile = (row >> SHIFT) * tilesAcross + (col >> SHIFT);
+            return tile << 2 * SHIFT | spread(row & MASK) << 1 | spread(col & MASK);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        // the bits of v with a zero between each of them
+        private static int spread(int v) {
+            v = (v | v << 4) & 0x0F0F;
+            v = (v | v << 2) & 0x3333;
+            v = (v | v << 1) & 0x5555;
+            return v;
+        }
+    }
+
+    private static class Tiled extends CellLayout {
+        private final int shift;
+        private final int mask;
+        private final int tilesAcross;
+        private final int size;
+        private final String name;
+
+        Tiled(int rows, int cols, int tile) {
+            super(rows, cols);
+            if (tile < 2 || Integer.bitCount(tile) != 1 || tile > 256) {
+                throw new IllegalArgumentException("tile size has to be a power of two from 2 to 256: " + tile);
+            }
+            shift = Integer.numberOfTrailingZeros(tile);
+            mask = tile - 1;
+            tilesAcross = (cols + mask) >> shift;
+            long slots = (long) ((rows + mask) >> shift) * tilesAcross << 2 * shift;
+            if (slots > Integer.MAX_VALUE) throw new IllegalArgumentException(rows + "x" + cols + " is too big");
+            size = (int) slots;
+            name = tile == 8 ? "tiled" : "tiled" + tile;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public int slot(int row, int col) {
+            int tile = (row >> shift) * tilesAcross + (col >> shift);
+            return tile << 2 * shift | (row & mask) << shift | (col & mask);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// a path stored as its start cell plus runs of moves in the same direction, instead of
+// one Cell reference per step. each run is a varint of (count << 2 | direction), so a
+// straight stretch of up to 31 moves is a single byte. cells are only made when someone
+// asks for them with toCells(), everything else walks the runs directly
+public final class CompactPath {
+    // no path at all, as opposed to a path of zero moves from a cell to itself
+    public static final CompactPath NONE = new CompactPath(-1, -1, -1, -1, 0, 0, new byte[0]);
+
+    private final int startRow;
+    private final int startCol;
+    private final int endRow;
+    private final int endCol;
+    private final int length;    // moves, one less than the number of cells
+    private final int runCount;
+    private final byte[] runs;
+
+    // called for every cell on the path, in order from start to end
+    public interface CellVisitor {
+        void visit(int row, int col);
+    }
+
+    // called for every run, direction is one of Grid.LEFT..DOWN
+    public interface RunVisitor {
+        void visit(int direction, int count);
+    }
+
+    private CompactPath(int startRow, int startCol, int endRow, int endCol, int length, int runCount, byte[] runs) {
+        this.startRow = startRow;
+        this.startCol = startCol;
+        this.endRow = endRow;
+        this.endCol = endCol;
+        this.length = length;
+        this.runCount = runCount;
+        this.runs = runs;
+    }
+
+    // from consecutive cells, each one a neighbor of the one before
+    public static CompactPath of(List<Cell> path) {
+        if (path.isEmpty()) return NONE;
+        Cell first = path.get(0);
+        Builder builder = new Builder(first.getRow(), first.getCol());
+        for (int i = 1; i < path.size(); i++) {
+            Cell from = path.get(i - 1);
+            Cell to = path.get(i);
+            builder.move(direction(to.getRow() - from.getRow(), to.getCol() - from.getCol()), 1);
+        }
+        return builder.build();
+    }
+
+    // follows parent indices back from goal, the way SearchState stores them. the runs come
+    // out backwards, so they're collected first and written in the right order at the end
+    static CompactPath fromParents(Grid grid, int[] parents, int goal) {
+        int cols = grid.getCols();
+        IntList reversed = new IntList();  // (count << 2 | direction), last run first
+        int current = goal;
+        int parent = parents[current];
+        while (parent >= 0) {
+            int delta = current - parent;
+            int dir = delta == cols ? Grid.DOWN : delta == -cols ? Grid.UP : delta == 1 ? Grid.RIGHT : Grid.LEFT;
+            int last = reversed.size() - 1;
+            if (last >= 0 && (reversed.get(last) & 3) == dir) {
+                reversed.set(last, reversed.get(last) + 4);
+            } else {
+                reversed.add(1 << 2 | dir);
+            }
+            current = parent;
+            parent = parents[current];
+        }
+
+        Builder builder = new Builder(current / cols, current % cols);
+        for (int i = reversed.size() - 1; i >= 0; i--) {
+            builder.move(reversed.get(i) & 3, reversed.get(i) >>> 2);
+        }
+        return builder.build();
+    }
+
+    public boolean isEmpty() {
+        return startRow < 0;
+    }
+
+    // number of moves, 0 for NONE
+    public int getLength() {
+        return length;
+    }
+
+    public int getRunCount() {
+        return runCount;
+    }
+
+    public int getStartRow() {
+        return startRow;
+    }
+
+    public int getStartCol() {
+        return startCol;
+    }
+
+    public int getEndRow() {
+        return endRow;
+    }
+
+    public int getEndCol() {
+        return endCol;
+    }
+
+    public void forEachRun(RunVisitor visitor) {
+        int position = 0;
+        for (int i = 0; i < runCount; i++) {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = runs[position++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            visitor.visit(value & 3, value >>> 2);
+        }
+    }
+
+    // every cell from start to end without making any objects
+    public void forEachCell(CellVisitor visitor) {
+        if (isEmpty()) return;
+        visitor.visit(startRow, startCol);
+        int[] at = {startRow, startCol};
+        forEachRun((dir, count) -> {
+            for (int i = 0; i < count; i++) {
+                at[0] += Grid.rowOffset(dir);
+                at[1] += Grid.colOffset(dir);
+                visitor.visit(at[0], at[1]);
+            }
+        });
+    }
+
+    // total weight of the path on the given grid, same as Grid.getPathCost on the cells
+    public double cost(Grid grid) {
+        double[] cost = {0};
+        int[] at = {startRow, startCol};
+        forEachRun((dir, count) -> {
+            for (int i = 0; i < count; i++) {
+                cost[0] += grid.getWeight(grid.getCell(at[0], at[1]), dir);
+                at[0] += Grid.rowOffset(dir);
+                at[1] += Grid.colOffset(dir);
+            }
+        });
+        return cost[0];
+    }
+
+    // the cells of the grid along the path, made fresh on every call
+    public List<Cell> toCells(Grid grid) {
+        if (isEmpty()) return Collections.emptyList();
+        List<Cell> cells = new ArrayList<>(length + 1);
+        forEachCell((row, col) -> cells.add(grid.getCell(row, col)));
+        return cells;
+    }
+
+    // rough heap size of this object and its run array
+    public long getMemoryBytes() {
+        return 40 + 16 + ((runs.length + 7) & ~7);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) return true;
+        if (!(other instanceof CompactPath)) return false;
+        CompactPath path = (CompactPath) other;
+        return startRow == path.startRow && startCol == path.startCol && length == path.length
+                && Arrays.equals(runs, path.runs);
+    }
+
+    @Override
+    public int hashCode() {
+        return (startRow * 31 + startCol) * 31 + Arrays.hashCode(runs);
+    }
+
+    // "r,c" followed by the runs, e.g. "0,0 R5 D3 R1"
+    @Override
+    public String toString() {
+        if (isEmpty()) return "none";
+        StringBuilder text = new StringBuilder().append(startRow).append(',').append(startCol);
+        forEachRun((dir, count) -> text.append(' ').append("LRUD".charAt(dir)).append(count));
+        return text.toString();
+    }
+
+    private static int direction(int rowDelta, int colDelta) {
+        for (int dir = 0; dir < Grid.DIRECTIONS; dir++) {
+            if (Grid.rowOffset(dir) == rowDelta && Grid.colOffset(dir) == colDelta) return dir;
+        }
+        throw new IllegalArgumentException("cells " + rowDelta + "," + colDelta + " apart are not neighbors");
+    }
+
+    // appends moves one run at a time, merging runs that go the same way
+    public static final class Builder {
+        private final int startRow;
+        private final int startCol;
+        private int row;
+        private int col;
+        private int length;
+        private final IntList runs = new IntList(8);  // (count << 2 | direction)
+
+        public Builder(int startRow, int startCol) {
+            this.startRow = startRow;
+            this.startCol = startCol;
+            this.row = startRow;
+            this.col = startCol;
+        }
+
+        public Builder move(int direction, int count) {
+            if (count <= 0) return this;
+            int last = runs.size() - 1;
+            if (last >= 0 && (runs.get(last) & 3) == direction) {
+                runs.set(last, runs.get(last) + (count << 2));
+            } else {
+                runs.add(count << 2 | direction);
+            }
+            row += Grid.rowOffset(direction) * count;
+            col += Grid.colOffset(direction) * count;
+            length += count;
+            return this;
+        }
+
+        public CompactPath build() {
+            byte[] bytes = new byte[runs.size() * 5];
+            int size = 0;
+            for (int i = 0; i < runs.size(); i++) {
+                int value = runs.get(i);
+                while ((value & ~0x7F) != 0) {
+                    bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                    value >>>= 7;
+                }
+                bytes[size++] = (byte) value;
+            }
+            return new CompactPath(startRow, startCol, row, col, length, runs.size(), Arrays.copyOf(bytes, size));
+        }
+    }
+}
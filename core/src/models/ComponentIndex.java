@@ -0,0 +1,312 @@
+package models;
+
+import java.util.Arrays;
+import java.util.List;
+
+// labels every non-wall cell with the connected region it belongs to, so a search
+// can tell straight away that the goal is walled off instead of flooding the whole
+// reachable area first. labels are kept in a union-find so opening a wall is just a
+// couple of unions, and closing one only relabels the smaller side if it splits a region.
+// labels live in blocks that snapshots share with the live index, like the grid's rows:
+// the live index copies a block the first time it writes to it after a snapshot, so a
+// snapshot only costs a pointer per block plus the (small) union-find
+public class ComponentIndex implements GridListener {
+    private static final int WALL = -1;
+    private static final int BLOCK_BITS = 12;  // 4096 labels per block
+    private static final int BLOCK_MASK = (1 << BLOCK_BITS) - 1;
+
+    private final Grid grid;
+    private final int size;         // cells
+    private final int[][] labels;   // label per cell in blocks, WALL for walls
+    private final boolean[] shared; // block is also used by a snapshot, copy before writing
+    private int[] parent;           // union-find over labels
+    private int labelCount;
+    private volatile boolean dirty;  // grid changed in bulk, resync before the next query
+
+    // scratch space for the split check, reused between wall toggles (allocated on the first one)
+    private int[] visitEpoch;
+    private byte[] visitSearch;
+    private int epoch;
+
+    public ComponentIndex(Grid grid) {
+        this.grid = grid;
+        this.size = grid.getIndexSize();
+        this.labels = new int[(size + BLOCK_MASK) >>> BLOCK_BITS][];
+        this.shared = new boolean[labels.length];
+        this.parent = new int[16];
+        rebuild();
+    }
+
+    private ComponentIndex(Grid grid, int size, int[][] labels, int[] parent, int labelCount) {
+        this.grid = grid;
+        this.size = size;
+        this.labels = labels;
+        this.shared = new boolean[labels.length];
+        Arrays.fill(shared, true);  // never written, snapshots don't listen
+        this.parent = parent;
+        this.labelCount = labelCount;
+    }
+
+    // frozen copy for a snapshot of the grid: the label blocks are shared until this index
+    // writes to them, only the union-find gets copied (finds write to it while reading)
+    synchronized ComponentIndex copyFor(Grid snapshot) {
+        if (dirty) sync();
+        Arrays.fill(shared, true);
+        return new ComponentIndex(snapshot, size, labels.clone(), parent.clone(), labelCount);
+    }
+
+    // true if there is some path between the two cells (ignoring weights)
+    public boolean isConnected(Cell a, Cell b) {
+        if (dirty) sync();
+        int la = label(grid.indexOf(a));
+        int lb = label(grid.indexOf(b));
+        if (la == WALL || lb == WALL) return false;
+        return find(la) == find(lb);
+    }
+
+    // label of the region the cell is in, -1 for walls
+    public int getComponent(Cell cell) {
+        if (dirty) sync();
+        int label = label(grid.indexOf(cell));
+        return label == WALL ? WALL : find(label);
+    }
+
+    @Override
+    public void cellChanged(Cell cell) {
+        if (dirty) return;  // the resync will pick it up
+        update(grid.indexOf(cell));
+    }
+
+    // a big painted area is cheaper to fix in one resync than wall by wall
+    @Override
+    public void cellsChanged(List<Cell> cells) {
+        if (dirty) return;
+        if (cells.size() > size / 16) {
+            dirty = true;
+            return;
+        }
+        for (Cell cell : cells) {
+            update(grid.indexOf(cell));
+        }
+    }
+
+    @Override
+    public void gridChanged() {
+        dirty = true;
+    }
+
+    // full flood fill labeling from scratch
+    public void rebuild() {
+        // fresh blocks, any snapshot keeps the old ones
+        for (int block = 0; block < labels.length; block++) {
+            labels[block] = new int[Math.min(BLOCK_MASK + 1, size - (block << BLOCK_BITS))];
+            Arrays.fill(labels[block], WALL);
+            shared[block] = false;
+        }
+        labelCount = 0;
+        for (int index = 0; index < size; index++) {
+            if (label(index) == WALL && !grid.cellAt(index).isWall()) {
+                floodFill(index, newLabel());
+            }
+        }
+        dirty = false;
+    }
+
+    // after a bulk change only the cells whose wall flag differs from our labels
+    // need fixing, if there are lots of them a rebuild is cheaper
+    private synchronized void sync() {
+        if (!dirty) return;  // another thread got here first
+        IntList changed = new IntList();
+        for (int index = 0; index < size; index++) {
+            if ((label(index) == WALL) != grid.cellAt(index).isWall()) {
+                changed.add(index);
+            }
+        }
+        if (changed.size() > size / 16) {
+            rebuild();
+            return;
+        }
+        dirty = false;
+        for (int i = 0; i < changed.size(); i++) {
+            update(changed.get(i));
+        }
+    }
+
+    private void update(int index) {
+        boolean wall = grid.cellAt(index).isWall();
+        boolean wasWall = label(index) == WALL;
+        if (wall == wasWall) return;  // terrain change, connectivity is the same
+
+        if (wasWall) {
+            opened(index);
+        } else {
+            closed(index);
+        }
+    }
+
+    // a wall got removed: join every region around it
+    private void opened(int index) {
+        int label = WALL;
+        for (Cell neighbor : grid.getNeighbors(grid.cellAt(index))) {
+            int other = label(grid.indexOf(neighbor));
+            if (other == WALL) continue;
+            if (label == WALL) {
+                label = find(other);
+            } else {
+                union(label, other);
+                label = find(label);
+            }
+        }
+        setLabel(index, label == WALL ? newLabel() : label);
+    }
+
+    // a wall got placed: its open neighbors may not be connected anymore.
+    // runs one bfs per neighbor in lockstep, searches that meet are the same region.
+    // a group of searches that runs out of cells before meeting the others found a
+    // region that split off, and since they all advance together that's the small side
+    private void closed(int index) {
+        setLabel(index, WALL);
+
+        IntList starts = new IntList(4);
+        for (Cell neighbor : grid.getNeighbors(grid.cellAt(index))) {
+            int n = grid.indexOf(neighbor);
+            if (label(n) != WALL) starts.add(n);
+        }
+        if (starts.size() < 2) return;  // can't split anything
+
+        if (visitEpoch == null) {
+            visitEpoch = new int[size];
+            visitSearch = new byte[size];
+        }
+        epoch++;
+        if (epoch == Integer.MAX_VALUE) {
+            Arrays.fill(visitEpoch, 0);
+            epoch = 1;
+        }
+
+        int searches = starts.size();
+        IntList[] visited = new IntList[searches];  // doubles as the bfs queue
+        int[] heads = new int[searches];
+        int[] group = new int[searches];            // tiny union-find of searches that met
+        boolean[] retired = new boolean[searches];
+        for (int s = 0; s < searches; s++) {
+            group[s] = s;
+            visited[s] = new IntList();
+            visited[s].add(starts.get(s));
+            visitEpoch[starts.get(s)] = epoch;
+            visitSearch[starts.get(s)] = (byte) s;
+        }
+
+        while (liveGroups(group, retired) > 1) {
+            // a group with nothing left to expand is a whole region by itself
+            for (int s = 0; s < searches; s++) {
+                if (retired[s] || groupOf(group, s) != s) continue;
+                if (exhausted(group, s, heads, visited, retired) && liveGroups(group, retired) > 1) {
+                    int label = newLabel();
+                    for (int member = 0; member < searches; member++) {
+                        if (retired[member] || groupOf(group, member) != s) continue;
+                        for (int i = 0; i < visited[member].size(); i++) {
+                            setLabel(visited[member].get(i), label);
+                        }
+                        retired[member] = true;
+                    }
+                }
+            }
+
+            // one more cell for every search that's still going
+            for (int s = 0; s < searches; s++) {
+                if (retired[s] || heads[s] >= visited[s].size()) continue;
+                int current = visited[s].get(heads[s]++);
+                for (Cell neighbor : grid.getNeighbors(grid.cellAt(current))) {
+                    int n = grid.indexOf(neighbor);
+                    if (label(n) == WALL) continue;
+                    if (visitEpoch[n] != epoch) {
+                        visitEpoch[n] = epoch;
+                        visitSearch[n] = (byte) s;
+                        visited[s].add(n);
+                    } else {
+                        // ran into another search, they're in the same region
+                        int a = groupOf(group, s);
+                        int b = groupOf(group, visitSearch[n]);
+                        if (a != b) group[Math.max(a, b)] = Math.min(a, b);
+                    }
+                }
+            }
+        }
+        // whatever is still live keeps the old label
+    }
+
+    private static int groupOf(int[] group, int s) {
+        while (group[s] != s) {
+            s = group[s];
+        }
+        return s;
+    }
+
+    private static int liveGroups(int[] group, boolean[] retired) {
+        int count = 0;
+        for (int s = 0; s < group.length; s++) {
+            if (!retired[s] && groupOf(group, s) == s) count++;
+        }
+        return count;
+    }
+
+    private static boolean exhausted(int[] group, int g, int[] heads, IntList[] visited, boolean[] retired) {
+        for (int s = 0; s < group.length; s++) {
+            if (!retired[s] && groupOf(group, s) == g && heads[s] < visited[s].size()) return false;
+        }
+        return true;
+    }
+
+    private void floodFill(int start, int label) {
+        IntList queue = new IntList();
+        setLabel(start, label);
+        queue.add(start);
+        for (int head = 0; head < queue.size(); head++) {
+            for (Cell neighbor : grid.getNeighbors(grid.cellAt(queue.get(head)))) {
+                int n = grid.indexOf(neighbor);
+                if (label(n) == WALL && !neighbor.isWall()) {
+                    setLabel(n, label);
+                    queue.add(n);
+                }
+            }
+        }
+    }
+
+    private int label(int index) {
+        return labels[index >>> BLOCK_BITS][index & BLOCK_MASK];
+    }
+
+    private void setLabel(int index, int label) {
+        int block = index >>> BLOCK_BITS;
+        if (shared[block]) {
+            labels[block] = labels[block].clone();
+            shared[block] = false;
+        }
+        labels[block][index & BLOCK_MASK] = label;
+    }
+
+    private int newLabel() {
+        if (labelCount == parent.length) {
+            parent = Arrays.copyOf(parent, labelCount * 2);
+        }
+        parent[labelCount] = labelCount;
+        return labelCount++;
+    }
+
+    // the path halving writes are safe to race between readers, every write
+    // just points a label at one of its own ancestors
+    private int find(int label) {
+        while (parent[label] != label) {
+            parent[label] = parent[parent[label]];  // path halving
+            label = parent[label];
+        }
+        return label;
+    }
+
+    private void union(int a, int b) {
+        int ra = find(a);
+        int rb = find(b);
+        if (ra != rb) parent[Math.max(ra, rb)] = Math.min(ra, rb);
+    }
+}
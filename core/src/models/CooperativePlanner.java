@@ -0,0 +1,515 @@
+package models;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+// plans many agents on one grid so they never collide: windowed hierarchical cooperative a*
+// (whca*, silver 2005). time moves in steps, each step an agent moves to a neighbor or waits.
+// agents plan one after the other in priority order (their order in the arrays), each with a
+// space-time a* over (cell, step) that avoids whatever the agents before it put in the
+// ReservationTable, and reserves its own cells and moves for the ones after it. a search only
+// looks `window` steps ahead: past that it takes the exact distance to the goal ignoring
+// everyone else, from a ResumableDistance per goal that every agent going there shares. after
+// every window the agents move half of it and everyone plans again from where they are,
+// the ones already on their goal after the ones still on their way.
+//
+// planning is in parallel batches: the next few agents search at the same time against the
+// table as it was, then get committed in order. the first one in a batch whose plan runs into
+// a reservation made earlier in the same batch is searched again in the next one, with every
+// agent after it. so every agent still plans around exactly the agents before it, and its
+// plan is as cheap as planning one at a time would make it (a plan that dodges fewer
+// reservations and runs into none of the others is as good as any that dodges them all)
+public class CooperativePlanner {
+    public static final int DEFAULT_WINDOW = 16;
+    private static final double WAIT_COST = 1;   // the cheapest move costs 1 too
+    private static final int MAX_NODES = 1 << 16;  // per search, past that the agent waits this window out
+
+    private int window = DEFAULT_WINDOW;
+    private int maxSteps = 0;                      // 0 = 4 * (rows + cols)
+    private boolean parkAtGoal = true;
+    private int batchSize = 2 * ForkJoinPool.commonPool().getParallelism();
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    // how far ahead each agent looks, at least 2
+    public void setWindow(int window) {
+        if (window < 2) throw new IllegalArgumentException("window has to be at least 2");
+        this.window = window;
+    }
+
+    // steps after which planning gives up on agents that haven't arrived, 0 for the default
+    public void setMaxSteps(int maxSteps) {
+        if (maxSteps < 0) throw new IllegalArgumentException("max steps can't be negative");
+        this.maxSteps = maxSteps;
+    }
+
+    // true (the default): agents stay on their goal once there, so goals have to be different.
+    // false: an agent leaves the map when it gets to its goal (a door, a depot) and any
+    // number of agents can share one
+    public void setParkAtGoal(boolean parkAtGoal) {
+        this.parkAtGoal = parkAtGoal;
+    }
+
+    // agents searched at once, 1 plans strictly one after the other
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) throw new IllegalArgumentException("batch size has to be at least 1");
+        this.batchSize = batchSize;
+    }
+
+    // starts and goals are cell indices (Grid.indexOf), agent k goes from starts[k] to goals[k]
+    // and comes before agent k + 1. the grid is planned on as it is now (a snapshot)
+    public Result plan(Grid grid, int[] starts, int[] goals) {
+        Grid snapshot = grid.snapshot();
+        check(snapshot, starts, goals);
+        int agents = starts.length;
+        long begin = System.nanoTime();
+
+        // one reverse search per distinct goal, aimed at the first agent going there
+        Map<Integer, ResumableDistance> toGoal = new HashMap<>();
+        ResumableDistance[] heuristic = new ResumableDistance[agents];
+        for (int k = 0; k < agents; k++) {
+            int start = starts[k];
+            heuristic[k] = toGoal.computeIfAbsent(goals[k], goal -> new ResumableDistance(snapshot, goal, start));
+        }
+
+        int limit = maxSteps > 0 ? maxSteps : 4 * (snapshot.getRows() + snapshot.getCols());
+        IntList[] paths = new IntList[agents];
+        int[] position = starts.clone();
+        boolean[] gone = new boolean[agents];  // left the map at the goal (parkAtGoal off)
+        for (int k = 0; k < agents; k++) {
+            paths[k] = new IntList();
+            paths[k].add(starts[k]);
+        }
+
+        ReservationTable table = new ReservationTable();
+        int[][] plans = new int[agents][];
+        Stats stats = new Stats();
+        int time = 0;
+        while (time < limit && !allArrived(position, goals, gone)) {
+            table.clear();
+            // agents already standing on their goal go last, so they step aside for the ones
+            // still travelling instead of parking in a corridor someone needs for good
+            int[] active = IntStream.concat(
+                    IntStream.range(0, agents).filter(k -> !gone[k] && position[k] != goals[k]),
+                    IntStream.range(0, agents).filter(k -> !gone[k] && position[k] == goals[k])).toArray();
+            int next = 0;
+            while (next < active.length) {
+                int from = next;
+                int size = Math.min(batchSize, active.length - from);
+                int start = time;
+                int[][] batch = new int[size][];
+                long[] expanded = new long[size];
+                boolean[] stuck = new boolean[size];
+                IntStream.range(0, size).parallel().forEach(i -> {
+                    int agent = active[from + i];
+                    Scratch scratch = SCRATCH.get();
+                    batch[i] = scratch.search(snapshot, table, agent, position[agent], goals[agent],
+                            heuristic[agent], start, window, parkAtGoal);
+                    expanded[i] = scratch.expanded;
+                    stuck[i] = scratch.stuck;
+                });
+                for (int i = 0; i < size; i++) {
+                    stats.searches++;
+                    stats.expansions += expanded[i];
+                    int agent = active[from + i];
+                    if (i > 0 && !stuck[i] && collides(snapshot, table, agent, batch[i], time)) {
+                        stats.retries += size - i;
+                        break;
+                    }
+                    if (stuck[i]) stats.stuck++;
+                    reserve(snapshot, table, agent, batch[i], time);
+                    plans[agent] = batch[i];
+                    next++;
+                }
+            }
+
+            // everyone walks half a window, then plans again
+            int advance = Math.min(Math.max(1, window / 2), limit - time);
+            for (int agent : active) {
+                int[] plan = plans[agent];
+                for (int step = 1; step <= advance; step++) {
+                    int cell = step < plan.length ? plan[step] : position[agent];
+                    paths[agent].add(cell);
+                    position[agent] = cell;
+                    if (!parkAtGoal && cell == goals[agent]) {
+                        gone[agent] = true;
+                        break;
+                    }
+                }
+            }
+            time += advance;
+        }
+        long nanos = System.nanoTime() - begin;
+
+        int[][] result = new int[agents][];
+        double[] costs = new double[agents];
+        boolean complete = true;
+        for (int k = 0; k < agents; k++) {
+            result[k] = trim(paths[k].toArray(), goals[k]);
+            costs[k] = cost(snapshot, result[k], goals[k]);
+            if (result[k][result[k].length - 1] != goals[k]) complete = false;
+        }
+        for (ResumableDistance distance : toGoal.values()) {
+            stats.settled += distance.getSettledCount();
+        }
+        return new Result(snapshot, result, costs, complete, parkAtGoal, stats, nanos);
+    }
+
+    private void check(Grid grid, int[] starts, int[] goals) {
+        if (starts.length != goals.length) throw new IllegalArgumentException("need one goal per start");
+        LongIntMap startAt = new LongIntMap(starts.length);
+        LongIntMap goalAt = new LongIntMap(goals.length);
+        for (int k = 0; k < starts.length; k++) {
+            for (int cell : new int[]{starts[k], goals[k]}) {
+                if (cell < 0 || cell >= grid.getIndexSize() || grid.cellAt(cell).isWall()) {
+                    throw new IllegalArgumentException("agent " + k + " starts or ends on a wall or off the grid");
+                }
+            }
+            if (!grid.getComponents().isConnected(grid.cellAt(starts[k]), grid.cellAt(goals[k]))) {
+                throw new IllegalArgumentException("agent " + k + " can't reach its goal");
+            }
+            int other = startAt.get(starts[k], -1);
+            if (other >= 0) throw new IllegalArgumentException("agents " + other + " and " + k + " start on the same cell");
+            startAt.put(starts[k], k);
+            if (parkAtGoal) {
+                other = goalAt.get(goals[k], -1);
+                if (other >= 0) {
+                    throw new IllegalArgumentException("agents " + other + " and " + k + " would park on the same goal");
+                }
+                goalAt.put(goals[k], k);
+            }
+        }
+    }
+
+    private static boolean allArrived(int[] position, int[] goals, boolean[] gone) {
+        for (int k = 0; k < position.length; k++) {
+            if (!gone[k] && position[k] != goals[k]) return false;
+        }
+        return true;
+    }
+
+    // true if the plan stands on or swaps through anything already reserved
+    private static boolean collides(Grid grid, ReservationTable table, int agent, int[] plan, int time) {
+        if (!table.isFree(plan[0], time, agent)) return true;
+        for (int step = 1; step < plan.length; step++) {
+            int dir = direction(grid, plan[step - 1], plan[step]);
+            if (dir < 0) {
+                if (!table.isFree(plan[step], time + step, agent)) return true;
+            } else if (!table.canMove(plan[step - 1], dir, plan[step], time + step - 1, agent)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // a stuck agent's plan can clash, it only gets what's still free
+    private static void reserve(Grid grid, ReservationTable table, int agent, int[] plan, int time) {
+        if (table.isFree(plan[0], time, agent)) table.reserve(plan[0], time, agent);
+        for (int step = 1; step < plan.length; step++) {
+            if (table.isFree(plan[step], time + step, agent)) table.reserve(plan[step], time + step, agent);
+            int dir = direction(grid, plan[step - 1], plan[step]);
+            if (dir >= 0) table.reserveMove(plan[step - 1], dir, time + step - 1, agent);
+        }
+    }
+
+    // direction from one cell to a neighbor, -1 for the same cell. rows and columns get
+    // compared, an index one off is up or down on a grid one column wide
+    static int direction(Grid grid, int from, int to) {
+        if (from == to) return -1;
+        int cols = grid.getCols();
+        if (from / cols == to / cols) return to < from ? Grid.LEFT : Grid.RIGHT;
+        return to < from ? Grid.UP : Grid.DOWN;
+    }
+
+    // drops the steps after the agent last reached its goal (standing there costs nothing)
+    private static int[] trim(int[] path, int goal) {
+        int end = path.length;
+        while (end > 1 && path[end - 1] == goal && path[end - 2] == goal) end--;
+        return end == path.length ? path : Arrays.copyOf(path, end);
+    }
+
+    // edge weights of the moves plus WAIT_COST for every wait that isn't on the goal
+    private static double cost(Grid grid, int[] path, int goal) {
+        double cost = 0;
+        for (int step = 1; step < path.length; step++) {
+            int dir = direction(grid, path[step - 1], path[step]);
+            if (dir >= 0) {
+                cost += grid.getWeight(grid.cellAt(path[step - 1]), dir);
+            } else if (path[step] != goal) {
+                cost += WAIT_COST;
+            }
+        }
+        return cost;
+    }
+
+    // counts of what planning did, summed over all windows
+    private static class Stats {
+        int searches;
+        long expansions;
+        int retries;   // searches thrown away because an earlier agent in the batch got in the way
+        int stuck;     // windows an agent couldn't plan and just stood still for, it may get run into
+        long settled;  // cells the reverse searches worked out the distance of
+    }
+
+    // everything one worker needs for a space-time search, reused for every agent it gets.
+    // nodes are (cell, step in the window) packed into a long and numbered as they're found
+    private static class Scratch {
+        private final LongIntMap nodeOf = new LongIntMap(1 << 12);
+        private int[] cell = new int[1 << 12];
+        private int[] step = new int[cell.length];
+        private int[] parent = new int[cell.length];
+        private double[] g = new double[cell.length];
+        private double[] f = new double[cell.length];
+        private boolean[] closed = new boolean[cell.length];
+        private int nodes;
+        private int[] heap = new int[cell.length];  // node numbers, a node can be in more than once
+        private int heapSize;
+        private long expanded;
+        private boolean stuck;
+
+        // the cells the agent stands on at steps 0..window (fewer if it leaves at its goal)
+        int[] search(Grid grid, ReservationTable table, int agent, int start, int goal, ResumableDistance toGoal,
+                     int time, int window, boolean park) {
+            nodeOf.clear();
+            nodes = 0;
+            heapSize = 0;
+            expanded = 0;
+            stuck = false;
+            push(node(start, 0, -1, 0, toGoal.distance(start)));
+
+            while (heapSize > 0) {
+                int current = pop();
+                if (closed[current]) continue;
+                closed[current] = true;
+                int at = cell[current];
+                int depth = step[current];
+                if (depth == window || (!park && at == goal)) return plan(current);
+                if (nodes >= MAX_NODES) break;
+                expanded++;
+
+                // wait where we are, free on the goal
+                if (table.isFree(at, time + depth + 1, agent)) {
+                    relax(current, at, depth + 1, g[current] + (at == goal ? 0 : WAIT_COST), toGoal);
+                }
+                Cell here = grid.cellAt(at);
+                for (int dir = 0; dir < Grid.DIRECTIONS; dir++) {
+                    Cell neighbor = grid.getNeighbor(here, dir);
+                    if (neighbor == null || neighbor.isWall()) continue;
+                    int to = grid.indexOf(neighbor);
+                    if (!table.canMove(at, dir, to, time + depth, agent)) continue;
+                    relax(current, to, depth + 1, g[current] + grid.getWeight(here, dir), toGoal);
+                }
+            }
+            // boxed in (or the search got too big): stand still and hope the others make room
+            stuck = true;
+            int[] cells = new int[window + 1];
+            Arrays.fill(cells, start);
+            return cells;
+        }
+
+        private void relax(int from, int to, int depth, double cost, ResumableDistance toGoal) {
+            long key = (long) depth << 32 | to;
+            int existing = nodeOf.get(key, -1);
+            if (existing < 0) {
+                push(node(to, depth, from, cost, toGoal.distance(to)));
+            } else if (!closed[existing] && cost < g[existing]) {
+                f[existing] += cost - g[existing];  // same cell, same estimate
+                g[existing] = cost;
+                parent[existing] = from;
+                push(existing);
+            }
+        }
+
+        private int node(int at, int depth, int from, double cost, float estimate) {
+            if (nodes == cell.length) {
+                int capacity = nodes * 2;
+                cell = Arrays.copyOf(cell, capacity);
+                step = Arrays.copyOf(step, capacity);
+                parent = Arrays.copyOf(parent, capacity);
+                g = Arrays.copyOf(g, capacity);
+                f = Arrays.copyOf(f, capacity);
+                closed = Arrays.copyOf(closed, capacity);
+            }
+            int node = nodes++;
+            cell[node] = at;
+            step[node] = depth;
+            parent[node] = from;
+            g[node] = cost;
+            f[node] = cost + estimate;
+            closed[node] = false;
+            nodeOf.put((long) depth << 32 | at, node);
+            return node;
+        }
+
+        private int[] plan(int last) {
+            int[] cells = new int[step[last] + 1];
+            for (int node = last; node >= 0; node = parent[node]) {
+                cells[step[node]] = cell[node];
+            }
+            return cells;
+        }
+
+        // binary heap on f, ties go to the deeper node so waits at the goal don't fan out
+        private void push(int node) {
+            if (heapSize == heap.length) heap = Arrays.copyOf(heap, heapSize * 2);
+            int pos = heapSize++;
+            while (pos > 0) {
+                int up = (pos - 1) >>> 1;
+                if (!before(node, heap[up])) break;
+                heap[pos] = heap[up];
+                pos = up;
+            }
+            heap[pos] = node;
+        }
+
+        private int pop() {
+            int top = heap[0];
+            int last = heap[--heapSize];
+            int pos = 0;
+            while (true) {
+                int child = 2 * pos + 1;
+                if (child >= heapSize) break;
+                if (child + 1 < heapSize && before(heap[child + 1], heap[child])) child++;
+                if (!before(heap[child], last)) break;
+                heap[pos] = heap[child];
+                pos = child;
+            }
+            heap[pos] = last;
+            return top;
+        }
+
+        private boolean before(int a, int b) {
+            return f[a] < f[b] || (f[a] == f[b] && step[a] > step[b]);
+        }
+    }
+
+    // paths of every agent, cell per time step from 0, ending where it last reached its goal.
+    // with parking an agent stays on the last cell of its path after it ends
+    public static class Result {
+        private final Grid grid;
+        private final int[][] paths;
+        private final double[] costs;
+        private final boolean complete;
+        private final boolean parked;
+        private final Stats stats;
+        private final long nanos;
+
+        private Result(Grid grid, int[][] paths, double[] costs, boolean complete, boolean parked, Stats stats,
+                       long nanos) {
+            this.grid = grid;
+            this.paths = paths;
+            this.costs = costs;
+            this.complete = complete;
+            this.parked = parked;
+            this.stats = stats;
+            this.nanos = nanos;
+        }
+
+        public int getAgentCount() {
+            return paths.length;
+        }
+
+        public int[] getPath(int agent) {
+            return paths[agent].clone();
+        }
+
+        public double getCost(int agent) {
+            return costs[agent];
+        }
+
+        public double getSumOfCosts() {
+            double sum = 0;
+            for (double cost : costs) {
+                sum += cost;
+            }
+            return sum;
+        }
+
+        // steps until the last agent arrived
+        public int getMakespan() {
+            int makespan = 0;
+            for (int[] path : paths) {
+                makespan = Math.max(makespan, path.length - 1);
+            }
+            return makespan;
+        }
+
+        // false if some agent hadn't reached its goal when planning gave up (max steps)
+        public boolean isComplete() {
+            return complete;
+        }
+
+        public int getSearches() {
+            return stats.searches;
+        }
+
+        public long getExpansions() {
+            return stats.expansions;
+        }
+
+        public int getRetries() {
+            return stats.retries;
+        }
+
+        public int getStuckWindows() {
+            return stats.stuck;
+        }
+
+        // whole plan() call, the reverse searches included
+        public long getNanos() {
+            return nanos;
+        }
+
+        // cells the shared reverse searches had to settle, summed over the goals
+        public long getSettledCells() {
+            return stats.settled;
+        }
+
+        public double getAgentsPerSecond() {
+            return paths.length / (nanos / 1e9);
+        }
+
+        public int countCollisions() {
+            return CooperativePlanner.countCollisions(grid, paths, parked);
+        }
+    }
+
+    // cell and swap collisions between any two of the paths (cell per time step). with parked
+    // an agent keeps standing on the end of its path, otherwise it's gone from there on.
+    // for checking plans, and for seeing what planning every agent on its own would run into
+    public static int countCollisions(Grid grid, int[][] paths, boolean parked) {
+        int makespan = 0;
+        for (int[] path : paths) {
+            makespan = Math.max(makespan, path.length - 1);
+        }
+        int collisions = 0;
+        ReservationTable table = new ReservationTable();
+        for (int time = 0; time <= makespan; time++) {
+            table.clear();
+            for (int agent = 0; agent < paths.length; agent++) {
+                int[] path = paths[agent];
+                if (time >= path.length && !parked) continue;
+                int at = path[Math.min(time, path.length - 1)];
+                if (!table.isFree(at, time, agent)) collisions++;
+                table.reserve(at, time, agent);
+                if (time + 1 < path.length) {
+                    int dir = direction(grid, at, path[time + 1]);
+                    if (dir >= 0) table.reserveMove(at, dir, time, agent);
+                }
+            }
+            // swaps: two agents whose moves at this step go through each other, counted once
+            for (int agent = 0; agent < paths.length; agent++) {
+                int[] path = paths[agent];
+                if (time + 1 >= path.length) continue;
+                int dir = direction(grid, path[time], path[time + 1]);
+                if (dir < 0) continue;
+                int other = table.moverAt(path[time + 1], Grid.opposite(dir), time);
+                if (other > agent) collisions++;
+            }
+        }
+        return collisions;
+    }
+}
@@ -0,0 +1,358 @@
+package models;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+// finds the pockets of the map: dead-end corridors, and rooms or swamps whose only way in
+// is a single door cell. a shortest path between two cells outside a pocket never goes into
+// it (it would have to come back out through the same door, and a loop never makes a path
+// cheaper), so a search can skip every pocket that has neither the start nor the goal in it.
+// on a random maze that's a good share of what dijkstra and a* would otherwise expand.
+//
+// the pockets come from one depth-first search per connected region (tarjan's low-link):
+// the subtree under a tree child v of u is a pocket with door u when nothing in it has an
+// edge back above u. pockets nest, and every cell only has to remember the innermost one it
+// is in, because the outer ones contain it and so contain whatever it contains. a pocket is
+// a subtree, so "is the start in it" is an interval check on the dfs numbering.
+//
+// like the landmark tables it works on the snapshots searches hand it and follows edits on
+// the live grid. only wall changes matter (terrain leaves the pockets alone), and only the
+// regions a changed wall belongs to or touches get searched again, the next time a search
+// asks. a search on a snapshot the pockets don't fit gets no pruning rather than a wrong one
+public class DeadEndIndex implements GridListener {
+    private static final int FULL_REBUILD = -1;  // pending edit that means "everything"
+
+    private Grid source;        // live grid we listen to for edits
+    private Labels labels;      // for the snapshot version builtVersion
+    private long builtVersion = -1;
+    private long lastWallChange = -1;  // newest grid version with a wall change the labels include
+    private final BitSet staleRegions = new BitSet();
+    private int nextRegion;
+
+    // edits reported by the grid and not looked at yet: cell index (or FULL_REBUILD), version
+    private final IntList pendingCells = new IntList();
+    private long[] pendingVersions = new long[16];
+
+    // scratch for the depth-first searches, reused between rebuilds
+    private int[] low;
+    private int[] parent;
+    private byte[] nextDir;
+    private final IntList stack = new IntList();
+    private final IntList order = new IntList();
+
+    // labels of one version of the grid, never changed once a search can see them
+    private static class Labels {
+        final int[] region;  // dfs region per cell, -1 for walls
+        final int[] disc;    // dfs number within the region
+        final int[] size;    // cells in the dfs subtree, so the subtree is disc .. disc + size - 1
+        final int[] pocket;  // root of the innermost pocket the cell is in, -1 for none
+        int pocketCells;
+
+        Labels(int cells) {
+            region = new int[cells];
+            disc = new int[cells];
+            size = new int[cells];
+            pocket = new int[cells];
+            Arrays.fill(region, -1);
+            Arrays.fill(pocket, -1);
+        }
+
+        Labels(Labels other) {
+            region = other.region.clone();
+            disc = other.disc.clone();
+            size = other.size.clone();
+            pocket = other.pocket.clone();
+            pocketCells = other.pocketCells;
+        }
+
+        // true if the cell is in the dfs subtree under root
+        boolean inside(int root, int cell) {
+            return region[cell] == region[root] && disc[cell] >= disc[root] && disc[cell] < disc[root] + size[root];
+        }
+    }
+
+    // what one search may skip
+    public static class Query {
+        private final Labels labels;
+        private final int start;
+        private final int goal;
+
+        private Query(Labels labels, int start, int goal) {
+            this.labels = labels;
+            this.start = start;
+            this.goal = goal;
+        }
+
+        // true if the cell is in a pocket that has neither the start nor the goal in it
+        public boolean skips(int index) {
+            int root = labels.pocket[index];
+            if (root < 0) return false;
+            return !labels.inside(root, start) && !labels.inside(root, goal);
+        }
+    }
+
+    // pruning for a search from start to goal on this snapshot, null if the pockets can't be
+    // trusted for it (a wall changed between the snapshot and the version the labels are for)
+    public synchronized Query query(Grid grid, Cell start, Cell goal) {
+        Grid live = grid.getOrigin();
+        if (source != live) {
+            // different grid, forget everything about the old one
+            if (source != null) {
+                source.removeGridListener(this);
+            }
+            source = live;
+            live.addGridListener(this);
+            labels = null;
+            synchronized (pendingCells) {
+                pendingCells.clear();
+            }
+        }
+
+        long version = grid.getVersion();
+        if (labels == null || labels.region.length != grid.getIndexSize()) {
+            rebuildAll(grid);
+        } else if (version > builtVersion) {
+            update(grid);
+        } else if (lastWallChange > version) {
+            return null;  // an older snapshot from before a wall change the labels already have
+        }
+        return new Query(labels, grid.indexOf(start), grid.indexOf(goal));
+    }
+
+    // cells in some pocket, as of the last query
+    public synchronized int getPocketCellCount() {
+        return labels == null ? 0 : labels.pocketCells;
+    }
+
+    // called by the grid under its own lock, so this only queues the edit up
+    @Override
+    public void cellChanged(Cell cell) {
+        queue(source.indexOf(cell), source.getVersion());
+    }
+
+    @Override
+    public void gridChanged() {
+        queue(FULL_REBUILD, source.getVersion());
+    }
+
+    private void queue(int index, long version) {
+        synchronized (pendingCells) {
+            if (pendingCells.size() == pendingVersions.length) {
+                pendingVersions = Arrays.copyOf(pendingVersions, pendingVersions.length * 2);
+            }
+            pendingVersions[pendingCells.size()] = version;
+            pendingCells.add(index);
+
+            if (pendingCells.size() > source.getIndexSize() / 8) {
+                // so many edits that a full rebuild beats looking at them one by one. one for the
+                // oldest version they went into and one for the newest, so a snapshot taken in
+                // between still gets the ones after it
+                long oldest = pendingVersions[0];
+                pendingCells.clear();
+                pendingCells.add(FULL_REBUILD);
+                pendingCells.add(FULL_REBUILD);
+                pendingVersions[0] = oldest;
+                pendingVersions[1] = version;
+            }
+        }
+    }
+
+    // brings the labels forward to this newer snapshot, redoing only the regions a wall
+    // change happened in or next to. edits that went into later versions stay queued
+    private void update(Grid grid) {
+        long version = grid.getVersion();
+        IntList opened = new IntList();
+        boolean full = false;
+        synchronized (pendingCells) {
+            int kept = 0;
+            for (int i = 0; i < pendingCells.size(); i++) {
+                int index = pendingCells.get(i);
+                long editVersion = pendingVersions[i];
+                if (editVersion > version) {
+                    pendingCells.set(kept, index);
+                    pendingVersions[kept++] = editVersion;
+                    continue;
+                }
+                if (index == FULL_REBUILD) {
+                    full = true;
+                    lastWallChange = Math.max(lastWallChange, editVersion);
+                    continue;
+                }
+                boolean wall = grid.cellAt(index).isWall();
+                if (wall == (labels.region[index] < 0)) continue;  // terrain only, or changed back
+                lastWallChange = Math.max(lastWallChange, editVersion);
+                if (wall) {
+                    staleRegions.set(labels.region[index]);
+                } else {
+                    opened.add(index);
+                    for (int dir = 0; dir < Grid.DIRECTIONS; dir++) {
+                        int neighbor = neighbor(grid, index, dir);
+                        if (neighbor >= 0 && labels.region[neighbor] >= 0) staleRegions.set(labels.region[neighbor]);
+                    }
+                }
+            }
+            pendingCells.truncate(kept);
+        }
+
+        if (full) {
+            rebuildAll(grid);
+            return;
+        }
+        builtVersion = version;
+        if (staleRegions.isEmpty() && opened.isEmpty()) return;
+
+        // a new copy, searches holding the old labels keep reading them
+        Labels next = new Labels(labels);
+        IntList redo = new IntList();
+        for (int index = 0; index < next.region.length; index++) {
+            int region = next.region[index];
+            if (region >= 0 && staleRegions.get(region)) {
+                if (next.pocket[index] >= 0) next.pocketCells--;
+                next.region[index] = -1;
+                next.pocket[index] = -1;
+                redo.add(index);
+            }
+        }
+        staleRegions.clear();
+        for (int i = 0; i < opened.size(); i++) {
+            redo.add(opened.get(i));
+        }
+        for (int i = 0; i < redo.size(); i++) {
+            int index = redo.get(i);
+            if (next.region[index] < 0 && !grid.cellAt(index).isWall()) {
+                label(grid, next, index);
+            }
+        }
+        labels = next;
+    }
+
+    private void rebuildAll(Grid grid) {
+        synchronized (pendingCells) {
+            // everything up to this version is in the snapshot we're about to label
+            int kept = 0;
+            for (int i = 0; i < pendingCells.size(); i++) {
+                if (pendingVersions[i] > grid.getVersion()) {
+                    pendingCells.set(kept, pendingCells.get(i));
+                    pendingVersions[kept++] = pendingVersions[i];
+                }
+            }
+            pendingCells.truncate(kept);
+        }
+        Labels next = new Labels(grid.getIndexSize());
+        staleRegions.clear();
+        nextRegion = 0;
+        for (int index = 0; index < next.region.length; index++) {
+            if (next.region[index] < 0 && !grid.cellAt(index).isWall()) {
+                label(grid, next, index);
+            }
+        }
+        labels = next;
+        builtVersion = grid.getVersion();
+        lastWallChange = builtVersion;
+    }
+
+    // labels the whole region around one open cell
+    private void label(Grid grid, Labels labels, int seed) {
+        int n = grid.getIndexSize();
+        if (low == null || low.length != n) {
+            low = new int[n];
+            parent = new int[n];
+            nextDir = new byte[n];
+        }
+        int region = nextRegion++;
+        int root = pickRoot(grid, labels, seed, region);
+
+        // iterative dfs computing low-links
+        int counter = 0;
+        order.clear();
+        stack.clear();
+        labels.region[root] = region;
+        labels.disc[root] = low[root] = counter++;
+        parent[root] = -1;
+        nextDir[root] = 0;
+        order.add(root);
+        stack.add(root);
+        while (!stack.isEmpty()) {
+            int u = stack.get(stack.size() - 1);
+            if (nextDir[u] < Grid.DIRECTIONS) {
+                int v = neighbor(grid, u, nextDir[u]++);
+                if (v < 0 || grid.cellAt(v).isWall()) continue;
+                if (labels.region[v] != region) {
+                    labels.region[v] = region;
+                    labels.disc[v] = low[v] = counter++;
+                    parent[v] = u;
+                    nextDir[v] = 0;
+                    order.add(v);
+                    stack.add(v);
+                } else if (v != parent[u]) {
+                    low[u] = Math.min(low[u], labels.disc[v]);
+                }
+            } else {
+                stack.removeLast();
+                labels.size[u] = counter - labels.disc[u];
+                int p = parent[u];
+                if (p >= 0) low[p] = Math.min(low[p], low[u]);
+            }
+        }
+
+        // parents come before their children in dfs order, so every cell can take its
+        // innermost pocket from its parent unless it's the root of a pocket itself
+        for (int i = 0; i < order.size(); i++) {
+            int cell = order.get(i);
+            int p = parent[cell];
+            if (p < 0) {
+                labels.pocket[cell] = -1;
+            } else if (low[cell] >= labels.disc[p]) {
+                labels.pocket[cell] = cell;
+            } else {
+                labels.pocket[cell] = labels.pocket[p];
+            }
+            if (labels.pocket[cell] >= 0) labels.pocketCells++;
+        }
+    }
+
+    // the side of the region the dfs starts on can never be a pocket, so start somewhere that
+    // isn't likely to be one: the first cell of the region that's the corner of an open 2x2
+    // square (so on a loop, not in a corridor), or the seed if there is none. the region is
+    // flooded with a temporary marker to find it
+    private int pickRoot(Grid grid, Labels labels, int seed, int region) {
+        int marker = -2 - region;
+        stack.clear();
+        stack.add(seed);
+        labels.region[seed] = marker;
+        int root = -1;
+        for (int head = 0; head < stack.size(); head++) {
+            int cell = stack.get(head);
+            if (root < 0 && openSquare(grid, cell)) root = cell;
+            for (int dir = 0; dir < Grid.DIRECTIONS; dir++) {
+                int v = neighbor(grid, cell, dir);
+                if (v < 0 || labels.region[v] == marker || grid.cellAt(v).isWall()) continue;
+                labels.region[v] = marker;
+                stack.add(v);
+            }
+        }
+        // back to unlabeled so the dfs sees the region as new
+        for (int i = 0; i < stack.size(); i++) {
+            labels.region[stack.get(i)] = -1;
+        }
+        return root < 0 ? seed : root;
+    }
+
+    private static boolean openSquare(Grid grid, int index) {
+        int cols = grid.getCols();
+        int row = index / cols;
+        int col = index % cols;
+        if (row + 1 >= grid.getRows() || col + 1 >= cols) return false;
+        return !grid.cellAt(index + 1).isWall() && !grid.cellAt(index + cols).isWall()
+                && !grid.cellAt(index + cols + 1).isWall();
+    }
+
+    // index of the neighbor in that direction, -1 past the edge
+    private static int neighbor(Grid grid, int index, int dir) {
+        int cols = grid.getCols();
+        int row = index / cols + Grid.rowOffset(dir);
+        int col = index % cols + Grid.colOffset(dir);
+        if (row < 0 || row >= grid.getRows() || col < 0 || col >= cols) return -1;
+        return row * cols + col;
+    }
+}
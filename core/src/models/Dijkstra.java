@@ -0,0 +1,179 @@
+package models;
+
+import java.util.*;
+
+// dijkstra's algorithm - finds shortest path considering edge weights
+public class Dijkstra implements Pathfinding {
+    private Grid grid;
+    private Cell startCell;
+    private Cell endCell;
+    private SearchState state;  // flags, parents and distances for this run only
+    
+    // manually sorting this list to act like a priority queue
+    private LinkedList<Cell> openSet;
+    private boolean finished;
+    private boolean pathFound;
+    private GoalBounds goalBounds;  // optional edge pruning, see setGoalBounds()
+    private GoalBounds pruning;     // goalBounds if it fits the grid of this run, else null
+    private DeadEndIndex deadEnds;  // optional, see setDeadEnds()
+    private DeadEndIndex.Query pockets;  // what this run may skip, null for nothing
+
+    // skip edges that can't start a shortest path to the goal. only used on a grid the
+    // bounds were built for, on any other grid the search runs as if they weren't there
+    public void setGoalBounds(GoalBounds goalBounds) {
+        this.goalBounds = goalBounds;
+    }
+
+    // skip dead ends and single-door pockets that have neither the start nor the goal in them
+    public void setDeadEnds(DeadEndIndex deadEnds) {
+        this.deadEnds = deadEnds;
+    }
+
+    @Override
+    public void init(Grid grid, Cell start, Cell goal) {
+        // pin the grid as it is right now, edits made while we run go to the next version
+        grid = grid.snapshot();
+        start = grid.getCell(start.getRow(), start.getCol());
+        goal = grid.getCell(goal.getRow(), goal.getCol());
+        this.grid = grid;
+        this.startCell = start;
+        this.endCell = goal;
+        this.state = new SearchState(grid);
+
+        openSet = new LinkedList<>();
+        finished = false;
+        pathFound = false;
+        pruning = goalBounds != null && goalBounds.isFor(grid) ? goalBounds : null;
+        pockets = null;
+
+        // start and goal are walled off from each other, don't bother searching
+        if (!grid.getComponents().isConnected(start, goal)) {
+            finished = true;
+            return;
+        }
+        if (deadEnds != null) {
+            pockets = deadEnds.query(grid, start, goal);
+        }
+
+        // everything starts at infinite distance (that's the state default)
+        // except the start which is 0
+        state.setDistance(startCell, 0);
+        state.setInOpenSet(startCell, true);
+        openSet.add(startCell);
+    }
+
+    @Override
+    public boolean step() {
+        if (finished) return true;
+
+        if (openSet.isEmpty()) {
+            finished = true;
+            pathFound = false;
+            return true;
+        }
+
+        // grab the cell with the smallest distance
+        Cell current = getMinDistanceCell();
+        if (current == null) {
+            finished = true;
+            pathFound = false;
+            return true;
+        }
+        
+        openSet.remove(current);
+        state.setInOpenSet(current, false);
+        state.setInClosedSet(current, true);
+        state.setVisited(current, true);
+
+        // made it to the goal?
+        if (current == endCell) {
+            finished = true;
+            pathFound = true;
+            markPath();
+            return true;
+        }
+
+        // check all 4 directions going out from this cell
+        for (int dir = 0; dir < Grid.DIRECTIONS; dir++) {
+            Cell neighbor = grid.getNeighbor(current, dir);
+
+            // skip walls and already processed cells
+            if (neighbor == null || neighbor.isWall() || state.isInClosedSet(neighbor)) {
+                continue;
+            }
+            // and edges that lead away from the goal
+            if (pruning != null && !pruning.allows(grid.indexOf(current), dir, endCell.getRow(), endCell.getCol())) {
+                continue;
+            }
+            if (pockets != null && pockets.skips(grid.indexOf(neighbor))) {
+                continue;
+            }
+
+            // see if going through current is faster
+            double edgeCost = grid.getWeight(current, dir);
+            double newDistance = state.getDistance(current) + edgeCost;
+
+            // found a better path to this neighbor
+            if (newDistance < state.getDistance(neighbor)) {
+                state.setDistance(neighbor, newDistance);
+                state.setParent(neighbor, current);
+
+                // Add to open set if not already there
+                if (!state.isInOpenSet(neighbor)) {
+                    state.setInOpenSet(neighbor, true);
+                    openSet.add(neighbor);
+                }
+            }
+        }
+
+        return false; // not finished yet
+    }
+
+    // manually finds the cell with smallest distance
+    // yeah this is slow but it works lol
+    private Cell getMinDistanceCell() {
+        if (openSet.isEmpty()) return null;
+        
+        Cell minCell = openSet.getFirst();
+        for (Cell cell : openSet) {
+            if (cell != null && state.getDistance(cell) < state.getDistance(minCell)) {
+                minCell = cell;
+            }
+        }
+        return minCell;
+    }
+
+    @Override
+    public boolean isFinished() {
+        return finished;
+    }
+
+    @Override
+    public boolean hasPath() {
+        return pathFound;
+    }
+
+    @Override
+    public List<Cell> getPath() {
+        if (!pathFound) return Collections.emptyList();
+
+        return state.pathTo(endCell);
+    }
+
+    @Override
+    public CompactPath getCompactPath() {
+        if (!pathFound) return CompactPath.NONE;
+
+        return state.compactPathTo(endCell);
+    }
+
+    @Override
+    public SearchState getState() {
+        return state;
+    }
+
+    private void markPath() {
+        state.markPath(endCell);
+    }
+}
+
@@ -0,0 +1,106 @@
+package models;
+
+import java.util.Arrays;
+
+// runs a full dijkstra from one cell over plain arrays instead of the Cell fields
+// so it can run on several threads at once without touching the search state.
+// used for precomputed tables (landmarks etc.).
+// the dijkstra adds up in doubles and only the finished distances go down to float, rounded
+// toward zero, so a table never says more than the true distance. summing in float lets the
+// error grow with every edge, on big weighted maps by thousands
+public class DistanceField {
+    private final float[] distances;  // POSITIVE_INFINITY when unreachable
+    private final int[] parents;      // previous cell on the shortest path, -1 for none
+    private final int[] settleOrder;  // cells in the order dijkstra settled them
+    private final int settledCount;
+
+    private DistanceField(float[] distances, int[] parents, int[] settleOrder, int settledCount) {
+        this.distances = distances;
+        this.parents = parents;
+        this.settleOrder = settleOrder;
+        this.settledCount = settledCount;
+    }
+
+    // shortest path tree going out from source, keeps the parents and settle order
+    public static DistanceField tree(Grid grid, int source) {
+        int n = grid.getIndexSize();
+        double[] dist = new double[n];
+        int[] parents = new int[n];
+        int[] order = new int[n];
+        int count = run(grid, source, false, dist, parents, order);
+        return new DistanceField(roundDown(dist), parents, order, count);
+    }
+
+    // distance from source to every cell, or from every cell to source when reverse is set
+    public static float[] distances(Grid grid, int source, boolean reverse) {
+        double[] dist = new double[grid.getIndexSize()];
+        run(grid, source, reverse, dist, null, null);
+        return roundDown(dist);
+    }
+
+    // the float at or just below every distance
+    private static float[] roundDown(double[] dist) {
+        float[] rounded = new float[dist.length];
+        for (int i = 0; i < dist.length; i++) {
+            float f = (float) dist[i];
+            rounded[i] = f > dist[i] ? Math.nextDown(f) : f;
+        }
+        return rounded;
+    }
+
+    public float[] getDistances() {
+        return distances;
+    }
+
+    public int[] getParents() {
+        return parents;
+    }
+
+    public int[] getSettleOrder() {
+        return settleOrder;
+    }
+
+    public int getSettledCount() {
+        return settledCount;
+    }
+
+    private static int run(Grid grid, int source, boolean reverse, double[] dist, int[] parents, int[] order) {
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        if (parents != null) Arrays.fill(parents, -1);
+
+        Cell sourceCell = grid.cellAt(source);
+        if (sourceCell == null || sourceCell.isWall()) return 0;
+
+        IndexHeap heap = new IndexHeap(dist.length);
+        dist[source] = 0;
+        heap.insertOrDecrease(source, 0);
+        int settled = 0;
+
+        while (!heap.isEmpty()) {
+            int index = heap.poll();
+            double d = dist[index];
+            if (order != null) order[settled] = index;
+            settled++;
+
+            Cell cell = grid.cellAt(index);
+            for (int dir = 0; dir < Grid.DIRECTIONS; dir++) {
+                Cell neighbor = grid.getNeighbor(cell, dir);
+                if (neighbor == null || neighbor.isWall()) continue;
+                // going backwards we want the edge neighbor -> cell instead
+                double weight = reverse
+                        ? grid.getWeight(neighbor, Grid.opposite(dir))
+                        : grid.getWeight(cell, dir);
+                relax(heap, dist, parents, index, grid.indexOf(neighbor), d + weight);
+            }
+        }
+        return settled;
+    }
+
+    private static void relax(IndexHeap heap, double[] dist, int[] parents, int from, int to, double newDistance) {
+        if (newDistance < dist[to]) {
+            dist[to] = newDistance;
+            if (parents != null) parents[to] = from;
+            heap.insertOrDecrease(to, newDistance);
+        }
+    }
+}
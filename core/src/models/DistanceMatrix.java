@@ -0,0 +1,228 @@
+package models;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+// shortest path costs from every source cell to every target cell, row per source.
+// each source gets one dijkstra over plain arrays that stops as soon as the last target it
+// can reach is settled, so a few thousand targets in one corner don't cost a full sweep.
+// sources run in parallel and write straight into their own row of one float buffer,
+// which is either on the heap or a memory mapped file (then it can be bigger than the heap
+// and opened again later without recomputing). unreachable pairs are infinity
+public class DistanceMatrix {
+    private static final int MAGIC = 0x50444d58;  // "PDMX"
+    private static final int FORMAT = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int CANCEL_CHECK = 4096;  // settled cells between looks at the cancel flag
+
+    // told after every finished source, from whichever worker thread finished it
+    public interface Progress {
+        void sourceDone(int done, int total);
+    }
+
+    private final int sourceCount;
+    private final int targetCount;
+    private final FloatBuffer values;  // sourceCount x targetCount, row major
+
+    private DistanceMatrix(int sourceCount, int targetCount, FloatBuffer values) {
+        this.sourceCount = sourceCount;
+        this.targetCount = targetCount;
+        this.values = values;
+    }
+
+    // sources and targets are cell indices (Grid.indexOf). progress and cancelled may be null,
+    // a cancelled computation throws CancellationException
+    public static DistanceMatrix compute(Grid grid, int[] sources, int[] targets,
+                                         Progress progress, BooleanSupplier cancelled) {
+        long size = (long) sources.length * targets.length;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(sources.length + " x " + targets.length + " is too big for the heap, give a file");
+        }
+        DistanceMatrix matrix = new DistanceMatrix(sources.length, targets.length, FloatBuffer.allocate((int) size));
+        matrix.fill(grid, sources, targets, progress, cancelled);
+        return matrix;
+    }
+
+    // same, written to a memory mapped file that open() can read back
+    public static DistanceMatrix compute(Grid grid, int[] sources, int[] targets,
+                                         Progress progress, BooleanSupplier cancelled, Path file) throws IOException {
+        long bytes = HEADER_BYTES + (long) sources.length * targets.length * Float.BYTES;
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(sources.length + " x " + targets.length + " is more than one mapping holds");
+        }
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(0, MAGIC).putInt(4, FORMAT).putInt(8, sources.length).putInt(12, targets.length);
+        FloatBuffer values = buffer.position(HEADER_BYTES).slice().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+
+        DistanceMatrix matrix = new DistanceMatrix(sources.length, targets.length, values);
+        matrix.fill(grid, sources, targets, progress, cancelled);
+        buffer.force();
+        return matrix;
+    }
+
+    // maps a file written by compute() read-only
+    public static DistanceMatrix open(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException(file + " is not a distance matrix");
+        }
+        if (buffer.getInt(4) != FORMAT) throw new IOException("unsupported matrix format " + buffer.getInt(4));
+        int sources = buffer.getInt(8);
+        int targets = buffer.getInt(12);
+        if (sources < 0 || targets < 0 || buffer.capacity() != HEADER_BYTES + (long) sources * targets * Float.BYTES) {
+            throw new IOException(file + " has the wrong size for " + sources + " x " + targets);
+        }
+        FloatBuffer values = buffer.position(HEADER_BYTES).slice().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+        return new DistanceMatrix(sources, targets, values);
+    }
+
+    public int getSourceCount() {
+        return sourceCount;
+    }
+
+    public int getTargetCount() {
+        return targetCount;
+    }
+
+    public float get(int source, int target) {
+        return values.get(source * targetCount + target);
+    }
+
+    // one source's row into the given array
+    public void getRow(int source, float[] row) {
+        values.get(source * targetCount, row, 0, targetCount);
+    }
+
+    private void fill(Grid grid, int[] sources, int[] targets, Progress progress, BooleanSupplier cancelFlag) {
+        BooleanSupplier cancelled = cancelFlag == null ? () -> false : cancelFlag;
+        Grid snapshot = grid.snapshot();
+        ComponentIndex components = snapshot.getComponents();
+
+        // the same cell can be a target more than once, each distinct cell is searched for once
+        int n = snapshot.getIndexSize();
+        int[] slotOf = new int[n];
+        Arrays.fill(slotOf, -1);
+        IntList slotCells = new IntList();
+        int[] columnSlot = new int[targets.length];
+        for (int t = 0; t < targets.length; t++) {
+            int cell = targets[t];
+            if (slotOf[cell] < 0) {
+                slotOf[cell] = slotCells.size();
+                slotCells.add(cell);
+            }
+            columnSlot[t] = slotOf[cell];
+        }
+        int[] slotComponent = new int[slotCells.size()];
+        for (int s = 0; s < slotComponent.length; s++) {
+            slotComponent[s] = components.getComponent(snapshot.cellAt(slotCells.get(s)));
+        }
+
+        AtomicInteger done = new AtomicInteger();
+        ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(() -> new Scratch(n, slotComponent.length));
+        IntStream.range(0, sources.length).parallel().forEach(row -> {
+            if (cancelled.getAsBoolean()) return;
+            float[] slots = scratch.get().search(snapshot, components, sources[row], slotOf, slotComponent, cancelled);
+            if (slots == null) return;  // cancelled halfway
+            int base = row * targetCount;
+            for (int t = 0; t < targets.length; t++) {
+                values.put(base + t, slots[columnSlot[t]]);
+            }
+            int finished = done.incrementAndGet();
+            if (progress != null) progress.sourceDone(finished, sources.length);
+        });
+        if (cancelled.getAsBoolean() && done.get() < sources.length) {
+            throw new CancellationException("distance matrix cancelled after " + done.get() + " of " + sources.length + " sources");
+        }
+    }
+
+    // arrays one worker reuses for every source it gets. only the cells a search touched
+    // are reset afterwards, so a search that stops early stays cheap
+    private static class Scratch {
+        private final double[] dist;  // doubles so a settled cell can never be improved by rounding
+        private final IndexHeap heap;
+        private final IntList touched = new IntList();
+        private final float[] slots;
+
+        Scratch(int cells, int slotCount) {
+            dist = new double[cells];
+            Arrays.fill(dist, Double.POSITIVE_INFINITY);
+            heap = new IndexHeap(cells);
+            slots = new float[slotCount];
+        }
+
+        // distances to every target slot, null if cancelled
+        float[] search(Grid grid, ComponentIndex components, int source, int[] slotOf, int[] slotComponent,
+                       BooleanSupplier cancelled) {
+            Arrays.fill(slots, Float.POSITIVE_INFINITY);
+            Cell sourceCell = grid.cellAt(source);
+            if (sourceCell == null || sourceCell.isWall()) return slots;
+
+            // only targets in the source's region can be settled, stop once they all are
+            int component = components.getComponent(sourceCell);
+            int remaining = 0;
+            for (int c : slotComponent) {
+                if (c == component) remaining++;
+            }
+
+            dist[source] = 0;
+            touched.add(source);
+            heap.insertOrDecrease(source, 0);
+            int settled = 0;
+            while (remaining > 0 && !heap.isEmpty()) {
+                if (++settled % CANCEL_CHECK == 0 && cancelled.getAsBoolean()) {
+                    reset();
+                    return null;
+                }
+                int index = heap.poll();
+                double d = dist[index];
+                int slot = slotOf[index];
+                if (slot >= 0) {
+                    slots[slot] = (float) d;
+                    remaining--;
+                }
+
+                Cell cell = grid.cellAt(index);
+                for (int dir = 0; dir < Grid.DIRECTIONS; dir++) {
+                    Cell neighbor = grid.getNeighbor(cell, dir);
+                    if (neighbor == null || neighbor.isWall()) continue;
+                    int to = grid.indexOf(neighbor);
+                    double candidate = d + grid.getWeight(cell, dir);
+                    if (candidate < dist[to]) {
+                        if (dist[to] == Double.POSITIVE_INFINITY) touched.add(to);
+                        dist[to] = candidate;
+                        heap.insertOrDecrease(to, candidate);
+                    }
+                }
+            }
+            reset();
+            return slots;
+        }
+
+        private void reset() {
+            heap.clear();
+            for (int i = 0; i < touched.size(); i++) {
+                dist[touched.get(i)] = Double.POSITIVE_INFINITY;
+            }
+            touched.clear();
+        }
+    }
+}
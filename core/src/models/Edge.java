@@ -1,9 +1,10 @@
 package models;
 
 // represents a connection between two cells
+// the grid doesn't store these anymore, Grid.getEdges() makes them on the fly
 public class Edge {
     private final Cell destination;  // where this edge leads to
-    private double weight;  // cost to traverse this edge
+    private final double weight;  // cost to traverse this edge
 
     public Edge(Cell destination, double weight) {
         this.destination = destination;
@@ -17,8 +18,4 @@ public class Edge {
     public double getWeight() {
         return weight;
     }
-
-    public void setWeight(double weight) {
-        this.weight = weight;
-    }
 }
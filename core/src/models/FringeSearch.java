@@ -0,0 +1,257 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// fringe search (bjornsson, enzenberger, holte and schaeffer 2005): the iterations of ida*
+// without starting over from the start each time. the fringe is a linked list of the cells
+// at the edge of what's been searched. every pass walks it once with an f limit: a cell over
+// the limit stays where it is for the next pass, one under it gets expanded and its children
+// go in right after it, so they're looked at later in the same pass (depth first, like ida*).
+// the next pass's limit is the smallest f that was left over. no priority queue and no
+// sorting, and unlike ida* a cell is only expanded again when it's reached more cheaply.
+// everything it knows about a cell (g, h, parent, place in the fringe) lives in a slot made
+// the first time the cell is reached, found through a hash map, so memory grows with the
+// cells the search touches instead of the size of the map.
+// one step() is one expansion. flags only go into the search state while something is
+// watching it: fringe cells are open, expanded ones closed
+public class FringeSearch implements Pathfinding {
+    private static final int NONE = -1;
+    private static final int OUT = -2;  // prev of a slot that isn't in the fringe
+
+    private final Heuristic heuristic;
+    private Heuristic estimates;  // what heuristic.prepare() gave this search
+    private Grid grid;
+    private Cell startCell;
+    private Cell endCell;
+    private int goal;
+    private SearchState state;  // only filled in when watched
+    private boolean finished;
+    private boolean pathFound;
+    private int goalSlot = NONE;
+
+    private final LongIntMap slotOf = new LongIntMap();  // cell -> slot
+    private int[] cellOf = new int[64];
+    private double[] g = new double[64];
+    private float[] h = new float[64];
+    private int[] parent = new int[64];  // slot, NONE for the start
+    private int[] prev = new int[64];    // fringe neighbors, OUT when not in the fringe
+    private int[] next = new int[64];
+    private int slots;
+
+    private int head;      // first slot in the fringe
+    private int cursor;    // slot this pass looks at next, NONE at the end of a pass
+    private double limit;
+    private double nextLimit;  // smallest f over the limit so far this pass
+    private int passes;
+    private long expansions;
+
+    public FringeSearch() {
+        this(new ManhattanHeuristic());
+    }
+
+    public FringeSearch(Heuristic heuristic) {
+        this.heuristic = heuristic;
+    }
+
+    @Override
+    public void init(Grid grid, Cell start, Cell goal) {
+        grid = grid.snapshot();
+        this.grid = grid;
+        this.startCell = grid.getCell(start.getRow(), start.getCol());
+        this.endCell = grid.getCell(goal.getRow(), goal.getCol());
+        this.goal = grid.indexOf(endCell);
+        this.state = new SearchState(grid);
+        finished = false;
+        pathFound = false;
+        goalSlot = NONE;
+        slotOf.clear();
+        slots = 0;
+        head = NONE;
+        cursor = NONE;
+        passes = 0;
+        expansions = 0;
+
+        if (!grid.getComponents().isConnected(startCell, endCell)) {
+            finished = true;
+            return;
+        }
+        estimates = heuristic.prepare(grid, endCell);
+        int first = slotFor(grid.indexOf(startCell));
+        g[first] = 0;
+        parent[first] = NONE;
+        insertAfter(NONE, first);
+        limit = h[first];
+        nextLimit = Double.POSITIVE_INFINITY;
+        cursor = first;
+        passes = 1;
+    }
+
+    @Override
+    public boolean step() {
+        if (finished) return true;
+
+        while (true) {
+            if (cursor == NONE) {
+                // end of a pass, go round again with the smallest f that was left over
+                if (head == NONE || nextLimit == Double.POSITIVE_INFINITY) {
+                    finished = true;
+                    return true;
+                }
+                limit = nextLimit;
+                nextLimit = Double.POSITIVE_INFINITY;
+                cursor = head;
+                passes++;
+            }
+
+            int slot = cursor;
+            double f = g[slot] + h[slot];
+            if (f > limit) {
+                nextLimit = Math.min(nextLimit, f);
+                cursor = next[slot];
+                continue;
+            }
+            if (cellOf[slot] == goal) {
+                finished = true;
+                pathFound = true;
+                goalSlot = slot;
+                if (state.isWatched()) {
+                    for (Cell cell : getPath()) {
+                        state.setInPath(cell, true);
+                    }
+                }
+                return true;
+            }
+            expand(slot);
+            return false;
+        }
+    }
+
+    // times a cell was expanded, again every time it was reached more cheaply
+    public long getExpansions() {
+        return expansions;
+    }
+
+    public int getPasses() {
+        return passes;
+    }
+
+    // cells reached so far, each one has a slot
+    public int getReachedCount() {
+        return slots;
+    }
+
+    // what the slots and the map from cells to them take up, the search state not included
+    public long getMemoryBytes() {
+        return (long) cellOf.length * (4 * Integer.BYTES + Double.BYTES + Float.BYTES) + slotOf.getMemoryBytes();
+    }
+
+    @Override
+    public boolean isFinished() {
+        return finished;
+    }
+
+    @Override
+    public boolean hasPath() {
+        return pathFound;
+    }
+
+    @Override
+    public List<Cell> getPath() {
+        if (!pathFound) return Collections.emptyList();
+        List<Cell> path = new ArrayList<>();
+        for (int slot = goalSlot; slot != NONE; slot = parent[slot]) {
+            path.add(grid.cellAt(cellOf[slot]));
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    @Override
+    public CompactPath getCompactPath() {
+        if (!pathFound) return CompactPath.NONE;
+        return CompactPath.of(getPath());
+    }
+
+    @Override
+    public SearchState getState() {
+        return state;
+    }
+
+    // children go in right after the cell, in reverse so the first direction comes up first,
+    // then the cell leaves the fringe and the pass carries on with its first child
+    private void expand(int slot) {
+        expansions++;
+        Cell cell = grid.cellAt(cellOf[slot]);
+        for (int dir = Grid.DIRECTIONS - 1; dir >= 0; dir--) {
+            Cell neighbor = grid.getNeighbor(cell, dir);
+            if (neighbor == null || neighbor.isWall()) continue;
+            int index = grid.indexOf(neighbor);
+            double cost = g[slot] + grid.getWeight(cell, dir);
+            int child = slotOf.get(index, NONE);
+            if (child != NONE && cost >= g[child]) continue;  // been there at least as cheaply
+            if (child == NONE) {
+                child = slotFor(index);
+            } else if (prev[child] != OUT) {
+                unlink(child);
+            }
+            g[child] = cost;
+            parent[child] = slot;
+            insertAfter(slot, child);
+        }
+        cursor = next[slot];
+        unlink(slot);
+        if (state.isWatched()) state.setInClosedSet(cell, true);
+    }
+
+    private int slotFor(int cell) {
+        if (slots == cellOf.length) {
+            int capacity = slots * 2;
+            cellOf = Arrays.copyOf(cellOf, capacity);
+            g = Arrays.copyOf(g, capacity);
+            h = Arrays.copyOf(h, capacity);
+            parent = Arrays.copyOf(parent, capacity);
+            prev = Arrays.copyOf(prev, capacity);
+            next = Arrays.copyOf(next, capacity);
+        }
+        int slot = slots++;
+        slotOf.put(cell, slot);
+        cellOf[slot] = cell;
+        h[slot] = (float) estimates.estimate(grid.cellAt(cell), endCell);
+        prev[slot] = OUT;
+        return slot;
+    }
+
+    // after is NONE for the front of the fringe
+    private void insertAfter(int after, int slot) {
+        int following = after == NONE ? head : next[after];
+        prev[slot] = after;
+        next[slot] = following;
+        if (after == NONE) {
+            head = slot;
+        } else {
+            next[after] = slot;
+        }
+        if (following != NONE) prev[following] = slot;
+        if (state.isWatched()) {
+            Cell cell = grid.cellAt(cellOf[slot]);
+            state.setInClosedSet(cell, false);  // reached more cheaply, it'll be expanded again
+            state.setInOpenSet(cell, true);
+        }
+    }
+
+    private void unlink(int slot) {
+        int before = prev[slot];
+        int after = next[slot];
+        if (before == NONE) {
+            head = after;
+        } else {
+            next[before] = after;
+        }
+        if (after != NONE) prev[after] = before;
+        prev[slot] = OUT;
+        if (state.isWatched()) state.setInOpenSet(grid.cellAt(cellOf[slot]), false);
+    }
+}
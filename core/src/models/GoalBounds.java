@@ -0,0 +1,215 @@
+package models;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+// goal bounding: for every cell and every direction out of it, the bounding rectangle of the
+// cells whose shortest path from that cell starts by going that way. a search heading for a
+// goal outside the rectangle can skip the edge, whatever the heuristic says, because some
+// other first move gets there at least as cheaply. following the recorded first moves from
+// any cell leads to the goal along a shortest path and none of those edges get skipped, so
+// dijkstra and a* still find optimal paths, they just look at a lot less of the map.
+// building it is one dijkstra per cell (run in parallel), which only pays off on maps that
+// don't change and get queried a lot. the rectangles are int16 row/col pairs, 32 bytes a
+// cell, and save() writes them to a file that load() maps back in later
+public class GoalBounds {
+    private static final int MAGIC = 0x50474244;  // "PGBD"
+    public static final int FORMAT = 1;  // bumped whenever the file layout changes
+    private static final int HEADER_BYTES = 24;
+    private static final int PER_CELL = Grid.DIRECTIONS * 4;  // min row, min col, max row, max col
+    private static final short EMPTY_MIN = Short.MAX_VALUE;   // min > max, contains nothing
+    private static final short EMPTY_MAX = -1;
+
+    private final int rows;
+    private final int cols;
+    private final long contentHash;
+    private final ShortBuffer boxes;  // PER_CELL shorts per cell index
+
+    // grid version the boxes are known to fit, checked again whenever a search brings another
+    private Grid checkedOrigin;
+    private long checkedVersion = -1;
+
+    private GoalBounds(int rows, int cols, long contentHash, ShortBuffer boxes) {
+        this.rows = rows;
+        this.cols = cols;
+        this.contentHash = contentHash;
+        this.boxes = boxes;
+    }
+
+    // progress and cancelled may be null, a cancelled build throws CancellationException
+    public static GoalBounds compute(Grid grid, DistanceMatrix.Progress progress, BooleanSupplier cancelFlag) {
+        BooleanSupplier cancelled = cancelFlag == null ? () -> false : cancelFlag;
+        Grid snapshot = grid.snapshot();
+        int rows = snapshot.getRows();
+        int cols = snapshot.getCols();
+        if (rows > Short.MAX_VALUE || cols > Short.MAX_VALUE) {
+            throw new IllegalArgumentException(rows + "x" + cols + " doesn't fit 16 bit coordinates");
+        }
+        int n = snapshot.getIndexSize();
+        short[] boxes = new short[n * PER_CELL];
+
+        AtomicInteger done = new AtomicInteger();
+        ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(() -> new Scratch(n));
+        IntStream.range(0, n).parallel().forEach(source -> {
+            if (cancelled.getAsBoolean()) return;
+            scratch.get().search(snapshot, source, boxes);
+            int finished = done.incrementAndGet();
+            if (progress != null) progress.sourceDone(finished, n);
+        });
+        if (cancelled.getAsBoolean() && done.get() < n) {
+            throw new CancellationException("goal bounds cancelled after " + done.get() + " of " + n + " cells");
+        }
+
+        GoalBounds bounds = new GoalBounds(rows, cols, snapshot.contentHash(), ShortBuffer.wrap(boxes));
+        bounds.checkedOrigin = snapshot.getOrigin();
+        bounds.checkedVersion = snapshot.getVersion();
+        return bounds;
+    }
+
+    public void save(Path file) throws IOException {
+        long bytes = HEADER_BYTES + (long) boxes.capacity() * Short.BYTES;
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IOException(rows + "x" + cols + " is more than one mapping holds");
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(0, MAGIC).putInt(4, FORMAT).putInt(8, rows).putInt(12, cols).putLong(16, contentHash);
+            buffer.position(HEADER_BYTES).slice().order(ByteOrder.LITTLE_ENDIAN).asShortBuffer()
+                    .put(boxes.duplicate().clear());
+            buffer.force();
+        }
+    }
+
+    // maps a file written by save() read-only. whether it fits a grid is only checked
+    // when a search uses it (isFor), a file for another grid just doesn't prune anything
+    public static GoalBounds load(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException(file + " is not a goal bounds file");
+        }
+        if (buffer.getInt(4) != FORMAT) throw new IOException("unsupported goal bounds format " + buffer.getInt(4));
+        int rows = buffer.getInt(8);
+        int cols = buffer.getInt(12);
+        if (rows < 0 || cols < 0 || buffer.capacity() != HEADER_BYTES + (long) rows * cols * PER_CELL * Short.BYTES) {
+            throw new IOException(file + " has the wrong size for " + rows + "x" + cols);
+        }
+        ShortBuffer boxes = buffer.position(HEADER_BYTES).slice().order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+        return new GoalBounds(rows, cols, buffer.getLong(16), boxes);
+    }
+
+    // true if the boxes were built for exactly this grid content. the hash is only worked out
+    // again when a search brings a version that hasn't been checked yet
+    public synchronized boolean isFor(Grid grid) {
+        if (grid.getRows() != rows || grid.getCols() != cols) return false;
+        Grid snapshot = grid.snapshot();
+        if (snapshot.getOrigin() == checkedOrigin && snapshot.getVersion() == checkedVersion) return true;
+        if (snapshot.contentHash() != contentHash) return false;
+        checkedOrigin = snapshot.getOrigin();
+        checkedVersion = snapshot.getVersion();
+        return true;
+    }
+
+    // false if no shortest path from the cell to the goal starts by going dir
+    public boolean allows(int index, int dir, int goalRow, int goalCol) {
+        int at = index * PER_CELL + dir * 4;
+        return goalRow >= boxes.get(at) && goalCol >= boxes.get(at + 1)
+                && goalRow <= boxes.get(at + 2) && goalCol <= boxes.get(at + 3);
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public long getMemoryBytes() {
+        return (long) boxes.capacity() * Short.BYTES;
+    }
+
+    // arrays one worker reuses for every source cell it gets
+    private static class Scratch {
+        private final double[] dist;
+        private final byte[] firstMove;  // direction out of the source the best path to a cell takes
+        private final IndexHeap heap;
+        private final IntList touched = new IntList();
+        private final int[] box = new int[PER_CELL];
+
+        Scratch(int cells) {
+            dist = new double[cells];
+            Arrays.fill(dist, Double.POSITIVE_INFINITY);
+            firstMove = new byte[cells];
+            heap = new IndexHeap(cells);
+        }
+
+        // one full dijkstra from the source, growing the box of the first move of every cell
+        // it settles. ties keep whichever first move got there first, one is enough
+        void search(Grid grid, int source, short[] boxes) {
+            for (int dir = 0; dir < Grid.DIRECTIONS; dir++) {
+                box[dir * 4] = box[dir * 4 + 1] = EMPTY_MIN;
+                box[dir * 4 + 2] = box[dir * 4 + 3] = EMPTY_MAX;
+            }
+            Cell sourceCell = grid.cellAt(source);
+            if (!sourceCell.isWall()) {
+                dist[source] = 0;
+                touched.add(source);
+                heap.insertOrDecrease(source, 0);
+            }
+
+            int cols = grid.getCols();
+            while (!heap.isEmpty()) {
+                int index = heap.poll();
+                double d = dist[index];
+                if (index != source) {
+                    int at = firstMove[index] * 4;
+                    int row = index / cols;
+                    int col = index % cols;
+                    box[at] = Math.min(box[at], row);
+                    box[at + 1] = Math.min(box[at + 1], col);
+                    box[at + 2] = Math.max(box[at + 2], row);
+                    box[at + 3] = Math.max(box[at + 3], col);
+                }
+
+                Cell cell = grid.cellAt(index);
+                for (int dir = 0; dir < Grid.DIRECTIONS; dir++) {
+                    Cell neighbor = grid.getNeighbor(cell, dir);
+                    if (neighbor == null || neighbor.isWall()) continue;
+                    int to = grid.indexOf(neighbor);
+                    double candidate = d + grid.getWeight(cell, dir);
+                    if (candidate < dist[to]) {
+                        if (dist[to] == Double.POSITIVE_INFINITY) touched.add(to);
+                        dist[to] = candidate;
+                        firstMove[to] = index == source ? (byte) dir : firstMove[index];
+                        heap.insertOrDecrease(to, candidate);
+                    }
+                }
+            }
+
+            int base = source * PER_CELL;
+            for (int i = 0; i < PER_CELL; i++) {
+                boxes[base + i] = (short) box[i];
+            }
+            for (int i = 0; i < touched.size(); i++) {
+                dist[touched.get(i)] = Double.POSITIVE_INFINITY;
+            }
+            touched.clear();
+        }
+    }
+}
@@ -0,0 +1,416 @@
+package models;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// manages the 2d grid of cells.
+// the grid you edit is the live one; snapshot() hands out a frozen copy of the current
+// version that shares its rows with the live grid. the live grid copies a block of rows
+// the first time it writes to it after a snapshot, so a search can keep reading its
+// snapshot without locks while edits carry on in the next version
+public class Grid {
+    // rows are shared and copied in blocks of this many
+    static final int BLOCK_ROWS = 16;
+
+    private final int rows;
+    private final int cols;
+    private final Cell[][] cells;
+    private WeightModel weights;  // edge weights are worked out from this on demand
+    private final List<GridListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile ComponentIndex components;  // built the first time someone asks
+
+    private final Grid origin;      // the live grid, this for the live grid itself
+    private long version;           // live: version being edited, snapshot: version it froze
+    private final long[] blockOwner;  // version that has its own copy of each block, null in snapshots
+    private boolean weightsShared;  // a snapshot still uses the current weight model
+    private Grid latestSnapshot;    // handed out again until the next edit
+
+    // directions, in the same order getNeighbors() returns them
+    public static final int LEFT = 0;
+    public static final int RIGHT = 1;
+    public static final int UP = 2;
+    public static final int DOWN = 3;
+    public static final int DIRECTIONS = 4;
+    private static final int[] DR = {0, 0, -1, 1};
+    private static final int[] DC = {-1, 1, 0, 0};
+
+    public  Grid(int rows, int cols) {
+        this(rows, cols, new SplittableRandom().nextLong());
+    }
+
+    // same seed gives the exact same weights, handy for reproducing a run
+    public Grid(int rows, int cols, long weightSeed) {
+        this.rows = rows;
+        this.cols = cols;
+        this.cells= new Cell[rows][cols];
+        this.weights = new WeightModel(weightSeed);
+        this.origin = this;
+        this.blockOwner = new long[(rows + BLOCK_ROWS - 1) / BLOCK_ROWS];
+        // create all the cells, a stripe of rows per thread
+        RowStripes.forEach(rows, weightSeed, (stripe, fromRow, toRow, random) -> {
+            for(int i=fromRow;i<toRow;i++){
+                for(int j=0;j<cols;j++){
+                    this.cells[i][j]=new Cell(i,j);
+                }
+            }
+        });
+    }
+
+    // snapshot of the live grid, rows are shared until the live grid writes to them
+    private Grid(Grid live) {
+        this.rows = live.rows;
+        this.cols = live.cols;
+        this.cells = live.cells.clone();
+        this.weights = live.weights;
+        this.origin = live;
+        this.version = live.version;
+        this.blockOwner = null;
+    }
+
+    // frozen copy of the grid as it is now. taking one is cheap (one pointer per row, one per
+    // block of component labels and a copy of the small union-find behind them), and asking
+    // again without any edits in between gives back the same snapshot
+    public synchronized Grid snapshot() {
+        if (isSnapshot()) return this;
+        if (latestSnapshot == null) {
+            Grid snapshot = new Grid(this);
+            snapshot.components = getComponents().copyFor(snapshot);
+            latestSnapshot = snapshot;
+            version++;  // every block is shared now, edits from here on are the next version
+            weightsShared = true;
+        }
+        return latestSnapshot;
+    }
+
+    public boolean isSnapshot() {
+        return origin != this;
+    }
+
+    // the live grid this one was taken from (itself if it is the live grid)
+    public Grid getOrigin() {
+        return origin;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public static int opposite(int dir) {
+        return dir ^ 1;  // left<->right, up<->down
+    }
+
+    public static int rowOffset(int dir) {
+        return DR[dir];
+    }
+
+    public static int colOffset(int dir) {
+        return DC[dir];
+    }
+
+    // the cell next to this one in the given direction, null off the edge of the map
+    public Cell getNeighbor(Cell cell, int dir) {
+        int r = cell.getRow() + DR[dir];
+        int c = cell.getCol() + DC[dir];
+        if (!inBounds(r, c)) return null;
+        return cells[r][c];
+    }
+
+    // cost of moving out of cell in direction dir, infinity if it's off the map or into a wall
+    public double getWeight(Cell cell, int dir) {
+        Cell neighbor = getNeighbor(cell, dir);
+        if (neighbor == null) return Double.POSITIVE_INFINITY;
+        return weights.weight(cell.getRow(), cell.getCol(), dir, neighbor);
+    }
+
+    // hand edit a single directed edge, overrides the generated weight
+    public synchronized void setEdgeWeight(Cell cell, int dir, double weight) {
+        writableWeights().setOverride(cell.getRow(), cell.getCol(), dir, weight);
+        notifyCellChanged(cells[cell.getRow()][cell.getCol()]);
+    }
+
+    public synchronized void clearEdgeWeight(Cell cell, int dir) {
+        writableWeights().clearOverride(cell.getRow(), cell.getCol(), dir);
+        notifyCellChanged(cells[cell.getRow()][cell.getCol()]);
+    }
+
+    // turns a cell into a wall or back (a cell that stops being a wall keeps WALL terrain
+    // until it gets a new one, setTerrain() does both at once)
+    public synchronized void setWall(int row, int col, boolean wall) {
+        Cell cell = writableCell(row, col);
+        cell.setWall(wall);
+        notifyCellChanged(cell);
+    }
+
+    public synchronized void setTerrain(int row, int col, Cell.TerrainType terrain) {
+        Cell cell = writableCell(row, col);
+        cell.setTerrain(terrain);
+        notifyCellChanged(cell);
+    }
+
+    // applies a whole batch of terrain changes under one lock. cells that already had the
+    // terrain they're set to are skipped, listeners hear about the rest in one cellsChanged()
+    // call. weights come from the terrain on demand, so there are no edges to patch.
+    // returns how many cells actually changed
+    public synchronized int apply(GridEdit edit) {
+        checkLive();
+        if (edit.getRows() != rows || edit.getCols() != cols) {
+            throw new IllegalArgumentException("edit is for a " + edit.getRows() + "x" + edit.getCols() + " grid");
+        }
+        List<Cell> changed = new ArrayList<>(edit.size());
+        for (int i = 0; i < edit.size(); i++) {
+            int index = edit.indexAt(i);
+            Cell.TerrainType terrain = edit.terrainAt(i);
+            if (cellAt(index).getTerrain() == terrain) continue;
+            Cell cell = writableCell(index / cols, index % cols);
+            cell.setTerrain(terrain);
+            changed.add(cell);
+        }
+        if (!changed.isEmpty()) notifyCellsChanged(changed);
+        return changed.size();
+    }
+
+    // total weight of a path given as consecutive cells
+    public double getPathCost(List<Cell> path) {
+        double cost = 0;
+        for (int i = 0; i < path.size() - 1; i++) {
+            cost += getEdgeWeight(path.get(i), path.get(i + 1));
+        }
+        return cost;
+    }
+
+    // edges going out of a cell, made fresh on every call (mostly for drawing)
+    public List<Edge> getEdges(Cell cell) {
+        List<Edge> edges = new ArrayList<>(DIRECTIONS);
+        for (int dir = 0; dir < DIRECTIONS; dir++) {
+            Cell neighbor = getNeighbor(cell, dir);
+            if (neighbor != null && !neighbor.isWall()) {
+                edges.add(new Edge(neighbor, getWeight(cell, dir)));
+            }
+        }
+        return edges;
+    }
+
+    public WeightModel getWeightModel() {
+        return weights;
+    }
+
+    // rolls a new set of weights (hand edited ones are dropped)
+    public synchronized void reseedWeights(long weightSeed) {
+        checkLive();
+        latestSnapshot = null;
+        this.weights = new WeightModel(weightSeed);
+        weightsShared = false;
+        notifyGridChanged();
+    }
+
+    public long getWeightSeed() {
+        return weights.getSeed();
+    }
+
+    // replaces the terrain of every cell from a row-major array of TerrainType
+    // ordinals (what the map generators produce). every row is rebuilt, so nothing
+    // is shared with older snapshots afterwards
+    public synchronized void applyTerrain(byte[] terrain) {
+        checkLive();
+        if (terrain.length != rows * cols) {
+            throw new IllegalArgumentException("expected " + rows * cols + " cells, got " + terrain.length);
+        }
+        latestSnapshot = null;
+        Cell.TerrainType[] types = Cell.TerrainType.values();
+        RowStripes.forEach(rows, 0L, (stripe, fromRow, toRow, random) -> {
+            for (int r = fromRow; r < toRow; r++) {
+                Cell[] row = new Cell[cols];
+                for (int c = 0; c < cols; c++) {
+                    row[c] = new Cell(r, c);
+                    row[c].setTerrain(types[terrain[r * cols + c]]);
+                }
+                cells[r] = row;
+            }
+        });
+        Arrays.fill(blockOwner, version);
+        notifyGridChanged();
+    }
+
+    // hash of everything a search can see: the size, every cell's terrain and the weight of
+    // every edge. two grids with the same hash give the same paths, so precomputed data
+    // saved to disk can tell whether it still fits the grid it's loaded for
+    public long contentHash() {
+        Grid grid = snapshot();
+        long h = 0x9E3779B97F4A7C15L * (31L * rows + cols);
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                Cell cell = grid.cells[r][c];
+                h = mix(h + cell.getTerrain().ordinal());
+                if (cell.isWall()) continue;
+                for (int dir = 0; dir < DIRECTIONS; dir++) {
+                    double weight = grid.getWeight(cell, dir);
+                    if (!Double.isInfinite(weight)) h = mix(h ^ (Double.doubleToLongBits(weight) + dir));
+                }
+            }
+        }
+        return h;
+    }
+
+    private static long mix(long h) {
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
+    }
+
+    public int getRows() {
+        return rows;
+    }
+    public int getCols() {
+        return cols;
+    }
+    public Cell[][] getCells() {
+        return cells;
+    }
+    public Cell getCell(int i, int j) {
+        if(!inBounds(i,j)) return null;
+        return cells[i][j];
+    }
+
+    public boolean inBounds(int i, int j) {
+        return i>=0 && i<rows && j>=0 && j<cols;
+    }
+
+    // flat index of a cell, used by code that keeps per-cell data in plain arrays
+    public int indexOf(Cell cell) {
+        return indexOf(cell.getRow(), cell.getCol());
+    }
+
+    public int indexOf(int row, int col) {
+        return row * cols + col;
+    }
+
+    public Cell cellAt(int index) {
+        if (index < 0 || index >= getIndexSize()) return null;
+        return cells[index / cols][index % cols];
+    }
+
+    // how long an array indexed by indexOf() has to be
+    public int getIndexSize() {
+        return rows * cols;
+    }
+
+    // weight of the edge going from -> to, infinity if they aren't neighbors
+    public double getEdgeWeight(Cell from, Cell to) {
+        for (int dir = 0; dir < DIRECTIONS; dir++) {
+            // compare positions, the cells may come from different versions of the grid
+            Cell neighbor = getNeighbor(from, dir);
+            if (neighbor != null && neighbor.isAt(to)) {
+                return getWeight(from, dir);
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    // gets all 4-directional neighbors of a cell
+    // used by bfs/dfs which don't use the edge system
+    public List<Cell> getNeighbors(Cell cell) {
+
+        if (inBounds(cell.getRow(), cell.getCol())){
+
+            List<Cell> res = new ArrayList<>();
+            if (inBounds( cell.getRow(), cell.getCol() - 1)) {
+                res.add(cells[cell.getRow()][cell.getCol() - 1]);
+            }
+            if (inBounds( cell.getRow(), cell.getCol() + 1)) {
+                res.add(cells[cell.getRow()][cell.getCol() + 1]);
+            }
+            if (inBounds( cell.getRow()-1, cell.getCol())) {
+                res.add(cells[cell.getRow() - 1][cell.getCol()]);
+            }
+            if (inBounds( cell.getRow()+1, cell.getCol())) {
+                res.add(cells[cell.getRow() + 1][cell.getCol()]);
+            }
+            return res;
+        }
+        return null;
+    }
+
+    // connected regions of non-wall cells, kept up to date through the listeners
+    public ComponentIndex getComponents() {
+        ComponentIndex index = components;
+        if (index == null) {
+            // searches on other threads can get here at the same time
+            synchronized (this) {
+                index = components;
+                if (index == null) {
+                    index = new ComponentIndex(this);
+                    if (!isSnapshot()) addGridListener(index);
+                    components = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    public void addGridListener(GridListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeGridListener(GridListener listener) {
+        listeners.remove(listener);
+    }
+
+    // call this after changing a cell directly so cached data can catch up
+    public void notifyCellChanged(Cell cell) {
+        for (GridListener listener : listeners) {
+            listener.cellChanged(cell);
+        }
+    }
+
+    public void notifyCellsChanged(List<Cell> cells) {
+        for (GridListener listener : listeners) {
+            listener.cellsChanged(cells);
+        }
+    }
+
+    public void notifyGridChanged() {
+        for (GridListener listener : listeners) {
+            listener.gridChanged();
+        }
+    }
+
+    private void checkLive() {
+        if (isSnapshot()) {
+            throw new IllegalStateException("grid snapshots are read-only, edit the live grid instead");
+        }
+    }
+
+    // the cell at (row, col) in a block that no snapshot shares, copying the block if needed
+    private Cell writableCell(int row, int col) {
+        checkLive();
+        if (!inBounds(row, col)) {
+            throw new IndexOutOfBoundsException("no cell at " + row + "," + col);
+        }
+        latestSnapshot = null;
+        int block = row / BLOCK_ROWS;
+        if (blockOwner[block] != version) {
+            int end = Math.min(rows, (block + 1) * BLOCK_ROWS);
+            for (int r = block * BLOCK_ROWS; r < end; r++) {
+                Cell[] copy = new Cell[cols];
+                for (int c = 0; c < cols; c++) {
+                    copy[c] = new Cell(cells[r][c]);
+                }
+                cells[r] = copy;
+            }
+            blockOwner[block] = version;
+        }
+        return cells[row][col];
+    }
+
+    private WeightModel writableWeights() {
+        checkLive();
+        latestSnapshot = null;
+        if (weightsShared) {
+            weights = new WeightModel(weights);
+            weightsShared = false;
+        }
+        return weights;
+    }
+
+
+
+}
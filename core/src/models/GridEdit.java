@@ -0,0 +1,78 @@
+package models;
+
+import java.util.Arrays;
+
+// terrain changes collected up front and handed to Grid.apply() in one go, so painting a
+// few hundred cells is one lock, one copy of each touched block and one listener callback
+// instead of a full round of all of that per cell. the same cell set twice keeps the last
+// terrain. an edit can be reused after clear(), it remembers which cells it touched so
+// clearing doesn't walk the whole grid
+public class GridEdit {
+    private static final byte NONE = -1;
+    private static final Cell.TerrainType[] TYPES = Cell.TerrainType.values();
+
+    private final int rows;
+    private final int cols;
+    private final byte[] terrain;  // pending TerrainType ordinal per cell index, NONE if untouched
+    private final IntList touched = new IntList();
+
+    public GridEdit(Grid grid) {
+        this.rows = grid.getRows();
+        this.cols = grid.getCols();
+        this.terrain = new byte[rows * cols];
+        Arrays.fill(terrain, NONE);
+    }
+
+    // cells off the grid are ignored, brushes near the edge don't have to clip themselves
+    public void set(int row, int col, Cell.TerrainType type) {
+        if (row < 0 || row >= rows || col < 0 || col >= cols) return;
+        int index = row * cols + col;
+        if (terrain[index] == NONE) touched.add(index);
+        terrain[index] = (byte) type.ordinal();
+    }
+
+    // every cell of the rectangle between two corners, in any order
+    public void fillRect(int row0, int col0, int row1, int col1, Cell.TerrainType type) {
+        int top = Math.max(0, Math.min(row0, row1));
+        int bottom = Math.min(rows - 1, Math.max(row0, row1));
+        int left = Math.max(0, Math.min(col0, col1));
+        int right = Math.min(cols - 1, Math.max(col0, col1));
+        for (int r = top; r <= bottom; r++) {
+            for (int c = left; c <= right; c++) {
+                set(r, c, type);
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return touched.isEmpty();
+    }
+
+    public int size() {
+        return touched.size();
+    }
+
+    public void clear() {
+        for (int i = 0; i < touched.size(); i++) {
+            terrain[touched.get(i)] = NONE;
+        }
+        touched.clear();
+    }
+
+    int getRows() {
+        return rows;
+    }
+
+    int getCols() {
+        return cols;
+    }
+
+    // cell index of the i-th cell touched
+    int indexAt(int i) {
+        return touched.get(i);
+    }
+
+    Cell.TerrainType terrainAt(int i) {
+        return TYPES[terrain[touched.get(i)]];
+    }
+}
@@ -0,0 +1,146 @@
+package models;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+// plain text grid files so maps can be passed around without the gui
+//
+//   # comments (hash and a space, rows never have spaces) and blank lines are skipped
+//   grid <rows> <cols> [weight seed]
+//   one line of <cols> characters per row:
+//     .  normal    s  sand    ~  water    ^  mountain    #  wall
+//   weight <row> <col> <left|right|up|down> <value>   (optional hand edited edges, value at least 1)
+public final class GridFile {
+    private static final String SYMBOLS = ".s~^#";  // indexed by TerrainType ordinal
+    private static final String[] DIRECTION_NAMES = {"left", "right", "up", "down"};
+
+    private GridFile() {
+    }
+
+    public static Grid read(Path path) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return read(reader);
+        }
+    }
+
+    public static Grid read(BufferedReader reader) throws IOException {
+        Grid grid = null;
+        byte[] terrain = null;
+        int row = 0;
+        int lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("# ")) {
+                continue;
+            }
+
+            if (grid == null) {
+                String[] parts = trimmed.split("\\s+");
+                if (!parts[0].equals("grid") || parts.length < 3) {
+                    throw error(lineNumber, "expected 'grid <rows> <cols> [seed]'");
+                }
+                int rows = parseInt(parts[1], lineNumber);
+                int cols = parseInt(parts[2], lineNumber);
+                if (rows <= 0 || cols <= 0) throw error(lineNumber, "grid size has to be positive");
+                grid = parts.length > 3 ? new Grid(rows, cols, parseLong(parts[3], lineNumber)) : new Grid(rows, cols);
+                terrain = new byte[rows * cols];
+            } else if (row < grid.getRows()) {
+                if (trimmed.length() != grid.getCols()) {
+                    throw error(lineNumber, "row " + row + " has " + trimmed.length() + " cells, expected " + grid.getCols());
+                }
+                for (int c = 0; c < trimmed.length(); c++) {
+                    int type = SYMBOLS.indexOf(trimmed.charAt(c));
+                    if (type < 0) throw error(lineNumber, "unknown cell '" + trimmed.charAt(c) + "'");
+                    terrain[row * grid.getCols() + c] = (byte) type;
+                }
+                row++;
+                if (row == grid.getRows()) {
+                    grid.applyTerrain(terrain);
+                }
+            } else {
+                readWeight(grid, trimmed, lineNumber);
+            }
+        }
+
+        if (grid == null) throw new IOException("empty grid file");
+        if (row < grid.getRows()) throw new IOException("grid file ended after " + row + " of " + grid.getRows() + " rows");
+        return grid;
+    }
+
+    public static void write(Grid grid, Path path) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            write(grid, writer);
+        }
+    }
+
+    public static void write(Grid grid, Writer writer) throws IOException {
+        writer.write("grid " + grid.getRows() + " " + grid.getCols() + " " + grid.getWeightSeed() + "\n");
+        StringBuilder line = new StringBuilder(grid.getCols() + 1);
+        for (int r = 0; r < grid.getRows(); r++) {
+            line.setLength(0);
+            for (int c = 0; c < grid.getCols(); c++) {
+                line.append(SYMBOLS.charAt(grid.getCell(r, c).getTerrain().ordinal()));
+            }
+            line.append('\n');
+            writer.write(line.toString());
+        }
+        for (Map.Entry<Long, Double> override : grid.getWeightModel().getOverrides().entrySet()) {
+            long key = override.getKey();
+            int r = (int) (key >>> 32);
+            int c = (int) ((key >>> 2) & 0x3FFFFFFF);
+            int dir = (int) (key & 3);
+            writer.write("weight " + r + " " + c + " " + DIRECTION_NAMES[dir] + " " + override.getValue() + "\n");
+        }
+    }
+
+    private static void readWeight(Grid grid, String line, int lineNumber) throws IOException {
+        String[] parts = line.split("\\s+");
+        if (parts.length != 5 || !parts[0].equals("weight")) {
+            throw error(lineNumber, "expected 'weight <row> <col> <direction> <value>'");
+        }
+        int r = parseInt(parts[1], lineNumber);
+        int c = parseInt(parts[2], lineNumber);
+        Cell cell = grid.getCell(r, c);
+        if (cell == null) throw error(lineNumber, r + "," + c + " is outside the grid");
+
+        int dir = -1;
+        for (int d = 0; d < DIRECTION_NAMES.length; d++) {
+            if (DIRECTION_NAMES[d].equals(parts[3])) dir = d;
+        }
+        if (dir < 0) throw error(lineNumber, "unknown direction '" + parts[3] + "'");
+
+        try {
+            grid.setEdgeWeight(cell, dir, Double.parseDouble(parts[4]));
+        } catch (IllegalArgumentException e) {
+            throw error(lineNumber, e.getMessage());
+        }
+    }
+
+    private static int parseInt(String text, int lineNumber) throws IOException {
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            throw error(lineNumber, "'" + text + "' is not a number");
+        }
+    }
+
+    private static long parseLong(String text, int lineNumber) throws IOException {
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            throw error(lineNumber, "'" + text + "' is not a number");
+        }
+    }
+
+    private static IOException error(int lineNumber, String message) {
+        return new IOException("line " + lineNumber + ": " + message);
+    }
+}
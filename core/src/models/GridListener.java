@@ -0,0 +1,20 @@
+package models;
+
+import java.util.List;
+
+// gets told when cells on the grid change so cached data can be updated
+public interface GridListener {
+
+    // a single cell changed (wall toggled, terrain changed...)
+    void cellChanged(Cell cell);
+
+    // a batch of cells changed together (Grid.apply), by default one cellChanged() each
+    default void cellsChanged(List<Cell> cells) {
+        for (Cell cell : cells) {
+            cellChanged(cell);
+        }
+    }
+
+    // lots of cells (or all the weights) changed at once
+    void gridChanged();
+}
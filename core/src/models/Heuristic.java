@@ -0,0 +1,73 @@
+package models;
+
+import java.util.Arrays;
+import java.util.List;
+
+// estimates the remaining cost between two cells for a*
+// must never overestimate or a* stops being optimal
+public interface Heuristic {
+
+    // past this many goals the minimum over all of them costs more per cell than it's worth
+    int MIN_OVER_GOALS = 16;
+
+    // lower bound on the cost from a cell to the nearest of a set of goals
+    interface GoalBound {
+        double estimate(Cell from);
+    }
+
+    // called once before a search so the heuristic can refresh anything it caches. the search
+    // does its estimates (and nearestOf) on what comes back, which for a heuristic that caches
+    // per grid is a fixed view of it for this snapshot, so later prepares and edits from other
+    // threads can't change it mid search. stateless heuristics just hand back themselves
+    default Heuristic prepare(Grid grid, Cell goal) {
+        return this;
+    }
+
+    double estimate(Cell from, Cell goal);
+
+    // bound to the nearest of several goals, called on what prepare() returned. for a handful of goals
+    // it's the minimum of estimate() over them; for more it's the manhattan distance to the
+    // nearest goal, worked out for every cell up front (every edge costs at least 1, so that
+    // never overestimates whatever the heuristic is)
+    default GoalBound nearestOf(Grid grid, List<Cell> goals) {
+        if (goals.size() <= MIN_OVER_GOALS) {
+            Cell[] targets = goals.toArray(new Cell[0]);
+            return from -> {
+                double best = Double.POSITIVE_INFINITY;
+                for (Cell goal : targets) {
+                    best = Math.min(best, estimate(from, goal));
+                }
+                return best;
+            };
+        }
+        int[] field = manhattanField(grid, goals);
+        return from -> field[grid.indexOf(from)];
+    }
+
+    // manhattan distance from every cell to the nearest goal, ignoring walls. two sweeps
+    // (down-right then up-left) give the exact l1 distance transform
+    static int[] manhattanField(Grid grid, List<Cell> goals) {
+        int rows = grid.getRows();
+        int cols = grid.getCols();
+        int[] field = new int[grid.getIndexSize()];
+        Arrays.fill(field, Integer.MAX_VALUE / 2);
+        for (Cell goal : goals) {
+            field[grid.indexOf(goal)] = 0;
+        }
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                int i = r * cols + c;
+                if (r > 0) field[i] = Math.min(field[i], field[i - cols] + 1);
+                if (c > 0) field[i] = Math.min(field[i], field[i - 1] + 1);
+            }
+        }
+        for (int r = rows - 1; r >= 0; r--) {
+            for (int c = cols - 1; c >= 0; c--) {
+                int i = r * cols + c;
+                if (r < rows - 1) field[i] = Math.min(field[i], field[i + cols] + 1);
+                if (c < cols - 1) field[i] = Math.min(field[i], field[i + 1] + 1);
+            }
+        }
+        return field;
+    }
+}
@@ -0,0 +1,107 @@
+package models;
+
+import java.util.Arrays;
+
+// binary min-heap of cell indices with decrease-key
+// used by the precomputation code that runs full dijkstras on primitive arrays
+public class IndexHeap {
+    private final int[] heap;      // cell indices ordered by key
+    private final int[] position;  // where each index sits in the heap, -1 if not in it
+    private final double[] keys;
+    private int size;
+
+    public IndexHeap(int capacity) {
+        heap = new int[capacity];
+        position = new int[capacity];
+        keys = new double[capacity];
+        Arrays.fill(position, -1);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(int index) {
+        return position[index] >= 0;
+    }
+
+    public double getKey(int index) {
+        return keys[index];
+    }
+
+    // adds the index or lowers its key if it's already in the heap
+    public void insertOrDecrease(int index, double key) {
+        int pos = position[index];
+        if (pos < 0) {
+            pos = size++;
+            heap[pos] = index;
+            position[index] = pos;
+            keys[index] = key;
+            siftUp(pos);
+        } else if (key < keys[index]) {
+            keys[index] = key;
+            siftUp(pos);
+        }
+    }
+
+    public int peek() {
+        return heap[0];
+    }
+
+    public int poll() {
+        int top = heap[0];
+        position[top] = -1;
+        size--;
+        if (size > 0) {
+            heap[0] = heap[size];
+            position[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            position[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private void siftUp(int pos) {
+        int index = heap[pos];
+        double key = keys[index];
+        while (pos > 0) {
+            int parentPos = (pos - 1) >>> 1;
+            int parent = heap[parentPos];
+            if (keys[parent] <= key) break;
+            heap[pos] = parent;
+            position[parent] = pos;
+            pos = parentPos;
+        }
+        heap[pos] = index;
+        position[index] = pos;
+    }
+
+    private void siftDown(int pos) {
+        int index = heap[pos];
+        double key = keys[index];
+        int half = size >>> 1;
+        while (pos < half) {
+            int child = 2 * pos + 1;
+            int right = child + 1;
+            if (right < size && keys[heap[right]] < keys[heap[child]]) {
+                child = right;
+            }
+            if (keys[heap[child]] >= key) break;
+            heap[pos] = heap[child];
+            position[heap[pos]] = pos;
+            pos = child;
+        }
+        heap[pos] = index;
+        position[index] = pos;
+    }
+}
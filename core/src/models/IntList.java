@@ -0,0 +1,62 @@
+package models;
+
+import java.util.Arrays;
+
+// growable list of ints without boxing every value into an Integer
+public class IntList {
+    private int[] values;
+    private int size;
+
+    public IntList() {
+        this(16);
+    }
+
+    public IntList(int capacity) {
+        values = new int[Math.max(capacity, 4)];
+    }
+
+    public void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    public int get(int i) {
+        if (i >= size) throw new IndexOutOfBoundsException(i + " >= " + size);
+        return values[i];
+    }
+
+    public void set(int i, int value) {
+        if (i >= size) throw new IndexOutOfBoundsException(i + " >= " + size);
+        values[i] = value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    // drops and returns the last value, for using the list as a stack
+    public int removeLast() {
+        if (size == 0) throw new IndexOutOfBoundsException("empty");
+        return values[--size];
+    }
+
+    // keeps the first size values
+    public void truncate(int size) {
+        if (size < 0 || size > this.size) throw new IndexOutOfBoundsException(size + " > " + this.size);
+        this.size = size;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
@@ -0,0 +1,292 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// iterative deepening a* (korf 1985) for maps too big for a search state per cell. it's a
+// depth-first search that gives up on any cell whose f = g + h is over a bound, and starts
+// again with a higher bound until the goal is in reach. the only thing it has to keep is the
+// path it's on, so it runs in memory proportional to the path length. the price is that it
+// expands cells over and over, within an iteration (every way of reaching a cell is a new
+// branch) and across them.
+// the transposition table cuts the first kind: it remembers the cheapest g each cell was
+// reached with in this iteration, and a branch that comes back to a cell no cheaper stops
+// there. that's still optimal (the cheaper visit explored everything this one would have,
+// with more budget left). the table only takes up to setTableLimit() cells, past that new
+// cells just aren't pruned, 0 turns it off.
+// the second kind is the real problem on weighted grids: raising the bound to the smallest f
+// that went over it (plain ida*) lets in a handful of cells per iteration, and there are as
+// many iterations as distinct f values on the way. so by default the next bound is picked
+// from a histogram of the f values that went over, far enough up that the next iteration
+// lets in about as many new cells as this one expanded (ida*_cr, sarkar et al. 1991). the
+// first goal found that way can be too expensive, so the iteration goes on with the bound
+// pulled down to just under its cost, and only ends on the cheapest one. setControlledGrowth(false)
+// goes back to plain ida*.
+// one step() is one expansion. flags only go into the search state while something is
+// watching it: cells on the current path are open, ones it has backed out of closed
+public class IterativeDeepeningAstar implements Pathfinding {
+    public static final int DEFAULT_TABLE_LIMIT = 1 << 20;  // cells, about 16 bytes each
+    private static final int MISSING = -1;  // never the bits of a float Float.floatToIntBits() made
+    private static final int BUCKETS = 256; // f values over the bound, one bucket per unit of cost
+
+    private final Heuristic heuristic;
+    private Heuristic estimates;  // what heuristic.prepare() gave this search
+    private int tableLimit = DEFAULT_TABLE_LIMIT;
+    private boolean controlledGrowth = true;
+    private Grid grid;
+    private Cell startCell;
+    private Cell endCell;
+    private int goal;
+    private SearchState state;  // only filled in when watched
+    private boolean finished;
+    private boolean pathFound;
+
+    // the path the depth-first search is on, one frame per cell
+    private int[] stackCell = new int[64];
+    private double[] stackG = new double[64];
+    private byte[] stackDir = new byte[64];  // next direction to try from the cell
+    private int depth;
+    private int[] best = new int[0];  // cheapest path to the goal this iteration, empty if none yet
+
+    private final LongIntMap table = new LongIntMap();  // cell -> float bits of its best g this iteration
+    private final long[] over = new long[BUCKETS];       // f values over the bound, by how far over
+    private double bound;
+    private double minOver;     // smallest f over the bound this iteration
+    private double maxOver;     // largest
+    private long iterationExpansions;
+    private int iterations;
+    private long expansions;
+    private long peakBytes;
+
+    public IterativeDeepeningAstar() {
+        this(new ManhattanHeuristic());
+    }
+
+    public IterativeDeepeningAstar(Heuristic heuristic) {
+        this.heuristic = heuristic;
+    }
+
+    // most cells the transposition table holds, 0 for none
+    public void setTableLimit(int cells) {
+        if (cells < 0) throw new IllegalArgumentException("table limit can't be negative");
+        this.tableLimit = cells;
+    }
+
+    // false raises the bound to the smallest f that went over it, like plain ida*
+    public void setControlledGrowth(boolean controlledGrowth) {
+        this.controlledGrowth = controlledGrowth;
+    }
+
+    @Override
+    public void init(Grid grid, Cell start, Cell goal) {
+        grid = grid.snapshot();
+        this.grid = grid;
+        this.startCell = grid.getCell(start.getRow(), start.getCol());
+        this.endCell = grid.getCell(goal.getRow(), goal.getCol());
+        this.goal = grid.indexOf(endCell);
+        this.state = new SearchState(grid);
+        finished = false;
+        pathFound = false;
+        depth = 0;
+        best = new int[0];
+        table.clear();
+        iterations = 0;
+        expansions = 0;
+        peakBytes = 0;
+
+        // walled off from each other, an ida* would only find out after searching everything
+        if (!grid.getComponents().isConnected(startCell, endCell)) {
+            finished = true;
+            return;
+        }
+        estimates = heuristic.prepare(grid, endCell);
+        if (startCell == endCell) {
+            best = new int[]{this.goal};
+            finish();
+            return;
+        }
+        bound = estimates.estimate(startCell, endCell);
+        startIteration();
+    }
+
+    @Override
+    public boolean step() {
+        if (finished) return true;
+
+        while (true) {
+            if (depth == 0) {
+                // the iteration is over: done if it found the goal, otherwise go again higher up
+                if (best.length > 0) {
+                    finish();
+                    return true;
+                }
+                if (minOver == Double.POSITIVE_INFINITY) {
+                    finished = true;
+                    return true;
+                }
+                bound = nextBound();
+                startIteration();
+                return false;
+            }
+
+            int top = depth - 1;
+            int dir = stackDir[top]++;
+            if (dir == Grid.DIRECTIONS) {
+                pop();
+                continue;
+            }
+            Cell cell = grid.cellAt(stackCell[top]);
+            Cell neighbor = grid.getNeighbor(cell, dir);
+            if (neighbor == null || neighbor.isWall()) continue;
+            int next = grid.indexOf(neighbor);
+            if (top > 0 && next == stackCell[top - 1]) continue;  // straight back where we came from
+
+            double g = stackG[top] + grid.getWeight(cell, dir);
+            double f = g + estimates.estimate(neighbor, endCell);
+            if (f > bound) {
+                if (best.length == 0) countOver(f);
+                continue;
+            }
+            if (next == goal) {
+                // keep it and only look for cheaper ones from here on
+                best = Arrays.copyOf(stackCell, depth + 1);
+                best[depth] = next;
+                bound = Math.nextDown(g);
+                continue;
+            }
+            // been here this iteration at least as cheaply
+            int known = table.get(next, MISSING);
+            if (known != MISSING && g >= Float.intBitsToFloat(known)) continue;
+            remember(next, g);
+            push(next, g);
+            return false;
+        }
+    }
+
+    // times a cell was expanded, the same cell counting again every time it's reached
+    public long getExpansions() {
+        return expansions;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    // most memory the path and the table took at any point, the search state not included
+    public long getPeakMemoryBytes() {
+        return peakBytes;
+    }
+
+    @Override
+    public boolean isFinished() {
+        return finished;
+    }
+
+    @Override
+    public boolean hasPath() {
+        return pathFound;
+    }
+
+    @Override
+    public List<Cell> getPath() {
+        if (!pathFound) return Collections.emptyList();
+        List<Cell> path = new ArrayList<>(best.length);
+        for (int cell : best) {
+            path.add(grid.cellAt(cell));
+        }
+        return path;
+    }
+
+    @Override
+    public CompactPath getCompactPath() {
+        if (!pathFound) return CompactPath.NONE;
+        return CompactPath.of(getPath());
+    }
+
+    @Override
+    public SearchState getState() {
+        return state;
+    }
+
+    private void startIteration() {
+        iterations++;
+        table.clear();
+        Arrays.fill(over, 0);
+        minOver = Double.POSITIVE_INFINITY;
+        maxOver = Double.NEGATIVE_INFINITY;
+        iterationExpansions = 0;
+        int start = grid.indexOf(startCell);
+        remember(start, 0);
+        push(start, 0);
+    }
+
+    private void countOver(double f) {
+        minOver = Math.min(minOver, f);
+        maxOver = Math.max(maxOver, f);
+        over[(int) Math.min(BUCKETS - 1, Math.ceil(f - bound) - 1)]++;
+    }
+
+    // plain ida* takes the smallest f that went over. controlled growth goes up the histogram
+    // until it has let in as many cells as this iteration expanded, so the work about doubles
+    private double nextBound() {
+        if (!controlledGrowth) return minOver;
+        long wanted = iterationExpansions;
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS - 1; bucket++) {
+            seen += over[bucket];
+            if (seen >= wanted) return Math.max(minOver, Math.min(maxOver, bound + bucket + 1));
+        }
+        return maxOver;
+    }
+
+    private void remember(int cell, double g) {
+        if (table.size() < tableLimit || table.containsKey(cell)) {
+            table.put(cell, Float.floatToIntBits((float) g));
+        }
+    }
+
+    // expands a cell: it goes on the path and its neighbors get tried next
+    private void push(int cell, double g) {
+        if (depth == stackCell.length) {
+            stackCell = Arrays.copyOf(stackCell, depth * 2);
+            stackG = Arrays.copyOf(stackG, depth * 2);
+            stackDir = Arrays.copyOf(stackDir, depth * 2);
+        }
+        stackCell[depth] = cell;
+        stackG[depth] = g;
+        stackDir[depth] = 0;
+        depth++;
+        expansions++;
+        iterationExpansions++;
+        long bytes = (long) stackCell.length * (Integer.BYTES + Double.BYTES + 1) + (long) best.length * Integer.BYTES
+                + table.getMemoryBytes();
+        if (bytes > peakBytes) peakBytes = bytes;
+        if (state.isWatched()) {
+            // closed again when it's backed out of, so a profile sees every re-expansion
+            Cell at = grid.cellAt(cell);
+            state.setInClosedSet(at, false);
+            state.setInOpenSet(at, true);
+        }
+    }
+
+    private void pop() {
+        depth--;
+        if (state.isWatched()) {
+            Cell cell = grid.cellAt(stackCell[depth]);
+            state.setInOpenSet(cell, false);
+            state.setInClosedSet(cell, true);
+        }
+    }
+
+    private void finish() {
+        finished = true;
+        pathFound = true;
+        if (state.isWatched()) {
+            for (int cell : best) {
+                state.setInPath(grid.cellAt(cell), true);
+            }
+        }
+    }
+}
@@ -0,0 +1,556 @@
+package models;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+// alt heuristic (a*, landmarks, triangle inequality)
+// picks a few landmark cells spread over the map and stores the exact distance
+// from and to each of them. for any landmark L the triangle inequality gives
+//   d(v,goal) >= d(L,goal) - d(L,v)   and   d(v,goal) >= d(v,L) - d(goal,L)
+// which knows about walls and weights, so it's a lot tighter than manhattan.
+// prepare() hands every search a View: the landmarks whose tables are good for its snapshot
+// and references to those tables, fixed at that moment. tables are only ever replaced, never
+// written into, so a search keeps reading the same numbers however the grid gets edited and
+// whoever prepares next
+public class LandmarkHeuristic implements Heuristic, GridListener {
+
+    // how landmarks get picked
+    public enum Strategy {
+        FARTHEST,  // each new landmark is the cell farthest (in steps) from the ones we already have
+        AVOID      // grows a shortest path tree and heads for the part the current landmarks cover worst
+    }
+
+    private static final long FRESH = Long.MAX_VALUE;  // no edit touched the table
+    private static final int MAGIC = 0x504c4d4b;  // "PLMK"
+    private static final int FORMAT = 2;  // 2: tables rounded down instead of summed in float
+    private static final int HEADER_BYTES = 16;
+
+    private final int landmarkCount;
+    private final Strategy strategy;
+    private final Heuristic fallback = new ManhattanHeuristic();
+    private final Random random;
+    private ArtifactCache cache;  // null = always select and compute
+
+    private Grid source;          // live grid we listen to for edits
+    private Grid grid;            // version the tables were last brought up to date on
+    private int[] landmarks;      // cell index of every landmark
+    private float[][] fromLandmark;  // [landmark][cell] distance landmark -> cell
+    private float[][] toLandmark;    // [landmark][cell] distance cell -> landmark
+    // grid versions of the first and last edit that touched each table since it was computed.
+    // a table is good for any snapshot from the one it was computed on up to its first touching
+    // edit, so a search that is already running keeps using it while the grid gets edited under
+    // it. older snapshots can't use it, the edits in between aren't tracked
+    private long[] computedAt;
+    private long[] firstTouch;
+    private long[] lastTouch;
+    private boolean needsSelection = true;
+    private long selectionVersion;   // grid version the edit that asked for a new selection went into
+    private volatile View latest;    // handed out by the last prepare(), what estimate() here reads
+
+    public LandmarkHeuristic(int landmarkCount) {
+        this(landmarkCount, Strategy.FARTHEST, 42L);
+    }
+
+    public LandmarkHeuristic(int landmarkCount, Strategy strategy, long seed) {
+        if (landmarkCount <= 0) {
+            throw new IllegalArgumentException("need at least one landmark");
+        }
+        this.landmarkCount = landmarkCount;
+        this.strategy = strategy;
+        this.random = new Random(seed);
+    }
+
+    // selections (landmarks and both tables) get kept in the cache and picked up again by the
+    // next run on the same map content, so only the first start on a map pays for them
+    public synchronized void setCache(ArtifactCache cache) {
+        this.cache = cache;
+    }
+
+    // searches on several threads can share one set of landmarks: everything that touches the
+    // selection is synchronized, and searches only read the view they got back from here.
+    // searches hand us a snapshot, edits show up on the live grid it came from.
+    // tables are (re)computed on the snapshot so they match what the search reads
+    @Override
+    public synchronized Heuristic prepare(Grid grid, Cell goal) {
+        Grid live = grid.getOrigin();
+        if (this.source != live) {
+            // different grid, forget everything about the old one
+            if (this.source != null) {
+                this.source.removeGridListener(this);
+            }
+            this.source = live;
+            live.addGridListener(this);
+            needsSelection = true;
+        }
+        this.grid = grid;
+
+        if (needsSelection) {
+            selectLandmarks();
+            needsSelection = grid.getVersion() < selectionVersion;
+        } else {
+            refreshStale();
+        }
+        latest = view();
+        return latest;
+    }
+
+    // estimates against whatever the last prepare() was for. only safe for a search on that
+    // same snapshot, searches should use the view prepare() gave them
+    @Override
+    public double estimate(Cell from, Cell goal) {
+        View view = latest;
+        return view == null ? fallback.estimate(from, goal) : view.estimate(from, goal);
+    }
+
+    // the landmarks whose tables match this snapshot, any other could overestimate
+    private View view() {
+        if (landmarks == null) return new View(grid, new int[0], new float[0][], new float[0][]);
+        long version = grid.getVersion();
+        IntList usable = new IntList();
+        for (int k = 0; k < landmarks.length; k++) {
+            if (computedAt[k] <= version && version < firstTouch[k]) usable.add(k);
+        }
+        int[] ks = usable.toArray();
+        int[] ids = new int[ks.length];
+        float[][] from = new float[ks.length][];
+        float[][] to = new float[ks.length][];
+        for (int j = 0; j < ks.length; j++) {
+            ids[j] = landmarks[ks[j]];
+            from[j] = fromLandmark[ks[j]];
+            to[j] = toLandmark[ks[j]];
+        }
+        return new View(grid, ids, from, to);
+    }
+
+    // one search's look at the landmarks, nothing in it changes after prepare()
+    private static final class View implements Heuristic {
+        private final Heuristic fallback = new ManhattanHeuristic();
+        private final Grid grid;
+        private final int[] landmarks;
+        private final float[][] fromLandmark;
+        private final float[][] toLandmark;
+
+        View(Grid grid, int[] landmarks, float[][] fromLandmark, float[][] toLandmark) {
+            this.grid = grid;
+            this.landmarks = landmarks;
+            this.fromLandmark = fromLandmark;
+            this.toLandmark = toLandmark;
+        }
+
+        @Override
+        public double estimate(Cell from, Cell goal) {
+            double best = fallback.estimate(from, goal);
+            int v = grid.indexOf(from);
+            int t = grid.indexOf(goal);
+            for (int k = 0; k < landmarks.length; k++) {
+                float[] fromTable = fromLandmark[k];
+                float[] toTable = toLandmark[k];
+
+                // d(L,t) <= d(L,v) + d(v,t)
+                float lv = fromTable[v];
+                float lt = fromTable[t];
+                if (lv != Float.POSITIVE_INFINITY && lt != Float.POSITIVE_INFINITY) {
+                    best = Math.max(best, difference(lt, lv));
+                }
+                // d(v,L) <= d(v,t) + d(t,L)
+                float vl = toTable[v];
+                float tl = toTable[t];
+                if (vl != Float.POSITIVE_INFINITY && tl != Float.POSITIVE_INFINITY) {
+                    best = Math.max(best, difference(vl, tl));
+                }
+            }
+            return best;
+        }
+
+        // for a set of goals the same inequalities hold against the nearest one:
+        //   d(v,G) >= min_g d(L,g) - d(L,v)   and   d(v,G) >= d(v,L) - max_g d(g,L)
+        // so each landmark only needs two numbers for the whole set, worked out here once
+        @Override
+        public GoalBound nearestOf(Grid grid, List<Cell> goals) {
+            GoalBound manhattan = Heuristic.super.nearestOf(grid, goals);
+            if (landmarks.length == 0) return manhattan;
+
+            Grid tables = this.grid;
+            float[][] from = fromLandmark;
+            float[][] to = toLandmark;
+            float[] nearestFrom = new float[from.length];  // min over goals of d(L,g)
+            float[] farthestTo = new float[from.length];   // max over goals of d(g,L)
+            for (int j = 0; j < from.length; j++) {
+                nearestFrom[j] = Float.POSITIVE_INFINITY;
+                for (Cell goal : goals) {
+                    int t = tables.indexOf(goal);
+                    nearestFrom[j] = Math.min(nearestFrom[j], from[j][t]);
+                    farthestTo[j] = Math.max(farthestTo[j], to[j][t]);
+                }
+            }
+
+            return cell -> {
+                double best = manhattan.estimate(cell);
+                int v = tables.indexOf(cell);
+                for (int j = 0; j < from.length; j++) {
+                    // an infinite entry means that side of the inequality says nothing
+                    float lv = from[j][v];
+                    if (lv != Float.POSITIVE_INFINITY && nearestFrom[j] != Float.POSITIVE_INFINITY) {
+                        best = Math.max(best, difference(nearestFrom[j], lv));
+                    }
+                    float vl = to[j][v];
+                    if (vl != Float.POSITIVE_INFINITY && farthestTo[j] != Float.POSITIVE_INFINITY) {
+                        best = Math.max(best, difference(vl, farthestTo[j]));
+                    }
+                }
+                return best;
+            };
+        }
+    }
+
+    // a - b for two table entries, never more than the true difference. entries are rounded
+    // down to float, so the true b can be up to one float step above the stored one: that
+    // step comes off, and the subtraction is done in double where it's exact
+    private static double difference(float a, float b) {
+        return (double) a - b - Math.ulp(b);
+    }
+
+    // the live view's nearestOf, for callers that didn't keep what prepare() returned
+    @Override
+    public GoalBound nearestOf(Grid grid, List<Cell> goals) {
+        View view = latest;
+        return view == null ? Heuristic.super.nearestOf(grid, goals) : view.nearestOf(grid, goals);
+    }
+
+    // only landmarks whose tables actually reach the changed cell get invalidated,
+    // cells in a part of the map a landmark can't reach never affect it
+    @Override
+    public synchronized void cellChanged(Cell cell) {
+        if (landmarks == null || needsSelection) return;
+
+        int index = grid.indexOf(cell);
+        for (int k = 0; k < landmarks.length; k++) {
+            if (landmarks[k] == index && cell.isWall()) {
+                // a landmark got walled in, pick a new set next time
+                needsSelection = true;
+                selectionVersion = source.getVersion();
+                return;
+            }
+            if (touches(fromLandmark[k], cell) || touches(toLandmark[k], cell)) {
+                long version = source.getVersion();
+                firstTouch[k] = Math.min(firstTouch[k], version);
+                lastTouch[k] = Math.max(lastTouch[k], version);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void gridChanged() {
+        needsSelection = true;
+        selectionVersion = source.getVersion();
+    }
+
+    public synchronized int[] getLandmarks() {
+        return landmarks == null ? new int[0] : landmarks.clone();
+    }
+
+    public synchronized int getStaleCount() {
+        if (firstTouch == null) return 0;
+        int count = 0;
+        for (long version : firstTouch) {
+            if (version != FRESH) count++;
+        }
+        return count;
+    }
+
+    // true if the cell or one of its neighbors has a finite distance in the table
+    private boolean touches(float[] table, Cell cell) {
+        if (table[grid.indexOf(cell)] != Float.POSITIVE_INFINITY) return true;
+        for (Cell neighbor : grid.getNeighbors(cell)) {
+            if (table[grid.indexOf(neighbor)] != Float.POSITIVE_INFINITY) return true;
+        }
+        return false;
+    }
+
+    private void refreshStale() {
+        long version = grid.getVersion();
+        // a table newer than this snapshot stays as it is, the search just goes without it
+        int[] dirty = IntStream.range(0, landmarks.length)
+                .filter(k -> computedAt[k] <= version && firstTouch[k] <= version).toArray();
+        if (dirty.length == 0) return;
+
+        // recompute forward and reverse tables of the dirty landmarks in parallel, into new
+        // arrays, views handed out earlier still hold the old ones
+        float[][] from = fromLandmark.clone();
+        float[][] to = toLandmark.clone();
+        IntStream.range(0, dirty.length * 2).parallel().forEach(job -> {
+            int k = dirty[job / 2];
+            if (job % 2 == 0) {
+                from[k] = DistanceField.distances(grid, landmarks[k], false);
+            } else {
+                to[k] = DistanceField.distances(grid, landmarks[k], true);
+            }
+        });
+        fromLandmark = from;
+        toLandmark = to;
+        for (int k : dirty) {
+            computedAt[k] = version;
+            // edits newer than this snapshot aren't in the new table either
+            firstTouch[k] = lastTouch[k] > version ? version + 1 : FRESH;
+        }
+    }
+
+    private void selectLandmarks() {
+        landmarks = null;
+        if (cache == null) {
+            pickLandmarks();
+            return;
+        }
+        String type = "landmarks-" + strategy.name().toLowerCase() + "-" + landmarkCount;
+        Tables tables = cache.get(grid, type, FORMAT, LandmarkHeuristic::readTables, LandmarkHeuristic::writeTables,
+                snapshot -> {
+                    pickLandmarks();
+                    return landmarks == null ? null : new Tables(landmarks, fromLandmark, toLandmark);
+                });
+        if (tables != null) {
+            install(tables.landmarks, tables.from, tables.to);
+        }
+    }
+
+    private void pickLandmarks() {
+        int seed = randomOpenCell();
+        if (seed < 0) return;  // everything is wall, nothing to do
+
+        if (strategy == Strategy.AVOID) {
+            selectAvoid(seed);
+        } else {
+            selectFarthest(seed);
+        }
+    }
+
+    // farthest point picking on step counts (cheap bfs), then all 2k dijkstras in parallel
+    private void selectFarthest(int seed) {
+        int[] chosen = new int[landmarkCount];
+        int count = 0;
+        // step counts only, so the walls are packed once and flooded a frontier at a time
+        Wavefront wavefront = new Wavefront(grid);
+        int next = farthestFrom(wavefront, new int[]{seed}, 1);
+        while (count < landmarkCount && next >= 0) {
+            chosen[count++] = next;
+            next = farthestFrom(wavefront, chosen, count);
+        }
+
+        int[] picked = Arrays.copyOf(chosen, count);
+        float[][] from = new float[count][];
+        float[][] to = new float[count][];
+        IntStream.range(0, count * 2).parallel().forEach(job -> {
+            int k = job / 2;
+            if (job % 2 == 0) {
+                from[k] = DistanceField.distances(grid, picked[k], false);
+            } else {
+                to[k] = DistanceField.distances(grid, picked[k], true);
+            }
+        });
+        install(picked, from, to);
+    }
+
+    // multi source bfs from the given cells, returns the reachable cell with the most steps
+    // or -1 when every reachable cell is already a source
+    private int farthestFrom(Wavefront wavefront, int[] sources, int count) {
+        int[] steps = wavefront.distances(Arrays.copyOf(sources, count));
+        int farthest = -1;
+        int farthestSteps = 0;
+        for (int index = 0; index < steps.length; index++) {
+            if (steps[index] > farthestSteps) {
+                farthestSteps = steps[index];
+                farthest = index;
+            }
+        }
+        return farthest;
+    }
+
+    // the "avoid" strategy from goldberg & werneck: build a shortest path tree from a
+    // random root, weight every cell by how badly the current landmarks estimate its
+    // distance from the root, and walk down into the heaviest subtree that has no
+    // landmark yet. the leaf we end up at is the next landmark
+    private void selectAvoid(int seed) {
+        int[] chosen = new int[landmarkCount];
+        float[][] from = new float[landmarkCount][];
+        float[][] to = new float[landmarkCount][];
+        int count = 0;
+
+        // first one is just the far end of the map
+        int first = farthestFrom(new Wavefront(grid), new int[]{seed}, 1);
+        if (first < 0) first = seed;
+
+        int next = first;
+        while (count < landmarkCount && next >= 0) {
+            int k = count;
+            int landmark = next;
+            chosen[k] = landmark;
+            // forward and reverse for the new landmark at the same time
+            IntStream.range(0, 2).parallel().forEach(job -> {
+                if (job == 0) {
+                    from[k] = DistanceField.distances(grid, landmark, false);
+                } else {
+                    to[k] = DistanceField.distances(grid, landmark, true);
+                }
+            });
+            count++;
+            install(Arrays.copyOf(chosen, count), Arrays.copyOf(from, count), Arrays.copyOf(to, count));
+            next = -1;
+            // a random root can land in a tiny walled off pocket, so give it a few tries
+            for (int attempt = 0; attempt < 8 && next < 0 && count < landmarkCount; attempt++) {
+                next = avoidCandidate(randomOpenCell());
+            }
+        }
+    }
+
+    private int avoidCandidate(int root) {
+        if (root < 0) return -1;
+        DistanceField tree = DistanceField.tree(grid, root);
+        float[] dist = tree.getDistances();
+        int[] parents = tree.getParents();
+        int[] order = tree.getSettleOrder();
+        int settled = tree.getSettledCount();
+        Cell rootCell = grid.cellAt(root);
+        View chosen = new View(grid, landmarks, fromLandmark, toLandmark);  // the ones picked so far
+
+        double[] size = new double[dist.length];
+        boolean[] hasLandmark = new boolean[dist.length];
+        for (int landmark : landmarks) {
+            hasLandmark[landmark] = true;
+        }
+
+        // children are settled after their parents, so go backwards through the order
+        for (int i = settled - 1; i >= 0; i--) {
+            int v = order[i];
+            if (hasLandmark[v]) {
+                size[v] = 0;
+            } else {
+                size[v] += Math.max(0, dist[v] - chosen.estimate(rootCell, grid.cellAt(v)));
+            }
+            int p = parents[v];
+            if (p >= 0) {
+                if (hasLandmark[v]) {
+                    hasLandmark[p] = true;
+                } else {
+                    size[p] += size[v];
+                }
+            }
+        }
+
+        // walk down to the heaviest child until we hit a leaf
+        int current = root;
+        while (true) {
+            int bestChild = -1;
+            for (Cell neighbor : grid.getNeighbors(grid.cellAt(current))) {
+                int n = grid.indexOf(neighbor);
+                if (parents[n] == current && size[n] > 0 && (bestChild < 0 || size[n] > size[bestChild])) {
+                    bestChild = n;
+                }
+            }
+            if (bestChild < 0) {
+                // root itself has nothing uncovered below it
+                return current == root ? -1 : current;
+            }
+            current = bestChild;
+        }
+    }
+
+    private void install(int[] picked, float[][] from, float[][] to) {
+        landmarks = picked;
+        fromLandmark = from;
+        toLandmark = to;
+        computedAt = new long[picked.length];
+        firstTouch = new long[picked.length];
+        lastTouch = new long[picked.length];
+        Arrays.fill(computedAt, grid.getVersion());
+        Arrays.fill(firstTouch, FRESH);
+        Arrays.fill(lastTouch, -1);
+    }
+
+    private static void writeTables(Tables tables, Path file) throws IOException {
+        int count = tables.landmarks.length;
+        int cells = tables.from[0].length;
+        long bytes = HEADER_BYTES + (long) count * Integer.BYTES + 2L * count * cells * Float.BYTES;
+        if (bytes > Integer.MAX_VALUE) throw new IOException("landmark tables are more than one mapping holds");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(0, MAGIC).putInt(4, FORMAT).putInt(8, count).putInt(12, cells);
+            buffer.position(HEADER_BYTES);
+            for (int landmark : tables.landmarks) {
+                buffer.putInt(landmark);
+            }
+            FloatBuffer values = buffer.slice().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+            for (int k = 0; k < count; k++) {
+                values.put(tables.from[k]).put(tables.to[k]);
+            }
+            buffer.force();
+        }
+    }
+
+    // mapped and copied out, searches read the tables as plain arrays
+    private static Tables readTables(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException(file + " is not a landmark file");
+        }
+        if (buffer.getInt(4) != FORMAT) throw new IOException("unsupported landmark format " + buffer.getInt(4));
+        int count = buffer.getInt(8);
+        int cells = buffer.getInt(12);
+        if (count < 1 || cells < 1
+                || buffer.capacity() != HEADER_BYTES + (long) count * Integer.BYTES + 2L * count * cells * Float.BYTES) {
+            throw new IOException(file + " has the wrong size for " + count + " landmarks");
+        }
+        int[] landmarks = new int[count];
+        buffer.position(HEADER_BYTES);
+        for (int k = 0; k < count; k++) {
+            landmarks[k] = buffer.getInt();
+            if (landmarks[k] < 0 || landmarks[k] >= cells) throw new IOException(file + " has a landmark off the grid");
+        }
+        FloatBuffer values = buffer.slice().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+        float[][] from = new float[count][cells];
+        float[][] to = new float[count][cells];
+        for (int k = 0; k < count; k++) {
+            values.get(from[k]).get(to[k]);
+        }
+        return new Tables(landmarks, from, to);
+    }
+
+    private int randomOpenCell() {
+        int size = grid.getIndexSize();
+        // a few random tries first, then just scan
+        for (int attempt = 0; attempt < 64; attempt++) {
+            int index = random.nextInt(size);
+            if (!grid.cellAt(index).isWall()) return index;
+        }
+        for (int index = 0; index < size; index++) {
+            if (!grid.cellAt(index).isWall()) return index;
+        }
+        return -1;
+    }
+
+    // one selection as it goes to and from the cache
+    private static class Tables {
+        final int[] landmarks;
+        final float[][] from;
+        final float[][] to;
+
+        Tables(int[] landmarks, float[][] from, float[][] to) {
+            this.landmarks = landmarks;
+            this.from = from;
+            this.to = to;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package models;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// what real-time searches (RealTimeSearch) have learned about the distance to each goal they
+// were sent to: one float per cell and goal, raised every time an agent finds the base
+// heuristic too optimistic somewhere. kept between trips, so the next agent heading for the
+// same goal starts where the last one left off, and after enough trips the values are the
+// true distances along the route and the agent walks straight there.
+// learned values are only lower bounds for the grid content they were learned on. a new
+// wall only makes paths longer, so tables survive that; anything that can make a path
+// shorter (an opened cell, cheaper terrain, a new map) throws them away. the other way round
+// a table learned with a wall in place can overestimate on a snapshot from before it, so a
+// table only goes to snapshots that have every wall it was learned with: older ones get a
+// table of their own, and the first trip on a snapshot with a newer wall carries on in a copy
+// (trips still running on the old walls keep the original)
+public class LearnedHeuristic implements GridListener {
+
+    // one trip's look at the learned values for its goal, indexed like Grid.indexOf(). the
+    // values are shared with every other trip to that goal, the base estimates are the ones
+    // prepared for this trip's snapshot
+    public static final class Table {
+        private final Cell goal;
+        private final float[] learned;  // 0 = nothing learned, the base estimate is used
+        private final Heuristic base;
+
+        private Table(Cell goal, float[] learned, Heuristic base) {
+            this.goal = goal;
+            this.learned = learned;
+            this.base = base;
+        }
+
+        // never below the base heuristic
+        public double estimate(Grid grid, int index) {
+            return Math.max(learned[index], base.estimate(grid.cellAt(index), goal));
+        }
+
+        // values only go up, so a trip on another thread writing the same cell at the same
+        // time can at worst lose a bit of learning, never make the table overestimate
+        public void raise(int index, double value) {
+            if (value > learned[index]) learned[index] = (float) value;
+        }
+
+        public Cell getGoal() {
+            return goal;
+        }
+    }
+
+    private final Heuristic base;
+    private final int maxGoals;
+    private final Map<Integer, Learned> tables;  // by goal index, least recently used first
+    private Grid source;       // live grid the tables are for
+    private long forgotten;    // grid version of the last edit that threw the tables away
+    private long lastWall;     // grid version of the newest wall edit
+
+    // the learned values for one goal and the newest wall edit the trips that wrote them saw
+    private static final class Learned {
+        final float[] values;
+        final long wall;
+
+        Learned(float[] values, long wall) {
+            this.values = values;
+            this.wall = wall;
+        }
+    }
+
+    public LearnedHeuristic() {
+        this(new ManhattanHeuristic(), 64);
+    }
+
+    // at most maxGoals tables are kept (each is 4 bytes a cell), the goal used longest ago goes first
+    public LearnedHeuristic(Heuristic base, int maxGoals) {
+        if (maxGoals <= 0) throw new IllegalArgumentException("need room for at least one goal");
+        this.base = base;
+        this.maxGoals = maxGoals;
+        this.tables = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    // the table for a trip to goal on this snapshot. a snapshot older than the last edit that
+    // cleared the tables or the newest wall gets a table of its own, what it learns wouldn't
+    // hold for the grid now and what the shared one learned might not hold for it
+    public Table tableFor(Grid grid, Cell goal) {
+        Heuristic prepared = base.prepare(grid, goal);  // outside our lock, it may take its own
+        return new Table(goal, findValues(grid, goal), prepared);
+    }
+
+    private synchronized float[] findValues(Grid grid, Cell goal) {
+        Grid live = grid.getOrigin();
+        if (source != live) {
+            if (source != null) source.removeGridListener(this);
+            source = live;
+            live.addGridListener(this);
+            tables.clear();
+        }
+        if (grid.getVersion() < Math.max(forgotten, lastWall)) return new float[grid.getIndexSize()];
+
+        int index = grid.indexOf(goal);
+        Learned learned = tables.get(index);
+        if (learned == null || learned.wall < lastWall) {
+            // new goal, or walls went up since: what was learned still holds, in a copy
+            float[] values = learned == null ? new float[grid.getIndexSize()] : learned.values.clone();
+            learned = new Learned(values, lastWall);
+            tables.put(index, learned);
+            if (tables.size() > maxGoals) {
+                Integer oldest = tables.keySet().iterator().next();
+                tables.remove(oldest);
+            }
+        }
+        return learned.values;
+    }
+
+    public synchronized int getGoalCount() {
+        return tables.size();
+    }
+
+    public synchronized long getMemoryBytes() {
+        long bytes = 0;
+        for (Learned learned : tables.values()) {
+            bytes += (long) learned.values.length * Float.BYTES;
+        }
+        return bytes;
+    }
+
+    @Override
+    public synchronized void cellChanged(Cell cell) {
+        if (cell.isWall()) {
+            // paths only got longer, what we learned still holds from here on
+            lastWall = source.getVersion();
+            return;
+        }
+        forget();
+    }
+
+    @Override
+    public synchronized void gridChanged() {
+        forget();
+    }
+
+    private void forget() {
+        tables.clear();
+        forgotten = source.getVersion();
+    }
+}
@@ -0,0 +1,103 @@
+package models;
+
+import java.util.Arrays;
+
+// hash map from long keys to int values without boxing either, open addressing with linear
+// probing in two flat arrays. no removal, clear() empties it and keeps the arrays, so one
+// map can be filled and emptied over and over without making garbage
+public class LongIntMap {
+    private static final long EMPTY = Long.MIN_VALUE;  // can't be used as a key
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    public LongIntMap() {
+        this(16);
+    }
+
+    public LongIntMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(4, expected) * 2 - 1) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+    }
+
+    // value for key, or missing if it isn't in the map
+    public int get(long key, int missing) {
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            long at = keys[slot];
+            if (at == key) return values[slot];
+            if (at == EMPTY) return missing;
+        }
+    }
+
+    public boolean containsKey(long key) {
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            long at = keys[slot];
+            if (at == key) return true;
+            if (at == EMPTY) return false;
+        }
+    }
+
+    public void put(long key, int value) {
+        if (key == EMPTY) throw new IllegalArgumentException("Long.MIN_VALUE can't be a key");
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            long at = keys[slot];
+            if (at == key) {
+                values[slot] = value;
+                return;
+            }
+            if (at == EMPTY) {
+                keys[slot] = key;
+                values[slot] = value;
+                if (++size * 2 > keys.length) grow();  // stay at most half full
+                return;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        if (size == 0) return;
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    public long getMemoryBytes() {
+        return (long) keys.length * (Long.BYTES + Integer.BYTES);
+    }
+
+    private int slot(long key) {
+        // keys are often small counters packed together, spread them over the whole table
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[keys.length];
+        Arrays.fill(keys, EMPTY);
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY) continue;
+            int slot = slot(oldKeys[i]);
+            while (keys[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package models;
+
+// manhattan distance - how many steps away ignoring walls
+// every edge costs at least 1 so this never overestimates
+public class ManhattanHeuristic implements Heuristic {
+
+    @Override
+    public double estimate(Cell a, Cell b) {
+        return Math.abs(a.getRow() - b.getRow()) + Math.abs(a.getCol() - b.getCol());
+    }
+}
@@ -0,0 +1,165 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// one search from any of several start cells to whichever of several goals is closest.
+// every start goes into the open set at distance 0 (as if a super source had free edges to
+// all of them) and the search stops the moment a goal comes off the heap (as if every goal
+// had a free edge to a super target), so "route to the nearest of 500 depots" is one pass
+// instead of 500. without a heuristic it's dijkstra, with one it's a* on the heuristic's
+// bound to the nearest goal (Heuristic.nearestOf)
+public class MultiTargetSearch implements Pathfinding {
+    private final Heuristic heuristic;  // null for plain dijkstra
+    private Grid grid;
+    private SearchState state;
+    private IndexHeap openSet;          // keyed by distance + bound
+    private boolean[] isGoal;           // by cell index
+    private Heuristic.GoalBound bound;
+    private Cell reachedGoal;
+    private boolean finished;
+    private boolean pathFound;
+
+    public MultiTargetSearch() {
+        this(null);
+    }
+
+    public MultiTargetSearch(Heuristic heuristic) {
+        this.heuristic = heuristic;
+    }
+
+    @Override
+    public void init(Grid grid, Cell start, Cell goal) {
+        init(grid, Collections.singletonList(start), Collections.singletonList(goal));
+    }
+
+    public void init(Grid grid, Collection<Cell> starts, Collection<Cell> goals) {
+        // pin the grid as it is right now, edits made while we run go to the next version
+        grid = grid.snapshot();
+        this.grid = grid;
+        this.state = new SearchState(grid);
+        openSet = new IndexHeap(grid.getIndexSize());
+        isGoal = new boolean[grid.getIndexSize()];
+        reachedGoal = null;
+        finished = false;
+        pathFound = false;
+
+        // goals on walls can't be reached, starts walled off from every goal can't reach one
+        ComponentIndex components = grid.getComponents();
+        List<Cell> targets = new ArrayList<>();
+        Set<Integer> goalComponents = new HashSet<>();
+        for (Cell goal : goals) {
+            Cell cell = grid.getCell(goal.getRow(), goal.getCol());
+            if (cell == null || cell.isWall() || isGoal[grid.indexOf(cell)]) continue;
+            isGoal[grid.indexOf(cell)] = true;
+            targets.add(cell);
+            goalComponents.add(components.getComponent(cell));
+        }
+        List<Cell> sources = new ArrayList<>();
+        for (Cell start : starts) {
+            Cell cell = grid.getCell(start.getRow(), start.getCol());
+            if (cell == null || !goalComponents.contains(components.getComponent(cell))) continue;
+            sources.add(cell);
+        }
+        if (sources.isEmpty()) {
+            finished = true;
+            return;
+        }
+
+        if (heuristic != null) {
+            bound = heuristic.prepare(grid, targets.get(0)).nearestOf(grid, targets);
+        } else {
+            bound = cell -> 0;
+        }
+
+        for (Cell source : sources) {
+            if (state.getDistance(source) == 0) continue;  // listed twice
+            state.setDistance(source, 0.0);
+            state.setInOpenSet(source, true);
+            openSet.insertOrDecrease(grid.indexOf(source), bound.estimate(source));
+        }
+    }
+
+    @Override
+    public boolean step() {
+        if (finished) return true;
+
+        if (openSet.isEmpty()) {
+            finished = true;
+            pathFound = false;
+            return true;
+        }
+
+        int index = openSet.poll();
+        Cell current = grid.cellAt(index);
+
+        // the first goal to come off the heap is the nearest one
+        if (isGoal[index]) {
+            finished = true;
+            pathFound = true;
+            reachedGoal = current;
+            state.markPath(current);
+            return true;
+        }
+
+        state.setInOpenSet(current, false);
+        state.setInClosedSet(current, true);
+        state.setVisited(current, true);
+
+        for (int dir = 0; dir < Grid.DIRECTIONS; dir++) {
+            Cell neighbor = grid.getNeighbor(current, dir);
+            if (neighbor == null || neighbor.isWall() || state.isInClosedSet(neighbor)) {
+                continue;
+            }
+
+            double tentative = state.getDistance(current) + grid.getWeight(current, dir);
+            if (tentative < state.getDistance(neighbor)) {
+                state.setParent(neighbor, current);
+                state.setDistance(neighbor, tentative);
+                openSet.insertOrDecrease(grid.indexOf(neighbor), tentative + bound.estimate(neighbor));
+                if (!state.isInOpenSet(neighbor)) {
+                    state.setInOpenSet(neighbor, true);
+                }
+            }
+        }
+        return false;
+    }
+
+    // the goal the path ends at, null until one has been reached
+    public Cell getReachedGoal() {
+        return reachedGoal;
+    }
+
+    @Override
+    public boolean isFinished() {
+        return finished;
+    }
+
+    @Override
+    public boolean hasPath() {
+        return pathFound;
+    }
+
+    @Override
+    public List<Cell> getPath() {
+        if (!pathFound) return Collections.emptyList();
+
+        return state.pathTo(reachedGoal);
+    }
+
+    @Override
+    public CompactPath getCompactPath() {
+        if (!pathFound) return CompactPath.NONE;
+
+        return state.compactPathTo(reachedGoal);
+    }
+
+    @Override
+    public SearchState getState() {
+        return state;
+    }
+}
@@ -0,0 +1,151 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+// dijkstra from start to goal on a PackedGrid instead of the Cell objects: neighbors, weights,
+// distances, parents and the heap are all flat arrays indexed by slot in the grid's layout,
+// so a search that settles a big blob of cells stays in the same few cache lines per patch.
+// the packed copy comes from packer, which is handed the snapshot this run pins and can
+// reuse one it made earlier for the same snapshot (Algorithms keeps the last one).
+// distances add up in double, the packed weights are floats, so a weight override that a
+// float can't hold exactly can change which of two nearly equal paths wins.
+// one step() is one settled slot. flags only go into the search state while something is
+// watching it: reached cells are open, settled ones closed
+public class PackedDijkstra implements Pathfinding {
+    private static final int NONE = -1;
+
+    private final Function<Grid, PackedGrid> packer;
+    private PackedGrid packed;
+    private Grid grid;
+    private int source;
+    private int target;
+    private SearchState state;
+    private boolean finished;
+    private boolean pathFound;
+
+    private double[] dist;   // by slot, infinity until reached
+    private int[] parent;    // by slot, NONE for the start and unreached slots
+    private IndexHeap heap;
+
+    public PackedDijkstra(Function<Grid, PackedGrid> packer) {
+        this.packer = packer;
+    }
+
+    // packs the grid in this layout for every run, fine for one-off searches
+    public PackedDijkstra(String layout) {
+        this(grid -> new PackedGrid(grid, CellLayout.byName(layout, grid.getRows(), grid.getCols())));
+    }
+
+    @Override
+    public void init(Grid grid, Cell start, Cell goal) {
+        grid = grid.snapshot();
+        this.grid = grid;
+        this.state = new SearchState(grid);
+        finished = false;
+        pathFound = false;
+        Cell startCell = grid.getCell(start.getRow(), start.getCol());
+        Cell endCell = grid.getCell(goal.getRow(), goal.getCol());
+
+        // start and goal are walled off from each other, don't bother packing or searching
+        if (!grid.getComponents().isConnected(startCell, endCell)) {
+            finished = true;
+            return;
+        }
+        packed = packer.apply(grid);
+        if (packed.getGrid() != grid) {
+            throw new IllegalStateException("packed grid is for version " + packed.getGrid().getVersion()
+                    + ", the search is on " + grid.getVersion());
+        }
+        int size = packed.getLayout().size();
+        source = packed.slot(startCell.getRow(), startCell.getCol());
+        target = packed.slot(endCell.getRow(), endCell.getCol());
+        dist = new double[size];
+        parent = new int[size];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        Arrays.fill(parent, NONE);
+        heap = new IndexHeap(size);
+        dist[source] = 0;
+        heap.insertOrDecrease(source, 0);
+        if (state.isWatched()) state.setInOpenSet(startCell, true);
+    }
+
+    @Override
+    public boolean step() {
+        if (finished) return true;
+        if (heap.isEmpty()) {
+            finished = true;
+            return true;
+        }
+
+        int slot = heap.poll();
+        if (state.isWatched()) {
+            Cell cell = cellOf(slot);
+            state.setInOpenSet(cell, false);
+            state.setInClosedSet(cell, true);
+        }
+        if (slot == target) {
+            finished = true;
+            pathFound = true;
+            if (state.isWatched()) {
+                for (Cell cell : getPath()) {
+                    state.setInPath(cell, true);
+                }
+            }
+            return true;
+        }
+
+        double d = dist[slot];
+        for (int dir = 0; dir < Grid.DIRECTIONS; dir++) {
+            int to = packed.link(slot, dir);
+            if (to < 0) continue;
+            double candidate = d + packed.weight(slot, dir);
+            if (candidate < dist[to]) {
+                if (state.isWatched() && dist[to] == Double.POSITIVE_INFINITY) state.setInOpenSet(cellOf(to), true);
+                dist[to] = candidate;
+                parent[to] = slot;
+                heap.insertOrDecrease(to, candidate);
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isFinished() {
+        return finished;
+    }
+
+    @Override
+    public boolean hasPath() {
+        return pathFound;
+    }
+
+    @Override
+    public List<Cell> getPath() {
+        if (!pathFound) return Collections.emptyList();
+        List<Cell> path = new ArrayList<>();
+        for (int slot = target; slot != NONE; slot = parent[slot]) {
+            path.add(cellOf(slot));
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    @Override
+    public CompactPath getCompactPath() {
+        if (!pathFound) return CompactPath.NONE;
+        return CompactPath.of(getPath());
+    }
+
+    @Override
+    public SearchState getState() {
+        return state;
+    }
+
+    private Cell cellOf(int slot) {
+        return grid.cellAt(packed.cellOf(slot));
+    }
+}
@@ -0,0 +1,125 @@
+package models;
+
+import java.util.Arrays;
+
+// a frozen copy of a grid as flat primitive arrays in a chosen CellLayout, for searches that
+// run a lot of cells (precomputation, big batch queries) and would otherwise spend most of
+// their time chasing Cell objects around the heap. for every slot it keeps the four
+// neighbor slots (-1 for walls and the edge, so the search loop never has to look at a cell)
+// and the four edge weights, side by side so one cell's edges share a cache line. the search
+// state (distances and the heap) is indexed by slot as well, so it gets the same locality.
+// PackedDijkstra runs point to point queries on one, Algorithms.setLayout() turns that on
+public class PackedGrid {
+    private final Grid source;      // the snapshot this was packed from
+    private final CellLayout layout;
+    private final int[] links;      // 4 per slot, neighbor slot or -1
+    private final float[] weights;  // 4 per slot, weight of the edge to that neighbor
+    private final int[] cellOf;     // grid index of each slot, -1 for padding
+    private final boolean[] walls;  // by slot, padding counts as wall
+
+    public PackedGrid(Grid grid, CellLayout layout) {
+        if (layout.getRows() != grid.getRows() || layout.getCols() != grid.getCols()) {
+            throw new IllegalArgumentException("layout is for " + layout.getRows() + "x" + layout.getCols());
+        }
+        Grid snapshot = grid.snapshot();
+        this.source = snapshot;
+        this.layout = layout;
+        int size = layout.size();
+        links = new int[size * Grid.DIRECTIONS];
+        weights = new float[size * Grid.DIRECTIONS];
+        cellOf = new int[size];
+        walls = new boolean[size];
+        Arrays.fill(links, -1);
+        Arrays.fill(cellOf, -1);
+        Arrays.fill(walls, true);
+
+        int rows = snapshot.getRows();
+        int cols = snapshot.getCols();
+        RowStripes.forEach(rows, 0L, (stripe, fromRow, toRow, random) -> {
+            for (int r = fromRow; r < toRow; r++) {
+                for (int c = 0; c < cols; c++) {
+                    int slot = layout.slot(r, c);
+                    cellOf[slot] = r * cols + c;
+                    Cell cell = snapshot.getCell(r, c);
+                    if (cell.isWall()) continue;
+                    walls[slot] = false;
+                    for (int dir = 0; dir < Grid.DIRECTIONS; dir++) {
+                        Cell neighbor = snapshot.getNeighbor(cell, dir);
+                        if (neighbor == null || neighbor.isWall()) continue;
+                        links[slot * Grid.DIRECTIONS + dir] = layout.slot(neighbor.getRow(), neighbor.getCol());
+                        weights[slot * Grid.DIRECTIONS + dir] = (float) snapshot.getWeight(cell, dir);
+                    }
+                }
+            }
+        });
+    }
+
+    // the snapshot it was packed from, a search on any other version needs a new one
+    public Grid getGrid() {
+        return source;
+    }
+
+    public CellLayout getLayout() {
+        return layout;
+    }
+
+    public int slot(int row, int col) {
+        return layout.slot(row, col);
+    }
+
+    // grid index (Grid.indexOf) of a slot, -1 for the padding slots past the edges
+    public int cellOf(int slot) {
+        return cellOf[slot];
+    }
+
+    // neighbor slot in direction dir, -1 for a wall or the edge
+    int link(int slot, int dir) {
+        return links[slot * Grid.DIRECTIONS + dir];
+    }
+
+    float weight(int slot, int dir) {
+        return weights[slot * Grid.DIRECTIONS + dir];
+    }
+
+    public long getMemoryBytes() {
+        return (long) links.length * Integer.BYTES + (long) weights.length * Float.BYTES + (long) cellOf.length * Integer.BYTES + walls.length;
+    }
+
+    // full dijkstra from one cell, distances by slot (infinity where unreachable).
+    // heap has to hold getLayout().size() slots and is reused, pass null to get a new one
+    public float[] distances(int row, int col, IndexHeap heap) {
+        float[] dist = new float[layout.size()];
+        Arrays.fill(dist, Float.POSITIVE_INFINITY);
+        int source = layout.slot(row, col);
+        if (walls[source]) return dist;
+
+        if (heap == null) heap = new IndexHeap(dist.length);
+        heap.clear();
+        dist[source] = 0;
+        heap.insertOrDecrease(source, 0);
+        while (!heap.isEmpty()) {
+            int slot = heap.poll();
+            float d = dist[slot];
+            int edge = slot * Grid.DIRECTIONS;
+            for (int dir = 0; dir < Grid.DIRECTIONS; dir++) {
+                int to = links[edge + dir];
+                if (to < 0) continue;
+                float candidate = d + weights[edge + dir];
+                if (candidate < dist[to]) {
+                    dist[to] = candidate;
+                    heap.insertOrDecrease(to, candidate);
+                }
+            }
+        }
+        return dist;
+    }
+
+    // a by-slot array put back in Grid.indexOf() order
+    public float[] toGridOrder(float[] bySlot) {
+        float[] byIndex = new float[layout.getRows() * layout.getCols()];
+        for (int slot = 0; slot < cellOf.length; slot++) {
+            if (cellOf[slot] >= 0) byIndex[cellOf[slot]] = bySlot[slot];
+        }
+        return byIndex;
+    }
+}
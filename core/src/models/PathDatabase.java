@@ -0,0 +1,337 @@
+package models;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+// compressed path database: for every source cell, the first move of a shortest path to
+// every other cell. a query just follows first moves from the start until it reaches the
+// goal, no search, so it costs one table lookup per step of the path.
+// the open cells are numbered in depth-first order, which puts cells next to each other in
+// the numbering next to each other on the map too, so the first moves from one source come
+// in long runs and each source only stores where a run starts and its move (one int per
+// run). cells a source can't reach (and the source itself) never get asked about, so they
+// extend whatever run they're in. a dfs numbers a whole region before the next one, so
+// "same region" is a check of which range the two numbers fall in.
+// building it is one dijkstra per cell, in parallel. save() writes it to a file that load()
+// maps back in without building again
+public class PathDatabase {
+    private static final int MAGIC = 0x50435044;  // "PCPD"
+    public static final int FORMAT = 1;  // bumped whenever the file layout changes
+    private static final int HEADER_BYTES = 32;
+    private static final int WILD = -1;           // no first move: the source itself or out of reach
+
+    private final int rows;
+    private final int cols;
+    private final long contentHash;
+    private final IntBuffer rank;     // dfs number of every cell, -1 for walls
+    private final IntBuffer regions;  // dfs number each region starts at, plus the total at the end
+    private final IntBuffer offsets;  // first run of each cell, cells + 1 entries
+    private final IntBuffer runs;     // rank << 2 | move, sorted by rank within a cell
+
+    private Grid checkedOrigin;
+    private long checkedVersion = -1;
+
+    private PathDatabase(int rows, int cols, long contentHash, IntBuffer rank, IntBuffer regions,
+                         IntBuffer offsets, IntBuffer runs) {
+        this.rows = rows;
+        this.cols = cols;
+        this.contentHash = contentHash;
+        this.rank = rank;
+        this.regions = regions;
+        this.offsets = offsets;
+        this.runs = runs;
+    }
+
+    // progress and cancelled may be null, a cancelled build throws CancellationException
+    public static PathDatabase compute(Grid grid, DistanceMatrix.Progress progress, BooleanSupplier cancelFlag) {
+        BooleanSupplier cancelled = cancelFlag == null ? () -> false : cancelFlag;
+        Grid snapshot = grid.snapshot();
+        int n = snapshot.getIndexSize();
+        if (n >= 1 << 30) throw new IllegalArgumentException("too many cells to number in 30 bits");
+        int[] rank = new int[n];
+        IntList regionStarts = new IntList();
+        int[] order = dfsOrder(snapshot, rank, regionStarts);
+        regionStarts.add(order.length);
+
+        int[][] perSource = new int[n][];
+        AtomicInteger done = new AtomicInteger();
+        ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(() -> new Scratch(n));
+        IntStream.range(0, n).parallel().forEach(source -> {
+            if (cancelled.getAsBoolean()) return;
+            perSource[source] = scratch.get().runs(snapshot, source, order);
+            int finished = done.incrementAndGet();
+            if (progress != null) progress.sourceDone(finished, n);
+        });
+        if (cancelled.getAsBoolean() && done.get() < n) {
+            throw new CancellationException("path database cancelled after " + done.get() + " of " + n + " cells");
+        }
+
+        int[] offsets = new int[n + 1];
+        long total = 0;
+        for (int source = 0; source < n; source++) {
+            offsets[source] = (int) total;
+            total += perSource[source].length;
+            if (total > Integer.MAX_VALUE) throw new IllegalArgumentException("more runs than one array holds");
+        }
+        offsets[n] = (int) total;
+        int[] runs = new int[(int) total];
+        for (int source = 0; source < n; source++) {
+            System.arraycopy(perSource[source], 0, runs, offsets[source], perSource[source].length);
+        }
+
+        PathDatabase database = new PathDatabase(snapshot.getRows(), snapshot.getCols(), snapshot.contentHash(),
+                IntBuffer.wrap(rank), IntBuffer.wrap(regionStarts.toArray()), IntBuffer.wrap(offsets), IntBuffer.wrap(runs));
+        database.checkedOrigin = snapshot.getOrigin();
+        database.checkedVersion = snapshot.getVersion();
+        return database;
+    }
+
+    public void save(Path file) throws IOException {
+        int n = rank.capacity();
+        long bytes = HEADER_BYTES + ((long) n + regions.capacity() + offsets.capacity() + runs.capacity()) * Integer.BYTES;
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IOException("path database is more than one mapping holds");
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(0, MAGIC).putInt(4, FORMAT).putInt(8, rows).putInt(12, cols).putLong(16, contentHash)
+                    .putInt(24, regions.capacity()).putInt(28, runs.capacity());
+            IntBuffer body = buffer.position(HEADER_BYTES).slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            body.put(rank.duplicate().clear()).put(regions.duplicate().clear())
+                    .put(offsets.duplicate().clear()).put(runs.duplicate().clear());
+            buffer.force();
+        }
+    }
+
+    // maps a file written by save() read-only. like GoalBounds it only gets checked against
+    // a grid when it's used (isFor)
+    public static PathDatabase load(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException(file + " is not a path database");
+        }
+        if (buffer.getInt(4) != FORMAT) throw new IOException("unsupported path database format " + buffer.getInt(4));
+        int rows = buffer.getInt(8);
+        int cols = buffer.getInt(12);
+        int regionCount = buffer.getInt(24);
+        int runCount = buffer.getInt(28);
+        long n = (long) rows * cols;
+        if (rows < 0 || cols < 0 || regionCount < 1 || runCount < 0
+                || buffer.capacity() != HEADER_BYTES + (n + regionCount + n + 1 + runCount) * Integer.BYTES) {
+            throw new IOException(file + " has the wrong size for " + rows + "x" + cols);
+        }
+        IntBuffer body = buffer.position(HEADER_BYTES).slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        IntBuffer rank = body.slice(0, (int) n);
+        IntBuffer regions = body.slice((int) n, regionCount);
+        IntBuffer offsets = body.slice((int) n + regionCount, (int) n + 1);
+        IntBuffer runs = body.slice((int) (2 * n + 1 + regionCount), runCount);
+        return new PathDatabase(rows, cols, buffer.getLong(16), rank, regions, offsets, runs);
+    }
+
+    // true if the tables were built for exactly this grid content
+    public synchronized boolean isFor(Grid grid) {
+        if (grid.getRows() != rows || grid.getCols() != cols) return false;
+        Grid snapshot = grid.snapshot();
+        if (snapshot.getOrigin() == checkedOrigin && snapshot.getVersion() == checkedVersion) return true;
+        if (snapshot.contentHash() != contentHash) return false;
+        checkedOrigin = snapshot.getOrigin();
+        checkedVersion = snapshot.getVersion();
+        return true;
+    }
+
+    // direction of the first move of a shortest path between two cell indices, -1 if there
+    // is none (same cell, a wall, or different regions)
+    public int firstMove(int source, int target) {
+        int to = rank.get(target);
+        int from = rank.get(source);
+        if (source == target || to < 0 || from < 0 || region(from) != region(to)) return -1;
+
+        // last run starting at or before the target's number
+        int low = offsets.get(source);
+        int high = offsets.get(source + 1) - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (runs.get(mid) >>> 2 <= to) low = mid; else high = mid - 1;
+        }
+        return runs.get(low) & 3;
+    }
+
+    // the shortest path as a chain of first moves, CompactPath.NONE if there is none
+    public CompactPath path(int startRow, int startCol, int goalRow, int goalCol) {
+        int source = startRow * cols + startCol;
+        int target = goalRow * cols + goalCol;
+        if (rank.get(source) < 0 || rank.get(target) < 0) return CompactPath.NONE;
+        CompactPath.Builder path = new CompactPath.Builder(startRow, startCol);
+        if (source == target) return path.build();
+        if (region(rank.get(source)) != region(rank.get(target))) return CompactPath.NONE;
+
+        int row = startRow;
+        int col = startCol;
+        for (int steps = 0; source != target; steps++) {
+            int dir = firstMove(source, target);
+            if (dir < 0 || steps > rows * cols) {
+                throw new IllegalStateException("path database is broken between " + row + "," + col
+                        + " and " + goalRow + "," + goalCol);
+            }
+            path.move(dir, 1);
+            row += Grid.rowOffset(dir);
+            col += Grid.colOffset(dir);
+            source = row * cols + col;
+        }
+        return path.build();
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getRunCount() {
+        return runs.capacity();
+    }
+
+    public long getMemoryBytes() {
+        return ((long) rank.capacity() + regions.capacity() + offsets.capacity() + runs.capacity()) * Integer.BYTES;
+    }
+
+    // how big it is and how well it compressed, against a plain table of 2 bits per pair
+    public String memoryReport() {
+        long open = 0;
+        for (int i = 0; i < rank.capacity(); i++) {
+            if (rank.get(i) >= 0) open++;
+        }
+        double plainBytes = open * (double) open / 4;
+        return String.format(Locale.ROOT, "%,d open cells, %,d runs (%.1f per source), %,d bytes"
+                        + " (%.1f MB, %.1fx smaller than a 2 bit table)",
+                open, runs.capacity(), open == 0 ? 0 : runs.capacity() / (double) open, getMemoryBytes(),
+                getMemoryBytes() / 1e6, getMemoryBytes() == 0 ? 0 : plainBytes / getMemoryBytes());
+    }
+
+    // index of the region a dfs number belongs to
+    private int region(int number) {
+        int low = 0;
+        int high = regions.capacity() - 2;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (regions.get(mid) <= number) low = mid; else high = mid - 1;
+        }
+        return low;
+    }
+
+    // numbers the open cells in depth-first preorder, a region at a time, and returns the
+    // cells in that order. rank gets -1 for walls
+    private static int[] dfsOrder(Grid grid, int[] rank, IntList regionStarts) {
+        Arrays.fill(rank, -1);
+        int n = rank.length;
+        int cols = grid.getCols();
+        int[] order = new int[n];
+        byte[] nextDir = new byte[n];
+        IntList stack = new IntList();
+        int count = 0;
+        for (int seed = 0; seed < n; seed++) {
+            if (rank[seed] >= 0 || grid.cellAt(seed).isWall()) continue;
+            regionStarts.add(count);
+            rank[seed] = count;
+            order[count++] = seed;
+            stack.add(seed);
+            while (!stack.isEmpty()) {
+                int cell = stack.get(stack.size() - 1);
+                if (nextDir[cell] == Grid.DIRECTIONS) {
+                    stack.removeLast();
+                    continue;
+                }
+                int dir = nextDir[cell]++;
+                int row = cell / cols + Grid.rowOffset(dir);
+                int col = cell % cols + Grid.colOffset(dir);
+                if (row < 0 || row >= grid.getRows() || col < 0 || col >= cols) continue;
+                int next = row * cols + col;
+                if (rank[next] >= 0 || grid.cellAt(next).isWall()) continue;
+                rank[next] = count;
+                order[count++] = next;
+                stack.add(next);
+            }
+        }
+        return Arrays.copyOf(order, count);
+    }
+
+    // arrays one worker reuses for every source cell it gets
+    private static class Scratch {
+        private final double[] dist;
+        private final byte[] firstMove;
+        private final IndexHeap heap;
+        private final IntList touched = new IntList();
+        private final IntList out = new IntList();
+
+        Scratch(int cells) {
+            dist = new double[cells];
+            Arrays.fill(dist, Double.POSITIVE_INFINITY);
+            firstMove = new byte[cells];
+            heap = new IndexHeap(cells);
+        }
+
+        // the runs of one source: dijkstra records the first move to every cell it settles,
+        // then the moves are read off in dfs order
+        int[] runs(Grid grid, int source, int[] order) {
+            if (grid.cellAt(source).isWall()) return new int[0];
+            dist[source] = 0;
+            touched.add(source);
+            heap.insertOrDecrease(source, 0);
+            while (!heap.isEmpty()) {
+                int index = heap.poll();
+                double d = dist[index];
+                Cell cell = grid.cellAt(index);
+                for (int dir = 0; dir < Grid.DIRECTIONS; dir++) {
+                    Cell neighbor = grid.getNeighbor(cell, dir);
+                    if (neighbor == null || neighbor.isWall()) continue;
+                    int to = grid.indexOf(neighbor);
+                    double candidate = d + grid.getWeight(cell, dir);
+                    if (candidate < dist[to]) {
+                        if (dist[to] == Double.POSITIVE_INFINITY) touched.add(to);
+                        dist[to] = candidate;
+                        firstMove[to] = index == source ? (byte) dir : firstMove[index];
+                        heap.insertOrDecrease(to, candidate);
+                    }
+                }
+            }
+
+            // unreached cells and the source match any move, so they never start a run.
+            // the first run is stretched back to 0 so every lookup lands in one
+            out.clear();
+            int current = WILD;
+            for (int number = 0; number < order.length; number++) {
+                int cell = order[number];
+                if (cell == source || dist[cell] == Double.POSITIVE_INFINITY) continue;
+                int move = firstMove[cell];
+                if (move == current) continue;
+                out.add((out.isEmpty() ? 0 : number) << 2 | move);
+                current = move;
+            }
+
+            for (int i = 0; i < touched.size(); i++) {
+                dist[touched.get(i)] = Double.POSITIVE_INFINITY;
+            }
+            touched.clear();
+            return out.toArray();
+        }
+    }
+}
@@ -5,7 +5,8 @@ import java.util.List;
 // basic interface that all pathfinding algos need to implement
 public interface Pathfinding {
 
-    // setup the algorithm with grid and start/end points
+    // setup the algorithm with grid and start/end points.
+    // the search runs on grid.snapshot(), editing the grid afterwards doesn't affect it
     void init(Grid grid, Cell start, Cell goal);
 
     // does one step of the search, returns true when done
@@ -19,4 +20,10 @@ public interface Pathfinding {
 
     // gets the final path if one exists
     List<Cell> getPath();
+
+    // the same path as a start cell and runs of moves, CompactPath.NONE if there is none
+    CompactPath getCompactPath();
+
+    // flags/parents/distances of this run, the grid itself is never written to
+    SearchState getState();
 }
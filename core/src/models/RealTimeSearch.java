@@ -0,0 +1,282 @@
+package models;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// real-time search (lss-lrta*, koenig & sun): an agent that has to start moving before it
+// knows the whole path. every step() is one bounded piece of work:
+//   1. a* from where the agent stands, stopped after `lookahead` expansions
+//   2. every cell it expanded gets its heuristic raised to the cheapest way out of the
+//      expanded area (a dijkstra backwards from the a* frontier)
+//   3. the agent walks to the best frontier cell, each move going out to the listeners
+//      as soon as it's decided
+// so no step costs more than `lookahead` expansions however big the map is. the walked
+// path can wander and double back, but the learned values stay in the LearnedHeuristic,
+// and every later trip to the same goal walks a better route until it's a shortest one
+public class RealTimeSearch implements Pathfinding {
+    public static final int DEFAULT_LOOKAHEAD = 64;
+
+    // told about every move as it's made, before step() returns
+    public interface MoveListener {
+        void moved(Cell from, int direction, Cell to);
+    }
+
+    private final LearnedHeuristic learned;
+    private final int lookahead;
+    private MoveListener[] listeners = new MoveListener[0];
+
+    private Grid grid;
+    private SearchState state;
+    private LearnedHeuristic.Table table;
+    private int agent;         // cell index the agent is on
+    private int goal;
+    private CompactPath.Builder trail;
+    private boolean finished;
+    private boolean pathFound;
+    private int moves;
+    private long expansions;
+
+    // lookahead scratch, stamped with `round` so nothing has to be cleared between steps
+    private double[] g;
+    private byte[] cameFrom;   // direction the a* tree entered a cell with
+    private int[] seen;        // round a cell was generated in
+    private int[] expanded;    // round a cell was expanded in
+    private int round;
+    private IndexHeap open;
+    private final IntList closed = new IntList();
+    private final IntList generated = new IntList();
+    private final IntList route = new IntList();
+
+    public RealTimeSearch() {
+        this(new LearnedHeuristic(), DEFAULT_LOOKAHEAD);
+    }
+
+    public RealTimeSearch(LearnedHeuristic learned) {
+        this(learned, DEFAULT_LOOKAHEAD);
+    }
+
+    public RealTimeSearch(LearnedHeuristic learned, int lookahead) {
+        if (lookahead < 1) throw new IllegalArgumentException("lookahead has to be at least 1");
+        this.learned = learned;
+        this.lookahead = lookahead;
+    }
+
+    public void addMoveListener(MoveListener listener) {
+        listeners = Arrays.copyOf(listeners, listeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+    }
+
+    @Override
+    public void init(Grid grid, Cell start, Cell goal) {
+        grid = grid.snapshot();
+        start = grid.getCell(start.getRow(), start.getCol());
+        goal = grid.getCell(goal.getRow(), goal.getCol());
+        this.grid = grid;
+        this.state = new SearchState(grid);
+        this.agent = grid.indexOf(start);
+        this.goal = grid.indexOf(goal);
+        trail = new CompactPath.Builder(start.getRow(), start.getCol());
+        finished = false;
+        pathFound = false;
+        moves = 0;
+        expansions = 0;
+
+        if (!grid.getComponents().isConnected(start, goal)) {
+            finished = true;
+            return;
+        }
+        table = learned.tableFor(grid, goal);
+
+        int size = grid.getIndexSize();
+        if (g == null || g.length != size) {
+            g = new double[size];
+            cameFrom = new byte[size];
+            seen = new int[size];
+            expanded = new int[size];
+            open = new IndexHeap(size);
+            round = 0;
+        }
+        state.setVisited(start, true);
+        state.setInPath(start, true);
+    }
+
+    @Override
+    public boolean step() {
+        if (finished) return true;
+        if (agent == goal) {
+            finished = true;
+            pathFound = true;
+            return true;
+        }
+
+        int target = lookAhead();
+        if (target < 0) {
+            // nothing left to expand, can't happen between connected cells but don't loop forever
+            finished = true;
+            return true;
+        }
+        learn();
+        walkTo(target);
+        return false;
+    }
+
+    // bounded a* from the agent, returns the open cell with the lowest f (the goal if it got
+    // there) or -1 when the open set ran dry
+    private int lookAhead() {
+        if (++round == Integer.MAX_VALUE) {
+            Arrays.fill(seen, 0);
+            Arrays.fill(expanded, 0);
+            round = 1;
+        }
+        open.clear();
+        closed.clear();
+        generated.clear();
+
+        g[agent] = 0;
+        seen[agent] = round;
+        generated.add(agent);
+        open.insertOrDecrease(agent, table.estimate(grid, agent));
+
+        while (!open.isEmpty() && closed.size() < lookahead) {
+            int index = open.peek();
+            if (index == goal) break;
+            open.poll();
+            expanded[index] = round;
+            closed.add(index);
+            expansions++;
+            Cell cell = grid.cellAt(index);
+            state.setInClosedSet(cell, true);
+
+            for (int dir = 0; dir < Grid.DIRECTIONS; dir++) {
+                Cell neighbor = grid.getNeighbor(cell, dir);
+                if (neighbor == null || neighbor.isWall()) continue;
+                int next = grid.indexOf(neighbor);
+                if (expanded[next] == round) continue;
+                double distance = g[index] + grid.getWeight(cell, dir);
+                if (seen[next] != round || distance < g[next]) {
+                    if (seen[next] != round) {
+                        seen[next] = round;
+                        generated.add(next);
+                    }
+                    g[next] = distance;
+                    cameFrom[next] = (byte) dir;
+                    open.insertOrDecrease(next, distance + table.estimate(grid, next));
+                }
+            }
+        }
+        return open.isEmpty() ? -1 : open.peek();
+    }
+
+    // raises h of every expanded cell to min over its neighbors of (edge + h), working back
+    // from the frontier in order of h like a dijkstra. cells outside the lookahead keep theirs
+    private void learn() {
+        // the frontier is what's still open, keyed by h now instead of f
+        route.clear();
+        for (int i = 0; i < generated.size(); i++) {
+            int index = generated.get(i);
+            if (open.contains(index)) route.add(index);
+        }
+        open.clear();
+        for (int i = 0; i < route.size(); i++) {
+            int index = route.get(i);
+            open.insertOrDecrease(index, table.estimate(grid, index));
+        }
+        for (int i = 0; i < closed.size(); i++) {
+            g[closed.get(i)] = Double.POSITIVE_INFINITY;  // g is free now, it holds the new h
+        }
+
+        while (!open.isEmpty()) {
+            int index = open.poll();
+            double h = table.estimate(grid, index);
+            if (expanded[index] == round && g[index] > h) {
+                h = g[index];
+                table.raise(index, h);
+            }
+            Cell cell = grid.cellAt(index);
+            for (int dir = 0; dir < Grid.DIRECTIONS; dir++) {
+                Cell neighbor = grid.getNeighbor(cell, dir);
+                if (neighbor == null || neighbor.isWall()) continue;
+                int from = grid.indexOf(neighbor);
+                if (expanded[from] != round) continue;
+                // the edge goes from the neighbor into this cell
+                double candidate = grid.getWeight(neighbor, Grid.opposite(dir)) + h;
+                if (candidate < g[from]) {
+                    g[from] = candidate;
+                    open.insertOrDecrease(from, candidate);
+                }
+            }
+        }
+    }
+
+    // moves the agent along the lookahead tree to the target, one listener call per move
+    private void walkTo(int target) {
+        route.clear();
+        for (int index = target; index != agent; ) {
+            int dir = cameFrom[index];
+            route.add(dir);
+            Cell cell = grid.cellAt(index);
+            index = grid.indexOf(grid.getNeighbor(cell, Grid.opposite(dir)));
+        }
+        for (int i = route.size() - 1; i >= 0; i--) {
+            int dir = route.get(i);
+            Cell from = grid.cellAt(agent);
+            Cell to = grid.getNeighbor(from, dir);
+            agent = grid.indexOf(to);
+            trail.move(dir, 1);
+            moves++;
+            state.setVisited(to, true);
+            state.setInPath(to, true);
+            for (MoveListener listener : listeners) {
+                listener.moved(from, dir, to);
+            }
+        }
+    }
+
+    @Override
+    public boolean isFinished() {
+        return finished;
+    }
+
+    @Override
+    public boolean hasPath() {
+        return pathFound;
+    }
+
+    // the route the agent actually walked, loops and all
+    @Override
+    public List<Cell> getPath() {
+        if (!pathFound) return Collections.emptyList();
+        return trail.build().toCells(grid);
+    }
+
+    @Override
+    public CompactPath getCompactPath() {
+        if (!pathFound) return CompactPath.NONE;
+        return trail.build();
+    }
+
+    @Override
+    public SearchState getState() {
+        return state;
+    }
+
+    // moves made so far, the walked path is this long
+    public int getMoves() {
+        return moves;
+    }
+
+    // cells expanded by all the lookaheads so far
+    public long getExpansions() {
+        return expansions;
+    }
+
+    public int getLookahead() {
+        return lookahead;
+    }
+
+    // where the agent is now
+    public Cell getAgent() {
+        return grid.cellAt(agent);
+    }
+}
@@ -0,0 +1,61 @@
+package models;
+
+// who is where when, for agents planning around each other (CooperativePlanner). two kinds of
+// entries share one LongIntMap, keyed by time and what's reserved:
+//   a cell at a time step, so two agents never stand on the same cell at once
+//   a move (cell and direction) starting at a time step, so two agents never swap places
+//     through each other, which the cell entries alone wouldn't catch
+// reads are safe from any number of threads as long as nobody reserves at the same time
+public class ReservationTable {
+    private static final long MOVE = 1L << 33;  // sets moves apart from cells in the key (cell << 2 | dir fits below)
+
+    private final LongIntMap entries = new LongIntMap(1024);
+
+    // agent holding the cell at time, or -1
+    public int holderOf(int cell, int time) {
+        return entries.get(key(time, cell), -1);
+    }
+
+    public void reserve(int cell, int time, int agent) {
+        entries.put(key(time, cell), agent);
+    }
+
+    public void reserveMove(int from, int dir, int time, int agent) {
+        entries.put(key(time, MOVE | (long) from << 2 | dir), agent);
+    }
+
+    // agent leaving cell in direction dir at time, or -1
+    public int moverAt(int from, int dir, int time) {
+        return entries.get(key(time, MOVE | (long) from << 2 | dir), -1);
+    }
+
+    // true if agent can stand on cell at time
+    public boolean isFree(int cell, int time, int agent) {
+        int holder = holderOf(cell, time);
+        return holder < 0 || holder == agent;
+    }
+
+    // true if agent can go from one cell to its neighbor in direction dir, leaving at time:
+    // the target is free when it gets there and nobody comes the other way at the same time
+    public boolean canMove(int from, int dir, int to, int time, int agent) {
+        if (!isFree(to, time + 1, agent)) return false;
+        int oncoming = moverAt(to, Grid.opposite(dir), time);
+        return oncoming < 0 || oncoming == agent;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public long getMemoryBytes() {
+        return entries.getMemoryBytes();
+    }
+
+    private static long key(int time, long what) {
+        return (long) time << 34 | what;
+    }
+}
@@ -0,0 +1,124 @@
+package models;
+
+import java.util.Arrays;
+
+// exact distance from any cell to one goal, worked out only as far as somebody asks
+// (reverse resumable a*, silver 2005). it's an a* backwards from the goal toward a target
+// cell (the start of the first agent headed there) that stops as soon as the cell asked
+// about is settled and picks up where it stopped on the next question. settled cells have
+// their true distance whatever order they came in, so every agent going to the same goal
+// can share one, and together they only pay for the part of the map their paths go through.
+// everything is kept in hash maps, so a goal nobody asks much about costs next to nothing
+// however big the grid is. safe to share between threads
+public class ResumableDistance {
+    private static final int MISSING = -1;  // never the bits of a float Float.floatToIntBits() made
+
+    private final Grid grid;
+    private final int goal;
+    private final int targetRow;
+    private final int targetCol;
+    private final LongIntMap settled = new LongIntMap();  // cell -> float bits of its distance
+    private final LongIntMap best = new LongIntMap();     // cell -> float bits of the best so far
+    // open cells with their f, a cell can be in here more than once (the stale copies get skipped)
+    private int[] heapCells = new int[64];
+    private double[] heapKeys = new double[64];
+    private int heapSize;
+
+    // grid has to be a snapshot (or never edited while this is in use)
+    public ResumableDistance(Grid grid, int goal, int target) {
+        this.grid = grid;
+        this.goal = goal;
+        this.targetRow = target / grid.getCols();
+        this.targetCol = target % grid.getCols();
+        if (!grid.cellAt(goal).isWall()) {
+            best.put(goal, Float.floatToIntBits(0f));
+            push(goal, estimate(goal));
+        }
+    }
+
+    public int getGoal() {
+        return goal;
+    }
+
+    // cheapest cost from cell to the goal, infinity if there's no way
+    public synchronized float distance(int cell) {
+        int bits = settled.get(cell, MISSING);
+        if (bits != MISSING) return Float.intBitsToFloat(bits);
+
+        while (heapSize > 0) {
+            int current = pop();
+            if (settled.containsKey(current)) continue;
+            float g = Float.intBitsToFloat(best.get(current, MISSING));
+            settled.put(current, Float.floatToIntBits(g));
+
+            // the edges that go into current, walked backwards
+            Cell here = grid.cellAt(current);
+            for (int dir = 0; dir < Grid.DIRECTIONS; dir++) {
+                Cell neighbor = grid.getNeighbor(here, dir);
+                if (neighbor == null || neighbor.isWall()) continue;
+                int from = grid.indexOf(neighbor);
+                if (settled.containsKey(from)) continue;
+                float candidate = (float) (g + grid.getWeight(neighbor, Grid.opposite(dir)));
+                int known = best.get(from, MISSING);
+                if (known == MISSING || candidate < Float.intBitsToFloat(known)) {
+                    best.put(from, Float.floatToIntBits(candidate));
+                    push(from, candidate + estimate(from));
+                }
+            }
+            if (current == cell) return g;
+        }
+        return Float.POSITIVE_INFINITY;
+    }
+
+    // cells whose distance is known so far
+    public synchronized int getSettledCount() {
+        return settled.size();
+    }
+
+    public synchronized long getMemoryBytes() {
+        return settled.getMemoryBytes() + best.getMemoryBytes() + (long) heapCells.length * (Integer.BYTES + Double.BYTES);
+    }
+
+    // manhattan to the target, every edge costs at least 1 so it never overestimates
+    private double estimate(int cell) {
+        int row = cell / grid.getCols();
+        int col = cell % grid.getCols();
+        return Math.abs(row - targetRow) + Math.abs(col - targetCol);
+    }
+
+    private void push(int cell, double key) {
+        if (heapSize == heapCells.length) {
+            heapCells = Arrays.copyOf(heapCells, heapSize * 2);
+            heapKeys = Arrays.copyOf(heapKeys, heapSize * 2);
+        }
+        int pos = heapSize++;
+        while (pos > 0) {
+            int up = (pos - 1) >>> 1;
+            if (heapKeys[up] <= key) break;
+            heapCells[pos] = heapCells[up];
+            heapKeys[pos] = heapKeys[up];
+            pos = up;
+        }
+        heapCells[pos] = cell;
+        heapKeys[pos] = key;
+    }
+
+    private int pop() {
+        int top = heapCells[0];
+        int lastCell = heapCells[--heapSize];
+        double lastKey = heapKeys[heapSize];
+        int pos = 0;
+        while (true) {
+            int child = 2 * pos + 1;
+            if (child >= heapSize) break;
+            if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child]) child++;
+            if (heapKeys[child] >= lastKey) break;
+            heapCells[pos] = heapCells[child];
+            heapKeys[pos] = heapKeys[child];
+            pos = child;
+        }
+        heapCells[pos] = lastCell;
+        heapKeys[pos] = lastKey;
+        return top;
+    }
+}
@@ -0,0 +1,37 @@
+package models;
+
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+// splits a range of rows into fixed size stripes and works on them in parallel.
+// every stripe gets its own random stream split off the seed in stripe order, so
+// the result is the same no matter how many threads end up doing the work
+public final class RowStripes {
+    public static final int DEFAULT_STRIPE = 64;
+
+    public interface StripeTask {
+        void run(int stripe, int fromRow, int toRow, SplittableRandom random);
+    }
+
+    private RowStripes() {
+    }
+
+    public static int stripeCount(int rows, int stripeRows) {
+        return (rows + stripeRows - 1) / stripeRows;
+    }
+
+    public static void forEach(int rows, long seed, StripeTask task) {
+        forEach(rows, DEFAULT_STRIPE, seed, task);
+    }
+
+    public static void forEach(int rows, int stripeRows, long seed, StripeTask task) {
+        int stripes = stripeCount(rows, stripeRows);
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] randoms = new SplittableRandom[stripes];
+        for (int s = 0; s < stripes; s++) {
+            randoms[s] = root.split();
+        }
+        IntStream.range(0, stripes).parallel().forEach(s ->
+                task.run(s, s * stripeRows, Math.min(rows, (s + 1) * stripeRows), randoms[s]));
+    }
+}
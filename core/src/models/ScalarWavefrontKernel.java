@@ -0,0 +1,30 @@
+package models;
+
+// one 64-bit word at a time, for when the vector api isn't there
+final class ScalarWavefrontKernel implements WavefrontKernel {
+
+    @Override
+    public int lanes() {
+        return 1;
+    }
+
+    @Override
+    public boolean expand(long[] frontier, long[] next, long[] visited, long[] open, int from, int count, int stride) {
+        long any = 0;
+        for (int i = from; i < from + count; i++) {
+            long f = frontier[i];
+            // bit b is column b of the word, so moving right is a shift left; the bit that
+            // crosses into the next word comes from the neighbor word
+            long spread = f
+                    | (f << 1) | (frontier[i - 1] >>> 63)
+                    | (f >>> 1) | (frontier[i + 1] << 63)
+                    | frontier[i - stride]
+                    | frontier[i + stride];
+            long reached = spread & open[i] & ~visited[i];
+            next[i] = reached;
+            visited[i] |= reached;
+            any |= reached;
+        }
+        return any != 0;
+    }
+}
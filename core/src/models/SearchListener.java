@@ -0,0 +1,12 @@
+package models;
+
+// gets told about every change to a cell's search flags (see SearchState).
+// xor is the flag bits that flipped, so the same call undoes itself
+public interface SearchListener {
+    void flagsChanged(int index, int xor);
+
+    // a cell already in the open set got a cheaper distance (a decrease-key), which doesn't
+    // change any flags. only profiles care, so it does nothing by default
+    default void distanceLowered(int index) {
+    }
+}
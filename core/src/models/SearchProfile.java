@@ -0,0 +1,235 @@
+package models;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// where searches spend their work, added up over as many runs as you like: how often each
+// cell got expanded (closed) and relaxed (put on the open set, or given a cheaper distance
+// while on it). cells that light up across lots of queries are where pruning, a hierarchy
+// or a map edit would pay off.
+// a run doesn't touch the shared counts on every event, it appends them to a small buffer
+// of its own and adds the buffer to one of a few striped copies of the counts every
+// FLUSH_EVENTS events and when it finishes. a flush takes whichever stripe isn't locked,
+// so runs on many threads at once hardly ever wait for each other, and a stripe's arrays
+// only get allocated the first time something is flushed into it. reading sums the stripes.
+// setSampleEvery(n) only records every nth run, for when even that is too much
+public class SearchProfile {
+    private static final int FLUSH_EVENTS = 4096;
+    private static final int RELAXED = 1;  // low bit of a buffered event, the rest is the cell
+
+    private final int rows;
+    private final int cols;
+    private final Stripe[] stripes;
+    private final AtomicLong offered = new AtomicLong();  // runs handed to record()
+    private final AtomicLong runs = new AtomicLong();     // runs actually recorded
+    private volatile int sampleEvery = 1;
+
+    public SearchProfile(int rows, int cols) {
+        this(rows, cols, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    }
+
+    // every stripe is two ints per cell once it's used, so on huge grids keep them few
+    public SearchProfile(int rows, int cols, int stripeCount) {
+        if (rows < 1 || cols < 1) throw new IllegalArgumentException("grid size has to be positive");
+        if (stripeCount < 1) throw new IllegalArgumentException("need at least one stripe");
+        this.rows = rows;
+        this.cols = cols;
+        stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    // record only one run in every n from here on, 1 records them all
+    public void setSampleEvery(int n) {
+        if (n < 1) throw new IllegalArgumentException("sample rate has to be at least 1");
+        sampleEvery = n;
+    }
+
+    // starts recording a search, call right after init() and before the first step().
+    // finish() the run when the search is done or dropped, otherwise the tail of it is lost.
+    // a run the sampling skips records nothing but can be finished all the same
+    public Run record(SearchState state) {
+        Grid grid = state.getGrid();
+        if (grid.getRows() != rows || grid.getCols() != cols) {
+            throw new IllegalArgumentException("profile is for a " + rows + "x" + cols + " grid, the search is on "
+                    + grid.getRows() + "x" + grid.getCols());
+        }
+        Run run = new Run(state);
+        if (offered.getAndIncrement() % sampleEvery == 0) {
+            runs.incrementAndGet();
+            state.addListener(run);
+        }
+        return run;
+    }
+
+    // runs recorded so far
+    public long getRuns() {
+        return runs.get();
+    }
+
+    // times each cell was expanded, by Grid.indexOf(), over every flushed run
+    public int[] expansions() {
+        return sum(false);
+    }
+
+    // times each cell was relaxed, same
+    public int[] relaxations() {
+        return sum(true);
+    }
+
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                stripe.expanded = null;
+                stripe.relaxed = null;
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        runs.set(0);
+        offered.set(0);
+    }
+
+    public long getMemoryBytes() {
+        long bytes = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                if (stripe.expanded != null) bytes += 2L * Integer.BYTES * stripe.expanded.length;
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return bytes;
+    }
+
+    // every cell that was touched at all as "row,col,expansions,relaxations", under a
+    // comment line with the grid size and run count
+    public void writeCsv(Path file) throws IOException {
+        int[] expanded = expansions();
+        int[] relaxed = relaxations();
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("# search profile, " + rows + "x" + cols + " grid, " + getRuns() + " runs\n");
+            out.write("row,col,expansions,relaxations\n");
+            for (int i = 0; i < expanded.length; i++) {
+                if (expanded[i] == 0 && relaxed[i] == 0) continue;
+                out.write(i / cols + "," + i % cols + "," + expanded[i] + "," + relaxed[i] + "\n");
+            }
+        }
+    }
+
+    private int[] sum(boolean relaxations) {
+        int[] total = new int[rows * cols];
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                int[] counts = relaxations ? stripe.relaxed : stripe.expanded;
+                if (counts == null) continue;
+                for (int i = 0; i < total.length; i++) {
+                    total[i] += counts[i];
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return total;
+    }
+
+    // adds buffered events to the first stripe that's free, starting somewhere random so
+    // threads spread out, and waits for one only when they're all busy
+    private void flush(int[] events, int count) {
+        int start = ThreadLocalRandom.current().nextInt(stripes.length);
+        Stripe target = null;
+        for (int i = 0; i < stripes.length && target == null; i++) {
+            Stripe stripe = stripes[(start + i) % stripes.length];
+            if (stripe.lock.tryLock()) target = stripe;
+        }
+        if (target == null) {
+            target = stripes[start];
+            target.lock.lock();
+        }
+        try {
+            if (target.expanded == null) {
+                target.expanded = new int[rows * cols];
+                target.relaxed = new int[rows * cols];
+            }
+            int[] expanded = target.expanded;
+            int[] relaxed = target.relaxed;
+            for (int i = 0; i < count; i++) {
+                int event = events[i];
+                if ((event & RELAXED) != 0) {
+                    relaxed[event >>> 1]++;
+                } else {
+                    expanded[event >>> 1]++;
+                }
+            }
+        } finally {
+            target.lock.unlock();
+        }
+    }
+
+    private static class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        int[] expanded;  // both null until the first flush into this stripe
+        int[] relaxed;
+    }
+
+    // one search being recorded, only ever used by the thread running that search
+    public class Run implements SearchListener {
+        private final SearchState state;
+        private int[] events;  // made on the first event, runs the sampling skips never need it
+        private int count;
+        private boolean finished;
+
+        private Run(SearchState state) {
+            this.state = state;
+        }
+
+        @Override
+        public void flagsChanged(int index, int xor) {
+            if (finished) return;
+            // listeners hear about a change after it's made, so the flags say which way it went
+            byte flags = state.getFlags(index);
+            if ((xor & SearchState.CLOSED) != 0 && (flags & SearchState.CLOSED) != 0) add(index << 1);
+            if ((xor & SearchState.OPEN) != 0 && (flags & SearchState.OPEN) != 0) add(index << 1 | RELAXED);
+        }
+
+        @Override
+        public void distanceLowered(int index) {
+            if (!finished) add(index << 1 | RELAXED);
+        }
+
+        // adds what's still buffered to the profile, anything the search does after this is ignored
+        public void finish() {
+            if (finished) return;
+            finished = true;
+            if (count > 0) flush(events, count);
+            count = 0;
+        }
+
+        private void add(int event) {
+            if (events == null) events = new int[FLUSH_EVENTS];
+            events[count++] = event;
+            if (count == events.length) {
+                flush(events, count);
+                count = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package models;
+
+import java.util.List;
+
+// what came out of running one search to the end
+public class SearchResult {
+    private final String algorithm;
+    private final Cell start;
+    private final Cell goal;
+    private final CompactPath path;  // CompactPath.NONE when there is no path
+    private final Grid grid;          // snapshot the search ran on, for expanding the path
+    private final double cost;
+    private final int expansions;   // how many step() calls it took
+    private final long nanos;       // init + all the steps
+    private final SearchTrace trace;  // null unless the run was recorded
+
+    public SearchResult(String algorithm, Cell start, Cell goal, CompactPath path, Grid grid, double cost,
+                        int expansions, long nanos) {
+        this(algorithm, start, goal, path, grid, cost, expansions, nanos, null);
+    }
+
+    public SearchResult(String algorithm, Cell start, Cell goal, CompactPath path, Grid grid, double cost,
+                        int expansions, long nanos, SearchTrace trace) {
+        this.algorithm = algorithm;
+        this.start = start;
+        this.goal = goal;
+        this.path = path;
+        this.grid = grid;
+        this.cost = cost;
+        this.expansions = expansions;
+        this.nanos = nanos;
+        this.trace = trace;
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public Cell getStart() {
+        return start;
+    }
+
+    public Cell getGoal() {
+        return goal;
+    }
+
+    public boolean hasPath() {
+        return !path.isEmpty();
+    }
+
+    // the path as cells of the searched snapshot, expanded on every call. results are
+    // meant to be kept around by the thousand, so they only hold the compact form
+    public List<Cell> getPath() {
+        return path.toCells(grid);
+    }
+
+    public CompactPath getCompactPath() {
+        return path;
+    }
+
+    public double getCost() {
+        return cost;
+    }
+
+    // number of moves, one less than the number of cells
+    public int getLength() {
+        return path.getLength();
+    }
+
+    public int getExpansions() {
+        return expansions;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    public SearchTrace getTrace() {
+        return trace;
+    }
+}
@@ -0,0 +1,189 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// everything a search writes while it runs (visited/open/closed flags, parents,
+// distances), kept in plain arrays indexed by Grid.indexOf() instead of on the cells.
+// every search gets its own, so several can run on the same grid at the same time
+// and the grid itself is only ever read. the arrays are made on the first write, so the
+// memory-light searches (IterativeDeepeningAstar, FringeSearch) only pay for them when
+// somebody is watching
+public class SearchState {
+    public static final byte VISITED = 1;
+    public static final byte OPEN = 2;
+    public static final byte CLOSED = 4;
+    public static final byte PATH = 8;
+
+    private final Grid grid;
+    private byte[] flags;          // null until the first flag is set
+    private int[] parents;         // index of the previous cell, -1 for none, null until the first is set
+    private double[] distances;    // only allocated when a search actually uses them
+    private int openCount;
+    private int closedCount;
+    private SearchListener[] listeners = new SearchListener[0];  // recordings, views
+    private boolean watched;
+
+    public SearchState(Grid grid) {
+        this.grid = grid;
+    }
+
+    public Grid getGrid() {
+        return grid;
+    }
+
+    public boolean isVisited(Cell cell) {
+        return has(cell, VISITED);
+    }
+
+    public void setVisited(Cell cell, boolean visited) {
+        set(cell, VISITED, visited);
+    }
+
+    public boolean isInOpenSet(Cell cell) {
+        return has(cell, OPEN);
+    }
+
+    public void setInOpenSet(Cell cell, boolean inOpenSet) {
+        set(cell, OPEN, inOpenSet);
+    }
+
+    public boolean isInClosedSet(Cell cell) {
+        return has(cell, CLOSED);
+    }
+
+    public void setInClosedSet(Cell cell, boolean inClosedSet) {
+        set(cell, CLOSED, inClosedSet);
+    }
+
+    public boolean isInPath(Cell cell) {
+        return has(cell, PATH);
+    }
+
+    public void setInPath(Cell cell, boolean inPath) {
+        set(cell, PATH, inPath);
+    }
+
+    public Cell getParent(Cell cell) {
+        if (parents == null) return null;
+        int parent = parents[grid.indexOf(cell)];
+        return parent < 0 ? null : grid.cellAt(parent);
+    }
+
+    public void setParent(Cell cell, Cell parent) {
+        if (parents == null) {
+            parents = new int[grid.getIndexSize()];
+            Arrays.fill(parents, -1);
+        }
+        parents[grid.indexOf(cell)] = parent == null ? -1 : grid.indexOf(parent);
+    }
+
+    // cost to reach the cell, infinity until something sets it
+    public double getDistance(Cell cell) {
+        if (distances == null) return Double.POSITIVE_INFINITY;
+        return distances[grid.indexOf(cell)];
+    }
+
+    public void setDistance(Cell cell, double distance) {
+        if (distances == null) {
+            distances = new double[grid.getIndexSize()];
+            Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        }
+        int index = grid.indexOf(cell);
+        distances[index] = distance;
+        if (flags != null && (flags[index] & OPEN) != 0) {
+            for (SearchListener listener : listeners) {
+                listener.distanceLowered(index);
+            }
+        }
+    }
+
+    public void addListener(SearchListener listener) {
+        listeners = Arrays.copyOf(listeners, listeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+        watched = true;
+    }
+
+    // for readers that poll getFlags() instead of listening (a race view), so searches that
+    // only keep flags for an audience keep them
+    public void watch() {
+        watched = true;
+    }
+
+    // true once there's a listener or watch() was called
+    public boolean isWatched() {
+        return watched;
+    }
+
+    // raw flag bits of a cell, for drawing
+    public byte getFlags(int index) {
+        return flags == null ? 0 : flags[index];
+    }
+
+    // cells currently waiting in the open set
+    public int getOpenCount() {
+        return openCount;
+    }
+
+    // cells that have been fully expanded
+    public int getClosedCount() {
+        return closedCount;
+    }
+
+    // follows the parents back from goal, returns start..goal
+    public List<Cell> pathTo(Cell goal) {
+        List<Cell> path = new ArrayList<>();
+        int current = grid.indexOf(goal);
+        while (current >= 0) {
+            path.add(grid.cellAt(current));
+            current = parents == null ? -1 : parents[current];
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    // same path as start + runs of moves, without making a Cell list
+    public CompactPath compactPathTo(Cell goal) {
+        if (parents == null) return CompactPath.of(pathTo(goal));
+        return CompactPath.fromParents(grid, parents, grid.indexOf(goal));
+    }
+
+    // what the arrays made so far take up
+    public long getMemoryBytes() {
+        long bytes = 0;
+        if (flags != null) bytes += flags.length;
+        if (parents != null) bytes += (long) parents.length * Integer.BYTES;
+        if (distances != null) bytes += (long) distances.length * Double.BYTES;
+        return bytes;
+    }
+
+    // flags every cell on the path to goal
+    public void markPath(Cell goal) {
+        for (Cell cell : pathTo(goal)) {
+            setInPath(cell, true);
+        }
+    }
+
+    private boolean has(Cell cell, byte flag) {
+        return flags != null && (flags[grid.indexOf(cell)] & flag) != 0;
+    }
+
+    private void set(Cell cell, byte flag, boolean value) {
+        if (flags == null) {
+            if (!value) return;
+            flags = new byte[grid.getIndexSize()];
+        }
+        int index = grid.indexOf(cell);
+        byte old = flags[index];
+        byte updated = (byte) (value ? old | flag : old & ~flag);
+        if (old == updated) return;
+        flags[index] = updated;
+        for (SearchListener listener : listeners) {
+            listener.flagsChanged(index, old ^ updated);
+        }
+        if (flag == OPEN) openCount += value ? 1 : -1;
+        if (flag == CLOSED) closedCount += value ? 1 : -1;
+    }
+}
@@ -0,0 +1,366 @@
+package models;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// compact recording of a search run, so it can be scrubbed back and forth without running
+// it again. every change to a cell's flags is one varint: the xor of the flag bits in the
+// low 4 bits, and above that where the cell is. a neighbor of the anchor (the last cell that
+// wasn't coded as a neighbor, usually the cell being expanded) is just its direction, so
+// those fit in one byte; anything else is the zigzag distance from the anchor and becomes
+// the new anchor. a single 0 byte ends a step.
+// since every entry is an xor the same bytes replay backwards too, and every so often a full
+// copy of the flags (a keyframe) is kept so seeking far away doesn't replay everything.
+// keyframes are spaced so they never take more room than the entries themselves
+public class SearchTrace implements SearchListener {
+    private static final int MAGIC = 0x50545243;  // "PTRC"
+    private static final int FORMAT = 1;
+    private static final int MIN_KEYFRAME_GAP = 1 << 16;  // bytes of entries between keyframes
+    private static final int NEIGHBOR_CODES = Grid.DIRECTIONS;
+
+    private final String algorithm;
+    private final int rows;
+    private final int cols;
+    private final int start;  // cell indices
+    private final int goal;
+    private final int[] neighborDelta;
+    private final byte[] initial;  // flags before the first step
+    private final byte[] current;  // flags after the last recorded step
+
+    private byte[] data = new byte[1024];
+    private int size;
+    private int steps;
+    private int anchor;
+
+    // keyframe k: flags after keySteps[k] steps, entries continue at keyOffsets[k]
+    private final IntList keySteps = new IntList();
+    private final IntList keyOffsets = new IntList();
+    private final IntList keyAnchors = new IntList();
+    private final List<byte[]> keyFlags = new ArrayList<>();
+
+    private SearchTrace(String algorithm, int rows, int cols, int start, int goal, byte[] initial) {
+        this.algorithm = algorithm;
+        this.rows = rows;
+        this.cols = cols;
+        this.start = start;
+        this.goal = goal;
+        this.neighborDelta = new int[]{-1, 1, -cols, cols};  // same order as Grid.LEFT..DOWN
+        this.initial = initial;
+        this.current = initial.clone();
+        addKeyframe();
+    }
+
+    // starts recording a search right after its init(). call endStep() after every step()
+    public static SearchTrace record(String algorithm, Pathfinding search, Cell start, Cell goal) {
+        SearchState state = search.getState();
+        Grid grid = state.getGrid();
+        byte[] flags = new byte[grid.getIndexSize()];
+        for (int i = 0; i < flags.length; i++) {
+            flags[i] = state.getFlags(i);
+        }
+        SearchTrace trace = new SearchTrace(algorithm, grid.getRows(), grid.getCols(),
+                grid.indexOf(start), grid.indexOf(goal), flags);
+        state.addListener(trace);
+        return trace;
+    }
+
+    // called by SearchState whenever a cell's flags change
+    @Override
+    public void flagsChanged(int index, int xor) {
+        current[index] ^= (byte) xor;
+        int code = -1;
+        for (int dir = 0; dir < NEIGHBOR_CODES; dir++) {
+            if (index - anchor == neighborDelta[dir]) {
+                code = dir;
+                break;
+            }
+        }
+        if (code >= 0) {
+            writeVarint(((long) code << 4) | xor);
+        } else {
+            writeVarint(((zigzag(index - anchor) + NEIGHBOR_CODES) << 4) | xor);
+            anchor = index;
+        }
+    }
+
+    public void endStep() {
+        writeVarint(0);
+        steps++;
+        int sinceKeyframe = size - keyOffsets.get(keyOffsets.size() - 1);
+        if (sinceKeyframe >= Math.max(MIN_KEYFRAME_GAP, current.length)) {
+            addKeyframe();
+        }
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getGoal() {
+        return goal;
+    }
+
+    public int getStepCount() {
+        return steps;
+    }
+
+    public int getKeyframeCount() {
+        return keyFlags.size();
+    }
+
+    // bytes used by the recording itself, entries plus keyframes
+    public long getMemoryBytes() {
+        return size + (long) keyFlags.size() * current.length;
+    }
+
+    public double getBytesPerStep() {
+        return steps == 0 ? 0 : size / (double) steps;
+    }
+
+    public Replay replay() {
+        return new Replay();
+    }
+
+    // a position in the trace with the flags as they were after that many steps
+    public class Replay {
+        private final byte[] flags = initial.clone();
+        private int step;
+        private int offset;  // where the entries of the next step start
+        private int replayAnchor;
+        private SearchListener listener;  // told about every cell the replay changes
+
+        public int getStep() {
+            return step;
+        }
+
+        public void setListener(SearchListener listener) {
+            this.listener = listener;
+        }
+
+        public byte getFlags(int index) {
+            return flags[index];
+        }
+
+        // jumps to the given step, from wherever is cheapest: here or the nearest keyframe
+        public void seek(int target) {
+            target = Math.max(0, Math.min(steps, target));
+            int k = keyframeAtOrBefore(target);
+            double bytesPerStep = Math.max(1, getBytesPerStep());
+            double fromHere = Math.abs(target - step) * bytesPerStep;
+            double fromKeyframe = flags.length + (target - keySteps.get(k)) * bytesPerStep;
+            if (fromKeyframe < fromHere) {
+                byte[] keyframe = keyFlags.get(k);
+                if (listener != null) {
+                    for (int i = 0; i < flags.length; i++) {
+                        if (flags[i] != keyframe[i]) listener.flagsChanged(i, flags[i] ^ keyframe[i]);
+                    }
+                }
+                System.arraycopy(keyframe, 0, flags, 0, flags.length);
+                step = keySteps.get(k);
+                offset = keyOffsets.get(k);
+                replayAnchor = keyAnchors.get(k);
+            }
+            while (step < target) forward();
+            while (step > target) backward();
+        }
+
+        public boolean forward() {
+            if (step >= steps) return false;
+            int position = offset;
+            while (true) {
+                long value = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[position++];
+                    value |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                if (value == 0) break;  // end of the step
+
+                int xor = (int) (value & 15);
+                long where = value >>> 4;
+                if (where < NEIGHBOR_CODES) {
+                    toggle(replayAnchor + neighborDelta[(int) where], xor);
+                } else {
+                    replayAnchor += unzigzag(where - NEIGHBOR_CODES);
+                    toggle(replayAnchor, xor);
+                }
+            }
+            offset = position;
+            step++;
+            return true;
+        }
+
+        public boolean backward() {
+            if (step == 0) return false;
+            int end = offset - 1;  // the 0 that ended the previous step
+            while (end > 0) {
+                // a varint ends on a byte without the high bit, walk back to where it starts
+                int begin = end - 1;
+                while (begin > 0 && data[begin - 1] < 0) begin--;
+                long value = 0;
+                for (int i = begin, shift = 0; i < end; i++, shift += 7) {
+                    value |= (long) (data[i] & 0x7F) << shift;
+                }
+                if (value == 0) break;  // start of the step we're undoing
+
+                int xor = (int) (value & 15);
+                long where = value >>> 4;
+                if (where < NEIGHBOR_CODES) {
+                    toggle(replayAnchor + neighborDelta[(int) where], xor);
+                } else {
+                    toggle(replayAnchor, xor);
+                    replayAnchor -= unzigzag(where - NEIGHBOR_CODES);
+                }
+                end = begin;
+            }
+            offset = end;
+            step--;
+            return true;
+        }
+
+        private void toggle(int index, int xor) {
+            flags[index] ^= (byte) xor;
+            if (listener != null) listener.flagsChanged(index, xor);
+        }
+    }
+
+    // gzip'd binary: header, the flags before the first step, then the entries.
+    // keyframes aren't stored, reading rebuilds them
+    public void write(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(Files.newOutputStream(file))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.writeUTF(algorithm);
+            out.writeInt(rows);
+            out.writeInt(cols);
+            out.writeInt(initial.length);
+            out.writeInt(start);
+            out.writeInt(goal);
+            out.writeInt(steps);
+            out.write(initial);
+            out.writeInt(size);
+            out.write(data, 0, size);
+        }
+    }
+
+    public static SearchTrace read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(file))))) {
+            if (in.readInt() != MAGIC) throw new IOException(file + " is not a search trace");
+            int format = in.readInt();
+            if (format != FORMAT) throw new IOException("unsupported trace format " + format);
+            String algorithm = in.readUTF();
+            int rows = in.readInt();
+            int cols = in.readInt();
+            int cells = in.readInt();
+            int start = in.readInt();
+            int goal = in.readInt();
+            int steps = in.readInt();
+            if (rows <= 0 || cols <= 0 || cells < rows * cols || steps < 0) {
+                throw new IOException("bad trace header");
+            }
+            byte[] initial = new byte[cells];
+            in.readFully(initial);
+            int size = in.readInt();
+            if (size < steps) throw new IOException("bad trace header");
+            byte[] data = new byte[size];
+            in.readFully(data);
+
+            SearchTrace trace = new SearchTrace(algorithm, rows, cols, start, goal, initial);
+            trace.replayAll(data, size, steps);
+            return trace;
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("corrupt trace: " + e.getMessage());
+        }
+    }
+
+    // feeds recorded entries through the recorder again, which rebuilds current and the keyframes
+    private void replayAll(byte[] entries, int length, int expectedSteps) throws IOException {
+        int position = 0;
+        int at = 0;
+        while (position < length) {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = entries[position++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+
+            if (value == 0) {
+                endStep();
+                continue;
+            }
+            long where = value >>> 4;
+            at = where < NEIGHBOR_CODES
+                    ? anchor + neighborDelta[(int) where]
+                    : anchor + unzigzag(where - NEIGHBOR_CODES);
+            flagsChanged(at, (int) (value & 15));
+        }
+        if (steps != expectedSteps) {
+            throw new IOException("trace says " + expectedSteps + " steps but has " + steps);
+        }
+    }
+
+    private int keyframeAtOrBefore(int step) {
+        int lo = 0;
+        int hi = keySteps.size() - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (keySteps.get(mid) <= step) lo = mid; else hi = mid - 1;
+        }
+        return lo;
+    }
+
+    private void addKeyframe() {
+        keySteps.add(steps);
+        keyOffsets.add(size);
+        keyAnchors.add(anchor);
+        keyFlags.add(keyFlags.isEmpty() ? initial : current.clone());
+    }
+
+    private void writeVarint(long value) {
+        if (size + 10 > data.length) {
+            data = Arrays.copyOf(data, data.length * 2);
+        }
+        while ((value & ~0x7FL) != 0) {
+            data[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[size++] = (byte) value;
+    }
+
+    private static long zigzag(int delta) {
+        return ((long) delta << 1) ^ (delta >> 31);
+    }
+
+    private static int unzigzag(long value) {
+        return (int) ((value >>> 1) ^ -(value & 1));
+    }
+}
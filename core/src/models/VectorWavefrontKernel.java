@@ -0,0 +1,38 @@
+package models;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// same as ScalarWavefrontKernel but as many words per instruction as the cpu's widest
+// vectors hold. the neighbor words are just loads one element to either side.
+// only ever loaded by name, after Wavefront checked that jdk.incubator.vector is there
+final class VectorWavefrontKernel implements WavefrontKernel {
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    @Override
+    public int lanes() {
+        return SPECIES.length();
+    }
+
+    @Override
+    public boolean expand(long[] frontier, long[] next, long[] visited, long[] open, int from, int count, int stride) {
+        LongVector any = LongVector.zero(SPECIES);
+        for (int i = from; i < from + count; i += SPECIES.length()) {
+            LongVector f = LongVector.fromArray(SPECIES, frontier, i);
+            LongVector left = LongVector.fromArray(SPECIES, frontier, i - 1);
+            LongVector right = LongVector.fromArray(SPECIES, frontier, i + 1);
+            LongVector spread = f
+                    .or(f.lanewise(VectorOperators.LSHL, 1)).or(left.lanewise(VectorOperators.LSHR, 63))
+                    .or(f.lanewise(VectorOperators.LSHR, 1)).or(right.lanewise(VectorOperators.LSHL, 63))
+                    .or(LongVector.fromArray(SPECIES, frontier, i - stride))
+                    .or(LongVector.fromArray(SPECIES, frontier, i + stride));
+            LongVector seen = LongVector.fromArray(SPECIES, visited, i);
+            LongVector reached = spread.and(LongVector.fromArray(SPECIES, open, i)).and(seen.not());
+            reached.intoArray(next, i);
+            seen.or(reached).intoArray(visited, i);
+            any = any.or(reached);
+        }
+        return any.reduceLanes(VectorOperators.OR) != 0;
+    }
+}
@@ -0,0 +1,219 @@
+package models;
+
+import java.util.Arrays;
+
+// unit cost distances (the number of moves, what BFS finds) from one or more cells to
+// every other cell, done a whole frontier at a time instead of a cell at a time.
+// the open cells are packed 64 to a long, a row per stretch of words with an empty guard
+// word on each side and an empty guard row above and below, so a layer of the search is
+// just shifts, ors and ands over the rows the frontier is in. the kernel doing that runs
+// on jdk.incubator.vector when the jvm has it (--add-modules jdk.incubator.vector) and on
+// plain longs otherwise; both give the same bits
+public class Wavefront {
+    private static final WavefrontKernel KERNEL = loadKernel();
+
+    private final int rows;
+    private final int cols;
+    private final int stride;  // longs per row including the guard words
+    private final int words;   // longs per row handed to the kernel, a multiple of its lanes
+    private final long[] open; // 1 = not a wall, guards and the bits past the last column are 0
+    private final int maskWords;     // longs per row of a Frontier mask, a bit per word
+    private final long lastMaskWord; // bits of the last mask long that stand for real words
+
+    public Wavefront(Grid grid) {
+        this.rows = grid.getRows();
+        this.cols = grid.getCols();
+        int lanes = KERNEL.lanes();
+        this.words = ((cols + 63) / 64 + lanes - 1) / lanes * lanes;
+        this.stride = words + 2;
+        this.open = new long[(rows + 2) * stride];
+        this.maskWords = (words + 63) >>> 6;
+        this.lastMaskWord = words % 64 == 0 ? -1L : (1L << words % 64) - 1;
+
+        // walls are read once, from a snapshot so the bitmap is one consistent version
+        Grid snapshot = grid.snapshot();
+        for (int r = 0; r < rows; r++) {
+            int base = (r + 1) * stride + 1;
+            for (int c = 0; c < cols; c++) {
+                if (!snapshot.getCell(r, c).isWall()) {
+                    open[base + (c >>> 6)] |= 1L << c;
+                }
+            }
+        }
+    }
+
+    // true when the vector kernel is in use
+    public static boolean isVectorized() {
+        return KERNEL instanceof VectorWavefrontKernel;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    // moves from the nearest source to every cell by Grid.indexOf, -1 for walls and cells
+    // no source can reach. sources on walls are ignored
+    public int[] distances(int... sources) {
+        int[] dist = new int[rows * cols];
+        Arrays.fill(dist, -1);
+        long[] frontier = new long[open.length];
+        long[] next = new long[open.length];
+        long[] visited = new long[open.length];
+        // a bit per word of the bitmaps saying which words hold frontier bits. the kernel only
+        // runs over the words around those, so the inside of an area that's already been
+        // flooded isn't scanned again on every layer
+        Frontier current = new Frontier();
+        Frontier reached = new Frontier();
+
+        for (int source : sources) {
+            int r = source / cols;
+            int c = source % cols;
+            int word = (r + 1) * stride + 1 + (c >>> 6);
+            if ((open[word] & 1L << c) == 0) continue;
+            frontier[word] |= 1L << c;
+            visited[word] |= 1L << c;
+            dist[source] = 0;
+            current.add(r + 1, c >>> 6);
+        }
+
+        int lanes = KERNEL.lanes();
+        long[] around = new long[maskWords];  // words of one row worth running the kernel on
+        for (int layer = 1; !current.isEmpty(); layer++) {
+            int from = Math.max(1, current.minRow - 1);
+            int to = Math.min(rows, current.maxRow + 1);
+            for (int row = from; row <= to; row++) {
+                // a row can only be reached from itself or the rows next to it, one word either side
+                if (!current.around(row, around)) continue;
+                int base = row * stride + 1;
+                int word = nextSetBit(around, 0);
+                while (word >= 0) {
+                    int start = word / lanes * lanes;
+                    int end = Math.min(words, (nextClearBit(around, word) + lanes - 1) / lanes * lanes);
+                    if (KERNEL.expand(frontier, next, visited, open, base + start, end - start, stride)) {
+                        record(next, base, row, start, end, layer, dist, reached);
+                    }
+                    word = end < words ? nextSetBit(around, end) : -1;
+                }
+            }
+
+            // the old frontier's words are cleared so the buffer can take the layer after next
+            current.clearWords(frontier);
+            long[] swap = frontier;
+            frontier = next;
+            next = swap;
+            Frontier swapFrontier = current;
+            current = reached;
+            reached = swapFrontier;
+        }
+        return dist;
+    }
+
+    // the cells a layer reached in one row get that layer as their distance
+    private void record(long[] next, int base, int row, int fromWord, int toWord, int layer, int[] dist, Frontier reached) {
+        int rowStart = (row - 1) * cols;
+        for (int w = fromWord; w < toWord; w++) {
+            long bits = next[base + w];
+            if (bits == 0) continue;
+            reached.add(row, w);
+            while (bits != 0) {
+                int col = (w << 6) + Long.numberOfTrailingZeros(bits);
+                dist[rowStart + col] = layer;
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    private static int nextSetBit(long[] bits, int from) {
+        int i = from >>> 6;
+        if (i >= bits.length) return -1;
+        long word = bits[i] & (-1L << from);
+        while (word == 0) {
+            if (++i == bits.length) return -1;
+            word = bits[i];
+        }
+        return (i << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    private static int nextClearBit(long[] bits, int from) {
+        int i = from >>> 6;
+        long word = ~bits[i] & (-1L << from);
+        while (word == 0) {
+            if (++i == bits.length) return bits.length << 6;
+            word = ~bits[i];
+        }
+        return (i << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    // which words of the bitmap hold bits of one frontier, a bit per word
+    private class Frontier {
+        final long[] mask = new long[(rows + 2) * maskWords];
+        int minRow = Integer.MAX_VALUE;
+        int maxRow = -1;
+
+        void add(int row, int word) {
+            mask[row * maskWords + (word >>> 6)] |= 1L << word;
+            minRow = Math.min(minRow, row);
+            maxRow = Math.max(maxRow, row);
+        }
+
+        boolean isEmpty() {
+            return maxRow < 0;
+        }
+
+        // words of the row with a frontier word in or next to them in this row or the ones
+        // above and below. false if there are none
+        boolean around(int row, long[] out) {
+            long any = 0;
+            for (int m = 0; m < maskWords; m++) {
+                out[m] = mask[(row - 1) * maskWords + m] | mask[row * maskWords + m] | mask[(row + 1) * maskWords + m];
+                any |= out[m];
+            }
+            if (any == 0) return false;
+            long carry = 0;
+            for (int m = 0; m < maskWords; m++) {
+                long bits = out[m];
+                long fromNext = m + 1 < maskWords ? out[m + 1] << 63 : 0;
+                out[m] = bits | bits << 1 | bits >>> 1 | carry | fromNext;
+                carry = bits >>> 63;
+            }
+            out[maskWords - 1] &= lastMaskWord;
+            return true;
+        }
+
+        // zeroes the bitmap words this frontier has bits in, and forgets them
+        void clearWords(long[] bitmap) {
+            if (isEmpty()) return;
+            for (int row = minRow; row <= maxRow; row++) {
+                for (int m = 0; m < maskWords; m++) {
+                    long bits = mask[row * maskWords + m];
+                    while (bits != 0) {
+                        int word = (m << 6) + Long.numberOfTrailingZeros(bits);
+                        bitmap[row * stride + 1 + word] = 0;
+                        bits &= bits - 1;
+                    }
+                    mask[row * maskWords + m] = 0;
+                }
+            }
+            minRow = Integer.MAX_VALUE;
+            maxRow = -1;
+        }
+    }
+
+    // the vector kernel only if the module is in the boot layer, otherwise loading the
+    // class would fail on the missing jdk.incubator.vector types
+    private static WavefrontKernel loadKernel() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (WavefrontKernel) Class.forName("models.VectorWavefrontKernel")
+                        .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // fall through to the scalar one
+            }
+        }
+        return new ScalarWavefrontKernel();
+    }
+}
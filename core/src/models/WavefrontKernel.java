@@ -0,0 +1,15 @@
+package models;
+
+// the inner loop of Wavefront: grows the frontier of one row by one step.
+// there's a plain java one and one on jdk.incubator.vector, picked once at startup
+interface WavefrontKernel {
+
+    // how many words one call handles at a time, rows are padded to a multiple of this
+    int lanes();
+
+    // for words [from, from + count) of the packed bitmaps:
+    //   next = (frontier spread one cell in every direction) & open & ~visited, visited |= next
+    // the row above and below are one stride away, the words before from and after the
+    // last one are guard words. returns true if any bit of next was set
+    boolean expand(long[] frontier, long[] next, long[] visited, long[] open, int from, int count, int stride);
+}
@@ -0,0 +1,78 @@
+package models;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// works out edge weights on demand instead of storing an Edge per direction.
+// the base weight (1-9) of every (cell, direction) comes from hashing the seed with
+// the cell position, so it's the same every time and costs no memory. it gets
+// multiplied by the terrain cost of the cell we're moving into. edges someone set
+// by hand go into a small override map
+public class WeightModel {
+    public static final double MIN_WEIGHT = 1.0;  // cheapest any edge can be
+    private final long seed;
+    private final Map<Long, Double> overrides = new HashMap<>();
+
+    public WeightModel(long seed) {
+        this.seed = seed;
+    }
+
+    // copy with its own override map, the original can keep being read while this one changes
+    public WeightModel(WeightModel other) {
+        this.seed = other.seed;
+        this.overrides.putAll(other.overrides);
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    // weight of leaving (row, col) in direction dir into destination
+    public double weight(int row, int col, int dir, Cell destination) {
+        if (destination.isWall()) return Double.POSITIVE_INFINITY;
+        if (!overrides.isEmpty()) {
+            Double override = overrides.get(key(row, col, dir));
+            if (override != null) return override;
+        }
+        return baseWeight(row, col, dir) * destination.getTerrainCost();
+    }
+
+    // the random part of the weight, 1 to 9
+    public int baseWeight(int row, int col, int dir) {
+        long h = seed
+                + row * 0x9E3779B97F4A7C15L
+                + col * 0xC2B2AE3D27D4EB4FL
+                + dir * 0x165667B19E3779F9L;
+        // splitmix64 finalizer to mix the bits properly
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        h ^= h >>> 31;
+        return 1 + (int) ((h >>> 1) % 9);
+    }
+
+    // at least 1, like every generated weight: manhattan, the nearest-goal bounds and
+    // ResumableDistance all count on no edge costing less than one step
+    public void setOverride(int row, int col, int dir, double weight) {
+        if (!(weight >= MIN_WEIGHT)) {
+            throw new IllegalArgumentException("edge weight has to be at least " + MIN_WEIGHT + ": " + weight);
+        }
+        overrides.put(key(row, col, dir), weight);
+    }
+
+    public void clearOverride(int row, int col, int dir) {
+        overrides.remove(key(row, col, dir));
+    }
+
+    public void clearOverrides() {
+        overrides.clear();
+    }
+
+    public Map<Long, Double> getOverrides() {
+        return overrides;
+    }
+
+    // packs the edge into one long: row and col get 30 bits each, dir the last 2
+    public static long key(int row, int col, int dir) {
+        return ((long) row << 32) | ((long) col << 2) | dir;
+    }
+}
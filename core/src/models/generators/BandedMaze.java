@@ -0,0 +1,64 @@
+package models.generators;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import models.RowStripes;
+
+// base for perfect mazes (exactly one path between any two open cells).
+// rooms sit on odd rows/cols with walls between them. the room rows are cut into
+// bands that get carved independently on different threads, then neighboring bands
+// are joined by a single opening each, which keeps the whole thing a perfect maze
+public abstract class BandedMaze implements MapGenerator {
+    private static final int BAND_ROOM_ROWS = RowStripes.DEFAULT_STRIPE / 2;
+
+    @Override
+    public byte[] generate(int rows, int cols, long seed) {
+        byte[] map = new byte[rows * cols];
+        Arrays.fill(map, WALL);
+
+        int roomRows = (rows - 1) / 2;
+        int roomCols = (cols - 1) / 2;
+        if (roomRows <= 0 || roomCols <= 0) {
+            Arrays.fill(map, NORMAL);  // too small for a maze
+            return map;
+        }
+
+        Carver carver = new Carver(map, cols);
+        RowStripes.forEach(roomRows, BAND_ROOM_ROWS, seed, (band, fromRoomRow, toRoomRow, random) ->
+                carveBand(carver, fromRoomRow, toRoomRow - fromRoomRow, roomCols, random));
+
+        // one door between every pair of neighboring bands
+        SplittableRandom doors = new SplittableRandom(~seed);
+        for (int boundary = BAND_ROOM_ROWS; boundary < roomRows; boundary += BAND_ROOM_ROWS) {
+            int roomCol = doors.nextInt(roomCols);
+            carver.passage(boundary - 1, roomCol, boundary, roomCol);
+        }
+        return map;
+    }
+
+    // carves a perfect maze over the rooms [firstRoomRow, firstRoomRow + height) x [0, width)
+    protected abstract void carveBand(Carver carver, int firstRoomRow, int height, int width, SplittableRandom random);
+
+    // writes rooms and the walls between them into the map
+    protected static class Carver {
+        private final byte[] map;
+        private final int cols;
+
+        Carver(byte[] map, int cols) {
+            this.map = map;
+            this.cols = cols;
+        }
+
+        public void room(int roomRow, int roomCol) {
+            map[(2 * roomRow + 1) * cols + 2 * roomCol + 1] = NORMAL;
+        }
+
+        // opens both rooms and the wall between them, they have to be next to each other
+        public void passage(int roomRowA, int roomColA, int roomRowB, int roomColB) {
+            room(roomRowA, roomColA);
+            room(roomRowB, roomColB);
+            map[(roomRowA + roomRowB + 1) * cols + roomColA + roomColB + 1] = NORMAL;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package models.generators;
+
+import models.RowStripes;
+
+// cave maps: start from random noise and smooth it with the 4-5 cellular automaton
+// rule a few times (a cell becomes wall if 5 or more of the 9 cells around it are walls)
+public class CellularCaves implements MapGenerator {
+    private final double fill;
+    private final int iterations;
+
+    public CellularCaves() {
+        this(0.45, 5);
+    }
+
+    public CellularCaves(double fill, int iterations) {
+        this.fill = fill;
+        this.iterations = iterations;
+    }
+
+    @Override
+    public String getName() {
+        return "Caves (Cellular Automaton)";
+    }
+
+    @Override
+    public byte[] generate(int rows, int cols, long seed) {
+        byte[] noise = new byte[rows * cols];
+        RowStripes.forEach(rows, seed, (stripe, fromRow, toRow, random) -> {
+            for (int r = fromRow; r < toRow; r++) {
+                for (int c = 0; c < cols; c++) {
+                    boolean border = r == 0 || c == 0 || r == rows - 1 || c == cols - 1;
+                    noise[r * cols + c] = border || random.nextDouble() < fill ? WALL : NORMAL;
+                }
+            }
+        });
+
+        // every generation only reads the previous one, so stripes can't step on each other
+        byte[] current = noise;
+        byte[] next = new byte[rows * cols];
+        for (int i = 0; i < iterations; i++) {
+            byte[] from = current;
+            byte[] to = next;
+            RowStripes.forEach(rows, seed, (stripe, fromRow, toRow, random) -> smooth(from, to, rows, cols, fromRow, toRow));
+            next = current;
+            current = to;
+        }
+        return current;
+    }
+
+    private static void smooth(byte[] from, byte[] to, int rows, int cols, int fromRow, int toRow) {
+        for (int r = fromRow; r < toRow; r++) {
+            for (int c = 0; c < cols; c++) {
+                int walls = 0;
+                for (int dr = -1; dr <= 1; dr++) {
+                    for (int dc = -1; dc <= 1; dc++) {
+                        int nr = r + dr;
+                        int nc = c + dc;
+                        // outside the map counts as wall so caves close up at the edges
+                        if (nr < 0 || nr >= rows || nc < 0 || nc >= cols || from[nr * cols + nc] == WALL) {
+                            walls++;
+                        }
+                    }
+                }
+                to[r * cols + c] = walls >= 5 ? WALL : NORMAL;
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package models.generators;
+
+import java.util.Arrays;
+import java.util.List;
+
+// builds a whole map from a seed. output is a row-major array of Cell.TerrainType
+// ordinals that Grid.applyTerrain() can take directly. generators don't touch the
+// grid themselves so they can run on a background thread
+public interface MapGenerator {
+    byte NORMAL = 0;
+    byte SAND = 1;
+    byte WATER = 2;
+    byte MOUNTAIN = 3;
+    byte WALL = 4;
+
+    String getName();
+
+    // same rows, cols and seed always give the same map
+    byte[] generate(int rows, int cols, long seed);
+
+    static List<MapGenerator> all() {
+        return Arrays.asList(
+                new RandomWalls(0.3),
+                new RecursiveBacktrackerMaze(),
+                new WilsonMaze(),
+                new CellularCaves(),
+                new NoiseTerrain()
+        );
+    }
+}
@@ -0,0 +1,89 @@
+package models.generators;
+
+import models.RowStripes;
+
+// rolling terrain from fractal value noise: low ground is water, then normal,
+// sand, mountains, and the highest peaks are impassable.
+// the noise is a pure function of (seed, x, y) so stripes need no shared state
+public class NoiseTerrain implements MapGenerator {
+    private static final int OCTAVES = 4;
+
+    private final double scale;  // size of the biggest features in cells
+
+    public NoiseTerrain() {
+        this(32);
+    }
+
+    public NoiseTerrain(double scale) {
+        this.scale = scale;
+    }
+
+    @Override
+    public String getName() {
+        return "Terrain (Noise)";
+    }
+
+    @Override
+    public byte[] generate(int rows, int cols, long seed) {
+        byte[] map = new byte[rows * cols];
+        RowStripes.forEach(rows, seed, (stripe, fromRow, toRow, random) -> {
+            for (int r = fromRow; r < toRow; r++) {
+                for (int c = 0; c < cols; c++) {
+                    map[r * cols + c] = band(height(seed, r / scale, c / scale));
+                }
+            }
+        });
+        return map;
+    }
+
+    private static byte band(double height) {
+        if (height < 0.30) return WATER;
+        if (height < 0.55) return NORMAL;
+        if (height < 0.68) return SAND;
+        if (height < 0.82) return MOUNTAIN;
+        return WALL;
+    }
+
+    // sum of a few octaves of value noise, roughly in [0, 1)
+    private static double height(long seed, double y, double x) {
+        double total = 0;
+        double amplitude = 0.5;
+        double norm = 0;
+        for (int octave = 0; octave < OCTAVES; octave++) {
+            total += amplitude * valueNoise(seed + octave * 0x9E3779B97F4A7C15L, x, y);
+            norm += amplitude;
+            x *= 2;
+            y *= 2;
+            amplitude *= 0.5;
+        }
+        return total / norm;
+    }
+
+    // random value on every integer lattice point, smoothly blended in between
+    private static double valueNoise(long seed, double x, double y) {
+        int x0 = (int) Math.floor(x);
+        int y0 = (int) Math.floor(y);
+        double fx = fade(x - x0);
+        double fy = fade(y - y0);
+        double top = lerp(lattice(seed, x0, y0), lattice(seed, x0 + 1, y0), fx);
+        double bottom = lerp(lattice(seed, x0, y0 + 1), lattice(seed, x0 + 1, y0 + 1), fx);
+        return lerp(top, bottom, fy);
+    }
+
+    private static double lattice(long seed, int x, int y) {
+        long h = seed ^ (x * 0x632BE59BD9B4E019L) ^ (y * 0x8CB92BA72F3D8DD7L);
+        // splitmix64 finalizer
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        h ^= h >>> 31;
+        return (h >>> 11) * 0x1.0p-53;
+    }
+
+    private static double fade(double t) {
+        return t * t * (3 - 2 * t);
+    }
+
+    private static double lerp(double a, double b, double t) {
+        return a + (b - a) * t;
+    }
+}
@@ -0,0 +1,30 @@
+package models.generators;
+
+import models.RowStripes;
+
+// scatters walls at random, the old "generate maze" button
+public class RandomWalls implements MapGenerator {
+    private final double density;  // chance for each cell to be a wall
+
+    public RandomWalls(double density) {
+        this.density = density;
+    }
+
+    @Override
+    public String getName() {
+        return String.format("Random Walls (%d%%)", Math.round(density * 100));
+    }
+
+    @Override
+    public byte[] generate(int rows, int cols, long seed) {
+        byte[] map = new byte[rows * cols];
+        RowStripes.forEach(rows, seed, (stripe, fromRow, toRow, random) -> {
+            for (int r = fromRow; r < toRow; r++) {
+                for (int c = 0; c < cols; c++) {
+                    map[r * cols + c] = random.nextDouble() < density ? WALL : NORMAL;
+                }
+            }
+        });
+        return map;
+    }
+}
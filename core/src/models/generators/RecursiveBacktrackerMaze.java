@@ -0,0 +1,52 @@
+package models.generators;
+
+import java.util.SplittableRandom;
+
+// classic depth first maze: keep walking to a random unvisited room,
+// back up when stuck. long winding corridors, few dead ends
+public class RecursiveBacktrackerMaze extends BandedMaze {
+    private static final int[] DR = {0, 0, -1, 1};
+    private static final int[] DC = {-1, 1, 0, 0};
+
+    @Override
+    public String getName() {
+        return "Maze (Recursive Backtracker)";
+    }
+
+    @Override
+    protected void carveBand(Carver carver, int firstRoomRow, int height, int width, SplittableRandom random) {
+        boolean[] visited = new boolean[height * width];
+        int[] stack = new int[height * width];  // explicit stack, recursion would blow up on big maps
+        int top = 0;
+
+        int start = random.nextInt(height * width);
+        visited[start] = true;
+        carver.room(firstRoomRow + start / width, start % width);
+        stack[top++] = start;
+
+        int[] options = new int[4];
+        while (top > 0) {
+            int current = stack[top - 1];
+            int r = current / width;
+            int c = current % width;
+
+            int count = 0;
+            for (int d = 0; d < 4; d++) {
+                int nr = r + DR[d];
+                int nc = c + DC[d];
+                if (nr >= 0 && nr < height && nc >= 0 && nc < width && !visited[nr * width + nc]) {
+                    options[count++] = nr * width + nc;
+                }
+            }
+            if (count == 0) {
+                top--;  // dead end, back up
+                continue;
+            }
+
+            int next = options[random.nextInt(count)];
+            visited[next] = true;
+            carver.passage(firstRoomRow + r, c, firstRoomRow + next / width, next % width);
+            stack[top++] = next;
+        }
+    }
+}
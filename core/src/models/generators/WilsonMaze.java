@@ -0,0 +1,60 @@
+package models.generators;
+
+import java.util.SplittableRandom;
+
+// wilson's algorithm: loop erased random walks until every room joins the tree.
+// gives a uniformly random spanning tree, so no visible bias like the backtracker
+public class WilsonMaze extends BandedMaze {
+    private static final int[] DR = {0, 0, -1, 1};
+    private static final int[] DC = {-1, 1, 0, 0};
+
+    @Override
+    public String getName() {
+        return "Maze (Wilson)";
+    }
+
+    @Override
+    protected void carveBand(Carver carver, int firstRoomRow, int height, int width, SplittableRandom random) {
+        int size = height * width;
+        boolean[] inTree = new boolean[size];
+        byte[] exit = new byte[size];  // direction the walk last left each room, overwriting erases loops
+
+        int root = random.nextInt(size);
+        inTree[root] = true;
+        carver.room(firstRoomRow + root / width, root % width);
+
+        for (int start = 0; start < size; start++) {
+            if (inTree[start]) continue;
+
+            // random walk until we bump into the tree
+            int current = start;
+            while (!inTree[current]) {
+                int r = current / width;
+                int c = current % width;
+                int d;
+                int nr;
+                int nc;
+                do {
+                    d = random.nextInt(4);
+                    nr = r + DR[d];
+                    nc = c + DC[d];
+                } while (nr < 0 || nr >= height || nc < 0 || nc >= width);
+                exit[current] = (byte) d;
+                current = nr * width + nc;
+            }
+
+            // follow the last exits from the start, that's the walk with the loops cut out
+            current = start;
+            while (!inTree[current]) {
+                inTree[current] = true;
+                int r = current / width;
+                int c = current % width;
+                int d = exit[current];
+                int nr = r + DR[d];
+                int nc = c + DC[d];
+                carver.passage(firstRoomRow + r, c, firstRoomRow + nr, nc);
+                current = nr * width + nc;
+            }
+        }
+    }
+}
@@ -0,0 +1,10 @@
+module Path.visualiser.core {
+    requires jdk.httpserver;
+    // optional, Wavefront uses it when the jvm runs with --add-modules jdk.incubator.vector
+    requires static jdk.incubator.vector;
+
+    exports models;
+    exports models.generators;
+    exports cli;
+    exports server;
+}
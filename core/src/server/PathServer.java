@@ -0,0 +1,415 @@
+package server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import cli.ResultFormat;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import models.Algorithms;
+import models.ArtifactCache;
+import models.Cell;
+import models.CellLayout;
+import models.Grid;
+import models.GridFile;
+import models.SearchResult;
+
+// answers shortest path queries over http so other processes on the box don't pay jvm startup
+// for every query
+//
+//   java -p out/core -m Path.visualiser.core/server.PathServer \
+//        --grid city=maps/city.txt --grid maze=maps/maze.txt [--port 8080] [--bind 127.0.0.1]
+//        [--cache DIR] [--cache-mb N] [--layout rows|morton|tiled|tiledN]
+//
+//   GET  /path?grid=city&algo=astar&from=3,4&to=40,12[&path=false]   one json result
+//   POST /path?grid=city&algo=dijkstra                               one query per body line,
+//                                                                     one json result per line back
+//   GET  /grids                                                      loaded grids
+//   GET  /metrics                                                    counters and latencies
+//
+// every request gets its own thread (a virtual one when the jvm has them). the grids are only
+// ever read here and each search keeps its flags, parents and distances in its own
+// SearchState, so requests don't share anything they write to.
+// with --cache the landmark tables alt builds for each grid are kept in DIR, so a restart on
+// the same maps loads them instead of running the dijkstras again. with --layout dijkstra
+// runs on a packed copy of each grid in that cell order, made once and shared by every request
+public class PathServer {
+
+    private static final int DEFAULT_MAX_BODY = 64 * 1024;
+    private static final int DEFAULT_MAX_QUERIES = 1000;
+    private static final int MAX_URI = 2048;
+
+    private final Map<String, Grid> grids = new LinkedHashMap<>();
+    private final Map<String, Algorithms> factories = new HashMap<>();
+    private final ServerMetrics metrics = new ServerMetrics();
+
+    private String bind = "127.0.0.1";
+    private int port = 8080;
+    private int maxBody = DEFAULT_MAX_BODY;
+    private int maxQueries = DEFAULT_MAX_QUERIES;
+    private Path cacheDir;  // null = no cache
+    private String layout;  // null = dijkstra on the Cell objects
+    private int cacheMb = 1024;
+
+    public static void main(String[] args) {
+        PathServer server = new PathServer();
+        try {
+            server.parseArgs(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("error: " + e.getMessage());
+            printUsage();
+            System.exit(2);
+        }
+
+        try {
+            server.start();
+        } catch (IOException e) {
+            System.err.println("error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static void printUsage() {
+        System.err.println("usage: PathServer --grid [NAME=]FILE [--grid ...] [--port N] [--bind ADDRESS]"
+                + " [--max-body BYTES] [--max-queries N] [--cache DIR] [--cache-mb N] [--layout rows|morton|tiled|tiledN]");
+        System.err.println("  algorithms: " + String.join(", ", Algorithms.NAMES));
+    }
+
+    private void parseArgs(String[] args) {
+        Map<String, Path> files = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--grid":
+                    String spec = value(args, ++i, "--grid");
+                    int eq = spec.indexOf('=');
+                    Path file = Path.of(eq >= 0 ? spec.substring(eq + 1) : spec);
+                    String name = eq >= 0 ? spec.substring(0, eq) : stripExtension(file.getFileName().toString());
+                    if (files.put(name, file) != null) {
+                        throw new IllegalArgumentException("grid name '" + name + "' used twice");
+                    }
+                    break;
+                case "--port":
+                    port = number(value(args, ++i, "--port"), "--port");
+                    break;
+                case "--bind":
+                    bind = value(args, ++i, "--bind");
+                    break;
+                case "--max-body":
+                    maxBody = number(value(args, ++i, "--max-body"), "--max-body");
+                    // the body is read one byte past the limit to catch longer ones
+                    if (maxBody < 1 || maxBody == Integer.MAX_VALUE) {
+                        throw new IllegalArgumentException("--max-body has to be between 1 and " + (Integer.MAX_VALUE - 1));
+                    }
+                    break;
+                case "--max-queries":
+                    maxQueries = number(value(args, ++i, "--max-queries"), "--max-queries");
+                    break;
+                case "--cache":
+                    cacheDir = Path.of(value(args, ++i, "--cache"));
+                    break;
+                case "--cache-mb":
+                    cacheMb = number(value(args, ++i, "--cache-mb"), "--cache-mb");
+                    if (cacheMb == 0) throw new IllegalArgumentException("--cache-mb needs a positive number");
+                    break;
+                case "--layout":
+                    layout = value(args, ++i, "--layout");
+                    CellLayout.byName(layout, 1, 1);  // throws for a name it doesn't know
+                    break;
+                case "--help":
+                    printUsage();
+                    System.exit(0);
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown option " + args[i]);
+            }
+        }
+        if (files.isEmpty()) throw new IllegalArgumentException("at least one --grid is required");
+
+        ArtifactCache cache = null;
+        if (cacheDir != null) {
+            try {
+                cache = new ArtifactCache(cacheDir, (long) cacheMb << 20);
+            } catch (IOException e) {
+                throw new IllegalArgumentException(cacheDir + ": " + e.getMessage());
+            }
+        }
+
+        for (Map.Entry<String, Path> entry : files.entrySet()) {
+            try {
+                Grid grid = GridFile.read(entry.getValue());
+                // build the component index now rather than on the first request
+                grid.getComponents();
+                grids.put(entry.getKey(), grid);
+                Algorithms factory = new Algorithms();
+                factory.setCache(cache);
+                factory.setLayout(layout);
+                factories.put(entry.getKey(), factory);
+            } catch (IOException e) {
+                throw new IllegalArgumentException(entry.getValue() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static String value(String[] args, int i, String option) {
+        if (i >= args.length) throw new IllegalArgumentException(option + " needs a value");
+        return args[i];
+    }
+
+    private static int number(String text, String option) {
+        try {
+            int value = Integer.parseInt(text);
+            if (value >= 0) return value;
+        } catch (NumberFormatException e) {
+            // fall through
+        }
+        throw new IllegalArgumentException(option + " needs a non-negative number");
+    }
+
+    private static String stripExtension(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    private void start() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(bind, port), 0);
+        ExecutorService executor = requestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/path", exchange -> handle(exchange, this::path));
+        server.createContext("/grids", exchange -> handle(exchange, this::listGrids));
+        server.createContext("/metrics", exchange -> handle(exchange, this::showMetrics));
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(1);
+            executor.shutdown();
+        }));
+        server.start();
+        System.err.println("serving " + grids.keySet() + " on http://" + bind + ":" + server.getAddress().getPort());
+    }
+
+    // one virtual thread per request on jdk 21+, found reflectively so the module still builds
+    // and runs on 17. older jvms get a cached pool, which is also a thread per request in flight
+    private static ExecutorService requestExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "path-request");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private interface Handler {
+        void handle(HttpExchange exchange) throws IOException, RequestException;
+    }
+
+    // a request we refuse, with the status code to send back
+    private static class RequestException extends Exception {
+        private static final long serialVersionUID = 1L;
+        private final int status;
+
+        RequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private void handle(HttpExchange exchange, Handler handler) {
+        long begin = System.nanoTime();
+        metrics.requestStarted();
+        boolean failed = false;
+        try {
+            if (exchange.getRequestURI().toString().length() > MAX_URI) {
+                throw new RequestException(414, "uri longer than " + MAX_URI + " characters");
+            }
+            handler.handle(exchange);
+        } catch (RequestException e) {
+            failed = true;
+            if (e.status == 413 || e.status == 414) metrics.requestRejected();
+            sendQuietly(exchange, e.status, "{\"error\":\"" + escape(e.getMessage()) + "\"}");
+        } catch (IOException | RuntimeException e) {
+            failed = true;
+            sendQuietly(exchange, 500, "{\"error\":\"" + escape(String.valueOf(e.getMessage())) + "\"}");
+        } finally {
+            exchange.close();
+            metrics.requestFinished(System.nanoTime() - begin, failed);
+        }
+    }
+
+    private void path(HttpExchange exchange) throws IOException, RequestException {
+        Map<String, String> params = queryParams(exchange.getRequestURI());
+        String gridName = params.get("grid");
+        if (gridName == null) {
+            if (grids.size() != 1) throw new RequestException(400, "grid is required, one of " + grids.keySet());
+            gridName = grids.keySet().iterator().next();
+        }
+        Grid grid = grids.get(gridName);
+        if (grid == null) throw new RequestException(404, "no grid named '" + gridName + "'");
+
+        String algo = params.getOrDefault("algo", "astar").toLowerCase();
+        if (!Algorithms.NAMES.contains(algo)) {
+            throw new RequestException(400, "unknown algorithm '" + algo + "', expected one of " + Algorithms.NAMES);
+        }
+        boolean includePath = !"false".equals(params.get("path"));
+        Algorithms factory = factories.get(gridName);
+
+        switch (exchange.getRequestMethod()) {
+            case "GET": {
+                int[] from = coords(params.get("from"), "from");
+                int[] to = coords(params.get("to"), "to");
+                SearchResult result = search(factory, algo, grid, from[0], from[1], to[0], to[1]);
+                if (result == null) throw new RequestException(400, "from/to outside the grid");
+                send(exchange, 200, ResultFormat.toJson(1, result, includePath));
+                break;
+            }
+            case "POST": {
+                String[] lines = readBody(exchange).split("\n");
+                StringBuilder response = new StringBuilder();
+                int query = 0;
+                for (String line : lines) {
+                    String trimmed = line.trim();
+                    if (trimmed.isEmpty() || trimmed.startsWith("#")) continue;
+                    if (++query > maxQueries) {
+                        throw new RequestException(413, "more than " + maxQueries + " queries in one request");
+                    }
+                    int[] values = ResultFormat.parseQuery(trimmed);
+                    SearchResult result = values == null ? null
+                            : search(factory, algo, grid, values[0], values[1], values[2], values[3]);
+                    if (result == null) {
+                        response.append("{\"query\":").append(query)
+                                .append(",\"error\":\"bad query '").append(escape(trimmed)).append("'\"}\n");
+                    } else {
+                        response.append(ResultFormat.toJson(query, result, includePath)).append('\n');
+                    }
+                }
+                exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+                send(exchange, 200, response.toString());
+                break;
+            }
+            default:
+                exchange.getResponseHeaders().set("Allow", "GET, POST");
+                throw new RequestException(405, "use GET or POST");
+        }
+    }
+
+    private SearchResult search(Algorithms factory, String algo, Grid grid, int fromRow, int fromCol, int toRow, int toCol) {
+        Cell start = grid.getCell(fromRow, fromCol);
+        Cell goal = grid.getCell(toRow, toCol);
+        if (start == null || goal == null) return null;
+
+        SearchResult result = Algorithms.run(algo, factory.create(algo), grid, start, goal);
+        metrics.searchFinished(result.getNanos(), result.getExpansions());
+        return result;
+    }
+
+    private void listGrids(HttpExchange exchange) throws IOException, RequestException {
+        requireGet(exchange);
+        StringBuilder json = new StringBuilder("[");
+        for (Map.Entry<String, Grid> entry : grids.entrySet()) {
+            if (json.length() > 1) json.append(',');
+            Grid grid = entry.getValue();
+            json.append("{\"name\":\"").append(escape(entry.getKey())).append('"')
+                    .append(",\"rows\":").append(grid.getRows())
+                    .append(",\"cols\":").append(grid.getCols()).append('}');
+        }
+        send(exchange, 200, json.append(']').toString());
+    }
+
+    private void showMetrics(HttpExchange exchange) throws IOException, RequestException {
+        requireGet(exchange);
+        send(exchange, 200, metrics.toJson());
+    }
+
+    private static void requireGet(HttpExchange exchange) throws RequestException {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            exchange.getResponseHeaders().set("Allow", "GET");
+            throw new RequestException(405, "use GET");
+        }
+    }
+
+    // reads the request body but never more than maxBody bytes of it
+    private String readBody(HttpExchange exchange) throws IOException, RequestException {
+        String length = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (length != null) {
+            try {
+                if (Long.parseLong(length.trim()) > maxBody) {
+                    throw new RequestException(413, "body larger than " + maxBody + " bytes");
+                }
+            } catch (NumberFormatException e) {
+                throw new RequestException(400, "bad Content-Length");
+            }
+        }
+
+        InputStream in = exchange.getRequestBody();
+        byte[] body = in.readNBytes((int) Math.min(Integer.MAX_VALUE, (long) maxBody + 1));
+        if (body.length > maxBody) {
+            throw new RequestException(413, "body larger than " + maxBody + " bytes");
+        }
+        return new String(body, StandardCharsets.UTF_8);
+    }
+
+    private static int[] coords(String text, String name) throws RequestException {
+        if (text == null) throw new RequestException(400, name + " is required, as row,col");
+        String[] parts = text.split(",");
+        if (parts.length == 2) {
+            try {
+                return new int[]{Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim())};
+            } catch (NumberFormatException e) {
+                // fall through
+            }
+        }
+        throw new RequestException(400, name + " has to be row,col");
+    }
+
+    private static Map<String, String> queryParams(URI uri) {
+        Map<String, String> params = new HashMap<>();
+        String query = uri.getRawQuery();
+        if (query == null) return params;
+        for (String pair : query.split("&")) {
+            if (pair.isEmpty()) continue;
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq >= 0 ? pair.substring(0, eq) : pair, StandardCharsets.UTF_8);
+            String value = eq >= 0 ? URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8) : "";
+            params.put(key, value);
+        }
+        return params;
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        if (!exchange.getResponseHeaders().containsKey("Content-Type")) {
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+        }
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sendQuietly(HttpExchange exchange, int status, String body) {
+        try {
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            send(exchange, status, body);
+        } catch (IOException | RuntimeException e) {
+            // headers already went out or the client is gone, nothing left to tell it
+        }
+    }
+
+    private static String escape(String text) {
+        return text.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
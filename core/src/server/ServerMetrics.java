@@ -0,0 +1,95 @@
+package server;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// counters the server bumps from every request thread. everything is an adder or an atomic,
+// nothing here takes a lock
+public class ServerMetrics {
+    private static final int WINDOW_SECONDS = 60;
+
+    private final long startedAt = System.nanoTime();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder expansions = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final LatencyHistogram requestLatency = new LatencyHistogram();
+    private final LatencyHistogram searchLatency = new LatencyHistogram();
+
+    // searches per second over the last minute, one slot per second. a slot is reused once
+    // its second has gone by; the reset can lose a count or two when two threads race on
+    // the first search of a new second, which is fine for a throughput gauge
+    private final AtomicLongArray slotSecond = new AtomicLongArray(WINDOW_SECONDS);
+    private final AtomicLongArray slotCount = new AtomicLongArray(WINDOW_SECONDS);
+
+    public void requestStarted() {
+        requests.increment();
+        inFlight.incrementAndGet();
+    }
+
+    public void requestFinished(long nanos, boolean failed) {
+        inFlight.decrementAndGet();
+        requestLatency.record(nanos / 1000);
+        if (failed) errors.increment();
+    }
+
+    public void requestRejected() {
+        rejected.increment();
+    }
+
+    public void searchFinished(long nanos, int expanded) {
+        searches.increment();
+        expansions.add(expanded);
+        totalMicros.add(nanos / 1000);
+        searchLatency.record(nanos / 1000);
+
+        long second = System.currentTimeMillis() / 1000;
+        int slot = (int) (second % WINDOW_SECONDS);
+        long seen = slotSecond.get(slot);
+        if (seen != second && slotSecond.compareAndSet(slot, seen, second)) {
+            slotCount.set(slot, 0);
+        }
+        slotCount.incrementAndGet(slot);
+    }
+
+    private double recentThroughput() {
+        long now = System.currentTimeMillis() / 1000;
+        long total = 0;
+        for (int i = 0; i < WINDOW_SECONDS; i++) {
+            long second = slotSecond.get(i);
+            // the current second is still filling up, leave it out
+            if (second < now && second >= now - WINDOW_SECONDS) total += slotCount.get(i);
+        }
+        return total / (double) WINDOW_SECONDS;
+    }
+
+    public String toJson() {
+        double uptime = (System.nanoTime() - startedAt) / 1e9;
+        long searchCount = searches.sum();
+        return String.format(Locale.ROOT,
+                "{\"uptimeSeconds\":%.1f,\"requests\":%d,\"inFlight\":%d,\"errors\":%d,\"rejected\":%d,"
+                        + "\"searches\":%d,\"expansions\":%d,"
+                        + "\"searchesPerSecond\":{\"overall\":%.2f,\"last60s\":%.2f},"
+                        + "\"searchMicros\":%s,\"requestMicros\":%s}",
+                uptime, requests.sum(), inFlight.get(), errors.sum(), rejected.sum(),
+                searchCount, expansions.sum(),
+                uptime > 0 ? searchCount / uptime : 0, recentThroughput(),
+                latencyJson(searchLatency, searchCount == 0 ? 0 : totalMicros.sum() / (double) searchCount),
+                latencyJson(requestLatency, -1));
+    }
+
+    private static String latencyJson(LatencyHistogram histogram, double mean) {
+        String json = String.format(Locale.ROOT, "{\"count\":%d,\"p50\":%d,\"p90\":%d,\"p99\":%d,\"max\":%d",
+                histogram.getCount(), histogram.percentile(0.5), histogram.percentile(0.9),
+                histogram.percentile(0.99), histogram.percentile(1.0));
+        if (mean >= 0) json += String.format(Locale.ROOT, ",\"mean\":%.1f", mean);
+        return json + "}";
+    }
+}
@@ -1,5 +1,7 @@
 module Path.visualiser {
     requires javafx.fxml;
     requires javafx.controls;
+    requires java.management;
+    requires Path.visualiser.core;
     exports views;
-}
\ No newline at end of file
+}
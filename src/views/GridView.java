@@ -0,0 +1,455 @@
+package views;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+import models.Cell;
+import models.Grid;
+import models.GridListener;
+import models.IntList;
+import models.SearchListener;
+
+// zoomable, pannable view of the grid drawn on one canvas the size of the window.
+// only the cells in view get drawn: one rectangle each when they're big, an image with a
+// pixel per cell when they're small, and below one pixel per cell an image with a pixel per
+// block from the tile pyramid. the pyramid is only built once you zoom out that far and
+// after that it's patched cell by cell as the grid or the search changes.
+// scroll to zoom, drag with the right (or middle) button to pan. left drags go to the
+// drag handler, for painting
+public class GridView extends Region implements GridListener, SearchListener {
+
+    // color of a cell as 0xAARRGGBB
+    public interface CellPainter {
+        int colorAt(int row, int col);
+    }
+
+    public interface CellClickHandler {
+        void clicked(int row, int col, MouseEvent event);
+    }
+
+    // press, drag and release with the primary button (event.getEventType() tells which).
+    // row and col can be off the grid while dragging past its edge
+    public interface CellDragHandler {
+        void dragged(int row, int col, MouseEvent event);
+    }
+
+    private static final double MIN_CELL_PX = 1.0 / 64;  // zoomed out: 64 cells per pixel
+    private static final double MAX_CELL_PX = 64;
+    private static final double RECT_CELL_PX = 6;        // bigger than this, draw rectangles
+    private static final double LINES_CELL_PX = 8;       // bigger than this, draw grid lines too
+    private static final double WEIGHTS_CELL_PX = 24;    // bigger than this, weights fit
+    private static final Color BACKGROUND = Color.rgb(70, 70, 70);
+
+    private final Canvas canvas = new Canvas();
+    private final CellPainter painter;
+    private CellClickHandler clickHandler;
+    private CellDragHandler dragHandler;
+
+    private Grid grid;
+    private int rows;
+    private int cols;
+    private double cellPx = 15;   // size of a cell on screen
+    private double offsetX;       // top-left of the view in grid pixels (col * cellPx)
+    private double offsetY;
+    private boolean showWeights;
+    private Cell start;
+    private Cell goal;
+
+    private TilePyramid pyramid;  // null until the first time we're zoomed out far enough
+    private final IntList dirty = new IntList();  // row * cols + col of cells that changed
+    private boolean allDirty;
+
+    // scratch image for the pixel-per-cell and pixel-per-block modes
+    private WritableImage image;
+    private int[] pixels = new int[0];
+
+    private double dragX;
+    private double dragY;
+
+    // rectangle outline drawn over the cells (a rectangle tool's preview), none if outlineRow0 < 0
+    private int outlineRow0 = -1;
+    private int outlineCol0;
+    private int outlineRow1;
+    private int outlineCol1;
+
+    public GridView(CellPainter painter) {
+        this.painter = painter;
+        getChildren().add(canvas);
+        setMinSize(100, 100);
+
+        setOnScroll(this::zoom);
+        setOnMousePressed(e -> {
+            dragX = e.getX();
+            dragY = e.getY();
+            if (e.getButton() == MouseButton.PRIMARY) dragCell(e);
+        });
+        setOnMouseDragged(e -> {
+            if (e.getButton() == MouseButton.SECONDARY || e.getButton() == MouseButton.MIDDLE) {
+                offsetX -= e.getX() - dragX;
+                offsetY -= e.getY() - dragY;
+                dragX = e.getX();
+                dragY = e.getY();
+                clampOffsets();
+                draw();
+            } else if (e.getButton() == MouseButton.PRIMARY) {
+                dragCell(e);
+            }
+        });
+        setOnMouseReleased(e -> {
+            if (e.getButton() == MouseButton.PRIMARY) dragCell(e);
+        });
+        setOnMouseClicked(e -> {
+            if (e.getButton() != MouseButton.PRIMARY || !e.isStillSincePress() || clickHandler == null) return;
+            int row = rowAt(e.getY());
+            int col = colAt(e.getX());
+            if (grid != null && grid.inBounds(row, col)) {
+                clickHandler.clicked(row, col, e);
+            }
+        });
+    }
+
+    public void setGrid(Grid grid) {
+        this.grid = grid;
+        this.rows = grid.getRows();
+        this.cols = grid.getCols();
+        pyramid = null;
+        dirty.clear();
+        allDirty = false;
+        fit();
+    }
+
+    public void setOnCellClicked(CellClickHandler handler) {
+        this.clickHandler = handler;
+    }
+
+    public void setOnCellDragged(CellDragHandler handler) {
+        this.dragHandler = handler;
+    }
+
+    // outlines the rectangle between two corner cells, corners in any order
+    public void setOutline(int row0, int col0, int row1, int col1) {
+        outlineRow0 = Math.min(row0, row1);
+        outlineCol0 = Math.min(col0, col1);
+        outlineRow1 = Math.max(row0, row1);
+        outlineCol1 = Math.max(col0, col1);
+        draw();
+    }
+
+    public void clearOutline() {
+        if (outlineRow0 < 0) return;
+        outlineRow0 = -1;
+        draw();
+    }
+
+    public void setShowWeights(boolean showWeights) {
+        this.showWeights = showWeights;
+        draw();
+    }
+
+    // start and goal get a ring around them when zoomed out, so they don't vanish in a block
+    public void setEndpoints(Cell start, Cell goal) {
+        this.start = start;
+        this.goal = goal;
+    }
+
+    // zoom so the whole grid fits in the view
+    public void fit() {
+        if (rows == 0) return;
+        double width = getWidth() > 0 ? getWidth() : 900;
+        double height = getHeight() > 0 ? getHeight() : 600;
+        cellPx = clampZoom(Math.min(width / cols, height / rows));
+        offsetX = (cols * cellPx - width) / 2;
+        offsetY = (rows * cellPx - height) / 2;
+        draw();
+    }
+
+    // the color of a cell changed, the pyramid catches up on the next refresh()
+    public void invalidate(int row, int col) {
+        if (pyramid == null || allDirty) return;
+        dirty.add(row * cols + col);
+        if (dirty.size() > rows * cols / 8) {
+            // cheaper to redo everything than to patch this many cells
+            allDirty = true;
+            dirty.clear();
+        }
+    }
+
+    public void invalidateAll() {
+        if (pyramid == null) return;
+        allDirty = true;
+        dirty.clear();
+    }
+
+    // brings the pyramid up to date and redraws what's in view
+    public void refresh() {
+        draw();
+    }
+
+    @Override
+    public void cellChanged(Cell cell) {
+        invalidate(cell.getRow(), cell.getCol());
+    }
+
+    @Override
+    public void gridChanged() {
+        invalidateAll();
+    }
+
+    @Override
+    public void flagsChanged(int index, int xor) {
+        Cell cell = grid.cellAt(index);
+        invalidate(cell.getRow(), cell.getCol());
+    }
+
+    @Override
+    protected void layoutChildren() {
+        boolean first = canvas.getWidth() == 0;
+        canvas.setWidth(getWidth());
+        canvas.setHeight(getHeight());
+        if (first) {
+            fit();
+        } else {
+            clampOffsets();
+            draw();
+        }
+    }
+
+    private void zoom(ScrollEvent e) {
+        if (e.getDeltaY() == 0 || rows == 0) return;
+        double factor = e.getDeltaY() > 0 ? 1.2 : 1 / 1.2;
+        double zoomed = clampZoom(cellPx * factor);
+
+        // keep the grid point under the mouse where it is
+        double gridX = (e.getX() + offsetX) / cellPx;
+        double gridY = (e.getY() + offsetY) / cellPx;
+        cellPx = zoomed;
+        offsetX = gridX * cellPx - e.getX();
+        offsetY = gridY * cellPx - e.getY();
+        clampOffsets();
+        draw();
+        e.consume();
+    }
+
+    private double clampZoom(double px) {
+        return Math.max(MIN_CELL_PX, Math.min(MAX_CELL_PX, px));
+    }
+
+    // at least half the view always shows some of the grid
+    private void clampOffsets() {
+        double width = canvas.getWidth();
+        double height = canvas.getHeight();
+        offsetX = Math.max(-width / 2, Math.min(cols * cellPx - width / 2, offsetX));
+        offsetY = Math.max(-height / 2, Math.min(rows * cellPx - height / 2, offsetY));
+    }
+
+    private void dragCell(MouseEvent e) {
+        if (dragHandler == null || grid == null) return;
+        dragHandler.dragged(rowAt(e.getY()), colAt(e.getX()), e);
+    }
+
+    private int rowAt(double y) {
+        return (int) Math.floor((y + offsetY) / cellPx);
+    }
+
+    private int colAt(double x) {
+        return (int) Math.floor((x + offsetX) / cellPx);
+    }
+
+    private void draw() {
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        double width = canvas.getWidth();
+        double height = canvas.getHeight();
+        gc.setFill(BACKGROUND);
+        gc.fillRect(0, 0, width, height);
+        if (grid == null || width <= 0 || height <= 0) return;
+
+        if (cellPx >= RECT_CELL_PX) {
+            drawRectangles(gc, width, height);
+        } else if (cellPx >= 1) {
+            drawCellPixels(gc, width, height);
+        } else {
+            drawBlockPixels(gc, width, height);
+        }
+        drawEndpoints(gc);
+        drawOutline(gc);
+    }
+
+    private void drawRectangles(GraphicsContext gc, double width, double height) {
+        int firstRow = Math.max(0, rowAt(0));
+        int lastRow = Math.min(rows - 1, rowAt(height));
+        int firstCol = Math.max(0, colAt(0));
+        int lastCol = Math.min(cols - 1, colAt(width));
+        boolean lines = cellPx >= LINES_CELL_PX;
+
+        for (int r = firstRow; r <= lastRow; r++) {
+            double y = r * cellPx - offsetY;
+            for (int c = firstCol; c <= lastCol; c++) {
+                double x = c * cellPx - offsetX;
+                gc.setFill(toColor(painter.colorAt(r, c)));
+                gc.fillRect(x, y, cellPx, cellPx);
+            }
+        }
+
+        if (lines) {
+            gc.setStroke(Color.DARKGRAY);
+            gc.setLineWidth(1);
+            double top = Math.max(0, firstRow * cellPx - offsetY);
+            double bottom = Math.min(height, (lastRow + 1) * cellPx - offsetY);
+            double left = Math.max(0, firstCol * cellPx - offsetX);
+            double right = Math.min(width, (lastCol + 1) * cellPx - offsetX);
+            for (int r = firstRow; r <= lastRow + 1; r++) {
+                double y = Math.round(r * cellPx - offsetY) + 0.5;
+                gc.strokeLine(left, y, right, y);
+            }
+            for (int c = firstCol; c <= lastCol + 1; c++) {
+                double x = Math.round(c * cellPx - offsetX) + 0.5;
+                gc.strokeLine(x, top, x, bottom);
+            }
+        }
+
+        if (showWeights && cellPx >= WEIGHTS_CELL_PX) {
+            drawWeights(gc, firstRow, lastRow, firstCol, lastCol);
+        }
+    }
+
+    // the weight of every edge, written just inside the cell it leaves from
+    private void drawWeights(GraphicsContext gc, int firstRow, int lastRow, int firstCol, int lastCol) {
+        gc.setFill(Color.DARKRED);
+        gc.setFont(new Font(Math.min(12, cellPx / 3)));
+        gc.setTextAlign(TextAlignment.CENTER);
+        for (int r = firstRow; r <= lastRow; r++) {
+            for (int c = firstCol; c <= lastCol; c++) {
+                Cell cell = grid.getCell(r, c);
+                if (cell.isWall()) continue;
+                double centerX = (c + 0.5) * cellPx - offsetX;
+                double centerY = (r + 0.5) * cellPx - offsetY;
+                for (int dir = 0; dir < Grid.DIRECTIONS; dir++) {
+                    double weight = grid.getWeight(cell, dir);
+                    if (Double.isInfinite(weight)) continue;
+                    double x = centerX + Grid.colOffset(dir) * cellPx * 0.32;
+                    double y = centerY + Grid.rowOffset(dir) * cellPx * 0.32 + cellPx / 10;
+                    gc.fillText(String.format("%.0f", weight), x, y);
+                }
+            }
+        }
+    }
+
+    // one pixel per cell, scaled up to the cell size
+    private void drawCellPixels(GraphicsContext gc, double width, double height) {
+        int firstRow = Math.max(0, rowAt(0));
+        int lastRow = Math.min(rows - 1, rowAt(height));
+        int firstCol = Math.max(0, colAt(0));
+        int lastCol = Math.min(cols - 1, colAt(width));
+        if (firstRow > lastRow || firstCol > lastCol) return;
+
+        int w = lastCol - firstCol + 1;
+        int h = lastRow - firstRow + 1;
+        int[] buffer = pixelBuffer(w, h);
+        for (int r = 0; r < h; r++) {
+            for (int c = 0; c < w; c++) {
+                buffer[r * w + c] = painter.colorAt(firstRow + r, firstCol + c);
+            }
+        }
+        drawPixels(gc, w, h, firstCol * cellPx - offsetX, firstRow * cellPx - offsetY, cellPx);
+    }
+
+    // one pixel per pyramid block, picking the level where a block is about a pixel
+    private void drawBlockPixels(GraphicsContext gc, double width, double height) {
+        syncPyramid();
+        int level = 0;
+        while (level < pyramid.levels() - 1 && (2 << level) * cellPx < 1) level++;
+        int block = 2 << level;
+        double blockPx = block * cellPx;
+
+        int firstRow = Math.max(0, (int) Math.floor(offsetY / blockPx));
+        int lastRow = Math.min(pyramid.rows(level) - 1, (int) Math.floor((offsetY + height) / blockPx));
+        int firstCol = Math.max(0, (int) Math.floor(offsetX / blockPx));
+        int lastCol = Math.min(pyramid.cols(level) - 1, (int) Math.floor((offsetX + width) / blockPx));
+        if (firstRow > lastRow || firstCol > lastCol) return;
+
+        int w = lastCol - firstCol + 1;
+        int h = lastRow - firstRow + 1;
+        int[] buffer = pixelBuffer(w, h);
+        for (int r = 0; r < h; r++) {
+            for (int c = 0; c < w; c++) {
+                buffer[r * w + c] = pyramid.color(level, firstRow + r, firstCol + c);
+            }
+        }
+        drawPixels(gc, w, h, firstCol * blockPx - offsetX, firstRow * blockPx - offsetY, blockPx);
+    }
+
+    private void syncPyramid() {
+        if (pyramid == null) {
+            pyramid = new TilePyramid(rows, cols, painter);
+        } else if (allDirty) {
+            pyramid.rebuild();
+        } else {
+            for (int i = 0; i < dirty.size(); i++) {
+                int cell = dirty.get(i);
+                pyramid.update(cell / cols, cell % cols);
+            }
+        }
+        dirty.clear();
+        allDirty = false;
+    }
+
+    private int[] pixelBuffer(int w, int h) {
+        if (pixels.length < w * h) {
+            pixels = new int[w * h];
+        }
+        if (image == null || image.getWidth() < w || image.getHeight() < h) {
+            image = new WritableImage(Math.max(w, image == null ? 0 : (int) image.getWidth()),
+                    Math.max(h, image == null ? 0 : (int) image.getHeight()));
+        }
+        return pixels;
+    }
+
+    private void drawPixels(GraphicsContext gc, int w, int h, double x, double y, double px) {
+        image.getPixelWriter().setPixels(0, 0, w, h, PixelFormat.getIntArgbInstance(), pixels, 0, w);
+        gc.setImageSmoothing(false);
+        gc.drawImage(image, 0, 0, w, h, x, y, w * px, h * px);
+    }
+
+    private void drawEndpoints(GraphicsContext gc) {
+        if (cellPx >= RECT_CELL_PX) return;  // big enough to see already
+        gc.setLineWidth(2);
+        drawRing(gc, start, Color.ORANGE);
+        drawRing(gc, goal, Color.PURPLE);
+    }
+
+    private void drawOutline(GraphicsContext gc) {
+        if (outlineRow0 < 0) return;
+        double x = outlineCol0 * cellPx - offsetX;
+        double y = outlineRow0 * cellPx - offsetY;
+        gc.setLineWidth(2);
+        gc.setStroke(Color.DODGERBLUE);
+        gc.strokeRect(x, y, (outlineCol1 - outlineCol0 + 1) * cellPx, (outlineRow1 - outlineRow0 + 1) * cellPx);
+    }
+
+    private void drawRing(GraphicsContext gc, Cell cell, Color color) {
+        if (cell == null) return;
+        double x = (cell.getCol() + 0.5) * cellPx - offsetX;
+        double y = (cell.getRow() + 0.5) * cellPx - offsetY;
+        gc.setStroke(color);
+        gc.strokeOval(x - 6, y - 6, 12, 12);
+    }
+
+    public static int toArgb(Color color) {
+        return (int) Math.round(color.getOpacity() * 255) << 24
+                | (int) Math.round(color.getRed() * 255) << 16
+                | (int) Math.round(color.getGreen() * 255) << 8
+                | (int) Math.round(color.getBlue() * 255);
+    }
+
+    private static Color toColor(int argb) {
+        return Color.rgb((argb >> 16) & 0xFF, (argb >> 8) & 0xFF, argb & 0xFF, ((argb >>> 24) & 0xFF) / 255.0);
+    }
+}
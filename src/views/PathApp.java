@@ -1,6 +1,7 @@
 package views;
 
 import javafx.animation.Animation;
+import javafx.animation.AnimationTimer;
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
 import javafx.application.Application;
@@ -16,50 +17,121 @@ import javafx.scene.control.ComboBox;
 import javafx.scene.control.ScrollPane;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
+import javafx.scene.layout.StackPane;
+import javafx.scene.layout.FlowPane;
+import javafx.scene.control.CheckBox;
+import javafx.scene.input.KeyCode;
 import javafx.scene.layout.VBox;
-import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
-import javafx.scene.shape.Rectangle;
-import javafx.scene.text.Text;
-import javafx.scene.text.Font;
+import javafx.scene.input.MouseEvent;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import javafx.util.Duration;
 import javafx.scene.control.Label;
 import javafx.scene.control.Separator;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import javafx.concurrent.Task;
 
 
 import models.*;
+import models.generators.MapGenerator;
 
 
 public class PathApp extends Application {
 
     private int ROWS = 40;
     private int COLS = 60;
-    private static final double CELL_SIZE = 15;
+    private static final long LANDMARK_CACHE_BYTES = 256L << 20;  // ~/.path-visualiser/cache
+
+    // cell colors as argb for the grid view
+    private static final int START_COLOR = GridView.toArgb(Color.ORANGE);
+    private static final int GOAL_COLOR = GridView.toArgb(Color.PURPLE);
+    private static final int PATH_COLOR = GridView.toArgb(Color.RED);
+    private static final int CLOSED_COLOR = GridView.toArgb(Color.LIGHTGREEN);
+    private static final int OPEN_COLOR = GridView.toArgb(Color.LIGHTBLUE);
+    private final int[] terrainColors = new int[Cell.TerrainType.values().length];
+    private static final int[] HEAT_COLORS = heatColors();  // blue (rarely expanded) to red (hottest)
 
     private TextField startField;
     private TextField goalField;
     private Label pathCostLabel;
 
     private Grid grid;
-    private Rectangle[][] rects;
-    private Pane gridPane;
+    private GridView gridView;
+    private final PerfHud hud = new PerfHud();
 
     private Pathfinding algorithm;
+    private final LandmarkHeuristic landmarkHeuristic = new LandmarkHeuristic(8);
+    private final DeadEndIndex deadEndIndex = new DeadEndIndex();
+    private final LearnedHeuristic learnedHeuristic = new LearnedHeuristic();  // lrta keeps learning across runs
+    private ArtifactCache landmarkCache;  // null when the home directory has none
+    private CheckBox skipDeadEndsBox;
     private Timeline timeline;
     private boolean weightsVisible = false;
     private double animationSpeed = 10; // Default speed in milliseconds
     
+    private ComboBox<String> generatorCombo;
+    private TextField seedField;
+    private final List<MapGenerator> generators = MapGenerator.all();
+    private boolean generating = false;
+
     private Cell startCell;
     private Cell goalCell;
+
+    // painting: drags pile up in pendingEdit and go to the grid once a frame
+    private ComboBox<String> toolCombo;
+    private ComboBox<Cell.TerrainType> paintCombo;
+    private Slider brushSlider;
+    private GridEdit pendingEdit;       // for the current grid, made on the first paint
+    private int lastPaintRow = -1;      // where the brush was at the last drag event
+    private int lastPaintCol;
+    private int rectRow = -1;           // corner the rectangle tool was pressed on
+    private int rectCol;
+    private final AnimationTimer editFlusher = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            flushEdits();
+        }
+    };
+
+    private SearchTrace trace;           // recording of the current (or an imported) run
+    private SearchTrace.Replay replay;   // set while scrubbing through the trace
+    private Slider replaySlider;
+    private Label replayLabel;
+    private boolean movingSlider = false;  // slider moved by code, not by the user
     private BorderPane root;
 
+    // expansions of every run (main view and races) add up here, shown as a heatmap on demand
+    private SearchProfile profile = new SearchProfile(ROWS, COLS);
+    private SearchProfile.Run profiledRun;  // the main view's run while it's being recorded
+    private CheckBox heatmapBox;
+    private Label heatmapLabel;
+    private int[] heat;                     // expansions per cell when the heatmap was last updated
+    private double heatScale;               // log of the hottest count, 0 when nothing's been expanded
+
     @Override
     public void start(Stage stage) {
         grid = new Grid(ROWS, COLS);
+        try {
+            // landmark tables for maps seen before come off disk instead of 16 dijkstras
+            landmarkCache = ArtifactCache.inHome(LANDMARK_CACHE_BYTES);
+            landmarkHeuristic.setCache(landmarkCache);
+        } catch (IOException e) {
+            System.err.println("no landmark cache: " + e.getMessage());
+        }
 
-        gridPane = createGridPane();
+        for (Cell.TerrainType terrain : Cell.TerrainType.values()) {
+            terrainColors[terrain.ordinal()] = GridView.toArgb(getTerrainColor(terrain));
+        }
+        gridView = new GridView(this::cellColor);
+        gridView.setOnCellClicked(this::cellClicked);
+        gridView.setOnCellDragged(this::cellDragged);
+        gridView.setGrid(grid);
+        grid.addGridListener(gridView);
         
         // Initialize start and goal cells
         startCell = grid.getCell(0, 0);
@@ -73,11 +145,20 @@ public class PathApp extends Application {
         scrollPane.setFitToWidth(true);
         scrollPane.setStyle("-fx-background-color: transparent;");
 
+        // performance overlay in the top-left corner of the grid, F3 toggles it too
+        hud.setOpenSetSource(() -> algorithm == null ? 0 : algorithm.getState().getOpenCount());
+        StackPane gridArea = new StackPane(gridView, hud);
+        StackPane.setAlignment(hud, Pos.TOP_LEFT);
+
         root = new BorderPane();
-        root.setCenter(gridPane);
+        root.setCenter(gridArea);
         root.setRight(scrollPane);
 
         Scene scene = new Scene(root, 1200, 650);
+        hud.attach(scene);
+        scene.setOnKeyPressed(e -> {
+            if (e.getCode() == KeyCode.F3) hud.setRunning(!hud.isRunning());
+        });
         stage.setScene(scene);
         stage.setTitle("Pathfinding Visualizer");
         stage.show();
@@ -121,7 +202,9 @@ public class PathApp extends Application {
                 "Small (20x30)",
                 "Medium (40x60)",
                 "Large (60x90)",
-                "Extra Large (80x120)"
+                "Extra Large (80x120)",
+                "Huge (500x750)",
+                "Giant (2000x3000)"
         );
         gridSizeCombo.setValue("Medium (40x60)");
         gridSizeCombo.setPrefWidth(200);
@@ -138,6 +221,10 @@ public class PathApp extends Application {
                 ROWS = 60; COLS = 90;
             } else if (selected.contains("80x120")) {
                 ROWS = 80; COLS = 120;
+            } else if (selected.contains("500x750")) {
+                ROWS = 500; COLS = 750;
+            } else if (selected.contains("2000x3000")) {
+                ROWS = 2000; COLS = 3000;
             }
             regenerateGrid();
         });
@@ -202,20 +289,122 @@ public class PathApp extends Application {
         runAstarButton.setPrefWidth(200);
         runAstarButton.setOnAction(e -> startAstar());
 
+        Button runAltButton = new Button("Run A* (Landmarks)");
+        runAltButton.setPrefWidth(200);
+        runAltButton.setOnAction(e -> startAlt());
+
+        Button runLrtaButton = new Button("Run LRTA* (Real-time)");
+        runLrtaButton.setPrefWidth(200);
+        runLrtaButton.setOnAction(e -> startLrta());
+
+        Button runIdaButton = new Button("Run IDA* (Low memory)");
+        runIdaButton.setPrefWidth(200);
+        runIdaButton.setOnAction(e -> startLowMemory("ida", new IterativeDeepeningAstar()));
+
+        Button runFringeButton = new Button("Run Fringe Search");
+        runFringeButton.setPrefWidth(200);
+        runFringeButton.setOnAction(e -> startLowMemory("fringe", new FringeSearch()));
+
+        // dijkstra and both a*s leave out dead ends and one-door pockets the path can't use
+        skipDeadEndsBox = new CheckBox("Skip dead ends");
+
+        // --- Race Section ---
+        Label raceLabel = new Label("Race");
+        raceLabel.setStyle("-fx-font-size: 14px; -fx-font-weight: bold;");
+
+        List<CheckBox> raceBoxes = new ArrayList<>();
+        for (String name : Algorithms.NAMES) {
+            CheckBox box = new CheckBox(name);
+            box.setSelected(!name.equals("dfs"));
+            raceBoxes.add(box);
+        }
+        FlowPane raceChoices = new FlowPane(8, 6);
+        raceChoices.getChildren().addAll(raceBoxes);
+        raceChoices.setPrefWrapLength(200);
+
+        Button raceButton = new Button("Race Selected");
+        raceButton.setPrefWidth(200);
+        raceButton.setOnAction(e -> {
+            List<String> names = new ArrayList<>();
+            for (CheckBox box : raceBoxes) {
+                if (box.isSelected()) names.add(box.getText());
+            }
+            startRace(names);
+        });
+
         Separator sep4 = new Separator();
 
         // --- Tools Section ---
         Label toolsLabel = new Label("Tools");
         toolsLabel.setStyle("-fx-font-size: 14px; -fx-font-weight: bold;");
 
+        generatorCombo = new ComboBox<>();
+        for (MapGenerator generator : generators) {
+            generatorCombo.getItems().add(generator.getName());
+        }
+        generatorCombo.setValue(generators.get(0).getName());
+        generatorCombo.setPrefWidth(200);
+
+        seedField = new TextField();
+        seedField.setPromptText("Seed (blank = random)");
+        seedField.setPrefWidth(200);
+
         Button generateMazeButton = new Button("Generate Maze");
         generateMazeButton.setPrefWidth(200);
         generateMazeButton.setOnAction(e -> generateRandomMaze());
 
+        // click toggles walls / cycles terrain like before, brush and rectangle paint
+        // the chosen terrain (WALL for walls, NORMAL to erase)
+        toolCombo = new ComboBox<>();
+        toolCombo.getItems().addAll("Click", "Brush", "Rectangle");
+        toolCombo.setValue("Click");
+        toolCombo.setPrefWidth(200);
+
+        paintCombo = new ComboBox<>();
+        paintCombo.getItems().addAll(Cell.TerrainType.values());
+        paintCombo.setValue(Cell.TerrainType.WALL);
+        paintCombo.setPrefWidth(200);
+
+        Label brushLabel = new Label("Brush size: 1");
+        brushSlider = new Slider(1, 15, 1);
+        brushSlider.setPrefWidth(200);
+        brushSlider.setMajorTickUnit(1);
+        brushSlider.setMinorTickCount(0);
+        brushSlider.setSnapToTicks(true);
+        brushSlider.valueProperty().addListener((obs, oldVal, newVal) ->
+                brushLabel.setText("Brush size: " + newVal.intValue()));
+
+        VBox paintBox = new VBox(8, new Label("Edit tool:"), toolCombo, paintCombo, brushLabel, brushSlider);
+
         Button toggleWeightsButton = new Button("Show/Hide Weights");
         toggleWeightsButton.setPrefWidth(200);
         toggleWeightsButton.setOnAction(e -> toggleEdgeWeights());
 
+        Button toggleHudButton = new Button("Show/Hide Performance HUD (F3)");
+        toggleHudButton.setPrefWidth(200);
+        toggleHudButton.setOnAction(e -> hud.setRunning(!hud.isRunning()));
+
+        // every search since the grid was made, colored by how often each cell got expanded
+        heatmapBox = new CheckBox("Show expansion heatmap");
+        heatmapBox.setOnAction(e -> updateHeatmap());
+
+        Button exportHeatmapButton = new Button("Export Heatmap");
+        exportHeatmapButton.setPrefWidth(96);
+        exportHeatmapButton.setOnAction(e -> exportHeatmap());
+
+        Button clearHeatmapButton = new Button("Clear Heatmap");
+        clearHeatmapButton.setPrefWidth(96);
+        clearHeatmapButton.setOnAction(e -> {
+            profile.clear();
+            updateHeatmap();
+        });
+
+        heatmapLabel = new Label("Heatmap: no runs yet");
+        heatmapLabel.setStyle("-fx-font-size: 12px;");
+        heatmapLabel.setWrapText(true);
+
+        VBox heatmapControls = new VBox(8, heatmapBox, new HBox(8, exportHeatmapButton, clearHeatmapButton), heatmapLabel);
+
         Button resetButton = new Button("Reset Grid");
         resetButton.setPrefWidth(200);
         resetButton.setOnAction(e -> resetGrid());
@@ -223,6 +412,44 @@ public class PathApp extends Application {
 
         Separator sep5 = new Separator();
 
+        // --- Replay Section ---
+        Label replayTitle = new Label("Replay");
+        replayTitle.setStyle("-fx-font-size: 14px; -fx-font-weight: bold;");
+
+        replayLabel = new Label("Step: -");
+        replayLabel.setStyle("-fx-font-size: 12px;");
+        replayLabel.setWrapText(true);
+
+        replaySlider = new Slider(0, 0, 0);
+        replaySlider.setPrefWidth(200);
+        replaySlider.valueProperty().addListener((obs, oldVal, newVal) -> {
+            if (!movingSlider) {
+                scrubTo((int) Math.round(newVal.doubleValue()));
+            }
+        });
+
+        Button stepBackButton = new Button("< Step");
+        stepBackButton.setPrefWidth(96);
+        stepBackButton.setOnAction(e -> scrubTo(shownStep() - 1));
+
+        Button stepForwardButton = new Button("Step >");
+        stepForwardButton.setPrefWidth(96);
+        stepForwardButton.setOnAction(e -> scrubTo(shownStep() + 1));
+
+        Button exportTraceButton = new Button("Export Trace");
+        exportTraceButton.setPrefWidth(96);
+        exportTraceButton.setOnAction(e -> exportTrace());
+
+        Button importTraceButton = new Button("Import Trace");
+        importTraceButton.setPrefWidth(96);
+        importTraceButton.setOnAction(e -> importTrace());
+
+        VBox replayBox = new VBox(8, replayLabel, replaySlider,
+                new HBox(8, stepBackButton, stepForwardButton),
+                new HBox(8, exportTraceButton, importTraceButton));
+
+        Separator sep6 = new Separator();
+
         // --- Path Cost Label ---
         pathCostLabel = new Label("Path Cost: -");
         pathCostLabel.setStyle("-fx-font-weight: bold; -fx-font-size: 13px;");
@@ -246,127 +473,132 @@ public class PathApp extends Application {
                 runDfsButton,
                 runDijkstraButton,
                 runAstarButton,
+                runAltButton,
+                runLrtaButton,
+                runIdaButton,
+                runFringeButton,
+                skipDeadEndsBox,
+                raceLabel,
+                raceChoices,
+                raceButton,
                 sep4,
                 toolsLabel,
+                generatorCombo,
+                seedField,
                 generateMazeButton,
+                paintBox,
                 toggleWeightsButton,
+                toggleHudButton,
+                heatmapControls,
                 resetButton,
                 sep5,
+                replayTitle,
+                replayBox,
+                sep6,
                 pathCostLabel
         );
 
         return sidebar;
     }
 
-    private Pane createGridPane() {
-        Pane pane = new Pane();
-        pane.setPrefSize(COLS * CELL_SIZE, ROWS * CELL_SIZE);
-
-        rects = new Rectangle[ROWS][COLS];
+    private void cellClicked(int row, int col, MouseEvent e) {
+        if (!toolCombo.getValue().equals("Click")) return;  // the paint tools handle their own clicks
+        Cell cell = grid.getCell(row, col);
+
+        // edits go to the live grid, a running search keeps its own snapshot
+        if (e.isShiftDown()) {
+            // Shift+Click: cycle through terrain types
+            // (weights follow the terrain automatically)
+            cycleTerrain(cell);
+        } else if (cell.isWall()) {
+            // Cell is no longer a wall - reset to normal terrain
+            grid.setTerrain(row, col, Cell.TerrainType.NORMAL);
+        } else {
+            // Regular click: toggle wall
+            grid.setWall(row, col, true);
+        }
+        refreshGrid();
+    }
 
-        for (int r = 0; r < ROWS; r++) {
-            for (int c = 0; c < COLS; c++) {
-                Rectangle rect = new Rectangle(CELL_SIZE, CELL_SIZE);
-                rect.setLayoutX(c * CELL_SIZE);
-                rect.setLayoutY(r * CELL_SIZE);
-                rect.setStroke(Color.DARKGRAY);
-                rect.setFill(Color.LIGHTGRAY);
-
-                final int row = r;
-                final int col = c;
-
-                rect.setOnMouseClicked(e -> {
-                    Cell cell = grid.getCell(row, col);
-                    
-                    if (e.isShiftDown()) {
-                        // Shift+Click: cycle through terrain types
-                        cycleTerrain(cell);
-                        // Rebuild edges when terrain changes
-                        grid.rebuildEdges();
-                    } else {
-                        // Regular click: toggle wall
-                        boolean wasWall = cell.isWall();
-                        cell.setWall(!wasWall);
-                        
-                        if (!wasWall) {
-                            // Cell became a wall - remove its edges
-                            cell.clearEdges();
-                            // Remove edges from other cells pointing to this cell
-                            for (int r2 = 0; r2 < ROWS; r2++) {
-                                for (int c2 = 0; c2 < COLS; c2++) {
-                                    Cell otherCell = grid.getCell(r2, c2);
-                                    otherCell.getEdges().removeIf(edge -> edge.getDestination() == cell);
-                                }
-                            }
-                        } else {
-                            // Cell is no longer a wall - reset to normal terrain and rebuild edges
-                            cell.setTerrain(Cell.TerrainType.NORMAL);
-                            grid.rebuildEdges();
-                        }
-                    }
-                    refreshGrid();
-                    // Refresh edge weights if they're visible
-                    if (weightsVisible) {
-                        gridPane.getChildren().removeIf(node -> node instanceof Text);
-                        drawEdgeWeights();
-                    }
-                });
-                rects[r][c] = rect;
-                pane.getChildren().add(rect);
+    // brush: every cell the brush passes over, including the ones between two mouse events
+    // rectangle: outline while dragging, filled on release. either way nothing touches the
+    // grid here, flushEdits() applies it all once a frame
+    private void cellDragged(int row, int col, MouseEvent e) {
+        String tool = toolCombo.getValue();
+        if (tool.equals("Click")) return;
+        if (pendingEdit == null) pendingEdit = new GridEdit(grid);
+        Cell.TerrainType terrain = paintCombo.getValue();
+
+        if (e.getEventType() == MouseEvent.MOUSE_PRESSED) {
+            if (tool.equals("Brush")) {
+                stamp(row, col, terrain);
+                lastPaintRow = row;
+                lastPaintCol = col;
+            } else {
+                rectRow = clamp(row, grid.getRows());
+                rectCol = clamp(col, grid.getCols());
+                gridView.setOutline(rectRow, rectCol, rectRow, rectCol);
+            }
+            editFlusher.start();
+        } else if (tool.equals("Brush")) {
+            if (lastPaintRow < 0) return;  // pressed with another tool
+            strokeTo(row, col, terrain);
+            if (e.getEventType() == MouseEvent.MOUSE_RELEASED) lastPaintRow = -1;
+        } else {
+            if (rectRow < 0) return;
+            if (e.getEventType() == MouseEvent.MOUSE_RELEASED) {
+                pendingEdit.fillRect(rectRow, rectCol, row, col, terrain);
+                gridView.clearOutline();
+                rectRow = -1;
+            } else {
+                gridView.setOutline(rectRow, rectCol, clamp(row, grid.getRows()), clamp(col, grid.getCols()));
             }
         }
-        
-        return pane;
-    }
 
-    private void toggleEdgeWeights() {
-        // Remove all existing weight labels
-        gridPane.getChildren().removeIf(node -> node instanceof Text);
-        
-        // Toggle visibility state
-        weightsVisible = !weightsVisible;
-        
-        if (weightsVisible) {
-            drawEdgeWeights();
+        if (e.getEventType() == MouseEvent.MOUSE_RELEASED) {
+            editFlusher.stop();
+            flushEdits();
         }
     }
 
-    private void drawEdgeWeights() {
-        for (int r = 0; r < ROWS; r++) {
-            for (int c = 0; c < COLS; c++) {
-                Cell cell = grid.getCell(r, c);
-                
-                // Skip if cell is a wall
-                if (cell.isWall()) continue;
-                
-                for (Edge edge : cell.getEdges()) {
-                    Cell neighbor = edge.getDestination();
-                    
-                    // Skip if neighbor is a wall
-                    if (neighbor.isWall()) continue;
-                    
-                    double weight = edge.getWeight();
-                    
-                    // Calculate midpoint between cells for label placement
-                    double x1 = c * CELL_SIZE + CELL_SIZE / 2;
-                    double y1 = r * CELL_SIZE + CELL_SIZE / 2;
-                    double x2 = neighbor.getCol() * CELL_SIZE + CELL_SIZE / 2;
-                    double y2 = neighbor.getRow() * CELL_SIZE + CELL_SIZE / 2;
-                    
-                    double midX = (x1 + x2) / 2;
-                    double midY = (y1 + y2) / 2;
-                    
-                    // Create weight label
-                    Text weightLabel = new Text(String.format("%.0f", weight));
-                    weightLabel.setFont(new Font(8));
-                    weightLabel.setFill(Color.DARKRED);
-                    weightLabel.setX(midX - 4);
-                    weightLabel.setY(midY + 3);
-                    
-                    gridPane.getChildren().add(weightLabel);
-                }
-            }
+    // stamps the brush at every cell on the line from the last brush position
+    private void strokeTo(int row, int col, Cell.TerrainType terrain) {
+        int dr = Math.abs(row - lastPaintRow);
+        int dc = Math.abs(col - lastPaintCol);
+        int steps = Math.max(dr, dc);
+        for (int i = 1; i <= steps; i++) {
+            stamp(lastPaintRow + Math.round((float) (row - lastPaintRow) * i / steps),
+                    lastPaintCol + Math.round((float) (col - lastPaintCol) * i / steps), terrain);
         }
+        lastPaintRow = row;
+        lastPaintCol = col;
+    }
+
+    // a size x size square centered on the cell
+    private void stamp(int row, int col, Cell.TerrainType terrain) {
+        int size = (int) brushSlider.getValue();
+        int top = row - (size - 1) / 2;
+        int left = col - (size - 1) / 2;
+        pendingEdit.fillRect(top, left, top + size - 1, left + size - 1, terrain);
+    }
+
+    private static int clamp(int value, int size) {
+        return Math.max(0, Math.min(size - 1, value));
+    }
+
+    // everything painted since the last frame goes to the grid as one batch,
+    // then the view is refreshed once
+    private void flushEdits() {
+        if (pendingEdit == null || pendingEdit.isEmpty()) return;
+        grid.apply(pendingEdit);
+        pendingEdit.clear();
+        refreshGrid();
+    }
+
+    private void toggleEdgeWeights() {
+        // Toggle visibility state, the view draws them once cells are big enough to fit them
+        weightsVisible = !weightsVisible;
+        gridView.setShowWeights(weightsVisible);
     }
 
     private void startBfs() {
@@ -392,7 +624,7 @@ public class PathApp extends Application {
         algorithm.init(grid, start, goal);
 
         refreshGrid();
-        startTimeline();
+        startTimeline("bfs");
     }
 
     private void startDfs() {
@@ -418,7 +650,7 @@ public class PathApp extends Application {
         algorithm.init(grid, start, goal);
 
         refreshGrid();
-        startTimeline();
+        startTimeline("dfs");
     }
 
     private void startDijkstra() {
@@ -440,11 +672,13 @@ public class PathApp extends Application {
         startCell = start;
         goalCell = goal;
 
-        algorithm = new Dijkstra();  // Dijkstra's algorithm
+        Dijkstra dijkstra = new Dijkstra();  // Dijkstra's algorithm
+        dijkstra.setDeadEnds(deadEnds());
+        algorithm = dijkstra;
         algorithm.init(grid, start, goal);
 
         refreshGrid();
-        startTimeline();
+        startTimeline("dijkstra");
     }
 
     private void startAstar() {
@@ -466,26 +700,134 @@ public class PathApp extends Application {
         startCell = start;
         goalCell = goal;
 
-        algorithm = new Astar();  // A* algorithm
+        Astar astar = new Astar();  // A* algorithm
+        astar.setDeadEnds(deadEnds());
+        algorithm = astar;
         algorithm.init(grid, start, goal);
 
         refreshGrid();
-        startTimeline();
+        startTimeline("astar");
+    }
+
+    private void startAlt() {
+        // Stop any running algorithm
+        if (timeline != null) {
+            timeline.stop();
+        }
+
+        // Reset search state but keep walls and edges
+        resetSearchState();
+
+        Cell defaultStart = grid.getCell(0, 0);
+        Cell defaultGoal  = grid.getCell(10, 10);
+
+        Cell start = getCellFromField(startField, defaultStart);
+        Cell goal  = getCellFromField(goalField,  defaultGoal);
+
+        // Update start and goal cells
+        startCell = start;
+        goalCell = goal;
+
+        Astar alt = new Astar(landmarkHeuristic);  // A* with landmark (ALT) heuristic
+        alt.setDeadEnds(deadEnds());
+        algorithm = alt;
+        algorithm.init(grid, start, goal);
+
+        refreshGrid();
+        startTimeline("alt");
+    }
+
+    // the agent walks as it plans, what it learns stays in learnedHeuristic, so running it
+    // again with the same goal takes a better route each time
+    private void startLrta() {
+        if (timeline != null) {
+            timeline.stop();
+        }
+        resetSearchState();
+
+        Cell defaultStart = grid.getCell(0, 0);
+        Cell defaultGoal  = grid.getCell(10, 10);
+
+        startCell = getCellFromField(startField, defaultStart);
+        goalCell = getCellFromField(goalField, defaultGoal);
+
+        algorithm = new RealTimeSearch(learnedHeuristic);
+        algorithm.init(grid, startCell, goalCell);
+
+        refreshGrid();
+        startTimeline("lrta");
+    }
+
+    // ida* and fringe search only keep a state per cell because the view is watching them
+    private void startLowMemory(String name, Pathfinding search) {
+        if (timeline != null) {
+            timeline.stop();
+        }
+        resetSearchState();
+
+        Cell defaultStart = grid.getCell(0, 0);
+        Cell defaultGoal  = grid.getCell(10, 10);
+
+        startCell = getCellFromField(startField, defaultStart);
+        goalCell = getCellFromField(goalField, defaultGoal);
+
+        algorithm = search;
+        algorithm.init(grid, startCell, goalCell);
+
+        refreshGrid();
+        startTimeline(name);
+    }
+
+    // every selected algorithm at once on its own thread, in a window of its own.
+    // the main view and its search are left alone: the race makes its own searches and
+    // heuristics (landmarks still come out of the shared cache), nothing is shared with the
+    // fx thread while the racers step
+    private void startRace(List<String> names) {
+        if (names.isEmpty()) return;
+        Cell start = getCellFromField(startField, grid.getCell(0, 0));
+        Cell goal = getCellFromField(goalField, grid.getCell(Math.min(10, ROWS - 1), Math.min(10, COLS - 1)));
+        long stepDelayNanos = (long) (animationSpeed * 1_000_000);
+        Algorithms factory = new Algorithms();
+        factory.setDeadEnds(deadEnds());
+        factory.setCache(landmarkCache);
+        new RaceWindow(root.getScene().getWindow(), grid, start, goal, names, factory::create,
+                this::colorOf, stepDelayNanos, profile, this::updateHeatmap);
+    }
+
+    private DeadEndIndex deadEnds() {
+        return skipDeadEndsBox.isSelected() ? deadEndIndex : null;
     }
 
-    private void startTimeline() {
+    private void startTimeline(String name) {
         if (timeline != null) {
             timeline.stop();
         }
 
         pathCostLabel.setText("Path Cost: Searching...");
 
+        // record every step so the run can be scrubbed or exported afterwards
+        trace = SearchTrace.record(name, algorithm, startCell, goalCell);
+        replay = null;
+        updateReplayControls();
+
+        // new search, new colors everywhere; after this the view follows the changes
+        algorithm.getState().addListener(gridView);
+        gridView.invalidateAll();
+        finishProfiledRun();
+        profiledRun = profile.record(algorithm.getState());
+
         timeline = new Timeline(new KeyFrame(Duration.millis(animationSpeed), e -> {
+            long begin = System.nanoTime();
             boolean finished = algorithm.step();
+            trace.endStep();
+            hud.searchStepped(System.nanoTime() - begin);
+            updateReplayControls();
             refreshGrid();
             if (finished) {
                 timeline.stop();
                 updatePathCost();
+                finishProfiledRun();
+                updateHeatmap();
             }
         }));
 
@@ -495,25 +837,14 @@ public class PathApp extends Application {
 
     private void updatePathCost() {
         if (algorithm != null && algorithm.hasPath()) {
-            double totalCost = 0;
-            List<Cell> path = algorithm.getPath();
+            CompactPath path = algorithm.getCompactPath();
             
-            // Calculate total cost by summing edge weights between consecutive cells in path
-            for (int i = 0; i < path.size() - 1; i++) {
-                Cell current = path.get(i);
-                Cell next = path.get(i + 1);
-                
-                // Find the edge from current to next
-                for (Edge edge : current.getEdges()) {
-                    if (edge.getDestination() == next) {
-                        totalCost += edge.getWeight();
-                        break;
-                    }
-                }
-            }
+            // Calculate total cost by summing edge weights along the path
+            // (on the snapshot the search ran on, the grid may have been edited since)
+            double totalCost = path.cost(algorithm.getState().getGrid());
             
-            // Number of steps = number of edges = path.size() - 1
-            int steps = path.size() - 1;
+            // Number of steps = number of edges
+            int steps = path.getLength();
             pathCostLabel.setText(String.format("Path Cost: %.1f (Steps: %d)", totalCost, steps));
         } else if (algorithm != null) {
             pathCostLabel.setText("Path Cost: No path found!");
@@ -521,13 +852,162 @@ public class PathApp extends Application {
     }
 
     private void resetSearchState() {
-        // Clear only search state, keep walls and edges intact
-        for (int r = 0; r < ROWS; r++) {
-            for (int c = 0; c < COLS; c++) {
-                grid.getCell(r, c).resetSearchState();
+        // Search state belongs to the algorithm, dropping it clears the grid colors
+        // while keeping walls and weights intact
+        finishProfiledRun();
+        algorithm = null;
+        clearTrace();
+        pathCostLabel.setText("Path Cost: -");
+    }
+
+    private void clearTrace() {
+        trace = null;
+        replay = null;
+        updateReplayControls();
+        gridView.invalidateAll();
+    }
+
+    // moves the view to any recorded step. scrubbing back pauses a running search,
+    // scrubbing all the way to the end picks it up again
+    private void scrubTo(int step) {
+        if (trace == null) return;
+        boolean running = algorithm != null && !algorithm.isFinished();
+        if (replay == null) {
+            if (step >= trace.getStepCount()) return;  // already showing the end
+            replay = trace.replay();
+            replay.seek(trace.getStepCount());
+            replay.setListener(gridView);
+            if (running && timeline != null) timeline.pause();
+        }
+        replay.seek(step);
+        if (replay.getStep() == trace.getStepCount() && algorithm != null) {
+            // back at the live end of the search
+            replay = null;
+            if (running && timeline != null) timeline.play();
+        }
+        updateReplayControls();
+        refreshGrid();
+    }
+
+    private int shownStep() {
+        if (trace == null) return 0;
+        return replay != null ? replay.getStep() : trace.getStepCount();
+    }
+
+    private void updateReplayControls() {
+        movingSlider = true;
+        if (trace == null) {
+            replaySlider.setMax(0);
+            replaySlider.setValue(0);
+            replayLabel.setText("Step: -");
+        } else {
+            replaySlider.setMax(trace.getStepCount());
+            replaySlider.setValue(shownStep());
+            replayLabel.setText(String.format("Step: %d / %d (%.1f bytes/step)",
+                    shownStep(), trace.getStepCount(), trace.getBytesPerStep()));
+        }
+        movingSlider = false;
+    }
+
+    // a run that's stopped or replaced still counts with what it expanded up to then
+    private void finishProfiledRun() {
+        if (profiledRun == null) return;
+        profiledRun.finish();
+        profiledRun = null;
+    }
+
+    // sums the profile again and repaints, only while the heatmap is shown since the sum
+    // goes over every cell
+    private void updateHeatmap() {
+        if (!heatmapBox.isSelected()) {
+            if (heat != null) {
+                heat = null;
+                gridView.invalidateAll();
+                refreshGrid();
             }
+            return;
         }
-        pathCostLabel.setText("Path Cost: -");
+        heat = profile.expansions();
+        int hottest = 0;
+        long total = 0;
+        for (int i = 0; i < heat.length; i++) {
+            total += heat[i];
+            if (heat[i] > heat[hottest]) hottest = i;
+        }
+        heatScale = heat[hottest] > 0 ? Math.log1p(heat[hottest]) : 0;
+        heatmapLabel.setText(heat[hottest] == 0 ? "Heatmap: no runs yet"
+                : String.format("Heatmap: %d runs, %,d expansions, hottest %d,%d (%,d)", profile.getRuns(), total,
+                        hottest / COLS, hottest % COLS, heat[hottest]));
+        gridView.invalidateAll();
+        refreshGrid();
+    }
+
+    private void exportHeatmap() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Export Heatmap");
+        chooser.setInitialFileName("heatmap.csv");
+        File file = chooser.showSaveDialog(root.getScene().getWindow());
+        if (file == null) return;
+        try {
+            profile.writeCsv(file.toPath());
+        } catch (IOException ex) {
+            heatmapLabel.setText("Export failed: " + ex.getMessage());
+        }
+    }
+
+    private void exportTrace() {
+        if (trace == null) {
+            replayLabel.setText("Run a search first");
+            return;
+        }
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Export Trace");
+        chooser.setInitialFileName(trace.getAlgorithm() + ".trace");
+        File file = chooser.showSaveDialog(root.getScene().getWindow());
+        if (file == null) return;
+        try {
+            trace.write(file.toPath());
+        } catch (IOException ex) {
+            replayLabel.setText("Export failed: " + ex.getMessage());
+        }
+    }
+
+    private void importTrace() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Import Trace");
+        File file = chooser.showOpenDialog(root.getScene().getWindow());
+        if (file == null) return;
+
+        SearchTrace loaded;
+        try {
+            loaded = SearchTrace.read(file.toPath());
+        } catch (IOException ex) {
+            replayLabel.setText("Import failed: " + ex.getMessage());
+            return;
+        }
+        if (loaded.getRows() != ROWS || loaded.getCols() != COLS) {
+            replayLabel.setText("Trace is for a " + loaded.getRows() + "x" + loaded.getCols() + " grid");
+            return;
+        }
+
+        // Stop any running algorithm, the imported run replaces it
+        if (timeline != null) {
+            timeline.stop();
+        }
+        finishProfiledRun();
+        algorithm = null;
+        trace = loaded;
+        startCell = grid.cellAt(trace.getStart());
+        goalCell = grid.cellAt(trace.getGoal());
+        startField.setText(startCell.getRow() + "," + startCell.getCol());
+        goalField.setText(goalCell.getRow() + "," + goalCell.getCol());
+        replay = trace.replay();
+        replay.seek(trace.getStepCount());
+        replay.setListener(gridView);
+        gridView.invalidateAll();
+        pathCostLabel.setText("Path Cost: - (imported " + trace.getAlgorithm() + " run)");
+        updateReplayControls();
+        refreshGrid();
     }
 
     private void resetGrid() {
@@ -536,18 +1016,11 @@ public class PathApp extends Application {
             timeline.stop();
         }
 
-        // Clear everything - walls, terrain, and search state
-        for (int r = 0; r < ROWS; r++) {
-            for (int c = 0; c < COLS; c++) {
-                Cell cell = grid.getCell(r, c);
-                cell.setWall(false);
-                cell.setTerrain(Cell.TerrainType.NORMAL);
-                cell.resetSearchState();
-            }
-        }
-        
-        // Rebuild all edges since walls were cleared
-        grid.rebuildEdges();
+        clearTrace();
+
+        // Clear everything - walls and terrain, all zeros is NORMAL everywhere
+        // (search state goes with the algorithm below)
+        grid.applyTerrain(new byte[ROWS * COLS]);
         
         // Reset to default start and goal
         startCell = grid.getCell(0, 0);
@@ -555,14 +1028,10 @@ public class PathApp extends Application {
         startField.setText("0,0");
         goalField.setText("10,10");
 
+        finishProfiledRun();
         algorithm = null;
         pathCostLabel.setText("Path Cost: -");
         
-        // Clear edge weights if visible
-        if (weightsVisible) {
-            gridPane.getChildren().removeIf(node -> node instanceof Text);
-            drawEdgeWeights();
-        }
         
         refreshGrid();
     }
@@ -575,34 +1044,62 @@ public class PathApp extends Application {
         int currentIndex = current.ordinal();
         int nextIndex = (currentIndex + 1) % (types.length - 1); // Skip WALL
         
-        cell.setTerrain(types[nextIndex]);
+        grid.setTerrain(cell.getRow(), cell.getCol(), types[nextIndex]);
     }
 
     private void refreshGrid() {
-        for (int r = 0; r < ROWS; r++) {
-            for (int c = 0; c < COLS; c++) {
-                Cell cell = grid.getCell(r, c);
-                Rectangle rect = rects[r][c];
-
-                // Priority: start/goal > path > closed > open > terrain
-                if (cell == startCell) {
-                    rect.setFill(Color.ORANGE);
-                } else if (cell == goalCell) {
-                    rect.setFill(Color.PURPLE);
-                } else if (cell.isInPath()) {
-                    rect.setFill(Color.RED);
-                } else if (cell.isInClosedSet()) {
-                    rect.setFill(Color.LIGHTGREEN);
-                } else if (cell.isInOpenSet()) {
-                    rect.setFill(Color.LIGHTBLUE);
-                } else if (cell.isWall()) {
-                    rect.setFill(Color.BLACK);
-                } else {
-                    // Show terrain color
-                    rect.setFill(getTerrainColor(cell.getTerrain()));
-                }
-            }
+        long begin = System.nanoTime();
+        gridView.setEndpoints(startCell, goalCell);
+        gridView.refresh();
+        hud.gridRefreshed(System.nanoTime() - begin);
+    }
+
+    // what the grid view paints for a cell
+    private int cellColor(int row, int col) {
+        Cell cell = grid.getCell(row, col);
+
+        // the heatmap takes the place of the search colors while it's on
+        int index = grid.indexOf(row, col);
+        if (heat != null && !cell.isAt(startCell) && !cell.isAt(goalCell) && heat[index] > 0) {
+            int shade = (int) (Math.log1p(heat[index]) / heatScale * (HEAT_COLORS.length - 1));
+            return HEAT_COLORS[shade];
+        }
+
+        // while scrubbing the colors come from the trace instead of the search
+        byte flags = 0;
+        if (replay != null) {
+            flags = replay.getFlags(index);
+        } else if (algorithm != null) {
+            flags = algorithm.getState().getFlags(index);
+        }
+        return colorOf(cell, flags, startCell, goalCell);
+    }
+
+    // same colors for the main view and the race views
+    private int colorOf(Cell cell, byte flags, Cell start, Cell goal) {
+        // Priority: start/goal > path > closed > open > terrain
+        if (cell.isAt(start)) {
+            return START_COLOR;
+        } else if (cell.isAt(goal)) {
+            return GOAL_COLOR;
+        } else if ((flags & SearchState.PATH) != 0) {
+            return PATH_COLOR;
+        } else if ((flags & SearchState.CLOSED) != 0) {
+            return CLOSED_COLOR;
+        } else if ((flags & SearchState.OPEN) != 0) {
+            return OPEN_COLOR;
         }
+        // Show terrain color (walls are black)
+        return terrainColors[cell.getTerrain().ordinal()];
+    }
+
+    // log scale from blue to red, so cells expanded a few times still show up next to hot ones
+    private static int[] heatColors() {
+        int[] colors = new int[256];
+        for (int i = 0; i < colors.length; i++) {
+            colors[i] = GridView.toArgb(Color.hsb(240 * (1 - i / 255.0), 0.85, 1));
+        }
+        return colors;
     }
 
     private Color getTerrainColor(Cell.TerrainType terrain) {
@@ -617,53 +1114,61 @@ public class PathApp extends Application {
     }
 
     private void generateRandomMaze() {
+        if (generating) return;  // one at a time
+
         // Stop any running algorithm
         if (timeline != null) {
             timeline.stop();
         }
         
         // Clear the grid and reset algorithm
+        finishProfiledRun();
         algorithm = null;
-        pathCostLabel.setText("Path Cost: -");
-        
-        // Reset all cells
-        for (int r = 0; r < ROWS; r++) {
-            for (int c = 0; c < COLS; c++) {
-                Cell cell = grid.getCell(r, c);
-                cell.setWall(false);
-                cell.setTerrain(Cell.TerrainType.NORMAL);
-                cell.resetSearchState();
+        clearTrace();
+        pathCostLabel.setText("Path Cost: Generating...");
+
+        MapGenerator generator = generators.get(generatorCombo.getSelectionModel().getSelectedIndex());
+        long seed = readSeed();
+        seedField.setText(Long.toString(seed));  // so the map can be made again
+        int rows = ROWS;
+        int cols = COLS;
+
+        // generating big maps takes a while, keep it off the fx thread
+        Task<byte[]> task = new Task<>() {
+            @Override
+            protected byte[] call() {
+                return generator.generate(rows, cols, seed);
             }
-        }
-        
-        // Generate random walls (30% chance)
-        java.util.Random random = new java.util.Random();
-        for (int r = 0; r < ROWS; r++) {
-            for (int c = 0; c < COLS; c++) {
-                if (random.nextDouble() < 0.3) {
-                    grid.getCell(r, c).setWall(true);
-                }
+        };
+        task.setOnSucceeded(e -> {
+            generating = false;
+            // grid size changed while we were busy, the map doesn't fit anymore
+            if (rows != ROWS || cols != COLS) {
+                pathCostLabel.setText("Path Cost: -");
+                return;
             }
-        }
-        
-        // Rebuild edges after wall generation
-        grid.rebuildEdges();
-        
-        // Select random start and goal that are not walls
-        Cell start = null;
-        Cell goal = null;
-        
-        while (start == null || start.isWall()) {
-            int r = random.nextInt(ROWS);
-            int c = random.nextInt(COLS);
-            start = grid.getCell(r, c);
-        }
-        
-        while (goal == null || goal.isWall() || goal == start) {
-            int r = random.nextInt(ROWS);
-            int c = random.nextInt(COLS);
-            goal = grid.getCell(r, c);
-        }
+            applyMaze(task.getValue(), seed);
+        });
+        task.setOnFailed(e -> {
+            generating = false;
+            pathCostLabel.setText("Path Cost: Generation failed");
+        });
+
+        generating = true;
+        Thread worker = new Thread(task, "map-generator");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private void applyMaze(byte[] terrain, long seed) {
+        // Copy the new map over
+        grid.applyTerrain(terrain);
+        pathCostLabel.setText("Path Cost: -");
+
+        // Select random start and goal that are not walls, seeded so they come out the same too
+        Random random = new Random(seed);
+        Cell start = randomOpenCell(random, null);
+        Cell goal = randomOpenCell(random, start);
         
         // Update start and goal cell references
         startCell = start;
@@ -676,10 +1181,29 @@ public class PathApp extends Application {
         // Refresh display
         refreshGrid();
         
-        // Refresh edge weights if they're visible
-        if (weightsVisible) {
-            gridPane.getChildren().removeIf(node -> node instanceof Text);
-            drawEdgeWeights();
+    }
+
+    // random non-wall cell, falls back to a scan when the map is mostly walls
+    private Cell randomOpenCell(Random random, Cell avoid) {
+        for (int attempt = 0; attempt < 1000; attempt++) {
+            Cell cell = grid.getCell(random.nextInt(ROWS), random.nextInt(COLS));
+            if (!cell.isWall() && cell != avoid) return cell;
+        }
+        for (int r = 0; r < ROWS; r++) {
+            for (int c = 0; c < COLS; c++) {
+                Cell cell = grid.getCell(r, c);
+                if (!cell.isWall() && cell != avoid) return cell;
+            }
+        }
+        return grid.getCell(0, 0);
+    }
+
+    // seed from the text field, or a fresh random one if it's blank or not a number
+    private long readSeed() {
+        try {
+            return Long.parseLong(seedField.getText().trim());
+        } catch (NumberFormatException e) {
+            return new Random().nextLong();
         }
     }
 
@@ -709,18 +1233,17 @@ public class PathApp extends Application {
             timeline.stop();
         }
         
-        // Clear edge weights if visible
-        if (weightsVisible) {
-            gridPane.getChildren().removeIf(node -> node instanceof Text);
-        }
-        
-        // Create new grid with new dimensions
+        // Create new grid with new dimensions, the view zooms to fit it
+        editFlusher.stop();
+        pendingEdit = null;
         grid = new Grid(ROWS, COLS);
-        
-        // Remove old grid pane and create new one
-        root.setCenter(null);
-        gridPane = createGridPane();
-        root.setCenter(gridPane);
+        gridView.setGrid(grid);
+        grid.addGridListener(gridView);
+
+        // the heatmap was for the old size
+        finishProfiledRun();
+        profile = new SearchProfile(ROWS, COLS);
+        updateHeatmap();
         
         // Reset start and goal to defaults
         startCell = grid.getCell(0, 0);
@@ -730,13 +1253,9 @@ public class PathApp extends Application {
         
         // Reset algorithm and path cost
         algorithm = null;
+        clearTrace();
         pathCostLabel.setText("Path Cost: -");
         
-        // Redraw edge weights if they were visible
-        if (weightsVisible) {
-            drawEdgeWeights();
-        }
-        
         refreshGrid();
     }
 
@@ -0,0 +1,272 @@
+package views;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.IntSupplier;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.Scene;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+
+// small overlay with the last couple of seconds of timings, one sparkline each, so it's
+// easy to tell whether a slow grid is slow because of drawing or because of the search.
+// everything is collected once per frame into float rings; the app only has to report
+// how long its steps and grid refreshes took. while hidden nothing is sampled at all
+public class PerfHud extends Region {
+    private static final int SAMPLES = 120;            // frames kept per sparkline
+    private static final long MEMORY_SAMPLE_NANOS = 250_000_000L;  // heap and gc beans are slower to ask
+    private static final double ROW_HEIGHT = 22;
+    private static final double LABEL_WIDTH = 150;
+    private static final double SPARK_WIDTH = SAMPLES;
+    private static final Color BACKGROUND = Color.rgb(0, 0, 0, 0.7);
+    private static final Color LINE = Color.rgb(120, 230, 120);
+    private static final Color LIMIT = Color.rgb(255, 255, 255, 0.25);
+    private static final Font FONT = Font.font("Monospaced", 11);
+
+    private final Canvas canvas = new Canvas();
+    private final Series frame = new Series("frame", "ms", 16.7);
+    private final Series pulse = new Series("fx pulse", "ms", 0);
+    private final Series refresh = new Series("refreshGrid", "ms", 0);
+    private final Series search = new Series("search", "ms", 0);
+    private final Series stepsPerSecond = new Series("steps/s", "", 0);
+    private final Series stepsPerFrame = new Series("steps/frame", "", 0);
+    private final Series openSet = new Series("open set", "", 0);
+    private final Series heap = new Series("heap", "MB", 0);
+    private final Series gcs = new Series("gc", "/s", 0);
+    private final Series[] all = {frame, pulse, refresh, search, stepsPerSecond, stepsPerFrame, openSet, heap, gcs};
+
+    private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+    private IntSupplier openSetSource = () -> 0;
+    private boolean running;
+
+    // reported by the app between two frames
+    private long refreshNanos;
+    private long searchNanos;
+    private int steps;
+
+    private long lastFrame;
+    private long pulseStart;
+    private long lastMemorySample;
+    private long lastGcCount = -1;
+    private long gcTotal;
+    private float heapMb;
+    private float gcRate;
+
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            pulseStart = System.nanoTime();
+            frame(now);
+        }
+    };
+
+    private final Runnable pulseEnd = () -> {
+        if (pulseStart != 0) {
+            pulse.add((System.nanoTime() - pulseStart) / 1e6f);
+            pulseStart = 0;
+        }
+    };
+
+    public PerfHud() {
+        getChildren().add(canvas);
+        canvas.setWidth(LABEL_WIDTH + SPARK_WIDTH + 16);
+        canvas.setHeight(all.length * ROW_HEIGHT + 12);
+        setMouseTransparent(true);
+        setVisible(false);
+        setMaxSize(USE_PREF_SIZE, USE_PREF_SIZE);
+    }
+
+    // where the open set size comes from, asked once per frame
+    public void setOpenSetSource(IntSupplier source) {
+        this.openSetSource = source;
+    }
+
+    // the time of a pulse runs from the first animation callback to the end of layout,
+    // drawing on the render thread after that only shows up in the frame time
+    public void attach(Scene scene) {
+        scene.addPostLayoutPulseListener(pulseEnd);
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public void setRunning(boolean running) {
+        if (running == this.running) return;
+        this.running = running;
+        setVisible(running);
+        if (running) {
+            for (Series series : all) series.clear();
+            lastFrame = 0;
+            lastGcCount = -1;
+            lastMemorySample = 0;
+            timer.start();
+        } else {
+            timer.stop();
+        }
+    }
+
+    // one call to Pathfinding.step(), and how long it took
+    public void searchStepped(long nanos) {
+        if (!running) return;
+        steps++;
+        searchNanos += nanos;
+    }
+
+    // one refreshGrid(), and how long it took
+    public void gridRefreshed(long nanos) {
+        if (!running) return;
+        refreshNanos += nanos;
+    }
+
+    @Override
+    protected double computePrefWidth(double height) {
+        return canvas.getWidth() + 16;
+    }
+
+    @Override
+    protected double computePrefHeight(double width) {
+        return canvas.getHeight() + 16;
+    }
+
+    @Override
+    protected void layoutChildren() {
+        canvas.relocate(8, 8);
+    }
+
+    private void frame(long now) {
+        if (lastFrame != 0) {
+            float frameMs = (now - lastFrame) / 1e6f;
+            frame.add(frameMs);
+            refresh.add(refreshNanos / 1e6f);
+            search.add(searchNanos / 1e6f);
+            stepsPerFrame.add(steps);
+            stepsPerSecond.add(stepsInLastSecond(steps, frameMs));
+            openSet.add(openSetSource.getAsInt());
+
+            if (now - lastMemorySample >= MEMORY_SAMPLE_NANOS) {
+                sampleMemory(now);
+            }
+            heap.add(heapMb);
+            gcs.add(gcRate);
+            draw();
+        }
+        lastFrame = now;
+        refreshNanos = 0;
+        searchNanos = 0;
+        steps = 0;
+    }
+
+    // steps over however many of the last frames make up a second, this one included
+    private float stepsInLastSecond(int stepsNow, float frameMs) {
+        double ms = frameMs;
+        double total = stepsNow;
+        for (int back = 1; back < stepsPerFrame.count && ms < 1000; back++) {
+            ms += frame.ago(back);
+            total += stepsPerFrame.ago(back);
+        }
+        return (float) (total * 1000 / Math.max(ms, 1));
+    }
+
+    private void sampleMemory(long now) {
+        Runtime runtime = Runtime.getRuntime();
+        heapMb = (runtime.totalMemory() - runtime.freeMemory()) / (1024f * 1024f);
+        long count = 0;
+        for (GarbageCollectorMXBean collector : collectors) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        if (lastGcCount >= 0) {
+            gcTotal += count - lastGcCount;
+            gcRate = (count - lastGcCount) * 1e9f / (now - lastMemorySample);
+        }
+        lastGcCount = count;
+        lastMemorySample = now;
+    }
+
+    private void draw() {
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        gc.setFill(BACKGROUND);
+        gc.fillRoundRect(0, 0, canvas.getWidth(), canvas.getHeight(), 8, 8);
+        gc.setFont(FONT);
+
+        for (int i = 0; i < all.length; i++) {
+            Series series = all[i];
+            double top = 6 + i * ROW_HEIGHT;
+            double bottom = top + ROW_HEIGHT - 6;
+            String value = series == gcs
+                    ? String.format(Locale.ROOT, "%.1f%s (%d)", series.ago(0), series.unit, gcTotal)
+                    : series.format(series.ago(0));
+            gc.setFill(Color.WHITE);
+            gc.fillText(String.format(Locale.ROOT, "%-12s %s", series.name, value), 8, bottom - 3);
+
+            // scaled to the biggest value in view, with the budget line (60 fps for frames) if there is one
+            double left = LABEL_WIDTH;
+            double max = Math.max(series.max(), series.limit);
+            if (max <= 0) max = 1;
+            if (series.limit > 0) {
+                double y = bottom - series.limit / max * (bottom - top);
+                gc.setStroke(LIMIT);
+                gc.strokeLine(left, y, left + SPARK_WIDTH, y);
+            }
+            gc.setStroke(LINE);
+            gc.beginPath();
+            for (int back = series.count - 1; back >= 0; back--) {
+                double x = left + SPARK_WIDTH - 1 - back;
+                double y = bottom - series.ago(back) / max * (bottom - top);
+                if (back == series.count - 1) gc.moveTo(x, y); else gc.lineTo(x, y);
+            }
+            gc.stroke();
+        }
+    }
+
+    // the last SAMPLES values of one number
+    private static class Series {
+        private final String name;
+        private final String unit;
+        private final double limit;  // drawn as a reference line when > 0
+        private final float[] values = new float[SAMPLES];
+        private int next;
+        private int count;
+
+        Series(String name, String unit, double limit) {
+            this.name = name;
+            this.unit = unit;
+            this.limit = limit;
+        }
+
+        void add(float value) {
+            values[next] = value;
+            next = (next + 1) % SAMPLES;
+            count = Math.min(SAMPLES, count + 1);
+        }
+
+        // value from that many frames back, 0 is the latest
+        float ago(int back) {
+            if (back >= count) return 0;
+            return values[(next - 1 - back + SAMPLES) % SAMPLES];
+        }
+
+        float max() {
+            float max = 0;
+            for (int i = 0; i < count; i++) max = Math.max(max, values[i]);
+            return max;
+        }
+
+        void clear() {
+            next = 0;
+            count = 0;
+        }
+
+        String format(float value) {
+            if (unit.equals("ms")) return String.format(Locale.ROOT, "%.2f ms", value);
+            return String.format(Locale.ROOT, "%.0f %s", value, unit).trim();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package views;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import javafx.animation.AnimationTimer;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+import models.Cell;
+import models.CompactPath;
+import models.Grid;
+import models.Pathfinding;
+import models.RealTimeSearch;
+import models.SearchProfile;
+
+// runs several searches at once, each on its own worker thread, all on the same frozen
+// snapshot of the grid, and shows them side by side. the workers only write their own
+// search state; the fx thread reads it once a frame to redraw, so nothing is locked.
+// the time shown is the time spent inside step(), so the pause between steps (taken
+// from the animation speed) doesn't count against anyone. every racer is also added to the
+// profile, and onFinished runs on the fx thread once the last one is done
+class RaceWindow {
+
+    // color of a cell given its search flags, the same as the main view uses
+    interface CellColors {
+        int colorOf(Cell cell, byte flags, Cell start, Cell goal);
+    }
+
+    private final Stage stage = new Stage();
+    private final List<Racer> racers = new ArrayList<>();
+    private final ExecutorService workers;
+    private final AtomicInteger finishOrder = new AtomicInteger();
+    private final AnimationTimer timer;
+
+    RaceWindow(Window owner, Grid grid, Cell start, Cell goal, List<String> names,
+               Function<String, Pathfinding> factory, CellColors colors, long stepDelayNanos,
+               SearchProfile profile, Runnable onFinished) {
+        // one snapshot for everybody, each search then pins this same version
+        Grid snapshot = grid.snapshot();
+        Cell from = snapshot.getCell(start.getRow(), start.getCol());
+        Cell to = snapshot.getCell(goal.getRow(), goal.getCol());
+
+        GridPane panes = new GridPane();
+        panes.setHgap(8);
+        panes.setVgap(8);
+        panes.setPadding(new Insets(8));
+        int columns = (int) Math.ceil(Math.sqrt(names.size()));
+        for (int i = 0; i < names.size(); i++) {
+            Racer racer = new Racer(names.get(i), factory.apply(names.get(i)), snapshot, from, to, colors, profile);
+            racers.add(racer);
+            GridPane.setHgrow(racer.pane, Priority.ALWAYS);
+            GridPane.setVgrow(racer.pane, Priority.ALWAYS);
+            panes.add(racer.pane, i % columns, i / columns);
+        }
+
+        workers = Executors.newFixedThreadPool(racers.size(), task -> {
+            Thread thread = new Thread(task, "race");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                boolean running = false;
+                for (Racer racer : racers) {
+                    racer.redraw();
+                    running |= !racer.finished;
+                }
+                if (!running) {
+                    stop();
+                    onFinished.run();
+                }
+            }
+        };
+
+        stage.initOwner(owner);
+        stage.setTitle("Race: " + String.join(" vs ", names) + " on " + grid.getRows() + "x" + grid.getCols());
+        stage.setScene(new Scene(panes, 1000, 700));
+        stage.setOnHidden(e -> {
+            timer.stop();
+            workers.shutdownNow();
+        });
+        stage.show();
+
+        for (Racer racer : racers) {
+            workers.execute(() -> racer.run(stepDelayNanos));
+        }
+        timer.start();
+    }
+
+    // one search with its own view and numbers
+    private class Racer {
+        private final Pathfinding algorithm;
+        private final SearchProfile.Run profiled;
+        private final Grid grid;
+        private final GridView view;
+        private final Label stats = new Label();
+        private final VBox pane;
+
+        // written by the worker, read by the fx thread
+        private volatile int expansions;
+        private volatile long nanos;
+        private volatile boolean finished;
+        private volatile int place;
+        private volatile String result = "";
+
+        Racer(String name, Pathfinding algorithm, Grid grid, Cell start, Cell goal, CellColors colors,
+              SearchProfile profile) {
+            this.algorithm = algorithm;
+            this.grid = grid;
+            algorithm.init(grid, start, goal);
+            algorithm.getState().watch();  // the view polls the flags, searches that skip them unwatched shouldn't
+            profiled = profile.record(algorithm.getState());
+
+            view = new GridView((row, col) -> colors.colorOf(grid.getCell(row, col),
+                    algorithm.getState().getFlags(grid.indexOf(row, col)), start, goal));
+            view.setGrid(grid);
+            view.setEndpoints(start, goal);
+
+            Label title = new Label(name);
+            title.setStyle("-fx-font-size: 14px; -fx-font-weight: bold;");
+            stats.setStyle("-fx-font-family: monospace;");
+            pane = new VBox(4, title, view, stats);
+            VBox.setVgrow(view, Priority.ALWAYS);
+            updateStats();
+        }
+
+        // closing the window interrupts the workers, checked every step so a search with no
+        // delay between steps stops too and not only one that sleeps
+        void run(long stepDelayNanos) {
+            try {
+                boolean done;
+                do {
+                    if (Thread.currentThread().isInterrupted()) throw new InterruptedException();
+                    long begin = System.nanoTime();
+                    done = algorithm.step();
+                    nanos += System.nanoTime() - begin;
+                    if (algorithm instanceof RealTimeSearch) {
+                        // a step there is a whole lookahead, count the cells it expanded like Algorithms.run()
+                        expansions = (int) Math.min(Integer.MAX_VALUE, ((RealTimeSearch) algorithm).getExpansions());
+                    } else if (!done) {
+                        expansions++;
+                    }
+                    if (!done && stepDelayNanos > 0) Thread.sleep(stepDelayNanos / 1_000_000, (int) (stepDelayNanos % 1_000_000));
+                } while (!done);
+
+                CompactPath path = algorithm.getCompactPath();
+                result = path.isEmpty() ? "no path"
+                        : String.format(Locale.ROOT, "cost %.1f, %d moves", path.cost(grid), path.getLength());
+                place = finishOrder.incrementAndGet();
+            } catch (InterruptedException e) {
+                result = "stopped";
+            } finally {
+                profiled.finish();
+                finished = true;
+            }
+        }
+
+        // flags change behind the view's back, so everything in view is repainted each frame
+        void redraw() {
+            view.invalidateAll();
+            view.refresh();
+            updateStats();
+        }
+
+        private void updateStats() {
+            String status = !finished ? "running, open " + algorithm.getState().getOpenCount()
+                    : place > 0 ? "#" + place + ", " + result : result;
+            stats.setText(String.format(Locale.ROOT, "%,d expansions  %.2f ms%n%s", expansions, nanos / 1e6, status));
+        }
+    }
+}
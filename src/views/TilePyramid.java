@@ -0,0 +1,121 @@
+package views;
+
+import java.util.stream.IntStream;
+
+// downsampled colors of the grid for drawing it zoomed out. level l holds one color per
+// block of 2^(l+1) x 2^(l+1) cells, the average of the four blocks below it (level 0
+// averages the cells themselves). a changed cell only touches one block per level
+class TilePyramid {
+    private final int rows;
+    private final int cols;
+    private final GridView.CellPainter painter;
+    private final int[][] colors;    // [level][blockRow * levelCols + blockCol], argb
+    private final int[] levelRows;
+    private final int[] levelCols;
+
+    TilePyramid(int rows, int cols, GridView.CellPainter painter) {
+        this.rows = rows;
+        this.cols = cols;
+        this.painter = painter;
+
+        int levels = 1;
+        while ((2 << (levels - 1)) < Math.max(rows, cols)) levels++;
+        colors = new int[levels][];
+        levelRows = new int[levels];
+        levelCols = new int[levels];
+        for (int level = 0; level < levels; level++) {
+            int block = 2 << level;
+            levelRows[level] = (rows + block - 1) / block;
+            levelCols[level] = (cols + block - 1) / block;
+            colors[level] = new int[levelRows[level] * levelCols[level]];
+        }
+        rebuild();
+    }
+
+    int levels() {
+        return colors.length;
+    }
+
+    int rows(int level) {
+        return levelRows[level];
+    }
+
+    int cols(int level) {
+        return levelCols[level];
+    }
+
+    int color(int level, int blockRow, int blockCol) {
+        return colors[level][blockRow * levelCols[level] + blockCol];
+    }
+
+    // recomputes every level, the bottom one in parallel rows since it's the big one
+    void rebuild() {
+        IntStream.range(0, levelRows[0]).parallel().forEach(blockRow -> {
+            for (int blockCol = 0; blockCol < levelCols[0]; blockCol++) {
+                colors[0][blockRow * levelCols[0] + blockCol] = cellBlock(blockRow, blockCol);
+            }
+        });
+        for (int level = 1; level < colors.length; level++) {
+            for (int blockRow = 0; blockRow < levelRows[level]; blockRow++) {
+                for (int blockCol = 0; blockCol < levelCols[level]; blockCol++) {
+                    colors[level][blockRow * levelCols[level] + blockCol] = childBlock(level, blockRow, blockCol);
+                }
+            }
+        }
+    }
+
+    // one cell changed, walk up from its block to the top
+    void update(int row, int col) {
+        int blockRow = row >> 1;
+        int blockCol = col >> 1;
+        colors[0][blockRow * levelCols[0] + blockCol] = cellBlock(blockRow, blockCol);
+        for (int level = 1; level < colors.length; level++) {
+            blockRow >>= 1;
+            blockCol >>= 1;
+            colors[level][blockRow * levelCols[level] + blockCol] = childBlock(level, blockRow, blockCol);
+        }
+    }
+
+    private int cellBlock(int blockRow, int blockCol) {
+        Average average = new Average();
+        for (int r = blockRow * 2; r < Math.min(rows, blockRow * 2 + 2); r++) {
+            for (int c = blockCol * 2; c < Math.min(cols, blockCol * 2 + 2); c++) {
+                average.add(painter.colorAt(r, c));
+            }
+        }
+        return average.get();
+    }
+
+    private int childBlock(int level, int blockRow, int blockCol) {
+        int childRows = levelRows[level - 1];
+        int childCols = levelCols[level - 1];
+        int[] children = colors[level - 1];
+        Average average = new Average();
+        for (int r = blockRow * 2; r < Math.min(childRows, blockRow * 2 + 2); r++) {
+            for (int c = blockCol * 2; c < Math.min(childCols, blockCol * 2 + 2); c++) {
+                average.add(children[r * childCols + c]);
+            }
+        }
+        return average.get();
+    }
+
+    // per channel average of up to four argb colors
+    private static class Average {
+        private int red;
+        private int green;
+        private int blue;
+        private int count;
+
+        void add(int argb) {
+            red += (argb >> 16) & 0xFF;
+            green += (argb >> 8) & 0xFF;
+            blue += argb & 0xFF;
+            count++;
+        }
+
+        int get() {
+            if (count == 0) return 0xFF000000;
+            return 0xFF000000 | (red / count) << 16 | (green / count) << 8 | (blue / count);
+        }
+    }
+}